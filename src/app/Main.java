@@ -5,11 +5,22 @@ import model.Status;
 import model.SubTask;
 import model.Task;
 import server.HttpTaskServer;
+import server.NdjsonStream;
+import service.FileBackedTasksManager;
 import service.Managers;
-import service.TaskManager;
 
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
 import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.time.Duration;
@@ -24,12 +35,18 @@ import java.util.Scanner;
 public class Main {
     private static final Scanner in = new Scanner(System.in);
     private static final Path PATH = Paths.get("task.csv");
-    private static final TaskManager manager = Managers.getDefaultFileManager(PATH);
+    private static final FileBackedTasksManager manager = Managers.getDefaultFileManager(PATH);
+
+    private static final int STREAM_BUFFER_CHARS = 64 * 1024;
 
     private static final DateTimeFormatter DATE_TIME_FMT =
             DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm");
 
     public static void main(String[] args) throws IOException {
+        if (args.length > 0) {
+            System.exit(runBatch(args));
+        }
+
         server.KVServer kv = new server.KVServer();
         kv.start();
 
@@ -66,6 +83,36 @@ public class Main {
         }
     }
 
+    // пакетный режим без меню и серверов: export|import <файл.ndjson>, «-» — stdout/stdin
+    private static int runBatch(String[] args) throws IOException {
+        if (args.length != 2 || !(args[0].equals("export") || args[0].equals("import"))) {
+            System.err.println("Использование: Main export|import <файл.ndjson | ->");
+            return 2;
+        }
+        boolean std = args[1].equals("-");
+        try {
+            if (args[0].equals("export")) {
+                OutputStream out = std ? System.out : Files.newOutputStream(Path.of(args[1]));
+                try (Writer w = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), STREAM_BUFFER_CHARS)) {
+                    long n = NdjsonStream.export(manager, w);
+                    System.err.println("Выгружено записей: " + n);
+                }
+            } else {
+                InputStream in = std ? System.in : Files.newInputStream(Path.of(args[1]));
+                try (Reader r = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8), STREAM_BUFFER_CHARS)) {
+                    NdjsonStream.ImportResult result = NdjsonStream.importFrom(manager, r);
+                    System.err.println("Загружено: " + result.getImported() + ", отвергнуто: " + result.getRejected());
+                }
+            }
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            return 1;
+        } finally {
+            manager.close(); // дописываем отложенное
+        }
+        return 0;
+    }
+
     private static void printMenu() {
         System.out.println("=== Меню ===");
         System.out.println("1. Добавить Task");
@@ -0,0 +1,84 @@
+package bench;
+
+import model.Status;
+import model.Task;
+import service.Durability;
+import service.FileBackedTasksManager;
+import service.StoreOptions;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Random;
+
+/**
+ * Холодный архив: куча и стоимость одной синхронной мутации до и после переноса завершённых
+ * задач, чтение из архива по id и полный холодный поиск. Аргументы: число задач (200k)
+ * и доля завершённых старых задач в процентах (75).
+ */
+public class ArchiveBenchmark {
+    private static final int UPDATES = 20;
+    private static final int LOOKUPS = 1_000;
+
+    public static void main(String[] args) throws IOException {
+        int n = args.length > 0 ? Integer.parseInt(args[0]) : 200_000;
+        int donePercent = args.length > 1 ? Integer.parseInt(args[1]) : 75;
+        Path dir = Files.createTempDirectory("archive-bench");
+        Path file = dir.resolve("store.csv");
+        try {
+            StoreOptions sync = StoreOptions.DEFAULT.withFlush(0, 1);
+            try (FileBackedTasksManager m = new FileBackedTasksManager(file, StoreOptions.DEFAULT
+                    .withDurability(Durability.BOUNDED_LOSS).withFlush(Long.MAX_VALUE / 2, Integer.MAX_VALUE))) {
+                LocalDateTime old = LocalDateTime.of(2001, 1, 1, 0, 0);
+                for (int i = 0; i < n; i++) {
+                    Task t = new Task(0, "task " + i, "description of task " + i);
+                    if (i % 100 < donePercent) {
+                        t.setStatus(Status.DONE);
+                        t.setStartTime(old.plusMinutes(i));
+                    }
+                    m.addTask(t);
+                }
+            }
+
+            try (FileBackedTasksManager m = FileBackedTasksManager.loadFromFile(file, sync)) {
+                report("before", m, file, n);
+                long t0 = System.nanoTime();
+                int archived = m.archiveCompleted(Duration.ofDays(365));
+                System.out.printf("archived %d rows in %.0f ms, archive %.1f MB%n", archived,
+                        (System.nanoTime() - t0) / 1e6, Files.size(dir.resolve("store.csv.archive")) / 1e6);
+                report("after", m, file, n);
+
+                Random rnd = new Random(1);
+                t0 = System.nanoTime();
+                int found = 0;
+                for (int i = 0; i < LOOKUPS; i++) {
+                    int id = rnd.nextInt(n);
+                    if (id % 100 < donePercent && m.getArchived(id) != null) found++;
+                }
+                Bench.reportThroughput("archive lookup by id (" + found + " hits)", LOOKUPS, System.nanoTime() - t0);
+                t0 = System.nanoTime();
+                int matches = m.searchArchive(t -> t.getName().endsWith("42"), Integer.MAX_VALUE).size();
+                Bench.reportThroughput("archive full scan (" + matches + " matches)", archived, System.nanoTime() - t0);
+            }
+        } finally {
+            try (var files = Files.list(dir)) {
+                for (Path p : files.toList()) Files.delete(p);
+            }
+            Files.delete(dir);
+        }
+    }
+
+    private static void report(String name, FileBackedTasksManager m, Path file, int n) throws IOException {
+        for (int i = 0; i < 3; i++) System.gc();
+        Runtime rt = Runtime.getRuntime();
+        long heap = rt.totalMemory() - rt.freeMemory();
+        int live = m.getAllTasks().size();
+        long t0 = System.nanoTime();
+        for (int i = 0; i < UPDATES; i++) m.addTask(new Task(0, "probe", "probe"));
+        long perUpdate = (System.nanoTime() - t0) / UPDATES;
+        System.out.printf("%-6s live %7d tasks, heap %6.1f MB, snapshot %5.1f MB, SYNC mutation %5.1f ms%n",
+                name, live, heap / 1e6, Files.size(file) / 1e6, perUpdate / 1e6);
+    }
+}
@@ -0,0 +1,55 @@
+package bench;
+
+import model.Epic;
+import model.SubTask;
+import model.Task;
+import service.AutoScheduler;
+import service.InMemoryTaskManager;
+import service.ScheduleReport;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.Random;
+
+/**
+ * Пропускная способность автопланировщика на бэклоге из 100k задач без времени.
+ * Сетка рассчитана на год, поэтому часть бэклога закономерно остаётся неразмещённой.
+ */
+public class AutoSchedulerBenchmark {
+    private static final int BACKLOG = 100_000;
+    private static final int EPICS = 200;
+
+    public static void main(String[] args) {
+        InMemoryTaskManager manager = new InMemoryTaskManager();
+        Random rnd = new Random(11);
+        int[] epicIds = new int[EPICS];
+        for (int e = 0; e < EPICS; e++) {
+            Epic epic = new Epic();
+            epic.setName("E" + e);
+            epicIds[e] = manager.addEpic(epic).getAsInt();
+        }
+        for (int i = 0; i < BACKLOG; i++) {
+            Duration dur = Duration.ofMinutes(5 + rnd.nextInt(90));
+            if (i % 3 == 0) {
+                Task t = new Task();
+                t.setName("T" + i);
+                t.setDuration(dur);
+                manager.addTask(t);
+            } else {
+                SubTask s = new SubTask();
+                s.setName("S" + i);
+                s.setEpicId(epicIds[rnd.nextInt(EPICS)]);
+                s.setDuration(dur);
+                manager.addSubTask(s);
+            }
+        }
+
+        try (AutoScheduler scheduler = new AutoScheduler(manager, Runnable::run)) {
+            long t0 = System.nanoTime();
+            ScheduleReport report = scheduler.schedule(LocalDate.now().withDayOfYear(1).atStartOfDay()).join();
+            long nanos = System.nanoTime() - t0;
+            Bench.reportThroughput("auto-schedule backlog", BACKLOG, nanos);
+            System.out.println("  " + report);
+        }
+    }
+}
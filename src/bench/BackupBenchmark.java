@@ -0,0 +1,53 @@
+package bench;
+
+import model.Task;
+import service.Durability;
+import service.FileBackedTasksManager;
+import service.StoreOptions;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Онлайн-копия при идущих мутациях: время копирования и самая долгая задержка мутации,
+ * пока копия переливается. Первый аргумент — размер хранилища (по умолчанию 500k задач).
+ */
+public class BackupBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        int n = args.length == 0 ? 500_000 : Integer.parseInt(args[0]);
+        Path dir = Files.createTempDirectory("backup-bench");
+        Path file = dir.resolve("store.csv");
+        Path copy = dir.resolve("copy.csv");
+        try {
+            StoreOptions options = StoreOptions.DEFAULT.withDurability(Durability.BOUNDED_LOSS)
+                    .withFlush(Long.MAX_VALUE / 2, Integer.MAX_VALUE);
+            try (FileBackedTasksManager m = new FileBackedTasksManager(file, options)) {
+                for (int i = 0; i < n; i++) m.addTask(new Task(0, "task " + i, "description of task " + i));
+                m.flush();
+                System.out.printf("store %.1f MB%n", Files.size(file) / 1e6);
+
+                long[] maxStall = new long[1];
+                int[] mutations = new int[1];
+                Thread copier = new Thread(() -> m.backup(copy));
+                long t0 = System.nanoTime();
+                copier.start();
+                while (copier.isAlive()) {
+                    long s = System.nanoTime();
+                    m.addTask(new Task(0, "during backup", "x"));
+                    maxStall[0] = Math.max(maxStall[0], System.nanoTime() - s);
+                    mutations[0]++;
+                }
+                long total = System.nanoTime() - t0;
+                System.out.printf("backup %.1f ms, %d mutations meanwhile, max mutation stall %.2f ms%n",
+                        total / 1e6, mutations[0], maxStall[0] / 1e6);
+            }
+        } finally {
+            try (var files = Files.list(dir)) {
+                for (Path p : files.toList()) Files.delete(p);
+            }
+            Files.delete(dir);
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package bench;
+
+import java.lang.management.ManagementFactory;
+
+/**
+ * Общие замеры для микробенчмарков: время и объём аллокаций текущего потока на операцию.
+ * Запускаются как обычные main-классы, результаты печатаются в stdout.
+ */
+final class Bench {
+    private static final com.sun.management.ThreadMXBean THREADS =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    private Bench() {
+    }
+
+    static long allocatedBytes() {
+        return THREADS.getCurrentThreadAllocatedBytes();
+    }
+
+    static void run(String name, int warmup, int ops, Runnable op) {
+        for (int i = 0; i < warmup; i++) op.run();
+        long bytes = allocatedBytes();
+        long t0 = System.nanoTime();
+        for (int i = 0; i < ops; i++) op.run();
+        long nanos = System.nanoTime() - t0;
+        bytes = allocatedBytes() - bytes;
+        report(name, ops, nanos, bytes);
+    }
+
+    static void report(String name, long ops, long nanos, long bytes) {
+        System.out.printf("%-40s %12d ops %10.1f ns/op %10.1f B/op%n",
+                name, ops, nanos / (double) ops, bytes / (double) ops);
+    }
+
+    static void reportThroughput(String name, long items, long nanos) {
+        System.out.printf("%-40s %12d items %10.1f ms %12.0f items/s%n",
+                name, items, nanos / 1e6, items / (nanos / 1e9));
+    }
+}
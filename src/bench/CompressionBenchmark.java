@@ -0,0 +1,156 @@
+package bench;
+
+import model.Status;
+import model.Task;
+import service.Compression;
+import service.Durability;
+import service.FileBackedTasksManager;
+import service.FsyncPolicy;
+import service.StoreOptions;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * CPU против ввода-вывода при сжатии CSV-снимка. Для каждого уровня: время снимка в page cache
+ * (почти чистый CPU), размер файла, время загрузки и измеренное время выгрузки снимка на
+ * медленный носитель — {@link FileBackedTasksManager#exportCsv} в канал, ограниченный по
+ * пропускной способности: диск крутящийся — 120 МБ/с, SSD под ограничением — 500 МБ/с.
+ * Первый аргумент — число задач (по умолчанию 200k).
+ */
+public class CompressionBenchmark {
+    private static final int SAVES = 5;
+    private static final double HDD_BYTES_PER_SEC = 120e6;
+    private static final double SSD_BYTES_PER_SEC = 500e6;
+    private static final long DEVICE_QUEUE_BYTES = 4 << 20;
+    private static final String[] WORDS = {"Сделать", "Проверить", "review", "deploy", "отчёт", "встреча"};
+
+    public static void main(String[] args) throws IOException {
+        int n = args.length == 0 ? 200_000 : Integer.parseInt(args[0]);
+        Path dir = Files.createTempDirectory("compression-bench");
+        try {
+            System.out.printf("%-10s %10s %8s %10s %10s %10s %10s%n",
+                    "level", "size MB", "ratio", "save ms", "load ms", "hdd ms", "ssd ms");
+            long plain = 0;
+            for (Compression c : Compression.values()) {
+                Path file = dir.resolve(c.name().toLowerCase() + ".csv");
+                StoreOptions options = StoreOptions.DEFAULT.withFlush(0, 1).withCompression(c)
+                        .withFsync(FsyncPolicy.NEVER, 0);
+                populate(file, n, options);
+
+                double saveMs;
+                double hddMs;
+                double ssdMs;
+                try (FileBackedTasksManager m = FileBackedTasksManager.loadFromFile(file, options)) {
+                    long t0 = System.nanoTime();
+                    for (int i = 0; i < SAVES; i++) m.setTaskStatus(i, Status.DONE); // SYNC: снимок на каждую
+                    saveMs = (System.nanoTime() - t0) / 1e6 / SAVES;
+                    Path export = dir.resolve("export.csv");
+                    hddMs = exportMs(m, export, HDD_BYTES_PER_SEC);
+                    ssdMs = exportMs(m, export, SSD_BYTES_PER_SEC);
+                    Files.delete(export);
+                }
+                long size = Files.size(file);
+                if (c == Compression.NONE) plain = size;
+
+                System.gc();
+                long t0 = System.nanoTime();
+                FileBackedTasksManager.loadFromFile(file, options).close();
+                double loadMs = (System.nanoTime() - t0) / 1e6;
+
+                System.out.printf("%-10s %10.1f %8.2f %10.1f %10.1f %10.1f %10.1f%n", c, size / 1e6,
+                        plain / (double) size, saveMs, loadMs, hddMs, ssdMs);
+                Files.delete(file);
+            }
+        } finally {
+            Files.deleteIfExists(dir);
+        }
+    }
+
+    // лучшее из SAVES выгрузок: до возврата всё записанное должно «дойти» до носителя
+    private static double exportMs(FileBackedTasksManager m, Path target, double bytesPerSec) throws IOException {
+        long best = Long.MAX_VALUE;
+        for (int i = 0; i < SAVES; i++) {
+            try (FileChannel file = FileChannel.open(target, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING)) {
+                ThrottledChannel ch = new ThrottledChannel(file, bytesPerSec, DEVICE_QUEUE_BYTES);
+                long t0 = System.nanoTime();
+                m.exportCsv(ch);
+                ch.drain();
+                best = Math.min(best, System.nanoTime() - t0);
+            }
+        }
+        return best / 1e6;
+    }
+
+    /*
+     * Медленный носитель: запись принимается сразу, пока очередь устройства (байты, которые оно
+     * ещё не успело записать) не длиннее queueBytes, а устройство выбирает её со скоростью
+     * bytesPerSec независимо от пишущего потока. Поэтому сжатие следующего блока идёт, пока
+     * устройство пишет предыдущий, — как у настоящего диска с кэшем записи.
+     */
+    private static final class ThrottledChannel implements WritableByteChannel {
+        private final WritableByteChannel target;
+        private final double nanosPerByte;
+        private final long queueNanos;
+        private long freeAt; // когда устройство допишет всё принятое
+
+        ThrottledChannel(WritableByteChannel target, double bytesPerSec, long queueBytes) {
+            this.target = target;
+            this.nanosPerByte = 1e9 / bytesPerSec;
+            this.queueNanos = (long) (queueBytes * nanosPerByte);
+        }
+
+        @Override
+        public int write(ByteBuffer src) throws IOException {
+            int n = target.write(src);
+            long now = System.nanoTime();
+            freeAt = Math.max(freeAt, now) + (long) (n * nanosPerByte);
+            waitUntil(freeAt - queueNanos);
+            return n;
+        }
+
+        // ждёт, пока устройство допишет очередь
+        void drain() {
+            waitUntil(freeAt);
+        }
+
+        private static void waitUntil(long deadline) {
+            for (long left; (left = deadline - System.nanoTime()) > 0; ) LockSupport.parkNanos(left);
+        }
+
+        @Override
+        public boolean isOpen() {
+            return target.isOpen();
+        }
+
+        @Override
+        public void close() throws IOException {
+            target.close();
+        }
+    }
+
+    // похожие имена, повторяющиеся статусы и даты — как в реальных хранилищах
+    private static void populate(Path file, int n, StoreOptions options) {
+        LocalDateTime base = LocalDateTime.of(2020, 1, 1, 9, 0);
+        try (FileBackedTasksManager m = new FileBackedTasksManager(file, options
+                .withFlush(Long.MAX_VALUE / 2, Integer.MAX_VALUE).withDurability(Durability.BOUNDED_LOSS))) {
+            for (int i = 0; i < n; i++) {
+                String word = WORDS[i % WORDS.length];
+                Task t = new Task(0, word + " #" + i, word + " по задаче " + (i / 10));
+                if (i % 3 == 0) t.setStartTime(base.plusHours(i));
+                else t.setDuration(Duration.ofMinutes(30 + i % 4 * 15));
+                m.addTask(t);
+                if (i % 4 == 0) m.setTaskStatus(i, Status.IN_PROGRESS);
+            }
+        }
+    }
+}
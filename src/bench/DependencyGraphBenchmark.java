@@ -0,0 +1,72 @@
+package bench;
+
+import model.Epic;
+import model.SubTask;
+import service.InMemoryTaskManager;
+
+import java.time.Duration;
+import java.util.Random;
+
+/**
+ * Вставка 100k рёбер зависимостей, обновление длительностей и запрос критического пути.
+ */
+public class DependencyGraphBenchmark {
+    private static final int EPICS = 10;
+    private static final int SUBTASKS_PER_EPIC = 5_000;
+    private static final int EDGES = 100_000;
+
+    public static void main(String[] args) {
+        InMemoryTaskManager manager = new InMemoryTaskManager();
+        int[] epicIds = new int[EPICS];
+        int[][] subIds = new int[EPICS][SUBTASKS_PER_EPIC];
+        for (int e = 0; e < EPICS; e++) {
+            Epic epic = new Epic();
+            epic.setName("E" + e);
+            epicIds[e] = manager.addEpic(epic).getAsInt();
+            for (int i = 0; i < SUBTASKS_PER_EPIC; i++) {
+                SubTask s = new SubTask();
+                s.setName("S" + i);
+                s.setEpicId(epicIds[e]);
+                s.setDuration(Duration.ofMinutes(15 + i % 60));
+                subIds[e][i] = manager.addSubTask(s).getAsInt();
+            }
+        }
+
+        Random rnd = new Random(7);
+        int added = 0;
+        int rejected = 0;
+        long t0 = System.nanoTime();
+        for (int i = 0; i < EDGES; i++) {
+            int e = rnd.nextInt(EPICS);
+            int a = rnd.nextInt(SUBTASKS_PER_EPIC);
+            // в основном «вперёд», но каждое пятое ребро против порядка вставки — работает переупорядочивание
+            int b = rnd.nextInt(5) == 0 ? rnd.nextInt(SUBTASKS_PER_EPIC) : Math.min(SUBTASKS_PER_EPIC - 1, a + 1 + rnd.nextInt(50));
+            if (manager.addDependency(subIds[e][a], subIds[e][b])) added++;
+            else rejected++;
+        }
+        Bench.reportThroughput("addDependency", EDGES, System.nanoTime() - t0);
+        System.out.println("  added=" + added + " rejected=" + rejected);
+
+        t0 = System.nanoTime();
+        int updates = 10_000;
+        for (int i = 0; i < updates; i++) {
+            int e = rnd.nextInt(EPICS);
+            int id = subIds[e][rnd.nextInt(SUBTASKS_PER_EPIC)];
+            SubTask body = new SubTask();
+            body.setEpicId(epicIds[e]);
+            body.setDuration(Duration.ofMinutes(15 + rnd.nextInt(120)));
+            manager.updateSubTask(id, body);
+        }
+        Bench.reportThroughput("updateSubTask + critical path", updates, System.nanoTime() - t0);
+
+        t0 = System.nanoTime();
+        long sum = 0;
+        for (int e = 0; e < EPICS; e++) sum += manager.getCriticalPathMinutes(epicIds[e]).getAsLong();
+        Bench.reportThroughput("getCriticalPathMinutes", EPICS, System.nanoTime() - t0);
+
+        t0 = System.nanoTime();
+        int size = manager.getDependencyOrder().size();
+        Bench.reportThroughput("getDependencyOrder", size, System.nanoTime() - t0);
+        if (sum == 42) System.out.println();
+    }
+}
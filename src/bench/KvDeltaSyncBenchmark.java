@@ -0,0 +1,90 @@
+package bench;
+
+import com.sun.net.httpserver.HttpExchange;
+import model.Status;
+import model.Task;
+import server.KVServer;
+import service.HTTPTaskManager;
+import service.KvSyncMode;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Стоимость синхронизации одной мутации и одного просмотра с KV-сервером: полные ключи
+ * против поключевой дельты. Считаются байты, ушедшие на сервер, и время сброса.
+ * Первый аргумент — размер хранилища (по умолчанию 5k задач).
+ */
+public class KvDeltaSyncBenchmark {
+    private static final int OPS = 100;
+
+    public static void main(String[] args) throws IOException {
+        int n = args.length == 0 ? 5_000 : Integer.parseInt(args[0]);
+        PrintStream out = System.out;
+        for (KvSyncMode mode : KvSyncMode.values()) {
+            CountingKVServer server = new CountingKVServer();
+            System.setOut(new PrintStream(OutputStream.nullOutputStream())); // KVServer пишет лог на каждый запрос
+            server.start();
+            try {
+                URI uri = URI.create("http://localhost:" + KVServer.PORT);
+                HTTPTaskManager m = HTTPTaskManager.load(uri, mode);
+                List<Task> batch = new ArrayList<>(n);
+                for (int i = 0; i < n; i++) batch.add(new Task(0, "task " + i, "description of task " + i));
+                m.addBatch(batch); // один сброс на всё наполнение
+                int first = m.getAllTasks().get(0).getId();
+                Random rnd = new Random(1);
+
+                server.uploaded = 0;
+                long t0 = System.nanoTime();
+                for (int i = 0; i < OPS; i++) {
+                    m.setTaskStatus(first + rnd.nextInt(n), i % 2 == 0 ? Status.DONE : Status.NEW);
+                    m.flush();
+                }
+                long updateNanos = System.nanoTime() - t0;
+                long updateBytes = server.uploaded;
+
+                server.uploaded = 0;
+                t0 = System.nanoTime();
+                for (int i = 0; i < OPS; i++) {
+                    m.getTask(first + rnd.nextInt(n));
+                    m.flush();
+                }
+                long viewNanos = System.nanoTime() - t0;
+                long viewBytes = server.uploaded;
+                m.close();
+
+                t0 = System.nanoTime();
+                int loaded = HTTPTaskManager.load(uri, mode).getAllTasks().size();
+                long loadNanos = System.nanoTime() - t0;
+
+                System.setOut(out);
+                Bench.report("update+flush " + mode + " " + n, OPS, updateNanos, updateBytes);
+                Bench.report("view+flush " + mode + " " + n, OPS, viewNanos, viewBytes);
+                Bench.reportThroughput("load " + mode + " " + loaded, loaded, loadNanos);
+            } finally {
+                System.setOut(out);
+                server.stop();
+            }
+        }
+    }
+
+    // B/op в отчёте — байты тел запросов, ушедших на сервер
+    private static final class CountingKVServer extends KVServer {
+        volatile long uploaded;
+
+        CountingKVServer() throws IOException {
+        }
+
+        @Override
+        protected String readText(HttpExchange h) throws IOException {
+            String text = super.readText(h);
+            uploaded += text.length();
+            return text;
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package bench;
+
+import model.Task;
+import service.Durability;
+import service.FileBackedTasksManager;
+import service.SnapshotFormat;
+import service.StoreOptions;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Куча после загрузки двоичного снимка с длинными описаниями: все тексты в куче против
+ * ленивого чтения из отображения. Аргументы: число задач (50k) и длина описания (2048 символов).
+ */
+public class LazyDescriptionBenchmark {
+
+    public static void main(String[] args) throws IOException {
+        int n = args.length > 0 ? Integer.parseInt(args[0]) : 50_000;
+        int textLength = args.length > 1 ? Integer.parseInt(args[1]) : 2_048;
+        Path file = Files.createTempFile("lazy-bench", ".bin");
+        try {
+            populate(file, n, textLength);
+            System.out.printf("file %.1f MB%n", Files.size(file) / 1e6);
+            for (boolean lazy : new boolean[]{false, true}) {
+                StoreOptions options = StoreOptions.DEFAULT.withFlush(0, 1).withFormat(SnapshotFormat.BINARY)
+                        .withLazyDescriptions(lazy);
+                long before = usedHeap();
+                long t0 = System.nanoTime();
+                FileBackedTasksManager m = FileBackedTasksManager.loadFromFile(file, options);
+                long loadNanos = System.nanoTime() - t0;
+                long heap = usedHeap() - before;
+
+                t0 = System.nanoTime();
+                long chars = 0;
+                for (Task t : m.getAllTasks()) chars += t.getDescription().length();
+                long scanNanos = System.nanoTime() - t0;
+
+                System.out.printf("%-6s load %7.1f ms, heap %7.1f MB, read all descriptions %7.1f ms (%d chars)%n",
+                        lazy ? "lazy" : "eager", loadNanos / 1e6, heap / 1e6, scanNanos / 1e6, chars);
+                m.close();
+            }
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    private static long usedHeap() {
+        for (int i = 0; i < 3; i++) System.gc();
+        Runtime rt = Runtime.getRuntime();
+        return rt.totalMemory() - rt.freeMemory();
+    }
+
+    private static void populate(Path file, int n, int textLength) {
+        StoreOptions options = StoreOptions.DEFAULT.withFlush(Long.MAX_VALUE / 2, Integer.MAX_VALUE)
+                .withDurability(Durability.BOUNDED_LOSS).withFormat(SnapshotFormat.BINARY);
+        String filler = "Подробное описание задачи со ссылками и чек-листом. ".repeat(textLength / 40 + 1);
+        try (FileBackedTasksManager m = new FileBackedTasksManager(file, options)) {
+            for (int i = 0; i < n; i++) {
+                m.addTask(new Task(0, "task " + i, i + " " + filler.substring(0, textLength)));
+            }
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package bench;
+
+import model.Status;
+import model.Task;
+import service.InMemoryTaskManager;
+import service.LsmTaskStore;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.Random;
+
+/**
+ * Встроенный LSM-движок под менеджером: запись насквозь (добавление и смена статуса),
+ * чтение по id с диска и подъём менеджера из хранилища. Первый аргумент — число задач
+ * (по умолчанию 200k).
+ */
+public class LsmStoreBenchmark {
+    private static final int LOOKUPS = 20_000;
+
+    public static void main(String[] args) throws IOException {
+        int n = args.length == 0 ? 200_000 : Integer.parseInt(args[0]);
+        Path dir = Files.createTempDirectory("lsm-bench");
+        try {
+            try (LsmTaskStore store = LsmTaskStore.open(dir)) {
+                InMemoryTaskManager m = new InMemoryTaskManager(store);
+                long t0 = System.nanoTime();
+                for (int i = 0; i < n; i++) m.addTask(new Task(0, "task " + i, "description of task " + i));
+                Bench.reportThroughput("write-through add " + n, n, System.nanoTime() - t0);
+
+                Random rnd = new Random(1);
+                t0 = System.nanoTime();
+                for (int i = 0; i < n; i++) m.setTaskStatus(rnd.nextInt(n), Status.DONE);
+                Bench.reportThroughput("write-through update " + n, n, System.nanoTime() - t0);
+
+                store.snapshot();
+                store.compact();
+                t0 = System.nanoTime();
+                for (int i = 0; i < LOOKUPS; i++) store.get(rnd.nextInt(n));
+                Bench.reportThroughput("store get (1 segment)", LOOKUPS, System.nanoTime() - t0);
+            }
+            try (LsmTaskStore store = LsmTaskStore.open(dir)) {
+                long t0 = System.nanoTime();
+                InMemoryTaskManager m = InMemoryTaskManager.load(store);
+                Bench.reportThroughput("load " + m.getAllTasks().size(), n, System.nanoTime() - t0);
+            }
+        } finally {
+            try (var files = Files.walk(dir)) {
+                for (Path p : files.sorted(Comparator.reverseOrder()).toList()) Files.delete(p);
+            }
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package bench;
+
+import model.Epic;
+import model.SubTask;
+import model.Task;
+import service.InMemoryTaskManager;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Comparator;
+import java.util.Random;
+
+/**
+ * Аллокации на операцию для компаратора prioritized и пересчёта времени эпика.
+ */
+public class ModelTimeBenchmark {
+    private static final int TASKS = 4_096;
+    private static final int SUBTASKS_PER_EPIC = 200;
+
+    public static void main(String[] args) {
+        comparator();
+        epicRollup();
+    }
+
+    private static void comparator() {
+        Random rnd = new Random(42);
+        LocalDateTime base = LocalDate.now().withDayOfYear(1).atStartOfDay();
+        Task[] tasks = new Task[TASKS];
+        for (int i = 0; i < TASKS; i++) {
+            Task t = new Task(i, "t" + i, "d");
+            if (rnd.nextInt(10) != 0) {
+                t.setStartTime(base.plusMinutes(rnd.nextInt(60 * 24 * 300)));
+                t.setDuration(Duration.ofMinutes(15 + rnd.nextInt(120)));
+            }
+            tasks[i] = t;
+        }
+        Comparator<Task> cmp = InMemoryTaskManager.PRIORITY_ORDER;
+        int[] sink = new int[1];
+        int[] cursor = new int[1];
+        Bench.run("prioritized comparator", 1_000_000, 10_000_000, () -> {
+            int i = cursor[0]++ & (TASKS - 1);
+            sink[0] += cmp.compare(tasks[i], tasks[(i * 31 + 7) & (TASKS - 1)]);
+        });
+        if (sink[0] == 42) System.out.println();
+    }
+
+    private static void epicRollup() {
+        InMemoryTaskManager manager = new InMemoryTaskManager();
+        Epic epic = new Epic();
+        epic.setName("E");
+        int epicId = manager.addEpic(epic).getAsInt();
+        LocalDateTime base = LocalDate.now().withDayOfYear(1).atTime(8, 0);
+        for (int i = 0; i < SUBTASKS_PER_EPIC; i++) {
+            SubTask s = new SubTask();
+            s.setName("s" + i);
+            s.setEpicId(epicId);
+            s.setStartTime(base.plusHours(i));
+            s.setDuration(Duration.ofMinutes(30));
+            manager.addSubTask(s);
+        }
+        Bench.run("recalcEpicTime (" + SUBTASKS_PER_EPIC + " subtasks)", 20_000, 200_000,
+                () -> manager.recalcEpicTime(epicId));
+    }
+}
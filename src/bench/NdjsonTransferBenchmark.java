@@ -0,0 +1,70 @@
+package bench;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonObject;
+import model.Task;
+import server.NdjsonStream;
+import server.TaskTypeAdapterFactory;
+import service.Durability;
+import service.FileBackedTasksManager;
+import service.StoreOptions;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Перенос хранилища: выгрузка одним JSON-деревом (как /tasks/all) против NDJSON потоком
+ * и пакетная загрузка NDJSON в хранилище с синхронной записью. Первый аргумент — число задач (200k).
+ */
+public class NdjsonTransferBenchmark {
+
+    public static void main(String[] args) throws IOException {
+        int n = args.length == 0 ? 200_000 : Integer.parseInt(args[0]);
+        Path dir = Files.createTempDirectory("ndjson-bench");
+        Path ndjson = dir.resolve("tasks.ndjson");
+        try {
+            StoreOptions sync = StoreOptions.DEFAULT.withFlush(0, 1);
+            try (FileBackedTasksManager source = new FileBackedTasksManager(dir.resolve("source.csv"),
+                    sync.withFlush(Long.MAX_VALUE / 2, Integer.MAX_VALUE).withDurability(Durability.BOUNDED_LOSS))) {
+                for (int i = 0; i < n; i++) source.addTask(new Task(0, "task " + i, "description of task " + i));
+
+                Gson gson = new GsonBuilder().registerTypeAdapterFactory(new TaskTypeAdapterFactory()).create();
+                long bytes = Bench.allocatedBytes();
+                long t0 = System.nanoTime();
+                JsonObject all = new JsonObject();
+                all.add("tasks", gson.toJsonTree(source.getAllTasks()));
+                all.add("epics", gson.toJsonTree(source.getAllEpics()));
+                all.add("subtasks", gson.toJsonTree(source.getAllSubTasks()));
+                byte[] tree = gson.toJson(all).getBytes(StandardCharsets.UTF_8);
+                Bench.report("export json tree (" + tree.length / 1_000_000 + " MB)", n,
+                        System.nanoTime() - t0, Bench.allocatedBytes() - bytes);
+
+                bytes = Bench.allocatedBytes();
+                t0 = System.nanoTime();
+                try (Writer out = Files.newBufferedWriter(ndjson, StandardCharsets.UTF_8)) {
+                    NdjsonStream.export(source, out);
+                }
+                Bench.report("export ndjson stream", n, System.nanoTime() - t0, Bench.allocatedBytes() - bytes);
+            }
+
+            try (FileBackedTasksManager target = new FileBackedTasksManager(dir.resolve("target.csv"), sync)) {
+                long t0 = System.nanoTime();
+                NdjsonStream.ImportResult result;
+                try (var in = Files.newBufferedReader(ndjson, StandardCharsets.UTF_8)) {
+                    result = NdjsonStream.importFrom(target, in);
+                }
+                Bench.reportThroughput("import ndjson, SYNC, batch " + NdjsonStream.BATCH,
+                        result.getImported(), System.nanoTime() - t0);
+            }
+        } finally {
+            try (var files = Files.list(dir)) {
+                for (Path p : files.toList()) Files.delete(p);
+            }
+            Files.delete(dir);
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package bench;
+
+import model.Task;
+import service.Durability;
+import service.FileBackedTasksManager;
+import service.StoreOptions;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDate;
+
+/**
+ * Загрузка CSV-снимка в один поток и в fork-join пул на 1, 2, 4 … ядра (до числа процессоров)
+ * с ускорением относительно одного потока. Первый аргумент — число задач (по умолчанию 1M).
+ */
+public class ParallelCsvLoadBenchmark {
+    private static final int ROUNDS = 3;
+
+    public static void main(String[] args) throws IOException {
+        int n = args.length == 0 ? 1_000_000 : Integer.parseInt(args[0]);
+        Path file = Files.createTempFile("parallel-load", ".csv");
+        try {
+            populate(file, n);
+            System.out.printf("file %.1f MB, %d cpus%n", Files.size(file) / 1e6,
+                    Runtime.getRuntime().availableProcessors());
+            long single = 0;
+            for (int threads = 1; ; threads *= 2) {
+                int t = Math.min(threads, Runtime.getRuntime().availableProcessors());
+                StoreOptions options = StoreOptions.DEFAULT.withFlush(0, 1).withLoadThreads(t);
+                long best = Long.MAX_VALUE;
+                for (int r = 0; r < ROUNDS; r++) {
+                    System.gc();
+                    long t0 = System.nanoTime();
+                    FileBackedTasksManager loaded = FileBackedTasksManager.loadFromFile(file, options);
+                    best = Math.min(best, System.nanoTime() - t0);
+                    loaded.close();
+                }
+                if (t == 1) single = best;
+                Bench.reportThroughput("load csv, " + t + " threads", n, best);
+                System.out.printf("  speedup x%.2f%n", (double) single / best);
+                if (t == Runtime.getRuntime().availableProcessors()) break;
+            }
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    // половина задач со временем начала — чтобы в профиль попал разбор дат; без длительности
+    // такие задачи не занимают сетку текущего года и не отвергаются как пересекающиеся
+    private static void populate(Path file, int n) {
+        StoreOptions options = StoreOptions.DEFAULT.withDurability(Durability.BOUNDED_LOSS)
+                .withFlush(Long.MAX_VALUE / 2, Integer.MAX_VALUE);
+        try (FileBackedTasksManager m = new FileBackedTasksManager(file, options)) {
+            for (int i = 0; i < n; i++) {
+                Task t = new Task(0, "task " + i, "description of task " + i);
+                if (i % 2 == 0) t.setStartTime(LocalDate.of(2001, 1, 1).atStartOfDay().plusMinutes(i));
+                else t.setDuration(Duration.ofMinutes(i % 90));
+                m.addTask(t);
+            }
+        }
+    }
+}
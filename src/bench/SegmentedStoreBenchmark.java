@@ -0,0 +1,56 @@
+package bench;
+
+import model.Status;
+import model.Task;
+import service.Durability;
+import service.FileBackedTasksManager;
+import service.FsyncPolicy;
+import service.SnapshotFormat;
+import service.StoreOptions;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+/**
+ * Стоимость одной мутации в режиме SYNC: полный CSV-снимок против переписывания одного сегмента.
+ * Первый аргумент — размер хранилища (по умолчанию 100k задач).
+ */
+public class SegmentedStoreBenchmark {
+    private static final int UPDATES = 200;
+
+    public static void main(String[] args) throws IOException {
+        int n = args.length == 0 ? 100_000 : Integer.parseInt(args[0]);
+        Path dir = Files.createTempDirectory("segmented-bench");
+        try {
+            for (SnapshotFormat format : new SnapshotFormat[]{SnapshotFormat.CSV, SnapshotFormat.SEGMENTED}) {
+                Path file = dir.resolve(format.name().toLowerCase());
+                populate(file, n, format);
+                StoreOptions sync = StoreOptions.DEFAULT.withFlush(0, 1).withFormat(format)
+                        .withFsync(FsyncPolicy.NEVER, 0);
+                Random rnd = new Random(1);
+                try (FileBackedTasksManager m = FileBackedTasksManager.loadFromFile(file, sync)) {
+                    long t0 = System.nanoTime();
+                    for (int i = 0; i < UPDATES; i++) {
+                        m.setTaskStatus(rnd.nextInt(n), i % 2 == 0 ? Status.DONE : Status.NEW);
+                    }
+                    Bench.reportThroughput("update " + format + " " + n, UPDATES, System.nanoTime() - t0);
+                }
+            }
+        } finally {
+            try (var files = Files.list(dir)) {
+                for (Path p : files.toList()) Files.delete(p);
+            }
+            Files.delete(dir);
+        }
+    }
+
+    private static void populate(Path file, int n, SnapshotFormat format) {
+        StoreOptions options = StoreOptions.DEFAULT.withDurability(Durability.BOUNDED_LOSS)
+                .withFlush(Long.MAX_VALUE / 2, Integer.MAX_VALUE).withFormat(format);
+        try (FileBackedTasksManager m = new FileBackedTasksManager(file, options)) {
+            for (int i = 0; i < n; i++) m.addTask(new Task(0, "task " + i, "description of task " + i));
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package bench;
+
+import model.Status;
+import model.Task;
+import service.Durability;
+import service.FileBackedTasksManager;
+import service.FsyncPolicy;
+import service.StoreOptions;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+/**
+ * Пропускная способность атомарных снимков при разных политиках fsync.
+ * Каждая смена статуса в режиме SYNC пишет полный снимок; каталог берётся из аргумента
+ * (по умолчанию временный), потому что цена fsync зависит от устройства.
+ */
+public class SnapshotFsyncBenchmark {
+    private static final int TASKS = 10_000;
+    private static final int SAVES = 200;
+    private static final long FSYNC_INTERVAL_MS = 100;
+
+    public static void main(String[] args) throws IOException {
+        Path dir = args.length > 0 ? Files.createDirectories(Path.of(args[0]))
+                : Files.createTempDirectory("snapshot-bench");
+        try {
+            Path seed = dir.resolve("seed.csv");
+            // заполняем одним снимком, иначе каждое добавление переписало бы весь файл
+            try (FileBackedTasksManager manager = new FileBackedTasksManager(seed,
+                    StoreOptions.DEFAULT.withDurability(Durability.BOUNDED_LOSS).withFlush(60_000, Integer.MAX_VALUE))) {
+                for (int i = 0; i < TASKS; i++) {
+                    manager.addTask(new Task(0, "task " + i, "description of task " + i));
+                }
+            }
+            for (FsyncPolicy policy : FsyncPolicy.values()) {
+                Path file = dir.resolve(policy.name().toLowerCase() + ".csv");
+                Files.copy(seed, file, StandardCopyOption.REPLACE_EXISTING);
+                run(file, policy);
+            }
+        } finally {
+            if (args.length == 0) deleteRecursively(dir);
+        }
+    }
+
+    private static void run(Path file, FsyncPolicy policy) {
+        StoreOptions options = StoreOptions.DEFAULT.withFlush(0, 1)
+                .withFsync(policy, policy == FsyncPolicy.INTERVAL ? FSYNC_INTERVAL_MS : 0);
+        try (FileBackedTasksManager manager = FileBackedTasksManager.loadFromFile(file, options)) {
+            long bytes = 0;
+            long t0 = System.nanoTime();
+            for (int i = 0; i < SAVES; i++) {
+                manager.setTaskStatus(i % TASKS, i % 2 == 0 ? Status.IN_PROGRESS : Status.NEW);
+                bytes += file.toFile().length();
+            }
+            long nanos = System.nanoTime() - t0;
+            Bench.reportThroughput("snapshot fsync=" + policy, SAVES, nanos);
+            System.out.printf("  %.1f MB/s of %d-row snapshots%n", bytes / (nanos / 1e9) / 1e6, TASKS);
+        }
+    }
+
+    private static void deleteRecursively(Path dir) throws IOException {
+        try (Stream<Path> walk = Files.walk(dir)) {
+            for (Path p : walk.sorted(Comparator.reverseOrder()).toList()) Files.deleteIfExists(p);
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package bench;
+
+import model.Epic;
+import model.SubTask;
+import model.Task;
+import service.Durability;
+import service.FileBackedTasksManager;
+import service.SnapshotFormat;
+import service.StoreOptions;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+/**
+ * Время старта (загрузки снимка) в CSV и двоичном формате на 100k, 1M и 5M записей.
+ * Размеры можно передать аргументами; для 5M нужна куча около 4 ГБ ({@code -Xmx4g}).
+ */
+public class StartupBenchmark {
+    private static final int SUBTASKS_PER_EPIC = 50;
+
+    public static void main(String[] args) throws IOException {
+        int[] sizes = args.length == 0 ? new int[]{100_000, 1_000_000, 5_000_000}
+                : Arrays.stream(args).mapToInt(Integer::parseInt).toArray();
+        Path dir = Files.createTempDirectory("startup-bench");
+        try {
+            for (int n : sizes) {
+                for (SnapshotFormat format : SnapshotFormat.values()) {
+                    Path file = dir.resolve(n + "." + format.name().toLowerCase());
+                    populate(file, n, format);
+                    long size = Files.size(file);
+                    System.gc();
+                    long t0 = System.nanoTime();
+                    FileBackedTasksManager loaded = FileBackedTasksManager.loadFromFile(file,
+                            StoreOptions.DEFAULT.withFlush(0, 1));
+                    long nanos = System.nanoTime() - t0;
+                    Bench.reportThroughput("load " + format + " " + n, n, nanos);
+                    System.out.printf("  file %.1f MB, %d tasks loaded%n", size / 1e6,
+                            loaded.getAllTasks().size() + loaded.getAllEpics().size() + loaded.getAllSubTasks().size());
+                    loaded.close();
+                    Files.delete(file);
+                }
+            }
+        } finally {
+            Files.deleteIfExists(dir);
+        }
+    }
+
+    // одна запись снимка на закрытии: BOUNDED_LOSS с бесконечной пачкой
+    private static void populate(Path file, int n, SnapshotFormat format) {
+        StoreOptions options = StoreOptions.DEFAULT.withDurability(Durability.BOUNDED_LOSS)
+                .withFlush(Long.MAX_VALUE / 2, Integer.MAX_VALUE).withFormat(format);
+        try (FileBackedTasksManager m = new FileBackedTasksManager(file, options)) {
+            int epicId = -1;
+            for (int i = 0; i < n; i++) {
+                if (i % 2 == 0) {
+                    m.addTask(new Task(0, "task " + i, "description of task " + i));
+                } else if (epicId < 0 || i % (2 * SUBTASKS_PER_EPIC + 1) == 1) {
+                    Epic e = new Epic();
+                    e.setName("epic " + i);
+                    e.setDescription("description of epic " + i);
+                    epicId = m.addEpic(e).getAsInt();
+                } else {
+                    SubTask s = new SubTask();
+                    s.setName("subtask " + i);
+                    s.setDescription("description of subtask " + i);
+                    s.setEpicId(epicId);
+                    m.addSubTask(s);
+                }
+            }
+        }
+    }
+}
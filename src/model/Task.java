@@ -2,16 +2,27 @@ package model;
 
 import java.time.Duration;
 import java.time.LocalDateTime;
+import java.time.ZoneOffset;
 import java.util.Objects;
 import java.util.Optional;
 
 public  class Task {
+    // время хранится примитивами с точностью до минуты: старт — минуты от 1970-01-01T00:00,
+    // длительность — минуты; LocalDateTime/Duration строятся лениво только для внешних потребителей
+    public static final long NO_START = Long.MIN_VALUE;
+    public static final int NO_DURATION = Integer.MIN_VALUE;
+
     private int id;
     private String name;
     private String description;
     private Status status;
-    private LocalDateTime startTime;
-    private Duration duration;
+    private long startMinutes = NO_START;
+    private int durationMinutes = NO_DURATION;
+    private transient LocalDateTime startTime;
+    private transient Duration duration;
+    // ленивое описание: текст лежит вне кучи и читается по ссылке при первом обращении
+    private transient TextSource descriptionSource;
+    private transient long descriptionRef;
     public Task() {
         this.status = Status.NEW; // по умолчанию
     }
@@ -26,8 +37,8 @@ public  class Task {
         this.name = name;
         this.description = description;
         this.status = status;
-        this.startTime = startTime;
-        this.duration = duration;
+        setStartTime(startTime);
+        setDuration(duration);
     }
 
     @Override
@@ -60,7 +71,7 @@ public  class Task {
         return "Task{" +
                 "id=" + id +
                 ", name='" + name + '\'' +
-                ", description='" + description + '\'' +
+                ", description='" + getDescription() + '\'' +
                 ", status=" + status +
                 '}';
     }
@@ -70,11 +81,18 @@ public  class Task {
     }
 
     public String getDescription() {
-        return description;
+        return descriptionSource != null ? descriptionSource.text(descriptionRef) : description;
     }
 
     public void setDescription(String description) {
         this.description = description;
+        this.descriptionSource = null;
+    }
+
+    public void setLazyDescription(TextSource source, long ref) {
+        this.description = null;
+        this.descriptionSource = source;
+        this.descriptionRef = ref;
     }
 
     public Status getStatus() {
@@ -85,22 +103,69 @@ public  class Task {
         this.status = status;
     }
     public Optional<LocalDateTime> getEndTime() {
-        return (startTime != null && duration != null)
-                ? Optional.of(startTime.plus(duration))
-                : Optional.empty();
+        long end = getEndMinutes();
+        return end == NO_START ? Optional.empty() : Optional.of(toDateTime(end));
     }
     public void setStartTime(LocalDateTime startTime) {
-        this.startTime = startTime;
+        this.startMinutes = startTime == null ? NO_START : toEpochMinutes(startTime);
+        this.startTime = null;
     }
     public void setDuration(Duration duration) {
-        this.duration = duration;
+        this.durationMinutes = duration == null ? NO_DURATION : Math.toIntExact(duration.toMinutes());
+        this.duration = null;
     }
 
     public LocalDateTime getStartTime() {
+        if (startTime == null && startMinutes != NO_START) {
+            startTime = toDateTime(startMinutes);
+        }
         return startTime;
     }
 
     public Duration getDuration() {
+        if (duration == null && durationMinutes != NO_DURATION) {
+            duration = Duration.ofMinutes(durationMinutes);
+        }
         return duration;
     }
+
+    public boolean hasStartTime() {
+        return startMinutes != NO_START;
+    }
+
+    public boolean hasDuration() {
+        return durationMinutes != NO_DURATION;
+    }
+
+    public long getStartMinutes() {
+        return startMinutes;
+    }
+
+    public void setStartMinutes(long startMinutes) {
+        this.startMinutes = startMinutes;
+        this.startTime = null;
+    }
+
+    public int getDurationMinutes() {
+        return durationMinutes;
+    }
+
+    public void setDurationMinutes(int durationMinutes) {
+        this.durationMinutes = durationMinutes;
+        this.duration = null;
+    }
+
+    public long getEndMinutes() {
+        return (startMinutes != NO_START && durationMinutes != NO_DURATION)
+                ? startMinutes + durationMinutes
+                : NO_START;
+    }
+
+    public static long toEpochMinutes(LocalDateTime t) {
+        return Math.floorDiv(t.toEpochSecond(ZoneOffset.UTC), 60);
+    }
+
+    public static LocalDateTime toDateTime(long epochMinutes) {
+        return LocalDateTime.ofEpochSecond(epochMinutes * 60, 0, ZoneOffset.UTC);
+    }
 }
\ No newline at end of file
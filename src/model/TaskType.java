@@ -0,0 +1,13 @@
+package model;
+
+public enum TaskType {
+    TASK,
+    EPIC,
+    SUBTASK;
+
+    public static TaskType of(Task task) {
+        if (task instanceof SubTask) return SUBTASK;
+        if (task instanceof Epic) return EPIC;
+        return TASK;
+    }
+}
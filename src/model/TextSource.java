@@ -0,0 +1,8 @@
+package model;
+
+/**
+ * Хранилище текстов вне кучи: по ссылке, выданной самим источником, возвращает строку.
+ */
+public interface TextSource {
+    String text(long ref);
+}
@@ -7,25 +7,53 @@ import model.Epic;
 import model.Status;
 import model.SubTask;
 import model.Task;
+import model.TaskType;
+import service.AutoScheduler;
+import service.FileBackedTasksManager;
+import service.HTTPTaskManager;
+import service.HotTask;
 import service.Managers;
+import service.ScheduleReport;
+import service.SessionHistoryManager;
 import service.TaskManager;
+import service.TaskStats;
 
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
 import java.io.IOException;
+import java.io.InputStreamReader;
 import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
 import java.net.InetSocketAddress;
 import java.net.URI;
 import java.nio.charset.StandardCharsets;
 import java.time.Duration;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
 import java.util.List;
 import java.util.OptionalInt;
+import java.util.OptionalLong;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 public class HttpTaskServer {
     public static final int PORT = 8079;
+    private static final int MAX_STATS_DAYS = 366;
+    private static final String USER_HEADER = "X-User-Id";
+    private static final int DEFAULT_HOT_LIMIT = 10;
+    private static final int STREAM_BUFFER_CHARS = 64 * 1024;
 
     private final TaskManager manager;
+    private final HTTPTaskManager store; // тот же менеджер: пакетный импорт
     private final HttpServer server;
+    // все обработчики и применение результатов планировщика идут в одном потоке
+    private final ExecutorService executor = Executors.newSingleThreadExecutor();
+    private final AutoScheduler scheduler;
     private static final DateTimeFormatter ISO_DTF = DateTimeFormatter.ISO_LOCAL_DATE_TIME;
 
     private final Gson gson = new GsonBuilder()
@@ -37,12 +65,17 @@ public class HttpTaskServer {
                     (JsonSerializer<Duration>) (src, t, ctx) -> new JsonPrimitive(src.toMinutes()))
             .registerTypeAdapter(Duration.class,
                     (JsonDeserializer<Duration>) (json, t, ctx) -> Duration.ofMinutes(json.getAsLong()))
+            .registerTypeAdapterFactory(new TaskTypeAdapterFactory())
             .create();
 
 
     public HttpTaskServer(URI kvUri) throws IOException {
-        this.manager = Managers.getDefaultHTTPManager(kvUri);
+        HTTPTaskManager httpManager = Managers.getDefaultHTTPManager(kvUri);
+        this.manager = httpManager;
+        this.store = httpManager;
+        this.scheduler = new AutoScheduler(httpManager, executor);
         this.server = HttpServer.create(new InetSocketAddress("localhost", PORT), 0);
+        server.setExecutor(executor);
         server.createContext("/tasks/task", this::handleTask);
         server.createContext("/tasks/epic", this::handleEpic);
         server.createContext("/tasks/epic/subtasks", this::handleEpicSubtasks);
@@ -52,6 +85,14 @@ public class HttpTaskServer {
         server.createContext("/tasks/history", this::handleHistory);
         server.createContext("/tasks/task/status", this::handleTaskStatus);
         server.createContext("/tasks/subtask/status", this::handleSubtaskStatus);
+        server.createContext("/tasks/dependency", this::handleDependency);
+        server.createContext("/tasks/dependency/order", this::handleDependencyOrder);
+        server.createContext("/tasks/epic/critical-path", this::handleCriticalPath);
+        server.createContext("/tasks/schedule", this::handleSchedule);
+        server.createContext("/tasks/stats", this::handleStats);
+        server.createContext("/tasks/hot", this::handleHot);
+        server.createContext("/tasks/export", this::handleExport);
+        server.createContext("/tasks/import", this::handleImport);
 
 
     }
@@ -62,6 +103,9 @@ public class HttpTaskServer {
 
     public void stop() {
         server.stop(0);
+        scheduler.close();
+        executor.shutdown();
+        if (manager instanceof FileBackedTasksManager store) store.close(); // дописываем отложенное
     }
 
     private void handleHistory(HttpExchange h) throws IOException {
@@ -69,7 +113,7 @@ public class HttpTaskServer {
             sendText(h, 405, "");
             return;
         }
-        sendJson(h, 200, manager.getHistory());
+        sendJson(h, 200, manager.getHistory(userId(h)));
     }
 
     private void handleSubtaskStatus(HttpExchange h) throws IOException {
@@ -104,14 +148,20 @@ public class HttpTaskServer {
             return;
         }
 
-        model.SubTask s = manager.getSubTask(id);
+        model.SubTask s = manager.getSubTask(id, userId(h));
         if (s == null) {
             sendText(h, 404, "SubTask not found");
             return;
         }
 
         manager.setSubTaskStatus(id, st);
-        sendJson(h, 200, manager.getSubTask(id));
+        sendJson(h, 200, manager.getSubTask(id, userId(h)));
+    }
+
+    // идентификатор пользователя для раздельной истории; без заголовка — общая история
+    private static String userId(HttpExchange h) {
+        String user = h.getRequestHeaders().getFirst(USER_HEADER);
+        return user == null ? SessionHistoryManager.DEFAULT_USER : user.trim();
     }
 
     private static String queryParam(HttpExchange h, String key) {
@@ -156,14 +206,217 @@ public class HttpTaskServer {
             return;
         }
 
-        Task t = manager.getTask(id);
+        Task t = manager.getTask(id, userId(h));
         if (t == null) {
             sendText(h, 404, "Task not found");
             return;
         }
 
         manager.setTaskStatus(id, st);
-        sendJson(h, 200, manager.getTask(id));
+        sendJson(h, 200, manager.getTask(id, userId(h)));
+    }
+
+    private void handleDependency(HttpExchange h) throws IOException {
+        String m = h.getRequestMethod();
+        if ("GET".equals(m)) {
+            Integer id = queryId(h);
+            if (id == null) {
+                sendText(h, 400, "Query param 'id' is required");
+                return;
+            }
+            JsonObject out = new JsonObject();
+            out.addProperty("id", id);
+            out.add("blockers", gson.toJsonTree(manager.getBlockers(id)));
+            out.add("blocks", gson.toJsonTree(manager.getBlockedBy(id)));
+            sendJson(h, 200, out);
+            return;
+        }
+
+        Integer from = queryInt(h, "from");
+        Integer to = queryInt(h, "to");
+        if (from == null || to == null) {
+            sendText(h, 400, "Query params 'from' and 'to' are required");
+            return;
+        }
+        switch (m) {
+            case "POST" -> {
+                boolean added;
+                try {
+                    added = manager.addDependency(from, to);
+                } catch (IllegalArgumentException ex) {
+                    sendText(h, 404, ex.getMessage());
+                    return;
+                }
+                if (!added) {
+                    sendText(h, 409, "Dependency already exists or creates a cycle");
+                    return;
+                }
+                sendText(h, 201, "OK");
+            }
+            case "DELETE" -> {
+                if (manager.removeDependency(from, to)) sendText(h, 200, "OK");
+                else sendText(h, 404, "");
+            }
+            default -> sendText(h, 405, "");
+        }
+    }
+
+    private void handleSchedule(HttpExchange h) throws IOException {
+        switch (h.getRequestMethod()) {
+            case "POST" -> {
+                CompletableFuture<ScheduleReport> job = scheduler.schedule(LocalDateTime.now());
+                if (job == null) {
+                    sendText(h, 409, "Scheduling is already running");
+                    return;
+                }
+                sendText(h, 202, "Scheduling started");
+            }
+            case "GET" -> {
+                ScheduleReport report = scheduler.getLastReport();
+                if (report == null) sendText(h, 404, scheduler.isRunning() ? "Scheduling is running" : "");
+                else sendJson(h, 200, report);
+            }
+            default -> sendText(h, 405, "");
+        }
+    }
+
+    private void handleHot(HttpExchange h) throws IOException {
+        if (!"GET".equals(h.getRequestMethod())) {
+            sendText(h, 405, "");
+            return;
+        }
+        Integer id = queryId(h);
+        if (id != null) {
+            JsonObject out = new JsonObject();
+            out.addProperty("id", id);
+            out.addProperty("hits", manager.getAccessFrequency(id));
+            sendJson(h, 200, out);
+            return;
+        }
+        Integer limit = queryInt(h, "limit");
+        if (limit == null) limit = DEFAULT_HOT_LIMIT;
+        if (limit <= 0) {
+            sendText(h, 400, "'limit' must be > 0");
+            return;
+        }
+        JsonArray out = new JsonArray();
+        for (HotTask hot : manager.getHotTasks(limit)) {
+            JsonObject jo = new JsonObject();
+            jo.addProperty("id", hot.getTask().getId());
+            jo.addProperty("type", TaskType.of(hot.getTask()).name());
+            jo.addProperty("name", hot.getTask().getName());
+            jo.addProperty("hits", hot.getHits());
+            out.add(jo);
+        }
+        sendJson(h, 200, out);
+    }
+
+    // NDJSON потоком: ответ чанками, без общего JSON-дерева
+    private void handleExport(HttpExchange h) throws IOException {
+        if (!"GET".equals(h.getRequestMethod())) {
+            sendText(h, 405, "");
+            return;
+        }
+        h.getResponseHeaders().set("Content-Type", "application/x-ndjson; charset=UTF-8");
+        h.sendResponseHeaders(200, 0);
+        try (Writer out = new BufferedWriter(new OutputStreamWriter(h.getResponseBody(), StandardCharsets.UTF_8),
+                STREAM_BUFFER_CHARS)) {
+            NdjsonStream.export(manager, out);
+        }
+    }
+
+    private void handleImport(HttpExchange h) throws IOException {
+        if (!"POST".equals(h.getRequestMethod())) {
+            sendText(h, 405, "");
+            return;
+        }
+        NdjsonStream.ImportResult result;
+        try (Reader in = new BufferedReader(new InputStreamReader(h.getRequestBody(), StandardCharsets.UTF_8),
+                STREAM_BUFFER_CHARS)) {
+            result = NdjsonStream.importFrom(store, in);
+        } catch (IllegalArgumentException ex) {
+            sendText(h, 400, ex.getMessage());
+            return;
+        }
+        JsonObject out = new JsonObject();
+        out.addProperty("imported", result.getImported());
+        out.addProperty("rejected", result.getRejected());
+        sendJson(h, 200, out);
+    }
+
+    private void handleStats(HttpExchange h) throws IOException {
+        if (!"GET".equals(h.getRequestMethod())) {
+            sendText(h, 405, "");
+            return;
+        }
+        LocalDate from;
+        LocalDate to;
+        try {
+            String fromStr = queryParam(h, "from");
+            String toStr = queryParam(h, "to");
+            from = fromStr == null ? LocalDate.now() : LocalDate.parse(fromStr);
+            to = toStr == null ? from.plusDays(6) : LocalDate.parse(toStr);
+        } catch (DateTimeParseException ex) {
+            sendText(h, 400, "Dates must be yyyy-MM-dd");
+            return;
+        }
+        if (to.isBefore(from) || from.plusDays(MAX_STATS_DAYS).isBefore(to)) {
+            sendText(h, 400, "Range must be 1.." + MAX_STATS_DAYS + " days");
+            return;
+        }
+
+        TaskStats stats = manager.getStats();
+        JsonObject out = new JsonObject();
+        JsonObject counts = new JsonObject();
+        for (TaskType type : TaskType.values()) {
+            JsonObject byStatus = new JsonObject();
+            for (Status st : Status.values()) byStatus.addProperty(st.name(), stats.count(type, st));
+            byStatus.addProperty("total", stats.count(type));
+            counts.add(type.name(), byStatus);
+        }
+        out.add("counts", counts);
+
+        JsonObject minutes = new JsonObject();
+        stats.scheduledMinutes(from, to).forEach((day, m) -> minutes.addProperty(day.toString(), m));
+        out.add("scheduledMinutesByDay", minutes);
+
+        Integer epicId = queryInt(h, "epicId");
+        if (epicId != null) {
+            JsonObject epic = new JsonObject();
+            epic.addProperty("id", epicId);
+            epic.addProperty("completion", stats.epicCompletion(epicId));
+            out.add("epic", epic);
+        }
+        sendJson(h, 200, out);
+    }
+
+    private void handleDependencyOrder(HttpExchange h) throws IOException {
+        if (!"GET".equals(h.getRequestMethod())) {
+            sendText(h, 405, "");
+            return;
+        }
+        sendJson(h, 200, manager.getDependencyOrder());
+    }
+
+    private void handleCriticalPath(HttpExchange h) throws IOException {
+        if (!"GET".equals(h.getRequestMethod())) {
+            sendText(h, 405, "");
+            return;
+        }
+        Integer id = queryId(h);
+        if (id == null) {
+            sendText(h, 400, "Query param 'id' is required");
+            return;
+        }
+        OptionalLong minutes = manager.getCriticalPathMinutes(id);
+        if (minutes.isEmpty()) {
+            sendText(h, 404, "Epic not found");
+            return;
+        }
+        JsonObject out = new JsonObject();
+        out.addProperty("epicId", id);
+        out.addProperty("minutes", minutes.getAsLong());
+        sendJson(h, 200, out);
     }
 
     private void handlePrioritized(HttpExchange h) throws IOException {
@@ -183,7 +436,7 @@ public class HttpTaskServer {
             case "GET" -> {
                 if (id == null) sendJson(h, 200, manager.getAllTasks());
                 else {
-                    Task t = manager.getTask(id);
+                    Task t = manager.getTask(id, userId(h));
                     if (t == null) sendText(h, 404, "");
                     else sendJson(h, 200, t);
                 }
@@ -209,7 +462,7 @@ public class HttpTaskServer {
                         sendText(h, 409, "");
                         return;
                     }
-                    sendJson(h, 201, manager.getTask(newId.getAsInt()));
+                    sendJson(h, 201, manager.getTask(newId.getAsInt(), userId(h)));
                 } else {
                     int useId = id;
                     boolean ok = manager.updateTask(useId, body);
@@ -217,7 +470,7 @@ public class HttpTaskServer {
                         sendText(h, 404, "");
                         return;
                     }
-                    sendJson(h, 200, manager.getTask(useId));
+                    sendJson(h, 200, manager.getTask(useId, userId(h)));
                 }
             }
             case "DELETE" -> {
@@ -252,7 +505,7 @@ public class HttpTaskServer {
             case "GET" -> {
                 if (id == null) sendJson(h, 200, manager.getAllEpics());
                 else {
-                    Epic t = manager.getEpic(id);
+                    Epic t = manager.getEpic(id, userId(h));
                     if (t == null) sendText(h, 404, "");
                     else sendJson(h, 200, t);
                 }
@@ -278,7 +531,7 @@ public class HttpTaskServer {
                         sendText(h, 409, "");
                         return;
                     }
-                    sendJson(h, 201, manager.getEpic(newId.getAsInt()));
+                    sendJson(h, 201, manager.getEpic(newId.getAsInt(), userId(h)));
                 } else {
                     int useId = id;
                     boolean ok = manager.updateEpic(useId, body);
@@ -286,7 +539,7 @@ public class HttpTaskServer {
                         sendText(h, 404, "");
                         return;
                     }
-                    sendJson(h, 200, manager.getEpic(useId));
+                    sendJson(h, 200, manager.getEpic(useId, userId(h)));
                 }
             }
             case "DELETE" -> {
@@ -310,7 +563,7 @@ public class HttpTaskServer {
             return;
         }
 
-        Epic epic = manager.getEpic(epicId);
+        Epic epic = manager.getEpic(epicId, userId(h));
         if (epic == null) {
             sendText(h, 404, "Epic не найден");
             return;
@@ -331,7 +584,7 @@ public class HttpTaskServer {
                 if (id == null) {
                     sendJson(h, 200, manager.getAllSubTasks());
                 } else {
-                    model.SubTask t = manager.getSubTask(id);
+                    model.SubTask t = manager.getSubTask(id, userId(h));
                     if (t == null) {
                         sendText(h, 404, "");
                     } else {
@@ -366,7 +619,7 @@ public class HttpTaskServer {
                     int epicId = jo.get("epicId").getAsInt();
 
 
-                    Epic ep = manager.getEpic(epicId);
+                    Epic ep = manager.getEpic(epicId, userId(h));
                     if (ep == null) {
                         sendText(h, 404, "Epic not found");
                         return;
@@ -378,12 +631,12 @@ public class HttpTaskServer {
                         sendText(h, 409, "");
                         return;
                     }
-                    sendJson(h, 201, manager.getSubTask(newId.getAsInt()));
+                    sendJson(h, 201, manager.getSubTask(newId.getAsInt(), userId(h)));
 
                 } else {
                     if (jo.has("epicId") && !jo.get("epicId").isJsonNull()) {
                         int epicId = jo.get("epicId").getAsInt();
-                        Epic ep = manager.getEpic(epicId);
+                        Epic ep = manager.getEpic(epicId, userId(h));
                         if (ep == null) {
                             sendText(h, 404, "Epic not found");
                             return;
@@ -396,7 +649,7 @@ public class HttpTaskServer {
                         sendText(h, 404, "");
                         return;
                     }
-                    sendJson(h, 200, manager.getSubTask(id));
+                    sendJson(h, 200, manager.getSubTask(id, userId(h)));
                 }
             }
 
@@ -433,11 +686,15 @@ public class HttpTaskServer {
     }
 
     private static Integer queryId(HttpExchange h) {
+        return queryInt(h, "id");
+    }
+
+    private static Integer queryInt(HttpExchange h, String key) {
         String q = h.getRequestURI().getRawQuery();
         if (q == null) return null;
         for (String p : q.split("&")) {
             String[] kv = p.split("=");
-            if (kv.length == 2 && kv[0].equals("id")) {
+            if (kv.length == 2 && kv[0].equals(key)) {
                 try {
                     return Integer.parseInt(kv[1]);
                 } catch (NumberFormatException ignored) {
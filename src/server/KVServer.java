@@ -4,9 +4,14 @@ import static java.nio.charset.StandardCharsets.UTF_8;
 
 import java.io.IOException;
 import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
+import com.google.gson.Gson;
+
 import com.sun.net.httpserver.HttpExchange;
 import com.sun.net.httpserver.HttpServer;
 
@@ -25,6 +30,114 @@ public class KVServer {
         server.createContext("/register", this::register);
         server.createContext("/save", this::save);
         server.createContext("/load", this::load);
+        server.createContext("/incr", this::increment);
+        server.createContext("/delete", this::delete);
+        server.createContext("/keys", this::keys);
+    }
+
+    // GET /keys/{prefix} — JSON-массив ключей с этим префиксом, по возрастанию; пустой префикс — все ключи
+    private void keys(HttpExchange h) throws IOException {
+        try {
+            System.out.println("\n/keys");
+            if (!hasAuth(h)) {
+                System.out.println("Запрос неавторизован, нужен параметр API_TOKEN в query");
+                h.sendResponseHeaders(403, 0);
+                return;
+            }
+            if (!"GET".equals(h.getRequestMethod())) {
+                System.out.println("/keys ждёт GET-запрос, а получил: " + h.getRequestMethod());
+                h.sendResponseHeaders(405, 0);
+                return;
+            }
+            String path = h.getRequestURI().getPath();
+            String prefix = path.length() > "/keys/".length() ? path.substring("/keys/".length()) : "";
+            List<String> keys = new ArrayList<>();
+            synchronized (data) {
+                for (String key : data.keySet()) {
+                    if (key.startsWith(prefix)) keys.add(key);
+                }
+            }
+            Collections.sort(keys);
+            sendText(h, new Gson().toJson(keys));
+        } finally {
+            h.close();
+        }
+    }
+
+    private void delete(HttpExchange h) throws IOException {
+        try {
+            System.out.println("\n/delete");
+            if (!hasAuth(h)) {
+                System.out.println("Запрос неавторизован, нужен параметр API_TOKEN в query");
+                h.sendResponseHeaders(403, 0);
+                return;
+            }
+            if (!"DELETE".equals(h.getRequestMethod())) {
+                System.out.println("/delete ждёт DELETE-запрос, а получил: " + h.getRequestMethod());
+                h.sendResponseHeaders(405, 0);
+                return;
+            }
+            String key = h.getRequestURI().getPath().substring("/delete/".length());
+            if (key.isEmpty()) {
+                System.out.println("Key для удаления пустой. Укажи /delete/{key}");
+                h.sendResponseHeaders(400, 0);
+                return;
+            }
+            String old;
+            synchronized (data) {
+                old = data.remove(key);
+            }
+            // 404 — ключа и не было; клиент считает удаление идемпотентным и принимает оба ответа
+            h.sendResponseHeaders(old == null ? 404 : 200, 0);
+        } finally {
+            h.close();
+        }
+    }
+
+    private void increment(HttpExchange h) throws IOException {
+        try {
+            System.out.println("\n/incr");
+            if (!hasAuth(h)) {
+                System.out.println("Запрос неавторизован, нужен параметр API_TOKEN в query");
+                h.sendResponseHeaders(403, 0);
+                return;
+            }
+            if (!"POST".equals(h.getRequestMethod())) {
+                System.out.println("/incr ждёт POST-запрос, а получил: " + h.getRequestMethod());
+                h.sendResponseHeaders(405, 0);
+                return;
+            }
+            String key = h.getRequestURI().getPath().substring("/incr/".length());
+            if (key.isEmpty()) {
+                System.out.println("Key для инкремента пустой. Укажи /incr/{key}");
+                h.sendResponseHeaders(400, 0);
+                return;
+            }
+            long delta;
+            try {
+                delta = Long.parseLong(queryParam(h, "delta"));
+            } catch (NumberFormatException e) {
+                System.out.println("Параметр delta должен быть числом");
+                h.sendResponseHeaders(400, 0);
+                return;
+            }
+
+            long value;
+            synchronized (data) {
+                String old = data.get(key);
+                try {
+                    value = (old == null ? 0 : Long.parseLong(old)) + delta;
+                } catch (NumberFormatException e) {
+                    System.out.println("Значение по ключу " + key + " не является счётчиком");
+                    h.sendResponseHeaders(409, 0);
+                    return;
+                }
+                data.put(key, String.valueOf(value));
+            }
+            sendText(h, String.valueOf(value));
+        } finally {
+            h.close();
+        }
     }
 
     private void load(HttpExchange h) throws IOException {
@@ -50,7 +163,10 @@ public class KVServer {
                 return;
             }
 
-            String value = data.get(key);
+            String value;
+            synchronized (data) {
+                value = data.get(key);
+            }
             if (value == null) {
                 System.out.println("Значение по ключу " + key + " не найдено");
                 h.sendResponseHeaders(404, 0);
@@ -85,7 +201,9 @@ public class KVServer {
                     h.sendResponseHeaders(400, 0);
                     return;
                 }
-                data.put(key, value);
+                synchronized (data) {
+                    data.put(key, value);
+                }
                 System.out.println("Значение для ключа " + key + " успешно обновлено!");
                 h.sendResponseHeaders(200, 0);
             } else {
@@ -131,6 +249,16 @@ public class KVServer {
         return rawQuery != null && (rawQuery.contains("API_TOKEN=" + apiToken) || rawQuery.contains("API_TOKEN=DEBUG"));
     }
 
+    private static String queryParam(HttpExchange h, String name) {
+        String rawQuery = h.getRequestURI().getRawQuery();
+        if (rawQuery == null) return null;
+        for (String p : rawQuery.split("&")) {
+            String[] kv = p.split("=", 2);
+            if (kv.length == 2 && kv[0].equals(name)) return kv[1];
+        }
+        return null;
+    }
+
     protected String readText(HttpExchange h) throws IOException {
         return new String(h.getRequestBody().readAllBytes(), UTF_8);
     }
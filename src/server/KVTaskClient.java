@@ -1,5 +1,8 @@
 package server;
 
+import com.google.gson.Gson;
+import com.google.gson.reflect.TypeToken;
+
 import java.io.IOException;
 import java.net.URI;
 import java.net.URLEncoder;
@@ -7,8 +10,15 @@ import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 public class KVTaskClient {
+    static final int MAX_IN_FLIGHT = 64; // параллельных запросов в getAll
     private final HttpClient http = HttpClient.newHttpClient();
     private final String base;
     private final String apiToken;
@@ -71,6 +81,86 @@ public class KVTaskClient {
         }
     }
 
+    /**
+     * Читает много ключей окнами по {@link #MAX_IN_FLIGHT} параллельных запросов: загрузка
+     * поключевого хранилища не ждёт круговой задержки на каждый ключ. Отсутствующих ключей
+     * в результате нет.
+     */
+    public Map<String, String> getAll(List<String> keys) {
+        Map<String, String> values = new HashMap<>();
+        for (int from = 0; from < keys.size(); from += MAX_IN_FLIGHT) {
+            List<String> window = keys.subList(from, Math.min(keys.size(), from + MAX_IN_FLIGHT));
+            List<CompletableFuture<HttpResponse<String>>> sent = new ArrayList<>(window.size());
+            for (String key : window) {
+                String url = base + "load/" + encode(key) + "?API_TOKEN=" + apiToken;
+                sent.add(http.sendAsync(HttpRequest.newBuilder(URI.create(url)).GET().build(),
+                        HttpResponse.BodyHandlers.ofString()));
+            }
+            for (int i = 0; i < sent.size(); i++) {
+                HttpResponse<String> resp;
+                try {
+                    resp = sent.get(i).join();
+                } catch (CompletionException e) {
+                    throw new RuntimeException("load error", e.getCause());
+                }
+                if (resp.statusCode() == 404) continue;
+                if (resp.statusCode() != 200) {
+                    throw new RuntimeException("load failed: " + resp.statusCode() + " " + resp.body());
+                }
+                values.put(window.get(i), resp.body());
+            }
+        }
+        return values;
+    }
+
+    // ключи с заданным префиксом, по возрастанию
+    public List<String> keys(String prefix) {
+        try {
+            String url = base + "keys/" + encode(prefix) + "?API_TOKEN=" + apiToken;
+            HttpRequest req = HttpRequest.newBuilder(URI.create(url))
+                    .GET()
+                    .build();
+            HttpResponse<String> resp = http.send(req, HttpResponse.BodyHandlers.ofString());
+            if (resp.statusCode() != 200) {
+                throw new RuntimeException("keys failed: " + resp.statusCode() + " " + resp.body());
+            }
+            return new Gson().fromJson(resp.body(), new TypeToken<List<String>>(){}.getType());
+        } catch (IOException | InterruptedException e) {
+            throw new RuntimeException("keys error", e);
+        }
+    }
+
+    public void delete(String key) {
+        try {
+            String url = base + "delete/" + encode(key) + "?API_TOKEN=" + apiToken;
+            HttpRequest req = HttpRequest.newBuilder(URI.create(url))
+                    .DELETE()
+                    .build();
+            HttpResponse<Void> resp = http.send(req, HttpResponse.BodyHandlers.discarding());
+            if (resp.statusCode() != 200 && resp.statusCode() != 404) {
+                throw new RuntimeException("delete failed: " + resp.statusCode());
+            }
+        } catch (IOException | InterruptedException e) {
+            throw new RuntimeException("delete error", e);
+        }
+    }
+
+    public long increment(String key, long delta) {
+        try {
+            String url = base + "incr/" + encode(key) + "?API_TOKEN=" + apiToken + "&delta=" + delta;
+            HttpRequest req = HttpRequest.newBuilder(URI.create(url))
+                    .POST(HttpRequest.BodyPublishers.noBody())
+                    .build();
+            HttpResponse<String> resp = http.send(req, HttpResponse.BodyHandlers.ofString());
+            if (resp.statusCode() != 200) {
+                throw new RuntimeException("incr failed: " + resp.statusCode() + " " + resp.body());
+            }
+            return Long.parseLong(resp.body().trim());
+        } catch (IOException | InterruptedException e) {
+            throw new RuntimeException("incr error", e);
+        }
+    }
+
     private static String encode(String s) {
         return URLEncoder.encode(s, StandardCharsets.UTF_8);
     }
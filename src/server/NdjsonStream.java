@@ -0,0 +1,176 @@
+package server;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+import model.Epic;
+import model.SubTask;
+import model.Task;
+import model.TaskType;
+import service.InMemoryTaskManager;
+import service.TaskManager;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Перенос задач между окружениями построчным JSON (NDJSON): одна сущность — одна строка
+ * {@code {"type":"TASK|EPIC|SUBTASK", ...}} с теми же полями, что в REST. Выгрузка и загрузка
+ * идут запись за записью, без общего JSON-дерева: в памяти одна строка и одна пачка импорта.
+ * <p>
+ * Выгрузка пишет задачи, эпики, затем подзадачи. При загрузке все записи получают новые id,
+ * а epicId подзадачи переводится в id эпика из того же потока; подзадача без такого эпика
+ * отвергается. Записи применяются через {@link InMemoryTaskManager#addBatch} пачками по
+ * {@link #BATCH}: бронирование сетки, пересчёт эпиков и сброс на диск — раз на пачку.
+ */
+public final class NdjsonStream {
+    public static final int BATCH = 1_024;
+
+    private NdjsonStream() {
+    }
+
+    /** Пишет все сущности в {@code out}, по строке на каждую; возвращает число строк. */
+    public static long export(TaskManager manager, Writer out) throws IOException {
+        long n = 0;
+        for (List<? extends Task> list : List.of(manager.getAllTasks(), manager.getAllEpics(), manager.getAllSubTasks())) {
+            for (Task t : list) {
+                JsonWriter w = new JsonWriter(out);
+                w.beginObject();
+                w.name("type").value(TaskType.of(t).name());
+                TaskTypeAdapterFactory.writeFields(w, t);
+                w.endObject(); // JsonWriter пишет в out без своего буфера, flush на запись не нужен
+                out.write('\n');
+                n++;
+            }
+        }
+        out.flush();
+        return n;
+    }
+
+    /**
+     * Загружает записи из {@code in}. Пустые строки пропускаются; на неразборчивой строке
+     * применяются все предыдущие записи и бросается {@link IllegalArgumentException} с её номером.
+     */
+    public static ImportResult importFrom(InMemoryTaskManager manager, Reader in) throws IOException {
+        BufferedReader reader = in instanceof BufferedReader b ? b : new BufferedReader(in);
+        Batch batch = new Batch(manager);
+        long lineNo = 0;
+        for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+            lineNo++;
+            if (line.isBlank()) continue;
+            Task t;
+            try {
+                t = parse(line);
+            } catch (IOException | RuntimeException e) {
+                batch.apply();
+                throw new IllegalArgumentException("Некорректная запись в строке " + lineNo + ": " + e.getMessage(), e);
+            }
+            batch.add(t);
+        }
+        batch.apply();
+        return new ImportResult(batch.imported, batch.rejected);
+    }
+
+    private static Task parse(String line) throws IOException {
+        // тип может стоять где угодно: поля читаются в подзадачу — у неё есть все поля — и переносятся
+        SubTask fields = new SubTask();
+        fields.setEpicId(-1);
+        TaskType type = null;
+        JsonReader r = new JsonReader(new StringReader(line));
+        r.beginObject();
+        while (r.hasNext()) {
+            String name = r.nextName();
+            if (r.peek() == JsonToken.NULL) {
+                r.nextNull();
+            } else if (name.equals("type")) {
+                type = TaskType.valueOf(r.nextString());
+            } else {
+                TaskTypeAdapterFactory.readField(r, name, fields);
+            }
+        }
+        r.endObject();
+        if (r.peek() != JsonToken.END_DOCUMENT) throw new IllegalArgumentException("лишние данные после объекта");
+        if (type == null) throw new IllegalArgumentException("нет поля type");
+        if (type == TaskType.SUBTASK) return fields;
+        Task t = type == TaskType.EPIC ? new Epic() : new Task();
+        t.setId(fields.getId());
+        t.setName(fields.getName());
+        t.setDescription(fields.getDescription());
+        t.setStatus(fields.getStatus());
+        t.setStartMinutes(fields.getStartMinutes());
+        t.setDurationMinutes(fields.getDurationMinutes());
+        return t;
+    }
+
+    // копит записи до BATCH; эпики запоминают исходный id, чтобы перевести epicId подзадач
+    private static final class Batch {
+        private final InMemoryTaskManager manager;
+        private final List<Task> items = new ArrayList<>(BATCH);
+        private final List<Integer> sourceIds = new ArrayList<>(BATCH);
+        private final Set<Integer> pendingEpics = new HashSet<>();
+        private final Map<Integer, Integer> epicIds = new HashMap<>();
+        private long imported;
+        private long rejected;
+
+        Batch(InMemoryTaskManager manager) {
+            this.manager = manager;
+        }
+
+        void add(Task t) {
+            if (t instanceof SubTask s) {
+                if (pendingEpics.contains(s.getEpicId())) apply(); // новый id эпика ещё не известен
+                Integer epicId = epicIds.get(s.getEpicId());
+                s.setEpicId(epicId == null ? -1 : epicId);
+            } else if (t instanceof Epic) {
+                pendingEpics.add(t.getId());
+            }
+            items.add(t);
+            sourceIds.add(t.getId());
+            if (items.size() >= BATCH) apply();
+        }
+
+        void apply() {
+            if (items.isEmpty()) return;
+            int[] ids = manager.addBatch(items);
+            for (int i = 0; i < ids.length; i++) {
+                if (ids[i] < 0) {
+                    rejected++;
+                    continue;
+                }
+                imported++;
+                if (items.get(i) instanceof Epic) epicIds.put(sourceIds.get(i), ids[i]);
+            }
+            items.clear();
+            sourceIds.clear();
+            pendingEpics.clear();
+        }
+    }
+
+    public static final class ImportResult {
+        private final long imported;
+        private final long rejected;
+
+        public ImportResult(long imported, long rejected) {
+            this.imported = imported;
+            this.rejected = rejected;
+        }
+
+        public long getImported() {
+            return imported;
+        }
+
+        // пересечение по времени, вне сетки текущего года или подзадача без эпика из потока
+        public long getRejected() {
+            return rejected;
+        }
+    }
+}
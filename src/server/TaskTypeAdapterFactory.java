@@ -0,0 +1,120 @@
+package server;
+
+import com.google.gson.Gson;
+import com.google.gson.TypeAdapter;
+import com.google.gson.TypeAdapterFactory;
+import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+import model.Epic;
+import model.Status;
+import model.SubTask;
+import model.Task;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * JSON-представление задач: поля модели хранят время примитивами, поэтому рефлексивный
+ * адаптер Gson не подходит. Формат совпадает с прежним — startTime в ISO_LOCAL_DATE_TIME,
+ * duration в минутах.
+ */
+public class TaskTypeAdapterFactory implements TypeAdapterFactory {
+    private static final DateTimeFormatter ISO_DTF = DateTimeFormatter.ISO_LOCAL_DATE_TIME;
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> TypeAdapter<T> create(Gson gson, TypeToken<T> type) {
+        Class<? super T> raw = type.getRawType();
+        if (raw != Task.class && raw != Epic.class && raw != SubTask.class) return null;
+        return (TypeAdapter<T>) new TaskAdapter(raw);
+    }
+
+    private static final class TaskAdapter extends TypeAdapter<Task> {
+        private final Class<?> kind;
+
+        TaskAdapter(Class<?> kind) {
+            this.kind = kind;
+        }
+
+        @Override
+        public void write(JsonWriter out, Task t) throws IOException {
+            if (t == null) {
+                out.nullValue();
+                return;
+            }
+            out.beginObject();
+            writeFields(out, t);
+            out.endObject();
+        }
+
+        @Override
+        public Task read(JsonReader in) throws IOException {
+            if (in.peek() == JsonToken.NULL) {
+                in.nextNull();
+                return null;
+            }
+            Task t = kind == Epic.class ? new Epic() : kind == SubTask.class ? new SubTask() : new Task();
+            in.beginObject();
+            while (in.hasNext()) {
+                String field = in.nextName();
+                if (in.peek() == JsonToken.NULL) {
+                    in.nextNull();
+                    continue;
+                }
+                readField(in, field, t);
+            }
+            in.endObject();
+            return t;
+        }
+    }
+
+    // поля задачи без обёртки объекта: NDJSON-выгрузка пишет перед ними тип записи
+    static void writeFields(JsonWriter out, Task t) throws IOException {
+        out.name("id").value(t.getId());
+        if (t.getName() != null) out.name("name").value(t.getName());
+        if (t.getDescription() != null) out.name("description").value(t.getDescription());
+        if (t.getStatus() != null) out.name("status").value(t.getStatus().name());
+        if (t.hasStartTime()) out.name("startTime").value(t.getStartTime().format(ISO_DTF));
+        if (t.hasDuration()) out.name("duration").value(t.getDurationMinutes());
+        if (t instanceof SubTask s) {
+            out.name("epicId").value(s.getEpicId());
+        } else if (t instanceof Epic e && e.getSubTaskIds() != null) {
+            out.name("subTaskIds").beginArray();
+            for (int id : e.getSubTaskIds()) out.value(id);
+            out.endArray();
+        }
+    }
+
+    // значение поля field (не null); незнакомые и чужие для типа поля пропускаются
+    static void readField(JsonReader in, String field, Task t) throws IOException {
+        switch (field) {
+            case "id" -> t.setId(in.nextInt());
+            case "name" -> t.setName(in.nextString());
+            case "description" -> t.setDescription(in.nextString());
+            case "status" -> t.setStatus(Status.valueOf(in.nextString()));
+            case "startTime" -> t.setStartTime(LocalDateTime.parse(in.nextString(), ISO_DTF));
+            case "duration" -> t.setDurationMinutes(Math.toIntExact(in.nextLong()));
+            case "epicId" -> {
+                if (t instanceof SubTask s) s.setEpicId(in.nextInt());
+                else in.skipValue();
+            }
+            case "subTaskIds" -> {
+                if (t instanceof Epic e) {
+                    List<Integer> ids = new ArrayList<>();
+                    in.beginArray();
+                    while (in.hasNext()) ids.add(in.nextInt());
+                    in.endArray();
+                    e.setSubTaskIds(ids);
+                } else {
+                    in.skipValue();
+                }
+            }
+            default -> in.skipValue();
+        }
+    }
+}
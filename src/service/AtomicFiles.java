@@ -0,0 +1,105 @@
+package service;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Атомарная замена файла: запись во временный файл того же каталога, по желанию fsync,
+ * переименование поверх старого и fsync каталога, чтобы само переименование пережило сбой.
+ * Читатель всегда видит либо старый, либо новый файл целиком.
+ * <p>
+ * Временный файл создаётся с правами по умолчанию (umask), а если цель уже есть — получает её
+ * права, так что замена не меняет, кому доступен файл. Сбой до переименования оставляет
+ * {@code <имя>.<hex>.tmp}; такие файлы убирает {@link #deleteTemps} при следующей загрузке.
+ */
+final class AtomicFiles {
+    private static final String TMP_SUFFIX = ".tmp";
+
+    private AtomicFiles() {
+    }
+
+    interface ChannelWriter {
+        void writeTo(FileChannel channel) throws IOException;
+    }
+
+    static void write(Path target, ByteBuffer content, boolean force) throws IOException {
+        write(target, ch -> {
+            while (content.hasRemaining()) ch.write(content);
+        }, force);
+    }
+
+    static void write(Path target, ChannelWriter content, boolean force) throws IOException {
+        Path dir = target.toAbsolutePath().getParent();
+        Path tmp = dir.resolve(target.getFileName() + "." + Long.toHexString(ThreadLocalRandom.current().nextLong())
+                + TMP_SUFFIX);
+        try {
+            // не Files.createTempFile: тот создаёт файл с правами 0600, и после замены хранилище
+            // стало бы доступно только владельцу
+            try (FileChannel ch = FileChannel.open(tmp, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+                content.writeTo(ch);
+                if (force) ch.force(true);
+            }
+            copyPermissions(target, tmp);
+            try {
+                Files.move(tmp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(tmp);
+            throw e;
+        }
+        if (force) forceDirectory(dir);
+    }
+
+    private static void copyPermissions(Path from, Path to) throws IOException {
+        try {
+            Files.setPosixFilePermissions(to, Files.getPosixFilePermissions(from));
+        } catch (NoSuchFileException | UnsupportedOperationException ignored) {
+            // цели ещё нет или ФС не POSIX: остаются права по умолчанию
+        }
+    }
+
+    /**
+     * Удаляет временные файлы рядом с {@code target}, оставшиеся от записи, прерванной сбоем:
+     * {@code <имя>*.tmp}, то есть и временные файлы сегментов и журнала того же хранилища.
+     * Вызывается при загрузке, пока в хранилище никто не пишет.
+     */
+    static void deleteTemps(Path target) throws IOException {
+        Path dir = target.toAbsolutePath().getParent();
+        String prefix = target.getFileName().toString();
+        if (!Files.isDirectory(dir)) return;
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(dir, p -> {
+            String name = p.getFileName().toString();
+            return name.startsWith(prefix) && name.endsWith(TMP_SUFFIX) && name.length() > prefix.length() + TMP_SUFFIX.length();
+        })) {
+            for (Path p : files) Files.deleteIfExists(p);
+        }
+    }
+
+    // fsync уже записанного на место файла и его каталога: переименование без fsync
+    // могло дойти до диска раньше содержимого
+    static void force(Path target) throws IOException {
+        try (FileChannel ch = FileChannel.open(target, StandardOpenOption.WRITE)) {
+            ch.force(true);
+        }
+        forceDirectory(target.toAbsolutePath().getParent());
+    }
+
+    static void forceDirectory(Path dir) {
+        try (FileChannel ch = FileChannel.open(dir, StandardOpenOption.READ)) {
+            ch.force(true);
+        } catch (IOException ignored) {
+            // не все платформы позволяют открыть каталог (Windows) — там переименование и так журналируется ФС
+        }
+    }
+}
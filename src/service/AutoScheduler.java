@@ -0,0 +1,218 @@
+package service;
+
+import model.SubTask;
+import model.Task;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Раскладывает задачи и подзадачи без startTime по свободным промежуткам сетки времени.
+ * <p>
+ * Снимок (задачи без времени и свободные промежутки) берётся в потоке вызывающего, раскладка
+ * считается в фоновом потоке, а результат применяется одной пачкой через {@code applyExecutor} —
+ * тем же исполнителем, что обслуживает остальные обращения к менеджеру.
+ * <p>
+ * Порядок: сначала самостоятельные задачи, затем подзадачи по эпикам; внутри группы —
+ * по убыванию длительности, при равенстве по id (first-fit-decreasing). Каждая задача
+ * занимает самый ранний промежуток, в который помещается; поиск идёт по дереву максимумов
+ * длин промежутков, поэтому размещение стоит O(log R).
+ */
+public class AutoScheduler implements AutoCloseable {
+    private final InMemoryTaskManager manager;
+    private final Executor applyExecutor;
+    private final ExecutorService planner = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "auto-scheduler");
+        t.setDaemon(true);
+        return t;
+    });
+    private final AtomicBoolean running = new AtomicBoolean();
+    private volatile ScheduleReport lastReport;
+
+    public AutoScheduler(InMemoryTaskManager manager, Executor applyExecutor) {
+        this.manager = manager;
+        this.applyExecutor = applyExecutor;
+    }
+
+    /**
+     * Запускает раскладку задач начиная с {@code notBefore}. Возвращает null,
+     * если предыдущий запуск ещё не завершён.
+     */
+    public CompletableFuture<ScheduleReport> schedule(LocalDateTime notBefore) {
+        if (!running.compareAndSet(false, true)) {
+            return null;
+        }
+        Snapshot snapshot;
+        try {
+            snapshot = snapshot(Task.toEpochMinutes(notBefore));
+        } catch (RuntimeException e) {
+            running.set(false);
+            throw e;
+        }
+        return CompletableFuture
+                .supplyAsync(() -> plan(snapshot), planner)
+                .thenApplyAsync(this::apply, applyExecutor)
+                .whenComplete((report, error) -> {
+                    if (report != null) lastReport = report;
+                    running.set(false);
+                });
+    }
+
+    public ScheduleReport getLastReport() {
+        return lastReport;
+    }
+
+    public boolean isRunning() {
+        return running.get();
+    }
+
+    @Override
+    public void close() {
+        planner.shutdownNow();
+    }
+
+    private Snapshot snapshot(long notBefore) {
+        List<Task> candidates = new ArrayList<>();
+        int skipped = 0;
+        for (Task t : manager.getAllTasks()) {
+            if (t.hasStartTime()) continue;
+            if (t.hasDuration() && t.getDurationMinutes() > 0) candidates.add(t);
+            else skipped++;
+        }
+        for (SubTask s : manager.getAllSubTasks()) {
+            if (s.hasStartTime()) continue;
+            if (s.hasDuration() && s.getDurationMinutes() > 0) candidates.add(s);
+            else skipped++;
+        }
+        int n = candidates.size();
+        Snapshot snap = new Snapshot(n, manager.freeTimeRuns(notBefore), skipped);
+        for (int i = 0; i < n; i++) {
+            Task t = candidates.get(i);
+            snap.ids[i] = t.getId();
+            snap.groups[i] = t instanceof SubTask s ? s.getEpicId() : -1;
+            snap.durations[i] = t.getDurationMinutes();
+        }
+        return snap;
+    }
+
+    private Plan plan(Snapshot s) {
+        long t0 = System.nanoTime();
+        int n = s.ids.length;
+        int[] need = new int[n];
+        Integer[] order = new Integer[n];
+        for (int i = 0; i < n; i++) {
+            need[i] = (s.durations[i] + TimeGridArray.SLOT_MIN - 1) / TimeGridArray.SLOT_MIN;
+            order[i] = i;
+        }
+        // эпик, затем длительность в слотах по убыванию, затем id
+        Arrays.sort(order, (a, b) -> {
+            int c = Integer.compare(s.groups[a], s.groups[b]);
+            if (c != 0) return c;
+            c = Integer.compare(need[b], need[a]);
+            if (c != 0) return c;
+            return Integer.compare(s.ids[a], s.ids[b]);
+        });
+
+        int runs = s.freeRuns.length / 2;
+        long[] runStart = new long[runs];
+        int[] runSlots = new int[runs];
+        for (int r = 0; r < runs; r++) {
+            runStart[r] = s.freeRuns[2 * r];
+            runSlots[r] = (int) (s.freeRuns[2 * r + 1] / TimeGridArray.SLOT_MIN);
+        }
+        MaxTree tree = new MaxTree(runSlots);
+
+        Plan plan = new Plan(n, s.skipped);
+        for (int k = 0; k < n; k++) {
+            int i = order[k];
+            int r = tree.firstAtLeast(need[i]);
+            if (r < 0) {
+                plan.unplaced++;
+                continue;
+            }
+            plan.ids[plan.count] = s.ids[i];
+            plan.starts[plan.count] = runStart[r];
+            plan.count++;
+            runStart[r] += (long) need[i] * TimeGridArray.SLOT_MIN;
+            tree.set(r, runSlots[r] -= need[i]);
+        }
+        plan.planNanos = System.nanoTime() - t0;
+        return plan;
+    }
+
+    private ScheduleReport apply(Plan plan) {
+        long t0 = System.nanoTime();
+        int applied = manager.applySchedule(plan.ids, plan.starts, plan.count);
+        long applyNanos = System.nanoTime() - t0;
+        return new ScheduleReport(plan.ids.length, applied, plan.count - applied, plan.unplaced,
+                plan.skipped, plan.planNanos / 1_000_000, applyNanos / 1_000_000);
+    }
+
+    private static final class Snapshot {
+        final int[] ids;
+        final int[] groups;
+        final int[] durations;
+        final long[] freeRuns;
+        final int skipped;
+
+        Snapshot(int n, long[] freeRuns, int skipped) {
+            this.ids = new int[n];
+            this.groups = new int[n];
+            this.durations = new int[n];
+            this.freeRuns = freeRuns;
+            this.skipped = skipped;
+        }
+    }
+
+    private static final class Plan {
+        final int[] ids;
+        final long[] starts;
+        final int skipped;
+        int count;
+        int unplaced;
+        long planNanos;
+
+        Plan(int n, int skipped) {
+            this.ids = new int[n];
+            this.starts = new long[n];
+            this.skipped = skipped;
+        }
+    }
+
+    // дерево отрезков максимумов: самый левый промежуток длиной не меньше need
+    private static final class MaxTree {
+        private final int size;
+        private final int[] max;
+
+        MaxTree(int[] values) {
+            int s = 1;
+            while (s < Math.max(1, values.length)) s <<= 1;
+            size = s;
+            max = new int[2 * s];
+            System.arraycopy(values, 0, max, s, values.length);
+            for (int i = s - 1; i > 0; i--) max[i] = Math.max(max[2 * i], max[2 * i + 1]);
+        }
+
+        int firstAtLeast(int need) {
+            if (max[1] < need) return -1;
+            int i = 1;
+            while (i < size) {
+                i = max[2 * i] >= need ? 2 * i : 2 * i + 1;
+            }
+            return i - size;
+        }
+
+        void set(int index, int value) {
+            int i = index + size;
+            max[i] = value;
+            for (i >>= 1; i > 0; i >>= 1) max[i] = Math.max(max[2 * i], max[2 * i + 1]);
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package service;
+
+import model.Epic;
+import model.SubTask;
+import model.Task;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AutoSchedulerTest {
+    private InMemoryTaskManager manager;
+    private AutoScheduler scheduler;
+    private LocalDateTime day;
+
+    @BeforeEach
+    void setUp() {
+        manager = new InMemoryTaskManager();
+        scheduler = new AutoScheduler(manager, Runnable::run);
+        day = LocalDate.now().atTime(9, 0);
+    }
+
+    private int addTask(Duration dur) {
+        Task t = new Task();
+        t.setName("T");
+        t.setDuration(dur);
+        return manager.addTask(t).getAsInt();
+    }
+
+    @Test
+    void fillsGapsLargestFirst() {
+        Task busy = new Task();
+        busy.setStartTime(day.plusMinutes(30));
+        busy.setDuration(Duration.ofMinutes(60));
+        manager.addTask(busy);
+
+        int small = addTask(Duration.ofMinutes(30));
+        int big = addTask(Duration.ofMinutes(45));
+        int noDuration = addTask(null);
+
+        ScheduleReport report = scheduler.schedule(day).join();
+        assertEquals(2, report.getPlaced());
+        assertEquals(1, report.getSkipped());
+
+        // 45 минут не влезают в окно 9:00–9:30, поэтому идут после занятого часа, а 30 минут — в окно
+        assertEquals(day.plusMinutes(90), manager.getTask(big).getStartTime());
+        assertEquals(day, manager.getTask(small).getStartTime());
+        assertNull(manager.getTask(noDuration).getStartTime());
+    }
+
+    @Test
+    void subtasksAreGroupedByEpicAndUpdateEpicTime() {
+        Epic epic = new Epic();
+        int epicId = manager.addEpic(epic).getAsInt();
+        SubTask s = new SubTask();
+        s.setEpicId(epicId);
+        s.setDuration(Duration.ofMinutes(15));
+        int sid = manager.addSubTask(s).getAsInt();
+        int tid = addTask(Duration.ofMinutes(15));
+
+        scheduler.schedule(day).join();
+
+        assertEquals(day, manager.getTask(tid).getStartTime());
+        assertEquals(day.plusMinutes(15), manager.getSubTask(sid).getStartTime());
+        assertEquals(day.plusMinutes(15), manager.getEpic(epicId).getStartTime());
+        assertTrue(manager.getPrioritizedTasks().stream().anyMatch(t -> t.getId() == epicId));
+    }
+}
@@ -0,0 +1,195 @@
+package service;
+
+import model.Epic;
+import model.Status;
+import model.SubTask;
+import model.Task;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Двоичный снимок хранилища, читаемый через {@code FileChannel.map} без разбора текста.
+ * <pre>
+ * заголовок (48 байт): magic, версия, число задач, эпиков, подзадач, записей истории,
+ *                      смещение и длина кучи строк
+ * записи (по RECORD_BYTES): id, тип, статус, старт (минуты), длительность (минуты), эпик,
+ *                      смещение и длина имени и описания в куче строк
+ * история: id подряд
+ * куча строк: UTF-8 байты имён и описаний
+ * </pre>
+ * Записи фиксированной ширины идут в порядке задачи, эпики, подзадачи, так что каждая
+ * подзадача загружается после своего эпика. Строки адресуются парой (смещение, длина);
+ * {@code null} кодируется длиной -1. Порядок байт — little-endian.
+ */
+final class BinarySnapshot {
+    static final int MAGIC = 0x42534D54; // "TMSB" в little-endian
+    static final int VERSION = 1;
+    private static final int HEADER_BYTES = 48;
+    private static final int RECORD_BYTES = 40;
+    private static final byte TASK = 0;
+    private static final byte EPIC = 1;
+    private static final byte SUBTASK = 2;
+    private static final int NO_EPIC = -1;
+    private static final Status[] STATUSES = Status.values();
+    // короче этого описание дешевле держать строкой, чем ссылкой в отображение
+    static final int LAZY_MIN_BYTES = 64;
+
+    private BinarySnapshot() {
+    }
+
+    static boolean isBinary(Path file) throws IOException {
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer head = ByteBuffer.allocate(4).order(ByteOrder.LITTLE_ENDIAN);
+            while (head.hasRemaining() && ch.read(head) >= 0) {
+                // читаем, пока не наберём 4 байта или не кончится файл
+            }
+            return !head.hasRemaining() && head.getInt(0) == MAGIC;
+        }
+    }
+
+    static ByteBuffer encode(List<Task> tasks, List<Epic> epics, List<SubTask> subTasks, List<Task> history) {
+        int records = tasks.size() + epics.size() + subTasks.size();
+        byte[][] strings = new byte[2 * records][];
+        long heapBytes = 0;
+        int k = 0;
+        for (List<? extends Task> list : List.of(tasks, epics, subTasks)) {
+            for (Task t : list) {
+                strings[k] = utf8(t.getName());
+                heapBytes += strings[k] == null ? 0 : strings[k].length;
+                strings[k + 1] = utf8(t.getDescription());
+                heapBytes += strings[k + 1] == null ? 0 : strings[k + 1].length;
+                k += 2;
+            }
+        }
+        long heapOffset = HEADER_BYTES + (long) records * RECORD_BYTES + 4L * history.size();
+        long total = heapOffset + heapBytes;
+        if (total > Integer.MAX_VALUE) {
+            throw new ManagerSaveException("Снимок больше 2 ГБ не поддерживается: " + total + " байт");
+        }
+
+        ByteBuffer buf = ByteBuffer.allocate((int) total).order(ByteOrder.LITTLE_ENDIAN);
+        buf.putInt(MAGIC).putInt(VERSION)
+                .putInt(tasks.size()).putInt(epics.size()).putInt(subTasks.size()).putInt(history.size())
+                .putLong(heapOffset).putLong(heapBytes).putLong(0); // последнее — резерв
+        int heapPos = 0;
+        k = 0;
+        for (List<? extends Task> list : List.of(tasks, epics, subTasks)) {
+            for (Task t : list) {
+                buf.putInt(t.getId());
+                buf.put(t instanceof SubTask ? SUBTASK : t instanceof Epic ? EPIC : TASK);
+                buf.put((byte) t.getStatus().ordinal());
+                buf.putShort((short) 0);
+                buf.putLong(t.getStartMinutes());
+                buf.putInt(t.getDurationMinutes());
+                buf.putInt(t instanceof SubTask s ? s.getEpicId() : NO_EPIC);
+                heapPos = putStringRef(buf, strings[k++], heapPos);
+                heapPos = putStringRef(buf, strings[k++], heapPos);
+            }
+        }
+        for (Task t : history) buf.putInt(t.getId());
+        for (byte[] s : strings) {
+            if (s != null) buf.put(s);
+        }
+        return buf.flip();
+    }
+
+    static void read(Path file, FileBackedTasksManager manager) throws IOException {
+        read(file, manager, false);
+    }
+
+    /**
+     * С {@code lazyDescriptions} длинные описания не декодируются: задача получает ссылку
+     * на байты в отображении и читает текст при первом {@code getDescription()}.
+     */
+    static void read(Path file, FileBackedTasksManager manager, boolean lazyDescriptions) throws IOException {
+        MappedByteBuffer map;
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (ch.size() > Integer.MAX_VALUE) throw new ManagerSaveException("Снимок больше 2 ГБ: " + file);
+            map = ch.map(FileChannel.MapMode.READ_ONLY, 0, ch.size());
+        }
+        ByteBuffer buf = map.order(ByteOrder.LITTLE_ENDIAN);
+        if (buf.getInt(0) != MAGIC) throw new ManagerSaveException("Не двоичный снимок: " + file);
+        int version = buf.getInt(4);
+        if (version != VERSION) throw new ManagerSaveException("Неизвестная версия снимка " + version + ": " + file);
+        int records = buf.getInt(8) + buf.getInt(12) + buf.getInt(16);
+        int historySize = buf.getInt(20);
+        int heapOffset = Math.toIntExact(buf.getLong(24));
+
+        MappedTextSource texts = lazyDescriptions
+                ? new MappedTextSource(buf, MappedTextSource.DEFAULT_CACHE_ENTRIES) : null;
+        byte[] scratch = new byte[256];
+        List<Task> tasks = new ArrayList<>(buf.getInt(8));
+        List<Epic> epics = new ArrayList<>(buf.getInt(12));
+        List<SubTask> subTasks = new ArrayList<>(buf.getInt(16));
+        int maxId = -1;
+        for (int i = 0, pos = HEADER_BYTES; i < records; i++, pos += RECORD_BYTES) {
+            byte type = buf.get(pos + 4);
+            Task t = switch (type) {
+                case TASK -> new Task();
+                case EPIC -> new Epic();
+                case SUBTASK -> new SubTask();
+                default -> throw new ManagerSaveException("Неизвестный тип записи " + type + ": " + file);
+            };
+            int id = buf.getInt(pos);
+            t.setId(id);
+            t.setStatus(STATUSES[buf.get(pos + 5)]);
+            t.setStartMinutes(buf.getLong(pos + 8));
+            t.setDurationMinutes(buf.getInt(pos + 16));
+            int nameLen = buf.getInt(pos + 28);
+            if (nameLen > scratch.length || buf.getInt(pos + 36) > scratch.length) {
+                scratch = new byte[Math.max(nameLen, buf.getInt(pos + 36))];
+            }
+            t.setName(getString(buf, heapOffset + buf.getInt(pos + 24), nameLen, scratch));
+            int descOffset = heapOffset + buf.getInt(pos + 32);
+            int descLen = buf.getInt(pos + 36);
+            if (texts != null && descLen >= LAZY_MIN_BYTES) {
+                t.setLazyDescription(texts, MappedTextSource.ref(descOffset, descLen));
+            } else {
+                t.setDescription(getString(buf, descOffset, descLen, scratch));
+            }
+            switch (type) {
+                case TASK -> tasks.add(t);
+                case EPIC -> epics.add((Epic) t);
+                default -> {
+                    SubTask s = (SubTask) t;
+                    s.setEpicId(buf.getInt(pos + 20));
+                    subTasks.add(s);
+                }
+            }
+            maxId = Math.max(maxId, id);
+        }
+        manager.restoreAll(tasks, epics, subTasks);
+        manager.setCurrentId(maxId);
+
+        int historyPos = HEADER_BYTES + records * RECORD_BYTES;
+        for (int i = 0; i < historySize; i++) {
+            manager.restoreHistory(buf.getInt(historyPos + 4 * i));
+        }
+    }
+
+    private static int putStringRef(ByteBuffer buf, byte[] s, int heapPos) {
+        buf.putInt(heapPos);
+        buf.putInt(s == null ? -1 : s.length);
+        return s == null ? heapPos : heapPos + s.length;
+    }
+
+    private static byte[] utf8(String s) {
+        return s == null ? null : s.getBytes(StandardCharsets.UTF_8);
+    }
+
+    // абсолютное чтение из отображения в общий буфер: без промежуточных массивов на запись
+    private static String getString(ByteBuffer buf, int offset, int len, byte[] scratch) {
+        if (len < 0) return null;
+        buf.get(offset, scratch, 0, len);
+        return new String(scratch, 0, len, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,68 @@
+package service;
+
+import model.Task;
+
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Запись просмотров без блокировок на пути чтения (по мотивам read buffers из Caffeine).
+ * <p>
+ * {@link #add} кладёт задачу в {@link StripedBuffer} — один из кольцевых буферов, выбранный по потоку.
+ * Если буфер полон или CAS проиграл гонку, просмотр теряется — история лишь приблизительна.
+ * Обслуживание ({@link #drain}) под {@code tryLock} переносит накопленное в LRU-порядок
+ * нижележащего менеджера; чтение никогда его не ждёт. {@link #getHistory} и {@link #remove}
+ * сначала сливают буферы, так что отставание ограничено размером буферов.
+ */
+public class BufferedHistoryManager implements HistoryManager {
+    private final HistoryManager delegate;
+    private final StripedBuffer<Task> buffer = new StripedBuffer<>();
+    private final ReentrantLock maintenance = new ReentrantLock();
+
+    public BufferedHistoryManager(HistoryManager delegate) {
+        this.delegate = delegate;
+    }
+
+    @Override
+    public void add(Task task) {
+        if (task == null) return;
+        if (buffer.offer(task)) tryDrain();
+    }
+
+    @Override
+    public void remove(int id) {
+        maintenance.lock();
+        try {
+            drain();
+            delegate.remove(id);
+        } finally {
+            maintenance.unlock();
+        }
+    }
+
+    @Override
+    public List<Task> getHistory() {
+        maintenance.lock();
+        try {
+            drain();
+            return delegate.getHistory();
+        } finally {
+            maintenance.unlock();
+        }
+    }
+
+    private void tryDrain() {
+        if (maintenance.tryLock()) {
+            try {
+                drain();
+            } finally {
+                maintenance.unlock();
+            }
+        }
+    }
+
+    // вызывается только под maintenance
+    private void drain() {
+        buffer.drainTo(delegate::add);
+    }
+}
@@ -0,0 +1,50 @@
+package service;
+
+import model.Task;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BufferedHistoryManagerTest {
+
+    private static Task task(int id) {
+        Task t = new Task();
+        t.setId(id);
+        return t;
+    }
+
+    @Test
+    void singleThreadKeepsOrder() {
+        HistoryManager history = new BufferedHistoryManager(new InMemoryHistoryManager(100));
+        for (int i = 0; i < 50; i++) history.add(task(i));
+        history.add(task(3));
+        history.remove(7);
+
+        List<Integer> ids = history.getHistory().stream().map(Task::getId).toList();
+        assertEquals(49, ids.size());
+        assertFalse(ids.contains(7));
+        assertEquals(3, ids.get(ids.size() - 1));
+    }
+
+    @Test
+    void concurrentReadersDoNotCorruptHistory() throws InterruptedException {
+        HistoryManager history = new BufferedHistoryManager(new InMemoryHistoryManager(10));
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            int base = t * 1_000;
+            Thread th = new Thread(() -> {
+                for (int i = 0; i < 100_000; i++) history.add(task(base + i % 1_000));
+            });
+            threads.add(th);
+            th.start();
+        }
+        for (Thread th : threads) th.join();
+
+        List<Task> h = history.getHistory();
+        assertEquals(10, h.size());
+        assertEquals(10, h.stream().map(Task::getId).distinct().count());
+    }
+}
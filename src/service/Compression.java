@@ -0,0 +1,33 @@
+package service;
+
+import java.util.zip.Deflater;
+
+/**
+ * Сжатие CSV-снимков (и сегментов формата SEGMENTED) потоком GZIP. Загрузка узнаёт сжатый
+ * файл по сигнатуре и разжимает его на лету, так что настройку можно менять в любой момент.
+ * Двоичный снимок не сжимается: он читается отображением в память.
+ * <p>
+ * Журнал {@link JournaledTasksManager} тоже не сжимается. Запись в нём — одна короткая строка,
+ * которую нужно уметь отрезать по границе при недописанном хвосте, а в потоке deflate граница
+ * записи не видна. Сжатие по записи почти ничего не даёт: при {@link Durability#SYNC} каждая
+ * запись сбрасывается на диск отдельно, при {@link Durability#BOUNDED_LOSS} дописывается сразу,
+ * а fsync делается пачкой при групповом сбросе. Снимки журнального менеджера эту настройку
+ * соблюдают.
+ */
+public enum Compression {
+    NONE(Deflater.NO_COMPRESSION),
+    // быстрый уровень: почти вся выгода на повторяющихся статусах и датах, мало CPU
+    GZIP_FAST(Deflater.BEST_SPEED),
+    GZIP(Deflater.DEFAULT_COMPRESSION),
+    GZIP_BEST(Deflater.BEST_COMPRESSION);
+
+    private final int level;
+
+    Compression(int level) {
+        this.level = level;
+    }
+
+    int level() {
+        return level;
+    }
+}
@@ -0,0 +1,509 @@
+package service;
+
+import model.Epic;
+import model.Status;
+import model.SubTask;
+import model.Task;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Параллельная загрузка CSV-снимка.
+ * <p>
+ * Файл режется на куски, выровненные по переводу строки. Каждая задача fork-join пула сама
+ * читает свой кусок позиционным чтением прямо в {@code byte[]} (одна копия, без отображения
+ * в память) и разбирает его рукописным парсером полей в примитивные буферы строк — без
+ * {@code split}, {@code Integer.parseInt} и {@code LocalDateTime.parse}. Затем строки
+ * упорядочиваются по возрастанию id — сначала задачи и эпики, потом подзадачи — и
+ * передаются менеджеру одной пачкой через {@code restoreAll}.
+ * <p>
+ * Файл, сжатый GZIP (см. {@link Compression}), узнаётся по сигнатуре и разжимается потоком:
+ * блоки по переводу строки уходят в тот же пул по мере разжатия.
+ */
+final class CsvLoader {
+    static final int MIN_CHUNK_BYTES = 1 << 20;
+    private static final int MAX_CHUNK_BYTES = 1 << 28;
+    private static final int STREAM_BLOCK_BYTES = 1 << 20;
+    private static final int MINUTES_PER_DAY = 24 * 60;
+    private static final DateTimeFormatter DATE_TIME_FMT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm");
+    private static final byte TASK = 0;
+    private static final byte EPIC = 1;
+    private static final byte SUBTASK = 2;
+    private static final int NONE = Integer.MIN_VALUE;
+    private static final Status[] STATUSES = Status.values();
+
+    private CsvLoader() {
+    }
+
+    /** Разобранный снимок: строки по типам в порядке применения, наибольший id и история. */
+    record Snapshot(List<Task> tasks, List<Epic> epics, List<SubTask> subTasks, int maxId, int[] history) {
+        static final Snapshot EMPTY = new Snapshot(List.of(), List.of(), List.of(), -1, new int[0]);
+    }
+
+    static void load(Path file, FileBackedTasksManager manager, ForkJoinPool pool) throws IOException {
+        load(file, manager, pool, MIN_CHUNK_BYTES);
+    }
+
+    static void load(Path file, FileBackedTasksManager manager, ForkJoinPool pool, int minChunkBytes)
+            throws IOException {
+        Snapshot s = read(file, pool, minChunkBytes);
+        manager.restoreAll(s.tasks(), s.epics(), s.subTasks());
+        manager.setCurrentId(s.maxId());
+        for (int id : s.history()) manager.restoreHistory(id);
+    }
+
+    // один кусок разбирается в вызывающем потоке: так можно читать много мелких файлов из задач пула
+    static Snapshot read(Path file, ForkJoinPool pool, int minChunkBytes) throws IOException {
+        byte[] history;
+        List<Chunk> chunks;
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.READ)) { // открыт, пока куски читаются
+            if (isGzip(ch)) {
+                return readStream(new GZIPInputStream(Channels.newInputStream(ch), STREAM_BLOCK_BYTES), pool,
+                        STREAM_BLOCK_BYTES);
+            }
+            long size = ch.size();
+            long rowsStart = lineEnd(ch, 0, size);
+            if (rowsStart >= size) return Snapshot.EMPTY; // пустой файл или только заголовок
+            long rowsEnd = separator(ch, rowsStart, size);
+            history = read(ch, Math.min(size, rowsEnd + 1), size);
+            long chunkBytes = Math.min(MAX_CHUNK_BYTES,
+                    Math.max(minChunkBytes, (rowsEnd - rowsStart) / (4L * pool.getParallelism()) + 1));
+            chunks = split(ch, rowsStart, rowsEnd, chunkBytes);
+            if (chunks.size() == 1) chunks.get(0).parse();
+            else if (!chunks.isEmpty()) invoke(pool, new ParseAction(chunks, 0, chunks.size()));
+        }
+        return toSnapshot(chunks, parseIds(history));
+    }
+
+    private static void invoke(ForkJoinPool pool, ParseAction action) throws IOException {
+        try {
+            pool.invoke(action);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    // снимок из уже разжатого потока (блоки архива); blockBytes — начальный размер блока чтения
+    static Snapshot read(InputStream in, ForkJoinPool pool, int blockBytes) throws IOException {
+        return readStream(in, pool, blockBytes);
+    }
+
+    private static boolean isGzip(FileChannel ch) throws IOException {
+        ByteBuffer head = ByteBuffer.allocate(2);
+        while (head.hasRemaining() && ch.read(head, head.position()) >= 0) {
+            // читаем, пока не наберём сигнатуру или не кончится файл
+        }
+        return !head.hasRemaining() && (head.get(0) & 0xFF) == 0x1F && (head.get(1) & 0xFF) == 0x8B;
+    }
+
+    /*
+     * Сжатый снимок читается блоками, выровненными по переводу строки: каждый блок сразу уходит
+     * на разбор в пул, пока вызывающий поток разжимает следующий. Файл целиком в памяти не
+     * собирается — только сами строки.
+     */
+    private static Snapshot readStream(InputStream in, ForkJoinPool pool, int blockBytes) throws IOException {
+        List<Chunk> chunks = new ArrayList<>();
+        List<ForkJoinTask<?>> parsing = new ArrayList<>();
+        byte[] buf = new byte[blockBytes];
+        int len = 0;
+        boolean header = true;
+        byte[] history = new byte[0];
+        while (true) {
+            len += in.readNBytes(buf, len, buf.length - len);
+            boolean eof = len < buf.length; // readNBytes недочитывает только в конце потока
+            int from = 0;
+            if (header) {
+                int nl = indexOf(buf, 0, len);
+                if (nl < 0 && eof) return Snapshot.EMPTY; // пустой файл или только заголовок
+                if (nl < 0) {
+                    buf = Arrays.copyOf(buf, buf.length * 2);
+                    continue;
+                }
+                from = nl + 1;
+                header = false;
+            }
+            int end = eof ? len : lastIndexOf(buf, from, len) + 1;
+            if (end <= from && !eof) { // строка длиннее буфера
+                buf = Arrays.copyOf(buf, buf.length * 2);
+                continue;
+            }
+            int blank = blankLine(buf, from, end);
+            Chunk c = new Chunk(Arrays.copyOfRange(buf, from, blank >= 0 ? blank : end));
+            chunks.add(c);
+            parsing.add(pool.submit(() -> {
+                c.parse();
+                return null;
+            }));
+            if (blank >= 0) {
+                byte[] rest = in.readAllBytes();
+                history = Arrays.copyOfRange(buf, blank + 1, len + rest.length);
+                System.arraycopy(rest, 0, history, len - blank - 1, rest.length);
+                break;
+            }
+            if (eof) break;
+            System.arraycopy(buf, end, buf, 0, len - end);
+            len -= end;
+        }
+        for (ForkJoinTask<?> t : parsing) t.join();
+        return toSnapshot(chunks, parseIds(history));
+    }
+
+    // '\n' пустой строки в [from, to); from — начало строки
+    private static int blankLine(byte[] b, int from, int to) {
+        for (int p = from; p < to; p++) {
+            if (b[p] != '\n') continue;
+            if (p == from || b[p - 1] == '\n' || b[p - 1] == '\r' && (p - 1 == from || b[p - 2] == '\n')) return p;
+        }
+        return -1;
+    }
+
+    private static int indexOf(byte[] b, int from, int to) {
+        for (int i = from; i < to; i++) {
+            if (b[i] == '\n') return i;
+        }
+        return -1;
+    }
+
+    private static int lastIndexOf(byte[] b, int from, int to) {
+        for (int i = to - 1; i >= from; i--) {
+            if (b[i] == '\n') return i;
+        }
+        return -1;
+    }
+
+    static int[] parseIds(byte[] line) {
+        int[] ids = new int[16];
+        int n = 0;
+        int id = NONE;
+        for (int i = 0; i <= line.length; i++) {
+            byte b = i < line.length ? line[i] : (byte) ',';
+            if (b >= '0' && b <= '9') {
+                id = (id == NONE ? 0 : id * 10) + (b - '0');
+            } else if (b == ',' && id != NONE) {
+                if (n == ids.length) ids = Arrays.copyOf(ids, n * 2);
+                ids[n++] = id;
+                id = NONE;
+            }
+        }
+        return Arrays.copyOf(ids, n);
+    }
+
+    private static Snapshot toSnapshot(List<Chunk> chunks, int[] history) {
+        int total = 0;
+        for (Chunk c : chunks) total += c.rows.size;
+        // ключ: подзадача? | id | номер строки — сортировка даёт нужный порядок применения
+        long[] order = new long[total];
+        Rows[] byRow = new Rows[total];
+        int[] local = new int[total];
+        int k = 0;
+        for (Chunk c : chunks) {
+            Rows r = c.rows;
+            for (int i = 0; i < r.size; i++, k++) {
+                if (r.ids[i] < 0) throw new ManagerSaveException("Отрицательный id в CSV: " + r.ids[i]);
+                long kind = r.types[i] == SUBTASK ? 1 : 0;
+                order[k] = kind << 62 | (long) r.ids[i] << 31 | k;
+                byRow[k] = r;
+                local[k] = i;
+            }
+        }
+        Arrays.parallelSort(order);
+
+        List<Task> tasks = new ArrayList<>();
+        List<Epic> epics = new ArrayList<>();
+        List<SubTask> subTasks = new ArrayList<>();
+        int maxId = -1;
+        for (long key : order) {
+            int row = (int) (key & Integer.MAX_VALUE);
+            Rows r = byRow[row];
+            int i = local[row];
+            Task t = switch (r.types[i]) {
+                case TASK -> new Task();
+                case EPIC -> new Epic();
+                default -> new SubTask();
+            };
+            t.setId(r.ids[i]);
+            t.setName(r.names[i]);
+            t.setDescription(r.descriptions[i]);
+            t.setStatus(r.statuses[i]);
+            t.setStartMinutes(r.starts[i]);
+            t.setDurationMinutes(r.durations[i]);
+            switch (r.types[i]) {
+                case TASK -> tasks.add(t);
+                case EPIC -> epics.add((Epic) t);
+                default -> {
+                    SubTask s = (SubTask) t;
+                    s.setEpicId(r.epics[i]);
+                    subTasks.add(s);
+                }
+            }
+            maxId = Math.max(maxId, t.getId());
+        }
+        return new Snapshot(tasks, epics, subTasks, maxId, history);
+    }
+
+    // куски примерно равного размера, каждый заканчивается переводом строки
+    private static List<Chunk> split(FileChannel ch, long from, long to, long chunkBytes) throws IOException {
+        List<Chunk> chunks = new ArrayList<>();
+        long start = from;
+        while (start < to) {
+            long end = start + chunkBytes >= to ? to : Math.min(to, lineEnd(ch, start + chunkBytes, to));
+            chunks.add(new Chunk(ch, start, end));
+            start = end;
+        }
+        return chunks;
+    }
+
+    // позиция сразу за ближайшим '\n' начиная с pos (или limit)
+    private static long lineEnd(FileChannel ch, long pos, long limit) throws IOException {
+        ByteBuffer buf = ByteBuffer.allocate(4096);
+        while (pos < limit) {
+            buf.clear();
+            int n = ch.read(buf, pos);
+            if (n <= 0) break;
+            for (int i = 0; i < n && pos + i < limit; i++) {
+                if (buf.get(i) == '\n') return pos + i + 1;
+            }
+            pos += n;
+        }
+        return limit;
+    }
+
+    // конец секции строк — '\n' пустой строки перед историей. История — последняя строка файла,
+    // поэтому ищем с конца, расширяя окно, пока не найдём; нет пустой строки — нет и истории
+    private static long separator(FileChannel ch, long from, long size) throws IOException {
+        for (long window = 4096; ; window *= 2) {
+            long tail = Math.max(from, size - window);
+            byte[] b = read(ch, tail, size);
+            for (int i = b.length - 1; i >= 0; i--) {
+                if (b[i] != '\n') continue;
+                if (i < 2 && tail > from) break; // не хватает байт слева — расширим окно
+                long pos = tail + i;
+                boolean blank = pos == from || b[i - 1] == '\n'
+                        || b[i - 1] == '\r' && (pos - 1 == from || b[i - 2] == '\n');
+                if (blank) return pos;
+            }
+            if (tail == from) return size;
+        }
+    }
+
+    private static byte[] read(FileChannel ch, long from, long to) throws IOException {
+        ByteBuffer buf = ByteBuffer.allocate((int) (to - from));
+        while (buf.hasRemaining()) {
+            if (ch.read(buf, from + buf.position()) < 0) break;
+        }
+        return buf.array();
+    }
+
+    // диапазон файла, читаемый задачей разбора, или уже готовый блок разжатого потока
+    private static final class Chunk {
+        private final FileChannel channel;
+        private final long from;
+        private final long to;
+        private byte[] data;
+        Rows rows;
+
+        Chunk(FileChannel channel, long from, long to) {
+            this.channel = channel;
+            this.from = from;
+            this.to = to;
+        }
+
+        Chunk(byte[] data) {
+            this(null, 0, 0);
+            this.data = data;
+        }
+
+        void parse() throws IOException {
+            byte[] b = data != null ? data : read(channel, from, to);
+            data = null; // буфер куска больше не нужен: строки уже в Rows
+            rows = CsvLoader.parse(b);
+        }
+    }
+
+    private static final class ParseAction extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        private final List<Chunk> chunks;
+        private final int from;
+        private final int to;
+
+        ParseAction(List<Chunk> chunks, int from, int to) {
+            this.chunks = chunks;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from == 1) {
+                try {
+                    chunks.get(from).parse();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                return;
+            }
+            int mid = (from + to) >>> 1;
+            invokeAll(new ParseAction(chunks, from, mid), new ParseAction(chunks, mid, to));
+        }
+    }
+
+    /** Разобранные строки куска в параллельных массивах. */
+    private static final class Rows {
+        int size;
+        int[] ids = new int[64];
+        byte[] types = new byte[64];
+        Status[] statuses = new Status[64];
+        String[] names = new String[64];
+        String[] descriptions = new String[64];
+        long[] starts = new long[64];
+        int[] durations = new int[64];
+        int[] epics = new int[64];
+
+        void grow() {
+            int n = ids.length * 2;
+            ids = Arrays.copyOf(ids, n);
+            types = Arrays.copyOf(types, n);
+            statuses = Arrays.copyOf(statuses, n);
+            names = Arrays.copyOf(names, n);
+            descriptions = Arrays.copyOf(descriptions, n);
+            starts = Arrays.copyOf(starts, n);
+            durations = Arrays.copyOf(durations, n);
+            epics = Arrays.copyOf(epics, n);
+        }
+    }
+
+    private static Rows parse(byte[] b) {
+        Rows rows = new Rows();
+        int[] fieldStart = new int[8];
+        int[] fieldEnd = new int[8];
+        int pos = 0;
+        while (pos < b.length) {
+            int lineEnd = pos;
+            while (lineEnd < b.length && b[lineEnd] != '\n') lineEnd++;
+            int contentEnd = lineEnd > pos && b[lineEnd - 1] == '\r' ? lineEnd - 1 : lineEnd;
+            if (contentEnd > pos) {
+                // поля по позициям, как у split(",", -1); всё после восьмого поля игнорируется
+                int f = 0;
+                fieldStart[0] = pos;
+                for (int i = pos; i < contentEnd && f < 8; i++) {
+                    if (b[i] == ',') {
+                        fieldEnd[f++] = i;
+                        if (f < 8) fieldStart[f] = i + 1;
+                    }
+                }
+                if (f < 8) fieldEnd[f] = contentEnd;
+                int fields = Math.min(f + 1, 8);
+                if (fields < 7 || fields < 8 && type(b, fieldStart[1], fieldEnd[1]) == SUBTASK) {
+                    throw new ManagerSaveException("Повреждённая строка CSV: "
+                            + new String(b, pos, contentEnd - pos, StandardCharsets.UTF_8));
+                }
+                if (rows.size == rows.ids.length) rows.grow();
+                int r = rows.size++;
+                rows.ids[r] = parseInt(b, fieldStart[0], fieldEnd[0]);
+                rows.types[r] = type(b, fieldStart[1], fieldEnd[1]);
+                rows.names[r] = new String(b, fieldStart[2], fieldEnd[2] - fieldStart[2], StandardCharsets.UTF_8);
+                rows.statuses[r] = status(b, fieldStart[3], fieldEnd[3]);
+                rows.descriptions[r] = new String(b, fieldStart[4], fieldEnd[4] - fieldStart[4], StandardCharsets.UTF_8);
+                rows.starts[r] = fieldEnd[5] == fieldStart[5] ? Task.NO_START : parseDateTime(b, fieldStart[5], fieldEnd[5]);
+                rows.durations[r] = fieldEnd[6] == fieldStart[6] ? Task.NO_DURATION
+                        : parseInt(b, fieldStart[6], fieldEnd[6]);
+                rows.epics[r] = rows.types[r] == SUBTASK ? parseInt(b, fieldStart[7], fieldEnd[7]) : 0;
+            }
+            pos = lineEnd + 1;
+        }
+        return rows;
+    }
+
+    private static byte type(byte[] b, int from, int to) {
+        if (matches(b, from, to, "TASK")) return TASK;
+        if (matches(b, from, to, "EPIC")) return EPIC;
+        if (matches(b, from, to, "SUBTASK")) return SUBTASK;
+        throw new ManagerSaveException("Неизвестный тип в CSV: " + new String(b, from, to - from, StandardCharsets.UTF_8));
+    }
+
+    private static Status status(byte[] b, int from, int to) {
+        for (Status s : STATUSES) {
+            if (matches(b, from, to, s.name())) return s;
+        }
+        throw new ManagerSaveException("Неизвестный статус в CSV: "
+                + new String(b, from, to - from, StandardCharsets.UTF_8));
+    }
+
+    private static boolean matches(byte[] b, int from, int to, String ascii) {
+        if (to - from != ascii.length()) return false;
+        for (int i = 0; i < ascii.length(); i++) {
+            if (b[from + i] != ascii.charAt(i)) return false;
+        }
+        return true;
+    }
+
+    private static int parseInt(byte[] b, int from, int to) {
+        if (from == to) throw new ManagerSaveException("Пустое число в CSV");
+        boolean negative = b[from] == '-';
+        long v = 0;
+        for (int i = negative ? from + 1 : from; i < to; i++) {
+            int d = b[i] - '0';
+            if (d < 0 || d > 9) {
+                throw new ManagerSaveException("Не число в CSV: " + new String(b, from, to - from, StandardCharsets.UTF_8));
+            }
+            v = v * 10 + d;
+            if (v > Integer.MAX_VALUE + 1L) throw new ManagerSaveException("Число вне int в CSV");
+        }
+        return Math.toIntExact(negative ? -v : v);
+    }
+
+    // yyyy-MM-dd HH:mm в минуты от эпохи; иные формы (знак года и т.п.) — через DateTimeFormatter
+    private static long parseDateTime(byte[] b, int from, int to) {
+        if (to - from != 16 || b[from + 4] != '-' || b[from + 7] != '-' || b[from + 10] != ' ' || b[from + 13] != ':') {
+            return Task.toEpochMinutes(LocalDateTime.parse(
+                    new String(b, from, to - from, StandardCharsets.UTF_8), DATE_TIME_FMT));
+        }
+        int year = digits(b, from, 4);
+        int month = digits(b, from + 5, 2);
+        int day = digits(b, from + 8, 2);
+        int hour = digits(b, from + 11, 2);
+        int minute = digits(b, from + 14, 2);
+        if (month < 1 || month > 12 || day < 1 || day > 31 || hour > 23 || minute > 59) {
+            // пусть DateTimeFormatter объяснит, что не так
+            return Task.toEpochMinutes(LocalDateTime.parse(
+                    new String(b, from, to - from, StandardCharsets.UTF_8), DATE_TIME_FMT));
+        }
+        // days_from_civil
+        int y = month <= 2 ? year - 1 : year;
+        long era = Math.floorDiv(y, 400);
+        long yoe = y - era * 400;
+        long doy = (153L * (month > 2 ? month - 3 : month + 9) + 2) / 5 + day - 1;
+        long doe = yoe * 365 + yoe / 4 - yoe / 100 + doy;
+        long days = era * 146_097 + doe - 719_468;
+        return days * MINUTES_PER_DAY + hour * 60L + minute;
+    }
+
+    private static int digits(byte[] b, int from, int n) {
+        int v = 0;
+        for (int i = from; i < from + n; i++) {
+            int d = b[i] - '0';
+            if (d < 0 || d > 9) {
+                throw new ManagerSaveException("Не дата в CSV: " + new String(b, from, n, StandardCharsets.UTF_8));
+            }
+            v = v * 10 + d;
+        }
+        return v;
+    }
+}
@@ -0,0 +1,123 @@
+package service;
+
+import model.Epic;
+import model.Status;
+import model.SubTask;
+import model.Task;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CsvLoaderTest {
+    private static final String[] NAMES = {"plain", "Кириллица", "emoji 🚀", "€uro", ""};
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void parallelLoadMatchesWrittenSnapshot() throws IOException {
+        // крошечные куски: границы проходят внутри многобайтовых символов и между строками
+        roundTrip(5_000, Compression.NONE, 97);
+    }
+
+    @Test
+    void gzipSnapshotIsStreamedBlockByBlock() throws IOException {
+        // больше одного блока разжатия, чтобы строки рвались на границах блоков
+        roundTrip(40_000, Compression.GZIP_FAST, CsvLoader.MIN_CHUNK_BYTES);
+    }
+
+    private void roundTrip(int rows, Compression compression, int minChunkBytes) throws IOException {
+        Random rnd = new Random(11);
+        List<Task> tasks = new ArrayList<>();
+        List<Epic> epics = new ArrayList<>();
+        List<SubTask> subs = new ArrayList<>();
+        LocalDateTime base = LocalDateTime.of(1969, 12, 31, 23, 59);
+        LocalDateTime yearStart = LocalDate.now().withDayOfYear(1).atStartOfDay();
+        for (int i = 0; i < rows; i++) {
+            Task t = i % 3 == 0 ? new Task() : i % 3 == 1 || epics.isEmpty() ? new Epic() : new SubTask();
+            t.setId(i);
+            t.setName(NAMES[rnd.nextInt(NAMES.length)] + " " + i);
+            t.setDescription(NAMES[rnd.nextInt(NAMES.length)]);
+            t.setStatus(Status.values()[rnd.nextInt(3)]);
+            // задачи с длительностью занимают сетку текущего года и не должны пересекаться
+            if (i < 8_000 && rnd.nextBoolean()) {
+                t.setStartTime(yearStart.plusHours(i));
+                t.setDuration(Duration.ofMinutes(1 + rnd.nextInt(59)));
+            } else if (rnd.nextBoolean()) {
+                t.setStartTime(base.plusMinutes(rnd.nextLong() % 600_000_000L));
+            }
+            if (t instanceof SubTask s) {
+                s.setEpicId(epics.get(rnd.nextInt(epics.size())).getId());
+                subs.add(s);
+            } else if (t instanceof Epic e) {
+                epics.add(e);
+            } else {
+                tasks.add(t);
+            }
+        }
+        Path file = dir.resolve("tasks.csv");
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+            CsvWriter.write(ch, ByteBuffer.allocate(CsvWriter.BUFFER_BYTES), compression,
+                    tasks, epics, subs, List.of(subs.get(2), tasks.get(5), epics.get(1)));
+        }
+
+        FileBackedTasksManager m = new FileBackedTasksManager(file, StoreOptions.DEFAULT.withFlush(0, 1));
+        ForkJoinPool pool = new ForkJoinPool(3);
+        try {
+            CsvLoader.load(file, m, pool, minChunkBytes);
+        } finally {
+            pool.shutdown();
+        }
+
+        assertEquals(List.of(subs.get(2).getId(), tasks.get(5).getId(), epics.get(1).getId()),
+                m.getHistory().stream().map(Task::getId).toList());
+        assertEquals(tasks.size(), m.getAllTasks().size());
+        for (Task t : tasks) assertSameRow(t, m.getTask(t.getId()));
+        for (SubTask s : subs) {
+            SubTask loaded = m.getSubTask(s.getId());
+            assertSameRow(s, loaded);
+            assertEquals(s.getEpicId(), loaded.getEpicId());
+        }
+        for (Epic e : epics) assertEquals(e.getName(), m.getEpic(e.getId()).getName());
+    }
+
+    @Test
+    void subtaskBeforeEpicAndCrlfWithoutHistory() throws IOException {
+        int year = LocalDate.now().getYear();
+        Path file = dir.resolve("tasks.csv");
+        Files.writeString(file, "id,type,name,status,description,start,dur,epic\r\n"
+                + "7,SUBTASK,sub,DONE,d," + year + "-03-01 23:30,45,3\r\n"
+                + "3,EPIC,epic,NEW,d,,,\r\n", StandardCharsets.UTF_8);
+
+        FileBackedTasksManager m = FileBackedTasksManager.loadFromFile(file, StoreOptions.DEFAULT.withFlush(0, 1));
+
+        assertEquals(LocalDateTime.of(year, 3, 1, 23, 30), m.getSubTask(7).getStartTime());
+        assertEquals(Status.DONE, m.getEpic(3).getStatus());
+        assertEquals(LocalDateTime.of(year, 3, 2, 0, 15), m.getEpic(3).getEndTime().orElseThrow());
+        assertEquals(8, m.addTask(new Task(0, "next", "d")).getAsInt());
+    }
+
+    private static void assertSameRow(Task expected, Task actual) {
+        assertEquals(expected.getName(), actual.getName());
+        assertEquals(expected.getDescription(), actual.getDescription());
+        assertEquals(expected.getStatus(), actual.getStatus());
+        assertEquals(expected.getStartTime(), actual.getStartTime());
+        assertEquals(expected.getDuration(), actual.getDuration());
+    }
+}
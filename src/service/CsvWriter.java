@@ -0,0 +1,183 @@
+package service;
+
+import model.Epic;
+import model.SubTask;
+import model.Task;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Потоковая запись CSV-снимка: строки кодируются в UTF-8 прямо в переиспользуемый буфер,
+ * который сливается в канал по заполнении. Числа и даты форматируются вручную, весь файл
+ * целиком в памяти не собирается. Вывод побайтно совпадает с прежним форматом
+ * ({@code String.format} по строке и {@code yyyy-MM-dd HH:mm} для старта).
+ */
+final class CsvWriter {
+    static final String HEADER = "id,type,name,status,description,start,dur,epic";
+    static final int BUFFER_BYTES = 64 * 1024;
+    private static final int MINUTES_PER_DAY = 24 * 60;
+    private static final DateTimeFormatter DATE_TIME_FMT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm");
+
+    private final WritableByteChannel channel;
+    private final ByteBuffer buf;
+    private final byte[] digits = new byte[20];
+
+    CsvWriter(WritableByteChannel channel, ByteBuffer buf) {
+        this.channel = channel;
+        this.buf = buf.clear();
+    }
+
+    // снимок целиком, при необходимости через GZIP; сжатый файл CsvLoader разжимает потоком
+    static void write(WritableByteChannel ch, ByteBuffer buf, Compression compression, List<Task> tasks, List<Epic> epics,
+                      List<SubTask> subTasks, List<Task> history) throws IOException {
+        if (compression == Compression.NONE) {
+            new CsvWriter(ch, buf).write(tasks, epics, subTasks, history);
+            return;
+        }
+        GZIPOutputStream gzip = new GZIPOutputStream(Channels.newOutputStream(ch), BUFFER_BYTES) {
+            {
+                def.setLevel(compression.level());
+            }
+        };
+        new CsvWriter(Channels.newChannel(gzip), buf).write(tasks, epics, subTasks, history);
+        gzip.finish(); // канал закрывает вызывающий
+    }
+
+    void write(List<Task> tasks, List<Epic> epics, List<SubTask> subTasks, List<Task> history) throws IOException {
+        ascii(HEADER);
+        newLine();
+        for (Task t : tasks) row(t);
+        for (Epic e : epics) row(e);
+        for (SubTask s : subTasks) row(s);
+        newLine();
+        for (int i = 0; i < history.size(); i++) {
+            if (i > 0) put((byte) ',');
+            number(history.get(i).getId());
+        }
+        drain();
+    }
+
+    private void row(Task t) throws IOException {
+        number(t.getId());
+        ascii(t instanceof SubTask ? ",SUBTASK," : t instanceof Epic ? ",EPIC," : ",TASK,");
+        text(t.getName());
+        put((byte) ',');
+        ascii(String.valueOf(t.getStatus()));
+        put((byte) ',');
+        text(t.getDescription());
+        put((byte) ',');
+        if (t.hasStartTime()) dateTime(t.getStartMinutes());
+        put((byte) ',');
+        if (t.hasDuration()) number(t.getDurationMinutes());
+        put((byte) ',');
+        if (t instanceof SubTask s) number(s.getEpicId());
+        newLine();
+    }
+
+    private void newLine() throws IOException {
+        put((byte) '\n');
+    }
+
+    // yyyy-MM-dd HH:mm из минут от эпохи; редкие годы вне 0001..9999 — через DateTimeFormatter
+    private void dateTime(long epochMinutes) throws IOException {
+        long days = Math.floorDiv(epochMinutes, MINUTES_PER_DAY);
+        int minuteOfDay = Math.floorMod(epochMinutes, MINUTES_PER_DAY);
+        // перевод дней в гражданскую дату (алгоритм days_from_civil в обратную сторону)
+        long z = days + 719_468;
+        long era = Math.floorDiv(z, 146_097);
+        long doe = z - era * 146_097;
+        long yoe = (doe - doe / 1_460 + doe / 36_524 - doe / 146_096) / 365;
+        long doy = doe - (365 * yoe + yoe / 4 - yoe / 100);
+        long mp = (5 * doy + 2) / 153;
+        int day = (int) (doy - (153 * mp + 2) / 5 + 1);
+        int month = (int) (mp < 10 ? mp + 3 : mp - 9);
+        long year = yoe + era * 400 + (month <= 2 ? 1 : 0);
+        if (year < 1 || year > 9999) {
+            text(Task.toDateTime(epochMinutes).format(DATE_TIME_FMT));
+            return;
+        }
+        twoDigits((int) (year / 100));
+        twoDigits((int) (year % 100));
+        put((byte) '-');
+        twoDigits(month);
+        put((byte) '-');
+        twoDigits(day);
+        put((byte) ' ');
+        twoDigits(minuteOfDay / 60);
+        put((byte) ':');
+        twoDigits(minuteOfDay % 60);
+    }
+
+    private void twoDigits(int v) throws IOException {
+        put((byte) ('0' + v / 10));
+        put((byte) ('0' + v % 10));
+    }
+
+    private void number(long v) throws IOException {
+        if (v == Long.MIN_VALUE) {
+            ascii(Long.toString(v));
+            return;
+        }
+        if (v < 0) {
+            put((byte) '-');
+            v = -v;
+        }
+        int n = 0;
+        do {
+            digits[n++] = (byte) ('0' + v % 10);
+            v /= 10;
+        } while (v != 0);
+        while (n > 0) put(digits[--n]);
+    }
+
+    private void ascii(String s) throws IOException {
+        for (int i = 0, n = s.length(); i < n; i++) put((byte) s.charAt(i));
+    }
+
+    // %s печатал null как "null" — сохраняем это поведение
+    private void text(String s) throws IOException {
+        if (s == null) {
+            ascii("null");
+            return;
+        }
+        for (int i = 0, n = s.length(); i < n; i++) {
+            char c = s.charAt(i);
+            if (buf.remaining() < 4) drain();
+            if (c < 0x80) {
+                buf.put((byte) c);
+            } else if (c < 0x800) {
+                buf.put((byte) (0xC0 | c >> 6));
+                buf.put((byte) (0x80 | c & 0x3F));
+            } else if (Character.isHighSurrogate(c) && i + 1 < n && Character.isLowSurrogate(s.charAt(i + 1))) {
+                int cp = Character.toCodePoint(c, s.charAt(++i));
+                buf.put((byte) (0xF0 | cp >> 18));
+                buf.put((byte) (0x80 | cp >> 12 & 0x3F));
+                buf.put((byte) (0x80 | cp >> 6 & 0x3F));
+                buf.put((byte) (0x80 | cp & 0x3F));
+            } else if (Character.isSurrogate(c)) {
+                buf.put((byte) '?'); // как String.getBytes(UTF_8) для одиночного суррогата
+            } else {
+                buf.put((byte) (0xE0 | c >> 12));
+                buf.put((byte) (0x80 | c >> 6 & 0x3F));
+                buf.put((byte) (0x80 | c & 0x3F));
+            }
+        }
+    }
+
+    private void put(byte b) throws IOException {
+        if (!buf.hasRemaining()) drain();
+        buf.put(b);
+    }
+
+    private void drain() throws IOException {
+        buf.flip();
+        while (buf.hasRemaining()) channel.write(buf);
+        buf.clear();
+    }
+}
@@ -0,0 +1,89 @@
+package service;
+
+import model.Epic;
+import model.Status;
+import model.SubTask;
+import model.Task;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CsvWriterTest {
+    private static final DateTimeFormatter FMT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm");
+    private static final String[] NAMES = {"plain", "Кириллица", "emoji 🚀", "€uro", null, ""};
+
+    // прежняя реализация снимка: String.format по строке
+    private static String reference(List<Task> tasks, List<Epic> epics, List<SubTask> subs, List<Task> history) {
+        StringBuilder sb = new StringBuilder("id,type,name,status,description,start,dur,epic\n");
+        List<Task> all = new ArrayList<>(tasks);
+        all.addAll(epics);
+        all.addAll(subs);
+        for (Task t : all) {
+            String start = t.getStartTime() == null ? "" : t.getStartTime().format(FMT);
+            String dur = t.getDuration() == null ? "" : String.valueOf(t.getDuration().toMinutes());
+            if (t instanceof SubTask s) {
+                sb.append(String.format("%d,SUBTASK,%s,%s,%s,%s,%s,%d", t.getId(), t.getName(), t.getStatus(),
+                        t.getDescription(), start, dur, s.getEpicId()));
+            } else {
+                sb.append(String.format("%d,%s,%s,%s,%s,%s,%s,", t.getId(), t instanceof Epic ? "EPIC" : "TASK",
+                        t.getName(), t.getStatus(), t.getDescription(), start, dur));
+            }
+            sb.append('\n');
+        }
+        sb.append('\n');
+        for (int i = 0; i < history.size(); i++) {
+            if (i > 0) sb.append(',');
+            sb.append(history.get(i).getId());
+        }
+        return sb.toString();
+    }
+
+    @Test
+    void outputIsByteIdenticalToFormatter() throws IOException {
+        Random rnd = new Random(5);
+        List<Task> tasks = new ArrayList<>();
+        List<Epic> epics = new ArrayList<>();
+        List<SubTask> subs = new ArrayList<>();
+        LocalDateTime base = LocalDateTime.of(1969, 12, 31, 23, 59);
+        for (int i = 0; i < 3_000; i++) {
+            Task t = switch (i % 3) {
+                case 0 -> new Task();
+                case 1 -> new Epic();
+                default -> new SubTask();
+            };
+            t.setId(i);
+            t.setName(NAMES[rnd.nextInt(NAMES.length)] + (i % 7 == 0 ? "" : " " + i));
+            t.setDescription(NAMES[rnd.nextInt(NAMES.length)]);
+            t.setStatus(Status.values()[rnd.nextInt(3)]);
+            if (rnd.nextBoolean()) t.setStartTime(base.plusMinutes(rnd.nextLong() % 600_000_000L));
+            if (rnd.nextBoolean()) t.setDuration(Duration.ofMinutes(rnd.nextInt(10_000)));
+            if (t instanceof SubTask s) {
+                s.setEpicId(rnd.nextInt(3_000));
+                subs.add(s);
+            } else if (t instanceof Epic e) {
+                epics.add(e);
+            } else {
+                tasks.add(t);
+            }
+        }
+        List<Task> history = List.of(tasks.get(3), epics.get(1), subs.get(7));
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        // маленький буфер, чтобы строки и многобайтовые символы рвались на границах
+        new CsvWriter(Channels.newChannel(out), ByteBuffer.allocateDirect(37)).write(tasks, epics, subs, history);
+
+        assertArrayEquals(reference(tasks, epics, subs, history).getBytes(StandardCharsets.UTF_8), out.toByteArray());
+    }
+}
@@ -0,0 +1,394 @@
+package service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Граф зависимостей «A блокирует B» между задачами и подзадачами.
+ * <p>
+ * Узлы живут в слотах параллельных int-массивов, рёбра — в массивах смежности по слоту.
+ * Топологический порядок поддерживается инкрементально (алгоритм Пирса — Келли): при вставке
+ * ребра переупорядочивается только затронутый участок, ребро, замыкающее цикл, отклоняется.
+ * Для каждого узла хранится длина самой длинной цепочки внутри его эпика, заканчивающейся
+ * на нём ({@code finish}); она пересчитывается вперёд по порядку только для затронутых узлов.
+ */
+final class DependencyGraph {
+    static final int NO_GROUP = -1;
+    private static final int[] EMPTY = new int[0];
+
+    private final IntIntHashMap slotOf = new IntIntHashMap(64);
+    private int[] idOf = new int[16];
+    private int[] group = new int[16];
+    private int[] dur = new int[16];
+    private long[] finish = new long[16];
+    private int[] pos = new int[16];
+    private int[][] out = new int[16][];
+    private int[][] in = new int[16][];
+    private int[] outCnt = new int[16];
+    private int[] inCnt = new int[16];
+    private int slots;
+    private int[] freeSlots = new int[16];
+    private int freeCnt;
+
+    private int[] nodeAt = new int[16];
+    private int nextPos;
+    private int nodes;
+    private int edges;
+
+    private int[] mark = new int[16];
+    private int stamp;
+    private int[] stack = new int[16];
+    private int[] deltaF = new int[16];
+    private int[] deltaB = new int[16];
+    private int[] heap = new int[16];
+
+    int edgeCount() {
+        return edges;
+    }
+
+    boolean contains(int id) {
+        return slotOf.containsKey(id);
+    }
+
+    /**
+     * Добавляет ребро blocker -> blocked. Возвращает false, если ребро уже есть, это петля
+     * или оно замкнуло бы цикл.
+     */
+    boolean addEdge(int blocker, int blockerGroup, int blockerDur,
+                    int blocked, int blockedGroup, int blockedDur) {
+        if (blocker == blocked) return false;
+        int x = slotOf.get(blocker);
+        int y = slotOf.get(blocked);
+        if (x != IntIntHashMap.MISSING && y != IntIntHashMap.MISSING && indexOf(out[x], outCnt[x], y) >= 0) {
+            return false;
+        }
+        boolean newX = x == IntIntHashMap.MISSING;
+        boolean newY = y == IntIntHashMap.MISSING;
+        if (newX) x = addNode(blocker, blockerGroup, blockerDur);
+        if (newY) y = addNode(blocked, blockedGroup, blockedDur);
+        if (pos[x] > pos[y] && !reorder(x, y)) {
+            if (newX) removeNode(blocker);
+            if (newY) removeNode(blocked);
+            return false;
+        }
+        out[x] = append(out[x], outCnt[x]++, y);
+        in[y] = append(in[y], inCnt[y]++, x);
+        edges++;
+        propagate(y);
+        return true;
+    }
+
+    boolean removeEdge(int blocker, int blocked) {
+        int x = slotOf.get(blocker);
+        int y = slotOf.get(blocked);
+        if (x == IntIntHashMap.MISSING || y == IntIntHashMap.MISSING) return false;
+        int i = indexOf(out[x], outCnt[x], y);
+        if (i < 0) return false;
+        out[x][i] = out[x][--outCnt[x]];
+        int j = indexOf(in[y], inCnt[y], x);
+        in[y][j] = in[y][--inCnt[y]];
+        edges--;
+        propagate(y);
+        // узлы без рёбер в графе не держим
+        if (outCnt[x] == 0 && inCnt[x] == 0) removeNode(blocker);
+        if (outCnt[y] == 0 && inCnt[y] == 0) removeNode(blocked);
+        return true;
+    }
+
+    void removeNode(int id) {
+        int v = slotOf.remove(id);
+        if (v == IntIntHashMap.MISSING) return;
+        for (int i = 0; i < outCnt[v]; i++) {
+            int w = out[v][i];
+            int j = indexOf(in[w], inCnt[w], v);
+            in[w][j] = in[w][--inCnt[w]];
+            edges--;
+        }
+        for (int i = 0; i < inCnt[v]; i++) {
+            int u = in[v][i];
+            int j = indexOf(out[u], outCnt[u], v);
+            out[u][j] = out[u][--outCnt[u]];
+            edges--;
+        }
+        int[] succ = out[v];
+        int succCnt = outCnt[v];
+        int[] pred = in[v];
+        int predCnt = inCnt[v];
+        nodeAt[pos[v]] = -1;
+        out[v] = EMPTY;
+        in[v] = EMPTY;
+        outCnt[v] = inCnt[v] = 0;
+        freeSlots = ensure(freeSlots, freeCnt + 1);
+        freeSlots[freeCnt++] = v;
+        nodes--;
+        for (int i = 0; i < succCnt; i++) propagate(succ[i]);
+        // соседи, у которых не осталось рёбер, уходят из графа, как в removeEdge
+        for (int i = 0; i < succCnt; i++) removeIfIsolated(succ[i]);
+        for (int i = 0; i < predCnt; i++) removeIfIsolated(pred[i]);
+    }
+
+    private void removeIfIsolated(int v) {
+        if (outCnt[v] == 0 && inCnt[v] == 0 && slotOf.get(idOf[v]) == v) removeNode(idOf[v]);
+    }
+
+    void setDuration(int id, int minutes) {
+        int v = slotOf.get(id);
+        if (v == IntIntHashMap.MISSING || dur[v] == minutes) return;
+        dur[v] = minutes;
+        propagate(v);
+    }
+
+    /**
+     * Длина самой длинной цепочки зависимостей внутри эпика, заканчивающейся на задаче, в минутах;
+     * -1, если задачи нет в графе.
+     */
+    long finishOf(int id) {
+        int v = slotOf.get(id);
+        return v == IntIntHashMap.MISSING ? -1 : finish[v];
+    }
+
+    List<Integer> blockersOf(int id) {
+        int v = slotOf.get(id);
+        return v == IntIntHashMap.MISSING ? List.of() : ids(in[v], inCnt[v]);
+    }
+
+    List<Integer> blockedBy(int id) {
+        int v = slotOf.get(id);
+        return v == IntIntHashMap.MISSING ? List.of() : ids(out[v], outCnt[v]);
+    }
+
+    List<Integer> topologicalOrder() {
+        List<Integer> result = new ArrayList<>(nodes);
+        for (int p = 0; p < nextPos; p++) {
+            int v = nodeAt[p];
+            if (v >= 0) result.add(idOf[v]);
+        }
+        return result;
+    }
+
+    void clear() {
+        slotOf.clear();
+        Arrays.fill(out, 0, slots, EMPTY);
+        Arrays.fill(in, 0, slots, EMPTY);
+        slots = freeCnt = nextPos = nodes = edges = 0;
+    }
+
+    private int addNode(int id, int g, int minutes) {
+        int v;
+        if (freeCnt > 0) {
+            v = freeSlots[--freeCnt];
+        } else {
+            v = slots++;
+            if (v == idOf.length) growSlots(v * 2);
+        }
+        if (nextPos == nodeAt.length) {
+            if (nodes < nextPos / 2) compactPositions();
+            else nodeAt = Arrays.copyOf(nodeAt, nextPos * 2);
+        }
+        idOf[v] = id;
+        group[v] = g;
+        dur[v] = minutes;
+        finish[v] = minutes;
+        out[v] = EMPTY;
+        in[v] = EMPTY;
+        outCnt[v] = inCnt[v] = 0;
+        pos[v] = nextPos;
+        nodeAt[nextPos++] = v;
+        slotOf.put(id, v);
+        nodes++;
+        return v;
+    }
+
+    // Пирс — Келли: ребро x -> y при pos[x] > pos[y]
+    private boolean reorder(int x, int y) {
+        int lb = pos[y];
+        int ub = pos[x];
+        int s = nextStamp();
+
+        int fCnt = 0;
+        int sp = 0;
+        stack[sp++] = y;
+        mark[y] = s;
+        while (sp > 0) {
+            int v = stack[--sp];
+            deltaF = ensure(deltaF, fCnt + 1);
+            deltaF[fCnt++] = v;
+            for (int i = 0; i < outCnt[v]; i++) {
+                int w = out[v][i];
+                if (w == x) return false; // цикл
+                if (mark[w] != s && pos[w] < ub) {
+                    mark[w] = s;
+                    stack = ensure(stack, sp + 1);
+                    stack[sp++] = w;
+                }
+            }
+        }
+
+        int bCnt = 0;
+        stack[sp++] = x;
+        mark[x] = s;
+        while (sp > 0) {
+            int v = stack[--sp];
+            deltaB = ensure(deltaB, bCnt + 1);
+            deltaB[bCnt++] = v;
+            for (int i = 0; i < inCnt[v]; i++) {
+                int u = in[v][i];
+                if (mark[u] != s && pos[u] > lb) {
+                    mark[u] = s;
+                    stack = ensure(stack, sp + 1);
+                    stack[sp++] = u;
+                }
+            }
+        }
+
+        sortByPos(deltaF, fCnt);
+        sortByPos(deltaB, bCnt);
+        int total = fCnt + bCnt;
+        int[] freed = new int[total];
+        for (int i = 0; i < bCnt; i++) freed[i] = pos[deltaB[i]];
+        for (int i = 0; i < fCnt; i++) freed[bCnt + i] = pos[deltaF[i]];
+        Arrays.sort(freed);
+        // сначала всё, что ведёт к x, затем всё, что достижимо из y — в прежнем относительном порядке
+        for (int i = 0; i < total; i++) {
+            int v = i < bCnt ? deltaB[i] : deltaF[i - bCnt];
+            pos[v] = freed[i];
+            nodeAt[freed[i]] = v;
+        }
+        return true;
+    }
+
+    // пересчёт finish вперёд по топологическому порядку, каждый затронутый узел — один раз
+    private void propagate(int start) {
+        int s = nextStamp();
+        int size = 0;
+        heap[size++] = pos[start];
+        mark[start] = s;
+        while (size > 0) {
+            int p = heap[0];
+            heap[0] = heap[--size];
+            siftDown(size);
+            int v = nodeAt[p];
+            long f = dur[v];
+            for (int i = 0; i < inCnt[v]; i++) {
+                int u = in[v][i];
+                if (group[u] == group[v] && group[v] != NO_GROUP && finish[u] + dur[v] > f) {
+                    f = finish[u] + dur[v];
+                }
+            }
+            if (f == finish[v] && v != start) continue;
+            finish[v] = f;
+            if (group[v] == NO_GROUP) continue;
+            for (int i = 0; i < outCnt[v]; i++) {
+                int w = out[v][i];
+                if (mark[w] == s || group[w] != group[v]) continue;
+                mark[w] = s;
+                heap = ensure(heap, size + 1);
+                heap[size] = pos[w];
+                siftUp(size++);
+            }
+        }
+    }
+
+    private void siftUp(int i) {
+        int x = heap[i];
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (heap[parent] <= x) break;
+            heap[i] = heap[parent];
+            i = parent;
+        }
+        heap[i] = x;
+    }
+
+    private void siftDown(int size) {
+        if (size == 0) return;
+        int x = heap[0];
+        int i = 0;
+        while (true) {
+            int c = 2 * i + 1;
+            if (c >= size) break;
+            if (c + 1 < size && heap[c + 1] < heap[c]) c++;
+            if (heap[c] >= x) break;
+            heap[i] = heap[c];
+            i = c;
+        }
+        heap[i] = x;
+    }
+
+    private void compactPositions() {
+        int p = 0;
+        for (int i = 0; i < nextPos; i++) {
+            int v = nodeAt[i];
+            if (v < 0) continue;
+            nodeAt[p] = v;
+            pos[v] = p++;
+        }
+        nextPos = p;
+    }
+
+    private void sortByPos(int[] a, int n) {
+        // вставками для коротких участков, иначе через упаковку (pos << 32 | slot)
+        if (n < 32) {
+            for (int i = 1; i < n; i++) {
+                int v = a[i];
+                int j = i - 1;
+                while (j >= 0 && pos[a[j]] > pos[v]) {
+                    a[j + 1] = a[j];
+                    j--;
+                }
+                a[j + 1] = v;
+            }
+            return;
+        }
+        long[] packed = new long[n];
+        for (int i = 0; i < n; i++) packed[i] = ((long) pos[a[i]] << 32) | a[i];
+        Arrays.sort(packed);
+        for (int i = 0; i < n; i++) a[i] = (int) packed[i];
+    }
+
+    private int nextStamp() {
+        if (mark.length < slots) mark = Arrays.copyOf(mark, idOf.length);
+        if (++stamp == Integer.MAX_VALUE) {
+            Arrays.fill(mark, 0);
+            stamp = 1;
+        }
+        return stamp;
+    }
+
+    private void growSlots(int cap) {
+        idOf = Arrays.copyOf(idOf, cap);
+        group = Arrays.copyOf(group, cap);
+        dur = Arrays.copyOf(dur, cap);
+        finish = Arrays.copyOf(finish, cap);
+        pos = Arrays.copyOf(pos, cap);
+        out = Arrays.copyOf(out, cap);
+        in = Arrays.copyOf(in, cap);
+        outCnt = Arrays.copyOf(outCnt, cap);
+        inCnt = Arrays.copyOf(inCnt, cap);
+        mark = Arrays.copyOf(mark, cap);
+    }
+
+    private List<Integer> ids(int[] adj, int cnt) {
+        List<Integer> result = new ArrayList<>(cnt);
+        for (int i = 0; i < cnt; i++) result.add(idOf[adj[i]]);
+        return result;
+    }
+
+    private static int indexOf(int[] a, int n, int v) {
+        for (int i = 0; i < n; i++) {
+            if (a[i] == v) return i;
+        }
+        return -1;
+    }
+
+    private static int[] append(int[] a, int n, int v) {
+        if (n == a.length) a = Arrays.copyOf(a, Math.max(4, n * 2));
+        a[n] = v;
+        return a;
+    }
+
+    private static int[] ensure(int[] a, int n) {
+        return n <= a.length ? a : Arrays.copyOf(a, Math.max(n, a.length * 2));
+    }
+}
@@ -0,0 +1,12 @@
+package service;
+
+/**
+ * Когда изменения файлового менеджера попадают на диск.
+ */
+public enum Durability {
+    // каждая мутация записывается до возврата из метода
+    SYNC,
+    // мутации копятся и записываются фоновым потоком пачкой: по интервалу или по размеру пачки;
+    // при сбое теряется не больше одного интервала / одной пачки
+    BOUNDED_LOSS
+}
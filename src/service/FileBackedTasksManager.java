@@ -5,162 +5,464 @@ import model.Status;
 import model.SubTask;
 import model.Task;
 
-import java.io.BufferedReader;
-import java.io.BufferedWriter;
 import java.io.IOException;
-import java.nio.charset.StandardCharsets;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.time.Duration;
 import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.OptionalInt;
-
-public class FileBackedTasksManager extends InMemoryTaskManager implements TaskManager {
-
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+
+/**
+ * Менеджер, сохраняющий состояние в CSV-файл.
+ * <p>
+ * Чтения ничего не пишут: просмотр лишь помечает историю грязной. Мутации записываются
+ * сразу ({@link Durability#SYNC}) или копятся и сбрасываются групповым коммитом
+ * ({@link Durability#BOUNDED_LOSS}) — фоновым потоком раз в {@code flushIntervalMillis}
+ * или как только накопится {@code flushBatch} изменений. Грязная история в обоих режимах
+ * уходит на диск с ближайшей записью или по интервалу. Интервал 0 отключает фоновый сброс.
+ * При {@link FsyncPolicy#INTERVAL} тот же поток по истечении интервала делает fsync последнего
+ * снимка, записанного без него, — даже если новых записей больше не будет.
+ */
+public class FileBackedTasksManager extends InMemoryTaskManager implements TaskManager, AutoCloseable {
+    static final long DEFAULT_FLUSH_INTERVAL_MS = 1_000;
+    static final int DEFAULT_FLUSH_BATCH = 256;
 
     private final Path file;
-    private boolean loading = false;
-    private static final DateTimeFormatter DATE_TIME_FMT =
-            DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm");
+    protected boolean loading = false;
+
+    private final StoreOptions options;
+    private final ScheduledExecutorService flusher;
+    private int pendingChanges; // под this
+    private volatile boolean historyDirty;
+    private long lastFsyncNanos;
+    private boolean unsynced; // под this: последний снимок записан без fsync
+    private ByteBuffer csvBuffer;
+    private SegmentedStore segments; // только для формата SEGMENTED или загруженного манифеста
+    private TaskArchive archive; // открывается при первом обращении
 
 
     public FileBackedTasksManager(Path file) {
+        this(file, StoreOptions.DEFAULT);
+    }
+
+    public FileBackedTasksManager(Path file, StoreOptions options) {
+        this(file, new SequentialIdAllocator(), options);
+    }
+
+    protected FileBackedTasksManager(Path file, IdAllocator idAllocator) {
+        this(file, idAllocator, StoreOptions.DEFAULT);
+    }
+
+    protected FileBackedTasksManager(Path file, IdAllocator idAllocator, StoreOptions options) {
+        super(idAllocator);
         this.file = file;
+        this.options = options;
+        long interval = options.getFlushIntervalMillis();
+        boolean fsyncTicks = options.getFsyncPolicy() == FsyncPolicy.INTERVAL;
+        if (interval > 0 || fsyncTicks) {
+            flusher = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread t = new Thread(r, "file-manager-flusher");
+                t.setDaemon(true);
+                return t;
+            });
+            if (interval > 0) {
+                flusher.scheduleWithFixedDelay(this::backgroundFlush, interval, interval, TimeUnit.MILLISECONDS);
+            }
+            if (fsyncTicks) {
+                long fsyncInterval = options.getFsyncIntervalMillis();
+                flusher.scheduleWithFixedDelay(this::backgroundFsync, fsyncInterval, fsyncInterval, TimeUnit.MILLISECONDS);
+            }
+        } else {
+            flusher = null;
+        }
     }
 
     public static FileBackedTasksManager loadFromFile(Path path) {
-        if (path == null || !Files.exists(path)) {
-            return new FileBackedTasksManager(path);
-        }
-        FileBackedTasksManager manager = new FileBackedTasksManager(path);
-        manager.load();
+        return loadFromFile(path, StoreOptions.DEFAULT);
+    }
+
+    public static FileBackedTasksManager loadFromFile(Path path, StoreOptions options) {
+        FileBackedTasksManager manager = new FileBackedTasksManager(path, options);
+        if (path != null) deleteStaleTemps(path);
+        if (path != null && Files.exists(path)) manager.load();
         return manager;
     }
 
-    protected  void save() {
-        try (BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
-            writer.write(serializeToCsv());
-            writer.flush();
+    // временные файлы записи, прерванной сбоем: до загрузки в хранилище никто не пишет
+    static void deleteStaleTemps(Path file) {
+        try {
+            AtomicFiles.deleteTemps(file);
+        } catch (IOException e) {
+            throw new ManagerSaveException("Не удалось убрать временные файлы рядом с " + file, e);
+        }
+    }
+
+    // сущность изменена или удалена: в формате SEGMENTED сегмент сущности (и эпика подзадачи)
+    // надо переписать при сбросе; наследники с другим хранилищем помечают своё
+    protected void touch(int id) {
+        if (segments == null) return;
+        segments.markDirty(id);
+        if (findAny(id) instanceof SubTask s) segments.markDirty(s.getEpicId());
+    }
+
+    protected void touchAll() {
+        if (segments != null) segments.markAllDirty();
+    }
+
+    // мутация выполнена: записываем сразу или копим до группового коммита
+    protected void changed() {
+        if (loading) return;
+        pendingChanges++;
+        if (options.getDurability() == Durability.SYNC) {
+            flush();
+        } else if (pendingChanges >= options.getFlushBatch() && options.getFlushIntervalMillis() > 0) {
+            flusher.execute(this::backgroundFlush);
+        }
+    }
+
+    /** Записывает накопленные изменения и грязную историю, если они есть. */
+    public synchronized void flush() {
+        if (pendingChanges == 0 && !historyDirty) return;
+        int pending = pendingChanges;
+        pendingChanges = 0;
+        historyDirty = false;
+        try {
+            save();
+        } catch (RuntimeException e) {
+            pendingChanges += pending;
+            historyDirty = true;
+            throw e;
+        }
+    }
+
+    private void backgroundFlush() {
+        try {
+            flush();
+        } catch (ManagerSaveException ignored) {
+            // изменения остаются грязными: повторим на следующем тике, а close() выбросит ошибку
+        }
+    }
+
+    private void backgroundFsync() {
+        try {
+            fsyncPending(false);
+        } catch (ManagerSaveException ignored) {
+            // снимок остаётся несброшенным: повторим на следующем тике, а close() выбросит ошибку
+        }
+    }
 
+    // fsync снимка, записанного без него, если интервал истёк (или сразу при closing)
+    private synchronized void fsyncPending(boolean closing) {
+        if (!unsynced) return;
+        long now = System.nanoTime();
+        if (!closing && now - lastFsyncNanos < TimeUnit.MILLISECONDS.toNanos(options.getFsyncIntervalMillis())) return;
+        try {
+            forceUnsynced();
         } catch (IOException e) {
-            throw new ManagerSaveException("Не удалось сохранить данные в файле" + file, e);
+            throw new ManagerSaveException("Не удалось сбросить на диск файл " + file, e);
         }
+        lastFsyncNanos = now;
+        unsynced = false;
     }
 
-    @Override
-    public List<Task> getPrioritizedTasks() {
-        return super.getPrioritizedTasks();
+    // fsync записанного без него сразу, не дожидаясь интервала
+    protected final void forceUnsyncedNow() {
+        fsyncPending(true);
     }
 
-    protected void load() {
+    // fsync записанного без него; наследники, дописывающие свой файл (журнал), сбрасывают и его
+    protected void forceUnsynced() throws IOException {
+        if (segments != null) segments.force();
+        else AtomicFiles.force(file);
+    }
 
-        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
-            String header = reader.readLine();
-            if (header == null) return;
-
-            int maxId = -1;
-            String line;
-            while ((line = reader.readLine()) != null && !line.isBlank()) {
-                String[] split = line.split(",", -1);
-                int id = Integer.parseInt(split[0]);
-                String name = split[2];
-                Status status = Status.valueOf(split[3]);
-                String description = split[4];
-                LocalDateTime startTime = split[5].isEmpty() ? null : LocalDateTime.parse(split[5], DATE_TIME_FMT);
-                Duration duration = split[6].isEmpty() ? null : Duration.ofMinutes(Long.parseLong(split[6]));
-                switch (split[1]) {
-                    case "SUBTASK" -> {
-                        int epicId = Integer.parseInt(split[7]);
-
-                        SubTask subTask = new SubTask(id, name, description, status, startTime, duration, epicId);
-                        putSubTask(subTask);
-                    }
-                    case "EPIC" -> {
-
-                        Epic epic = new Epic(id, name, description, status, startTime, duration);
-                        putEpic(epic);
-                    }
-                    case "TASK" -> {
-                        Task task = new Task(id, name, description, status, startTime, duration);
-                        putTask(task);
-                    }
-                }
-                maxId = Math.max(maxId, id);
+    // под this: записано без fsync — его добьёт тик FsyncPolicy.INTERVAL или close()
+    protected final void markUnsynced() {
+        unsynced = true;
+    }
+
+    protected final StoreOptions getOptions() {
+        return options;
+    }
 
+    synchronized boolean hasUnsyncedSnapshot() {
+        return unsynced;
+    }
 
+    /** Останавливает фоновый сброс и записывает всё накопленное. */
+    @Override
+    public void close() {
+        if (flusher != null) {
+            flusher.shutdown();
+            try {
+                flusher.awaitTermination(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
             }
-            setCurrentId(maxId);
-            String historyLine = reader.readLine();
-            if (historyLine != null && !historyLine.isBlank()) {
-                for (String idStr : historyLine.split(",")) {
-                    int id = Integer.parseInt(idStr.trim());
-                    if (hasTask(id))
-                        getTask(id);
-                    else if (hasEpic(id))
-                        getEpic(id);
-                    else if (hasSubTask(id))
-                        getSubTask(id);
+        }
+        flush();
+        if (options.getFsyncPolicy() == FsyncPolicy.INTERVAL) fsyncPending(true);
+    }
 
-                }
+    protected void save() {
+        writeSnapshot(shouldFsync());
+    }
+
+    // снимок пишется во временный файл и атомарно подменяет старый: сбой не оставит полфайла
+    protected final void writeSnapshot(boolean force) {
+        try {
+            if (options.getFormat() == SnapshotFormat.SEGMENTED) {
+                if (segments == null) segments = new SegmentedStore(file, options.getSegmentSize());
+                segments.write(this, super.getHistory(), csvBuffer(), options.getCompression(), force);
+                unsynced = !force;
+                return;
+            }
+            if (options.getFormat() == SnapshotFormat.BINARY) {
+                AtomicFiles.write(file,
+                        BinarySnapshot.encode(getAllTasks(), getAllEpics(), getAllSubTasks(), super.getHistory()),
+                        force);
+            } else {
+                AtomicFiles.write(file, ch -> CsvWriter.write(ch, csvBuffer(), options.getCompression(),
+                        getAllTasks(), getAllEpics(), getAllSubTasks(), super.getHistory()), force);
+            }
+            unsynced = !force;
+            if (segments != null) { // манифест уже заменён полным снимком
+                segments.deleteSegments();
+                segments = null;
             }
+        } catch (IOException e) {
+            throw new ManagerSaveException("Не удалось сохранить данные в файле" + file, e);
+        }
+    }
 
+    /**
+     * Переносит в холодный архив {@code <файл>.archive} завершённые задачи и эпики (с их
+     * подзадачами), закончившиеся раньше, чем {@code age} назад. Конец — старт плюс длительность,
+     * без длительности — старт; задачи без времени не стареют и остаются в памяти. Архив
+     * дописывается и сбрасывается на диск до того, как строки уходят из карт, сетки и снимка:
+     * сбой между шагами оставит строку и там и там, но не потеряет. Такая строка при следующей
+     * архивации не дописывается повторно, если она уже есть в индексе архива; эпик дописывается
+     * заново, только если у него появились подзадачи, которых в архиве нет. Возвращает число
+     * строк, ушедших из памяти.
+     */
+    public synchronized int archiveCompleted(Duration age) {
+        if (age.isNegative()) throw new IllegalArgumentException("Возраст архивации не может быть отрицательным");
+        long cutoff = Task.toEpochMinutes(LocalDateTime.now()) - age.toMinutes();
+        List<Task> tasks = new ArrayList<>();
+        List<Epic> epics = new ArrayList<>();
+        List<SubTask> subTasks = new ArrayList<>();
+        for (Task t : getAllTasks()) {
+            if (completedBefore(t, cutoff)) tasks.add(t);
+        }
+        for (Epic e : getAllEpics()) {
+            if (!completedBefore(e, cutoff)) continue;
+            epics.add(e);
+            subTasks.addAll(getEpicsSubTasks(e.getId()));
+        }
+        if (tasks.isEmpty() && epics.isEmpty()) return 0;
+        try {
+            TaskArchive archive = archive();
+            List<Task> newTasks = new ArrayList<>();
+            for (Task t : tasks) {
+                if (!archive.contains(t.getId())) newTasks.add(t);
+            }
+            List<Epic> newEpics = new ArrayList<>();
+            for (Epic e : epics) {
+                boolean archived = archive.contains(e.getId());
+                for (SubTask st : subTasks) {
+                    if (archived && st.getEpicId() == e.getId()) archived = archive.contains(st.getId());
+                }
+                if (!archived) newEpics.add(e); // эпик пишется вместе со всеми подзадачами
+            }
+            if (!newTasks.isEmpty() || !newEpics.isEmpty()) archive.append(newTasks, newEpics, subTasks);
         } catch (IOException e) {
-            throw new ManagerSaveException("Не удалось прочитать данные в файле" + file, e);
+            throw new ManagerSaveException("Не удалось дописать архив " + archivePath(), e);
         }
+        for (Task t : tasks) {
+            touch(t.getId());
+            super.deleteTask(t.getId());
+        }
+        for (Epic e : epics) {
+            for (SubTask st : subTasks) {
+                if (st.getEpicId() == e.getId()) touch(st.getId());
+            }
+            touch(e.getId());
+            super.deleteEpic(e.getId());
+        }
+        changed();
+        return tasks.size() + epics.size() + subTasks.size();
     }
 
+    private static boolean completedBefore(Task t, long cutoffMinutes) {
+        if (t.getStatus() != Status.DONE || !t.hasStartTime()) return false;
+        long end = t.hasDuration() ? t.getEndMinutes() : t.getStartMinutes();
+        return end < cutoffMinutes;
+    }
 
-    private String serializeToCsv() {
-        StringBuilder sb = new StringBuilder();
-        sb.append("id,type,name,status,description,start,dur,epic").append("\n");
+    /** Задача из архива по id (поиск по индексу, разжимается один блок) или {@code null}. */
+    public Task getArchived(int id) {
+        try {
+            return Files.exists(archivePath()) ? archive().get(id) : null;
+        } catch (IOException e) {
+            throw new ManagerSaveException("Не удалось прочитать архив " + archivePath(), e);
+        }
+    }
 
-        for (Task t : getAllTasks()) {
-            sb.append(taskToCsv(t)).append("\n");
+    /** Холодный поиск: полный проход по архиву, до {@code limit} подходящих строк, новые первыми. */
+    public List<Task> searchArchive(Predicate<? super Task> filter, int limit) {
+        if (limit <= 0) throw new IllegalArgumentException("limit должен быть > 0");
+        try {
+            return Files.exists(archivePath()) ? archive().search(filter, limit) : List.of();
+        } catch (IOException e) {
+            throw new ManagerSaveException("Не удалось прочитать архив " + archivePath(), e);
         }
-        for (Epic e : getAllEpics()) {
-            sb.append(taskToCsv(e)).append("\n");
+    }
+
+    private synchronized TaskArchive archive() throws IOException {
+        if (archive == null) archive = TaskArchive.open(archivePath());
+        return archive;
+    }
+
+    Path archivePath() {
+        return file.resolveSibling(file.getFileName() + ".archive");
+    }
+
+    /**
+     * Онлайн-копия последнего зафиксированного снимка. Под замком только открываются текущие
+     * файлы снимка — на это и блокируются мутации. Сохранения подменяют файлы переименованием,
+     * а не переписывают на месте, поэтому открытый канал продолжает видеть зафиксированную
+     * версию, пока копия переливается в {@code target} через {@link FileChannel#transferTo}
+     * уже без замка. Основной файл копии появляется последним и атомарно: по нему копию можно
+     * открыть как обычное хранилище.
+     * <p>
+     * В режиме {@link Durability#BOUNDED_LOSS} копия не включает ещё не сброшенные изменения —
+     * ровно то, что восстановилось бы после сбоя; нужна свежая копия — сначала {@link #flush()}.
+     */
+    public void backup(Path target) {
+        if (target.toAbsolutePath().normalize().equals(file.toAbsolutePath().normalize())) {
+            throw new IllegalArgumentException("Копия не может совпадать с файлом хранилища: " + target);
         }
-        for (SubTask s : getAllSubTasks()) {
-            sb.append(taskToCsv(s)).append("\n");
+        List<PinnedFile> pinned = new ArrayList<>();
+        try {
+            synchronized (this) {
+                pinFiles(target, pinned);
+            }
+            for (PinnedFile f : pinned) {
+                AtomicFiles.write(f.target(), ch -> transfer(f.channel(), f.size(), ch), true);
+            }
+        } catch (IOException e) {
+            throw new ManagerSaveException("Не удалось сделать копию в " + target, e);
+        } finally {
+            for (PinnedFile f : pinned) {
+                try {
+                    f.channel().close();
+                } catch (IOException ignored) {
+                    // только чтение: закрытие не теряет данных
+                }
+            }
         }
+    }
 
-        sb.append("\n");
-        sb.append(historyToCsv(super.getHistory()));
-        return sb.toString();
+    /**
+     * Пишет CSV-снимок текущего состояния в канал — тот же формат и то же сжатие, что у файла
+     * хранилища. Канал не закрывается. Мутации ждут окончания записи.
+     */
+    public synchronized void exportCsv(WritableByteChannel out) {
+        try {
+            CsvWriter.write(out, csvBuffer(), options.getCompression(),
+                    getAllTasks(), getAllEpics(), getAllSubTasks(), super.getHistory());
+        } catch (IOException e) {
+            throw new ManagerSaveException("Не удалось выгрузить снимок", e);
+        }
     }
 
-    private String taskToCsv(Task task) {
-        String name = task.getName();
-        String desc = task.getDescription();
-        String start = task.getStartTime() == null ? "" : task.getStartTime().format(DATE_TIME_FMT);
-        String dur = task.getDuration() == null ? "" : String.valueOf(task.getDuration().toMinutes());
+    /** Открытый файл зафиксированного снимка: копируются первые {@code size} байт в {@code target}. */
+    protected record PinnedFile(FileChannel channel, long size, Path target) {
+    }
 
+    // вызывается под this; основной файл — последним. Архив только дописывается и растёт под this,
+    // так что его длина на момент фиксации — достаточная граница
+    protected void pinFiles(Path target, List<PinnedFile> pinned) throws IOException {
+        if (!Files.exists(file)) save(); // ещё ни разу не сохраняли
+        if (Files.exists(archivePath())) {
+            pin(archivePath(), target.resolveSibling(target.getFileName() + ".archive"), pinned);
+        }
+        if (segments != null) {
+            for (int k : segments.segmentsOnDisk()) {
+                pin(segments.segmentPath(k), SegmentedStore.segmentPath(target, k), pinned);
+            }
+        }
+        if (Files.exists(file)) pin(file, target, pinned);
+    }
 
-        if (task instanceof SubTask s) {
-            return String.format("%d,SUBTASK,%s,%s,%s,%s,%s,%d",
-                    task.getId(), name, task.getStatus(), desc, start, dur, s.getEpicId());
-        } else if (task instanceof Epic e) {
-            return String.format("%d,EPIC,%s,%s,%s,%s,%s,",
-                    task.getId(), name, task.getStatus(), desc, start, dur);
+    protected static void pin(Path source, Path target, List<PinnedFile> pinned) throws IOException {
+        FileChannel ch = FileChannel.open(source, StandardOpenOption.READ);
+        pinned.add(new PinnedFile(ch, ch.size(), target));
+    }
 
-        } else {
-            System.out.println(task.getStatus() + " " + task.getId());
-            return String.format("%d,TASK,%s,%s,%s,%s,%s,",
-                    task.getId(), name, task.getStatus(), desc, start, dur);
+    private static void transfer(FileChannel from, long size, FileChannel to) throws IOException {
+        for (long pos = 0; pos < size; ) {
+            long n = from.transferTo(pos, size - pos, to);
+            if (n <= 0) throw new IOException("Файл снимка укоротился во время копирования");
+            pos += n;
         }
     }
 
-    private String historyToCsv(List<Task> list) {
+    // буфер записи CSV живёт вместе с менеджером: снимки пишутся по одному под this
+    private ByteBuffer csvBuffer() {
+        if (csvBuffer == null) csvBuffer = ByteBuffer.allocateDirect(CsvWriter.BUFFER_BYTES);
+        return csvBuffer;
+    }
+
+    // под this; при INTERVAL положительный ответ сам отмечает fsync как сделанный
+    protected final boolean shouldFsync() {
+        return switch (options.getFsyncPolicy()) {
+            case ALWAYS -> true;
+            case NEVER -> false;
+            case INTERVAL -> {
+                long now = System.nanoTime();
+                long interval = TimeUnit.MILLISECONDS.toNanos(options.getFsyncIntervalMillis());
+                if (lastFsyncNanos != 0 && now - lastFsyncNanos < interval) yield false;
+                lastFsyncNanos = now;
+                yield true;
+            }
+        };
+    }
 
-        if (list.isEmpty()) return "";
-        StringBuilder sb = new StringBuilder();
-        for (int i = 0; i < list.size(); i++) {
-            if (i > 0) sb.append(",");
-            sb.append(list.get(i).getId());
+    @Override
+    public List<Task> getPrioritizedTasks() {
+        return super.getPrioritizedTasks();
+    }
+
+    // формат распознаётся по сигнатуре: старые CSV-файлы читаются как раньше
+    // загрузка идёт через restoreAll и ничего не пишет: changed() в это время молчит
+    protected void load() {
+        loading = true;
+        int threads = options.getLoadThreads();
+        ForkJoinPool pool = threads == 0 ? ForkJoinPool.commonPool() : new ForkJoinPool(threads);
+        try {
+            if (SegmentedStore.isManifest(file)) segments = SegmentedStore.read(file, this, pool);
+            else if (BinarySnapshot.isBinary(file)) BinarySnapshot.read(file, this, options.isLazyDescriptions());
+            else CsvLoader.load(file, this, pool);
+            // архивированные строки ушли из снимка, но их id заняты: счётчик продолжается после них
+            if (Files.exists(archivePath())) setCurrentId(archive().maxId());
+        } catch (IOException e) {
+            throw new ManagerSaveException("Не удалось прочитать данные в файле" + file, e);
+        } finally {
+            loading = false;
+            if (pool != ForkJoinPool.commonPool()) pool.shutdown();
         }
-        return sb.toString();
     }
 
     @Override
@@ -174,87 +476,141 @@ public class FileBackedTasksManager extends InMemoryTaskManager implements TaskM
     }
 
     @Override
-    public OptionalInt addTask(Task task) {
+    public synchronized OptionalInt addTask(Task task) {
         OptionalInt id = super.addTask(task);
-        save();
+        id.ifPresent(this::touch);
+        changed();
         return id;
 
     }
 
 
     @Override
-    public OptionalInt addEpic(Epic epic) {
+    public synchronized OptionalInt addEpic(Epic epic) {
         OptionalInt id = super.addEpic(epic);
-        save();
+        id.ifPresent(this::touch);
+        changed();
         return id;
     }
 
     @Override
-    public OptionalInt addSubTask(SubTask subTask) {
+    public synchronized OptionalInt addSubTask(SubTask subTask) {
         OptionalInt id = super.addSubTask(subTask);
-        save();
+        id.ifPresent(this::touch);
+        changed();
         return id;
     }
 
 
+    // пачка импорта: один changed() на пачку — в режиме SYNC это один снимок, а не по снимку на запись
+    @Override
+    public synchronized int[] addBatch(List<? extends Task> batch) {
+        int[] ids = super.addBatch(batch);
+        for (int id : ids) {
+            if (id >= 0) touch(id);
+        }
+        changed();
+        return ids;
+    }
+
+    @Override
+    public synchronized int applySchedule(int[] ids, long[] starts, int n) {
+        int applied = super.applySchedule(ids, starts, n);
+        if (applied > 0) {
+            for (int i = 0; i < n; i++) touch(ids[i]);
+            changed();
+        }
+        return applied;
+    }
+
+
     @Override
     public Task getTask(int id) {
         Task task = super.getTask(id);
-        save();
+        if (task != null) historyDirty = true;
         return task;
     }
 
     @Override
     public Epic getEpic(int id) {
         Epic epic = super.getEpic(id);
-        save();
-
+        if (epic != null) historyDirty = true;
         return epic;
     }
 
     @Override
     public SubTask getSubTask(int id) {
         SubTask subTask = super.getSubTask(id);
-        save();
+        if (subTask != null) historyDirty = true;
         return subTask;
     }
 
+    // в файл попадает только общая история; просмотры именованных пользователей живут в памяти
+    @Override
+    public Task getTask(int id, String user) {
+        return isDefaultUser(user) ? getTask(id) : super.getTask(id, user);
+    }
+
+    @Override
+    public Epic getEpic(int id, String user) {
+        return isDefaultUser(user) ? getEpic(id) : super.getEpic(id, user);
+    }
+
+    @Override
+    public SubTask getSubTask(int id, String user) {
+        return isDefaultUser(user) ? getSubTask(id) : super.getSubTask(id, user);
+    }
+
+    private static boolean isDefaultUser(String user) {
+        return user == null || user.isEmpty();
+    }
+
     @Override
-    public void deleteTask(int id) {
+    public synchronized void deleteTask(int id) {
+        touch(id);
         super.deleteTask(id);
-        save();
+        changed();
     }
 
     @Override
-    public void deleteEpic(int id) {
+    public synchronized void deleteEpic(int id) {
+        if (findAny(id) instanceof Epic e) {
+            for (int sid : e.getSubTaskIds()) touch(sid);
+        }
+        touch(id);
         super.deleteEpic(id);
-        save();
+        changed();
     }
 
     @Override
-    public void deleteSubtask(int id) {
+    public synchronized void deleteSubtask(int id) {
+        touch(id);
         super.deleteSubtask(id);
-        save();
+        changed();
     }
 
     @Override
-    public boolean updateTask(int id, Task task) {
+    public synchronized boolean updateTask(int id, Task task) {
         boolean result = super.updateTask(id, task);
-        save();
+        touch(id);
+        changed();
         return result;
     }
 
     @Override
-    public boolean updateEpic(int id, Epic epic) {
+    public synchronized boolean updateEpic(int id, Epic epic) {
         boolean result = super.updateEpic(id, epic);
-        save();
+        touch(id);
+        changed();
         return result;
     }
 
     @Override
-    public boolean updateSubTask(int id, SubTask subTask) {
+    public synchronized boolean updateSubTask(int id, SubTask subTask) {
+        touch(id); // эпик до обновления
         boolean result = super.updateSubTask(id, subTask);
-        save();
+        touch(id);
+        changed();
         return result;
     }
 
@@ -274,21 +630,24 @@ public class FileBackedTasksManager extends InMemoryTaskManager implements TaskM
     }
 
     @Override
-    public void deleteAllTasks() {
+    public synchronized void deleteAllTasks() {
         super.deleteAllTasks();
-        save();
+        touchAll();
+        changed();
     }
 
     @Override
-    public void deleteAllEpics() {
+    public synchronized void deleteAllEpics() {
         super.deleteAllEpics();
-        save();
+        touchAll();
+        changed();
     }
 
     @Override
-    public void deleteAllSubTasks() {
+    public synchronized void deleteAllSubTasks() {
         super.deleteAllSubTasks();
-        save();
+        touchAll();
+        changed();
     }
 
     @Override
@@ -297,16 +656,17 @@ public class FileBackedTasksManager extends InMemoryTaskManager implements TaskM
     }
 
     @Override
-    public void setTaskStatus(int id, Status status) {
-
+    public synchronized void setTaskStatus(int id, Status status) {
         super.setTaskStatus(id, status);
-        save();
+        touch(id);
+        changed();
     }
 
     @Override
-    public void setSubTaskStatus(int id, Status status) {
+    public synchronized void setSubTaskStatus(int id, Status status) {
         super.setSubTaskStatus(id, status);
-        save();
+        touch(id);
+        changed();
     }
 
     @Override
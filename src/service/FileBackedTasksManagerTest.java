@@ -1,16 +1,454 @@
 package service;
 
+import model.Epic;
+import model.Status;
+import model.SubTask;
+import model.Task;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.io.TempDir;
+import server.NdjsonStream;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.nio.file.attribute.PosixFilePermission;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
 
-class FileBackedTasksManagerTest extends TaskManagerTest<TaskManager> {
+class FileBackedTasksManagerTest extends TaskManagerTest<FileBackedTasksManager> {
 
     @TempDir
     Path tmpDir;
 
     @Override
-    protected TaskManager createManager() {
+    protected FileBackedTasksManager createManager() {
         Path file = tmpDir.resolve("test.csv");
         return FileBackedTasksManager.loadFromFile(file);
     }
+
+    @AfterEach
+    void closeManager() {
+        manager.close();
+    }
+
+    @Test
+    void readsDoNotWriteAndHistoryIsFlushedLater() throws IOException {
+        Path file = tmpDir.resolve("reads.csv");
+        int id;
+        try (FileBackedTasksManager m = FileBackedTasksManager.loadFromFile(file, StoreOptions.DEFAULT.withFlush(0, 1))) {
+            id = m.addTask(mkTask("T")).getAsInt();
+            long written = Files.getLastModifiedTime(file).toMillis();
+            Files.setLastModifiedTime(file, FileTime.fromMillis(written - 60_000));
+            m.getTask(id);
+            m.getTask(id);
+            assertEquals(written - 60_000, Files.getLastModifiedTime(file).toMillis(), "чтение не пишет файл");
+        }
+        try (FileBackedTasksManager m = FileBackedTasksManager.loadFromFile(file)) {
+            assertEquals(List.of(id), m.getHistory().stream().map(Task::getId).toList());
+        }
+    }
+
+    @Test
+    void boundedLossFlushesByBatch() throws InterruptedException {
+        Path file = tmpDir.resolve("batch.csv");
+        try (FileBackedTasksManager m = FileBackedTasksManager.loadFromFile(file,
+                StoreOptions.DEFAULT.withDurability(Durability.BOUNDED_LOSS).withFlush(60_000, 3))) {
+            m.addTask(mkTask("A"));
+            m.addTask(mkTask("B"));
+            assertFalse(Files.exists(file), "до заполнения пачки ничего не пишется");
+            m.addTask(mkTask("C"));
+            long deadline = System.currentTimeMillis() + 5_000;
+            while (!Files.exists(file) && System.currentTimeMillis() < deadline) Thread.sleep(10);
+            assertTrue(Files.exists(file));
+        }
+        assertEquals(3, FileBackedTasksManager.loadFromFile(file, StoreOptions.DEFAULT.withFlush(0, 1)).getAllTasks().size());
+    }
+
+    @Test
+    void snapshotReplacesFileAtomicallyWithoutLeftovers() throws IOException {
+        Path dir = Files.createDirectory(tmpDir.resolve("atomic"));
+        Path file = dir.resolve("store.csv");
+        try (FileBackedTasksManager m = FileBackedTasksManager.loadFromFile(file,
+                StoreOptions.DEFAULT.withFlush(0, 1).withFsync(FsyncPolicy.INTERVAL, 50))) {
+            for (int i = 0; i < 5; i++) m.addTask(mkTask("T" + i));
+        }
+        try (var files = Files.list(dir)) {
+            assertEquals(List.of(file), files.toList(), "временные файлы не остаются");
+        }
+        assertEquals(5, FileBackedTasksManager.loadFromFile(file, StoreOptions.DEFAULT.withFlush(0, 1))
+                .getAllTasks().size());
+    }
+
+    @Test
+    void intervalFsyncCatchesUpWithoutFurtherWrites() throws InterruptedException {
+        Path file = tmpDir.resolve("fsync.csv");
+        try (FileBackedTasksManager m = FileBackedTasksManager.loadFromFile(file,
+                StoreOptions.DEFAULT.withFlush(0, 1).withFsync(FsyncPolicy.INTERVAL, 50))) {
+            m.addTask(mkTask("A")); // первый снимок — с fsync
+            m.addTask(mkTask("B")); // второй — внутри интервала, без него
+            assertTrue(m.hasUnsyncedSnapshot());
+            long deadline = System.currentTimeMillis() + 5_000;
+            while (m.hasUnsyncedSnapshot() && System.currentTimeMillis() < deadline) Thread.sleep(10);
+            assertFalse(m.hasUnsyncedSnapshot(), "фоновый поток добивает fsync по истечении интервала");
+        }
+    }
+
+    @Test
+    void binarySnapshotRoundTripsAndCsvStillLoads() {
+        Path file = tmpDir.resolve("store.bin");
+        StoreOptions binary = StoreOptions.DEFAULT.withFlush(0, 1).withFormat(SnapshotFormat.BINARY);
+        int taskId;
+        int epicId;
+        int subId;
+        try (FileBackedTasksManager m = FileBackedTasksManager.loadFromFile(file, binary)) {
+            Task t = mkTask("Задача — юникод");
+            t.setDescription(null);
+            taskId = m.addTask(t).getAsInt();
+            epicId = m.addEpic(mkEpic("E")).getAsInt();
+            subId = m.addSubTask(mkSub("S", epicId)).getAsInt();
+            m.setSubTaskStatus(subId, Status.DONE);
+            m.getSubTask(subId);
+            m.getTask(taskId);
+        }
+
+        // настройки формата не важны при чтении: формат узнаётся по сигнатуре
+        try (FileBackedTasksManager m = FileBackedTasksManager.loadFromFile(file, StoreOptions.DEFAULT.withFlush(0, 1))) {
+            assertEquals(List.of(subId, taskId), m.getHistory().stream().map(Task::getId).toList());
+            assertEquals("Задача — юникод", m.getTask(taskId).getName());
+            assertNull(m.getTask(taskId).getDescription());
+            assertEquals(Status.DONE, m.getEpic(epicId).getStatus());
+            assertEquals(List.of(subId), m.getEpic(epicId).getSubTaskIds());
+            assertTrue(m.addTask(mkTask("next")).getAsInt() > subId);
+        }
+        assertEquals(2, FileBackedTasksManager.loadFromFile(file, StoreOptions.DEFAULT.withFlush(0, 1))
+                .getAllTasks().size(), "следующий снимок записан в CSV и читается");
+    }
+
+    @Test
+    void bulkLoadRebuildsIndexesAndWritesNothing() throws IOException {
+        Path file = tmpDir.resolve("bulk.csv");
+        LocalDateTime base = LocalDateTime.now().withDayOfYear(1).withHour(9).withMinute(0).withSecond(0).withNano(0);
+        StoreOptions options = StoreOptions.DEFAULT.withFlush(0, 1);
+        List<Task> prioritized;
+        int taskId;
+        try (FileBackedTasksManager m = FileBackedTasksManager.loadFromFile(file, options)) {
+            taskId = m.addTask(mkTaskAt("late", base.plusHours(3), Duration.ofMinutes(30))).getAsInt();
+            int epicId = m.addEpic(mkEpic("E")).getAsInt();
+            m.addSubTask(mkSubAt("early", epicId, base, Duration.ofMinutes(15)));
+            m.addTask(mkTask("untimed"));
+            m.getTask(taskId);
+            prioritized = m.getPrioritizedTasks();
+        }
+        Files.setLastModifiedTime(file, FileTime.fromMillis(Files.getLastModifiedTime(file).toMillis() - 60_000));
+        FileTime before = Files.getLastModifiedTime(file);
+
+        try (FileBackedTasksManager m = FileBackedTasksManager.loadFromFile(file, options)) {
+            assertEquals(before, Files.getLastModifiedTime(file), "загрузка ничего не пишет");
+            assertEquals(prioritized.stream().map(Task::getId).toList(),
+                    m.getPrioritizedTasks().stream().map(Task::getId).toList());
+            assertEquals(0, m.getAccessFrequency(taskId), "восстановление истории — не просмотр");
+            assertTrue(m.addTask(mkTaskAt("clash", base.plusHours(3), Duration.ofMinutes(15))).isEmpty(),
+                    "слоты восстановленных задач заняты");
+        }
+    }
+
+    @Test
+    void segmentedStoreRewritesOnlyTouchedSegments() throws IOException {
+        Path dir = Files.createDirectory(tmpDir.resolve("segmented"));
+        Path file = dir.resolve("store");
+        StoreOptions segmented = StoreOptions.DEFAULT.withFlush(0, 1)
+                .withFormat(SnapshotFormat.SEGMENTED).withSegmentSize(4);
+        try (FileBackedTasksManager m = FileBackedTasksManager.loadFromFile(file, segmented)) {
+            for (int i = 0; i < 10; i++) m.addTask(mkTask("T" + i)); // id 0..9: сегменты 0, 1, 2
+            FileTime old = FileTime.fromMillis(System.currentTimeMillis() - 60_000);
+            for (int k = 0; k < 3; k++) Files.setLastModifiedTime(file.resolveSibling("store.seg" + k), old);
+
+            m.setTaskStatus(5, Status.DONE);
+            m.getTask(2); // история пишется в манифест, сегмент 0 не трогается
+
+            assertEquals(old, Files.getLastModifiedTime(file.resolveSibling("store.seg0")));
+            assertNotEquals(old, Files.getLastModifiedTime(file.resolveSibling("store.seg1")));
+            assertEquals(old, Files.getLastModifiedTime(file.resolveSibling("store.seg2")));
+
+            for (int id = 8; id <= 9; id++) m.deleteTask(id);
+            assertFalse(Files.exists(file.resolveSibling("store.seg2")), "опустевший сегмент удаляется");
+        }
+
+        try (FileBackedTasksManager m = FileBackedTasksManager.loadFromFile(file, StoreOptions.DEFAULT.withFlush(0, 1))) {
+            assertEquals(List.of(2), m.getHistory().stream().map(Task::getId).toList());
+            assertEquals(8, m.getAllTasks().size());
+            assertEquals(Status.DONE, m.getTask(5).getStatus());
+            assertEquals(8, m.addTask(mkTask("next")).getAsInt());
+        }
+        try (var files = Files.list(dir)) {
+            assertEquals(List.of(file), files.toList(), "при смене формата сегменты удаляются");
+        }
+    }
+
+    @Test
+    void segmentedLoadSurvivesFlushInterruptedBetweenSegments() throws IOException {
+        Path dir = Files.createDirectory(tmpDir.resolve("torn-segments"));
+        Path file = dir.resolve("store");
+        StoreOptions segmented = StoreOptions.DEFAULT.withFlush(0, 1)
+                .withFormat(SnapshotFormat.SEGMENTED).withSegmentSize(4);
+        Path seg1 = file.resolveSibling("store.seg1");
+        Path seg2 = file.resolveSibling("store.seg2");
+        byte[] staleSeg1;
+        try (FileBackedTasksManager m = FileBackedTasksManager.loadFromFile(file, segmented)) {
+            int epicId = m.addEpic(mkEpic("E")).getAsInt(); // сегмент 0
+            for (int i = 0; i < 3; i++) m.addTask(mkTask("T" + i));
+            for (int i = 0; i < 2; i++) m.addSubTask(mkSub("S" + i, epicId)); // сегмент 1
+            m.addTask(mkTask("T3"));
+            m.addTask(mkTask("T4"));
+            m.addTask(mkTask("T5")); // id 8: сегмент 2
+            staleSeg1 = Files.readAllBytes(seg1);
+            m.deleteEpic(epicId);
+        }
+        // сбой посреди сброса: сегмент 0 уже без эпика, сегмент 1 — ещё с подзадачами;
+        // сегмент 2 пропал, а манифест ещё ссылается на него
+        Files.write(seg1, staleSeg1);
+        Files.delete(seg2);
+
+        try (FileBackedTasksManager m = FileBackedTasksManager.loadFromFile(file, segmented)) {
+            assertTrue(m.getAllEpics().isEmpty());
+            assertTrue(m.getAllSubTasks().isEmpty(), "подзадачи без эпика отброшены");
+            assertEquals(5, m.getAllTasks().size());
+            m.addTask(mkTask("после сбоя"));
+        }
+        try (FileBackedTasksManager m = FileBackedTasksManager.loadFromFile(file, segmented)) {
+            assertEquals(6, m.getAllTasks().size());
+            assertFalse(Files.readString(seg1).contains("S0"), "сегмент с сиротами переписан");
+        }
+    }
+
+    @Test
+    void lazyDescriptionsSurviveSnapshotReplacement() {
+        Path file = tmpDir.resolve("lazy.bin");
+        StoreOptions binary = StoreOptions.DEFAULT.withFlush(0, 1).withFormat(SnapshotFormat.BINARY);
+        String longText = "Длинное описание 🚀 ".repeat(50);
+        int longId;
+        int shortId;
+        try (FileBackedTasksManager m = FileBackedTasksManager.loadFromFile(file, binary)) {
+            Task t = mkTask("long");
+            t.setDescription(longText);
+            longId = m.addTask(t).getAsInt();
+            shortId = m.addTask(mkTask("short")).getAsInt();
+        }
+
+        try (FileBackedTasksManager m = FileBackedTasksManager.loadFromFile(file, binary.withLazyDescriptions(true))) {
+            assertEquals(longText, m.getTask(longId).getDescription());
+            assertEquals(mkTask("short").getDescription(), m.getTask(shortId).getDescription());
+            m.addTask(mkTask("next")); // снимок заменяет файл, пока старый ещё отображён
+            assertEquals(longText, m.getTask(longId).getDescription());
+        }
+        try (FileBackedTasksManager m = FileBackedTasksManager.loadFromFile(file, binary)) {
+            assertEquals(longText, m.getTask(longId).getDescription());
+        }
+    }
+
+    @Test
+    void backupCapturesPointInTimeWhileWritesContinue() throws Exception {
+        for (SnapshotFormat format : new SnapshotFormat[]{SnapshotFormat.CSV, SnapshotFormat.SEGMENTED}) {
+            Path dir = Files.createDirectory(tmpDir.resolve("backup-" + format));
+            Path file = dir.resolve("store");
+            Path copy = dir.resolve("copy");
+            StoreOptions options = StoreOptions.DEFAULT.withFlush(0, 1).withFormat(format).withSegmentSize(8);
+            try (FileBackedTasksManager m = FileBackedTasksManager.loadFromFile(file, options)) {
+                for (int i = 0; i < 20; i++) m.addTask(mkTask("T" + i));
+                Thread writer = new Thread(() -> {
+                    for (int i = 0; i < 200; i++) m.addTask(mkTask("W" + i));
+                });
+                writer.start();
+                m.backup(copy);
+                writer.join();
+                m.deleteAllTasks();
+            }
+
+            try (FileBackedTasksManager restored = FileBackedTasksManager.loadFromFile(copy, options)) {
+                List<Integer> ids = restored.getAllTasks().stream().map(Task::getId).sorted().toList();
+                assertTrue(ids.size() >= 20, format + ": в копии всё записанное до вызова");
+                assertEquals(ids.size() - 1, ids.get(ids.size() - 1), format + ": копия — префикс, без дыр");
+            }
+        }
+        assertThrows(IllegalArgumentException.class, () -> manager.backup(tmpDir.resolve("test.csv")));
+    }
+
+    @Test
+    void ndjsonExportImportRemapsIdsAndFlushesPerBatch() throws IOException {
+        LocalDateTime slot = LocalDateTime.now().withDayOfYear(40).withHour(9).withMinute(0).withSecond(0).withNano(0);
+        StringWriter exported = new StringWriter();
+        try (FileBackedTasksManager source = FileBackedTasksManager.loadFromFile(tmpDir.resolve("source.csv"),
+                StoreOptions.DEFAULT.withFlush(0, 1))) {
+            source.addTask(mkTaskAt("занято", slot, Duration.ofMinutes(30)));
+            int epicId = source.addEpic(mkEpic("E")).getAsInt();
+            source.addSubTask(mkSubAt("S1", epicId, slot.plusHours(1), Duration.ofMinutes(15)));
+            int done = source.addSubTask(mkSub("S2", epicId)).getAsInt();
+            source.setSubTaskStatus(done, Status.DONE);
+            assertEquals(4, NdjsonStream.export(source, exported));
+        }
+        assertEquals(4, exported.toString().lines().count());
+
+        Path file = tmpDir.resolve("target.csv");
+        try (FileBackedTasksManager target = FileBackedTasksManager.loadFromFile(file, StoreOptions.DEFAULT.withFlush(0, 1))) {
+            target.addTask(mkTaskAt("уже стоит в этом слоте", slot, Duration.ofMinutes(30)));
+            target.addTask(mkTask("сдвигает id"));
+            FileTime before = FileTime.fromMillis(System.currentTimeMillis() - 60_000);
+            Files.setLastModifiedTime(file, before);
+
+            NdjsonStream.ImportResult result = NdjsonStream.importFrom(target, new StringReader(
+                    exported + "\n{\"type\":\"SUBTASK\",\"name\":\"сирота\",\"epicId\":999}\n"));
+
+            assertEquals(3, result.getImported());
+            assertEquals(2, result.getRejected(), "пересечение по времени и подзадача без эпика");
+            assertNotEquals(before, Files.getLastModifiedTime(file));
+            Epic epic = target.getAllEpics().get(0);
+            assertNotEquals(1, epic.getId());
+            assertEquals(2, epic.getSubTaskIds().size());
+            assertEquals(Status.IN_PROGRESS, epic.getStatus());
+            assertEquals(slot.plusHours(1), epic.getStartTime());
+            assertTrue(target.getPrioritizedTasks().contains(epic));
+
+            IllegalArgumentException bad = assertThrows(IllegalArgumentException.class,
+                    () -> NdjsonStream.importFrom(target, new StringReader("{\"type\":\"TASK\",\"name\":\"ok\"}\n{oops\n")));
+            assertTrue(bad.getMessage().contains("строке 2"));
+            assertEquals(1, target.getAllTasks().stream().filter(t -> "ok".equals(t.getName())).count(),
+                    "записи до битой строки применены");
+        }
+    }
+
+    @Test
+    void archiveMovesOldCompletedTasksOutOfLiveStore() throws IOException {
+        Path file = tmpDir.resolve("archived.csv");
+        LocalDateTime old = LocalDateTime.of(2001, 3, 1, 10, 0); // без длительности — вне сетки года
+        int doneId;
+        int epicId;
+        int subId;
+        int keptId;
+        try (FileBackedTasksManager m = FileBackedTasksManager.loadFromFile(file, StoreOptions.DEFAULT.withFlush(0, 1))) {
+            Task done = mkTask("старая готовая");
+            done.setStartTime(old);
+            doneId = m.addTask(done).getAsInt();
+            m.setTaskStatus(doneId, Status.DONE);
+            Task undated = mkTask("готовая без времени");
+            int undatedId = m.addTask(undated).getAsInt();
+            m.setTaskStatus(undatedId, Status.DONE);
+            Task open = mkTask("старая и открытая");
+            open.setStartTime(old);
+            keptId = m.addTask(open).getAsInt();
+
+            epicId = m.addEpic(mkEpic("E")).getAsInt();
+            SubTask sub = mkSub("S", epicId);
+            sub.setStartTime(old);
+            sub.setDuration(Duration.ZERO);
+            subId = m.addSubTask(sub).getAsInt();
+            m.setSubTaskStatus(subId, Status.DONE);
+
+            assertEquals(3, m.archiveCompleted(Duration.ofDays(30)));
+            assertEquals(0, m.archiveCompleted(Duration.ofDays(30)), "повторно нечего переносить");
+            assertNull(m.getTask(doneId));
+            assertNull(m.getEpic(epicId));
+            assertNull(m.getSubTask(subId));
+            assertEquals(2, m.getAllTasks().size());
+            m.backup(tmpDir.resolve("archived-copy.csv"));
+        }
+
+        assertFalse(Files.readString(file).contains("старая готовая"), "архивированное не попадает в снимок");
+        try (FileBackedTasksManager copy = FileBackedTasksManager.loadFromFile(tmpDir.resolve("archived-copy.csv"),
+                StoreOptions.DEFAULT.withFlush(0, 1))) {
+            assertEquals("старая готовая", copy.getArchived(doneId).getName(), "архив входит в копию");
+        }
+        try (FileBackedTasksManager m = FileBackedTasksManager.loadFromFile(file, StoreOptions.DEFAULT.withFlush(0, 1))) {
+            assertEquals("старая готовая", m.getArchived(doneId).getName());
+            Epic epic = (Epic) m.getArchived(epicId);
+            assertEquals(List.of(subId), epic.getSubTaskIds());
+            assertEquals(Status.DONE, epic.getStatus());
+            assertNull(m.getArchived(keptId));
+            assertEquals(List.of(subId), m.searchArchive(t -> t instanceof SubTask, 10).stream().map(Task::getId).toList());
+            int next = m.addTask(mkTask("после рестарта")).getAsInt();
+            assertTrue(next > subId, "id архивированных строк не выдаются повторно");
+        }
+
+        // оборванный блок в конце архива отрезается, целые блоки читаются
+        Path archive = tmpDir.resolve("archived.csv.archive");
+        long size = Files.size(archive);
+        Files.write(archive, new byte[]{0x54, 0x4D, 0x41}, StandardOpenOption.APPEND);
+        try (FileBackedTasksManager m = FileBackedTasksManager.loadFromFile(file, StoreOptions.DEFAULT.withFlush(0, 1))) {
+            assertEquals(doneId, m.getArchived(doneId).getId());
+        }
+        assertEquals(size, Files.size(archive));
+    }
+
+    @Test
+    void replacedSnapshotKeepsPermissionsAndStaleTempsAreRemoved() throws IOException {
+        Path file = tmpDir.resolve("perm.csv");
+        Path reference = Files.createFile(tmpDir.resolve("reference"));
+        try (FileBackedTasksManager m = FileBackedTasksManager.loadFromFile(file, StoreOptions.DEFAULT.withFlush(0, 1))) {
+            m.addTask(mkTask("T"));
+        }
+        Set<PosixFilePermission> umask;
+        try {
+            umask = Files.getPosixFilePermissions(reference);
+        } catch (UnsupportedOperationException e) {
+            return; // права POSIX не поддерживаются
+        }
+        assertEquals(umask, Files.getPosixFilePermissions(file), "новый файл — с правами по умолчанию, а не 0600");
+
+        Set<PosixFilePermission> custom = PosixFilePermissions.fromString("rw-r-----");
+        Files.setPosixFilePermissions(file, custom);
+        Path stale = Files.writeString(tmpDir.resolve("perm.csv.1f2e3d.tmp"), "недописано");
+        Path staleSegment = Files.writeString(tmpDir.resolve("perm.csv.seg0123456789.tmp"), "недописано");
+        Path foreign = Files.writeString(tmpDir.resolve("other.csv.1f2e3d.tmp"), "чужой");
+        try (FileBackedTasksManager m = FileBackedTasksManager.loadFromFile(file, StoreOptions.DEFAULT.withFlush(0, 1))) {
+            assertFalse(Files.exists(stale));
+            assertFalse(Files.exists(staleSegment));
+            assertTrue(Files.exists(foreign));
+            m.addTask(mkTask("T2"));
+        }
+        assertEquals(custom, Files.getPosixFilePermissions(file), "замена сохраняет права цели");
+    }
+
+    @Test
+    void rowsLeftLiveByCrashAreNotArchivedTwice() throws IOException {
+        Path file = tmpDir.resolve("rearchive.csv");
+        Path beforeArchive = tmpDir.resolve("rearchive-before.csv");
+        LocalDateTime old = LocalDateTime.of(2001, 3, 1, 10, 0);
+        int epicId;
+        int subId;
+        try (FileBackedTasksManager m = FileBackedTasksManager.loadFromFile(file, StoreOptions.DEFAULT.withFlush(0, 1))) {
+            Task done = mkTask("готовая");
+            done.setStartTime(old);
+            m.setTaskStatus(m.addTask(done).getAsInt(), Status.DONE);
+            epicId = m.addEpic(mkEpic("E")).getAsInt();
+            SubTask sub = mkSub("S", epicId);
+            sub.setStartTime(old);
+            sub.setDuration(Duration.ZERO);
+            subId = m.addSubTask(sub).getAsInt();
+            m.setSubTaskStatus(subId, Status.DONE);
+        }
+        Files.copy(file, beforeArchive);
+        try (FileBackedTasksManager m = FileBackedTasksManager.loadFromFile(file, StoreOptions.DEFAULT.withFlush(0, 1))) {
+            assertEquals(3, m.archiveCompleted(Duration.ofDays(30)));
+        }
+        // сбой после дописывания архива, но до снимка: строки снова живые
+        Files.copy(beforeArchive, file, StandardCopyOption.REPLACE_EXISTING);
+        long archived = Files.size(tmpDir.resolve("rearchive.csv.archive"));
+        try (FileBackedTasksManager m = FileBackedTasksManager.loadFromFile(file, StoreOptions.DEFAULT.withFlush(0, 1))) {
+            assertEquals(1, m.getAllTasks().size());
+            assertEquals(3, m.archiveCompleted(Duration.ofDays(30)));
+            assertTrue(m.getAllTasks().isEmpty());
+            assertEquals(archived, Files.size(tmpDir.resolve("rearchive.csv.archive")), "архив не дописан");
+            assertEquals(3, m.searchArchive(t -> true, 10).size());
+        }
+    }
 }
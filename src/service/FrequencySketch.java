@@ -0,0 +1,66 @@
+package service;
+
+/**
+ * Count-min sketch частот обращений по id задачи с периодическим старением.
+ * <p>
+ * {@code DEPTH} строк по {@code width} счётчиков, у каждой строки своя хеш-функция; оценка —
+ * минимум по строкам, поэтому может только завышаться. Инкремент консервативный: растут лишь
+ * счётчики, равные текущему минимуму, что заметно уменьшает завышение. После {@code 10 * width}
+ * инкрементов все счётчики делятся пополам, так что старые всплески со временем забываются.
+ * Память фиксирована и не зависит от числа задач.
+ */
+final class FrequencySketch {
+    private static final int DEPTH = 4;
+    private static final long[] SEEDS = {
+            0x9E3779B97F4A7C15L, 0xC2B2AE3D27D4EB4FL, 0x165667B19E3779F9L, 0xD6E8FEB86659FD93L
+    };
+
+    private final int[] table;
+    private final int width;
+    private final int mask;
+    private final int sampleSize;
+    private int additions;
+
+    FrequencySketch(int width) {
+        if (width <= 0) throw new IllegalArgumentException("Ширина sketch должна быть > 0");
+        this.width = Integer.highestOneBit(Math.max(16, width * 2 - 1));
+        this.mask = this.width - 1;
+        this.table = new int[DEPTH * this.width];
+        this.sampleSize = 10 * this.width;
+    }
+
+    int frequency(int id) {
+        int min = Integer.MAX_VALUE;
+        for (int row = 0; row < DEPTH; row++) {
+            min = Math.min(min, table[index(id, row)]);
+        }
+        return min;
+    }
+
+    /** Учитывает обращение и возвращает новую оценку частоты. */
+    int increment(int id) {
+        int min = frequency(id);
+        if (min == Integer.MAX_VALUE) return min;
+        for (int row = 0; row < DEPTH; row++) {
+            int i = index(id, row);
+            if (table[i] == min) table[i] = min + 1;
+        }
+        return min + 1;
+    }
+
+    /** true, если пора состарить счётчики; вызывающий после этого зовёт {@link #halve()}. */
+    boolean sampleFull() {
+        return ++additions >= sampleSize;
+    }
+
+    void halve() {
+        for (int i = 0; i < table.length; i++) table[i] >>>= 1;
+        additions >>>= 1;
+    }
+
+    private int index(int id, int row) {
+        long h = (id + SEEDS[row]) * SEEDS[(row + 1) & (DEPTH - 1)];
+        h ^= h >>> 29;
+        return row * width + ((int) h & mask);
+    }
+}
@@ -0,0 +1,15 @@
+package service;
+
+/**
+ * Когда снимок принудительно сбрасывается на диск ({@code FileChannel.force}).
+ */
+public enum FsyncPolicy {
+    // каждый снимок: после возврата из записи он переживёт отключение питания
+    ALWAYS,
+    // не чаще раза в интервал; несброшенный снимок фоновый поток добивает fsync по истечении интервала.
+    // До этого сбой питания может оставить файл пустым или оборванным: временный файл без fsync
+    // уже переименован поверх прежнего, так что старый снимок не уцелеет
+    INTERVAL,
+    // полагаемся на ОС; переименование всё равно атомарно, но содержимое может не дойти до диска
+    NEVER
+}
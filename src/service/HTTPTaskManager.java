@@ -6,6 +6,7 @@ import model.Epic;
 import model.SubTask;
 import model.Task;
 import server.KVTaskClient;
+import server.TaskTypeAdapterFactory;
 
 import java.lang.reflect.Type;
 import java.net.URI;
@@ -13,22 +14,66 @@ import java.nio.file.Path;
 import java.time.Duration;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
+/**
+ * Менеджер поверх KV-сервера. В режиме {@link KvSyncMode#FULL} (по умолчанию) каждый сброс
+ * отправляет четыре ключа целиком. В режиме {@link KvSyncMode#DELTA} каждая сущность лежит под
+ * своим ключом:
+ * <pre>
+ * task/{id}, epic/{id}, subtask/{id}  JSON сущности
+ * history                             id общей истории
+ * </pre>
+ * Сброс отправляет только сущности, затронутые с прошлого сброса (подзадача тянет за собой
+ * эпик), удаляет ключи удалённых и шлёт историю, только если она изменилась. Просмотр задачи
+ * стоит одного PUT истории, а не всего хранилища. Общего списка id нет: загрузка берёт набор
+ * ключей у сервера по префиксу, поэтому несколько менеджеров на одном KV не затирают сущности
+ * друг друга, а id у них не пересекаются благодаря {@link KVBlockIdAllocator}. Подзадача, эпик
+ * которой не записан (сбой посреди сброса), при загрузке пропускается.
+ * <p>
+ * DELTA грузится одним GET на сущность, поэтому заметно медленнее FULL на большом хранилище;
+ * он выгоден, когда мутаций и просмотров много, а перезапусков мало.
+ */
 public class HTTPTaskManager extends FileBackedTasksManager {
 
     private static final String K_TASKS = "tasks";
     private static final String K_EPICS = "epics";
     private static final String K_SUBS  = "subtasks";
     private static final String K_HIST  = "history";
+    private static final String K_IDS   = "id-counter";
+    private static final String P_TASK = "task/";
+    private static final String P_EPIC = "epic/";
+    private static final String P_SUB  = "subtask/";
 
     private final KVTaskClient kv;
     private final Gson gson;
-    private boolean loading = false;
+    private final KvSyncMode mode;
+    // DELTA: что лежит в KV — id -> префикс ключа; меняется только после успешного PUT
+    private final Map<Integer, String> synced = new HashMap<>();
+    private final BitSet dirty = new BitSet();
+    private boolean allDirty;
+    private List<Integer> syncedHistory;
+    private boolean otherLayout; // загружено из другой раскладки: после сброса её ключи убираются
 
     public HTTPTaskManager(URI kvServer) {
-        super(Path.of("http-placeholder.csv")); // файл не используется
-        this.kv = new KVTaskClient(kvServer);
+        this(kvServer, KvSyncMode.FULL);
+    }
+
+    public HTTPTaskManager(URI kvServer, KvSyncMode mode) {
+        this(new KVTaskClient(kvServer), mode);
+    }
+
+    private HTTPTaskManager(KVTaskClient kv, KvSyncMode mode) {
+        super(Path.of("http-placeholder.csv"), // файл не используется
+                new KVBlockIdAllocator(kv, K_IDS, KVBlockIdAllocator.DEFAULT_BLOCK_SIZE));
+        this.kv = kv;
+        this.mode = mode;
         DateTimeFormatter ISO_DTF = DateTimeFormatter.ISO_LOCAL_DATE_TIME;
         this.gson = new GsonBuilder()
                 .registerTypeAdapter(LocalDateTime.class,
@@ -39,20 +84,84 @@ public class HTTPTaskManager extends FileBackedTasksManager {
                         (JsonSerializer<Duration>) (src, t, ctx) -> new JsonPrimitive(src == null ? null : src.toMinutes()))
                 .registerTypeAdapter(Duration.class,
                         (JsonDeserializer<Duration>) (j, t, ctx) -> j.isJsonNull() ? null : Duration.ofMinutes(j.getAsLong()))
+                .registerTypeAdapterFactory(new TaskTypeAdapterFactory())
                 .create();
     }
 
+    @Override
+    protected void touch(int id) {
+        super.touch(id);
+        if (mode != KvSyncMode.DELTA || id < 0) return;
+        dirty.set(id);
+        if (findAny(id) instanceof SubTask s) dirty.set(s.getEpicId());
+    }
+
+    @Override
+    protected void touchAll() {
+        super.touchAll();
+        allDirty = true;
+    }
+
     @Override
     protected void save() {
         if (loading) return;
+        if (mode == KvSyncMode.DELTA) {
+            saveDelta();
+            return;
+        }
         kv.put(K_TASKS, gson.toJson(getAllTasks()));
         kv.put(K_EPICS, gson.toJson(getAllEpics()));
         kv.put(K_SUBS,  gson.toJson(getAllSubTasks()));
         kv.put(K_HIST,  gson.toJson(getHistory().stream().map(Task::getId).toList()));
+        if (otherLayout) { // переход с DELTA: поключевые сущности больше не главные
+            for (Map.Entry<Integer, String> e : synced.entrySet()) kv.delete(e.getValue() + e.getKey());
+            synced.clear();
+            otherLayout = false;
+        }
+    }
+
+    private void saveDelta() {
+        if (allDirty) {
+            for (int id : synced.keySet()) dirty.set(id);
+            for (Task t : getAllTasks()) dirty.set(t.getId());
+            for (Task t : getAllEpics()) dirty.set(t.getId());
+            for (Task t : getAllSubTasks()) dirty.set(t.getId());
+            allDirty = false;
+        }
+        for (int id = dirty.nextSetBit(0); id >= 0; id = dirty.nextSetBit(id + 1)) {
+            Task t = findAny(id);
+            String prefix = t == null ? null : prefixOf(t);
+            if (t != null) kv.put(prefix + id, gson.toJson(t));
+            String old = synced.get(id);
+            if (old != null && !old.equals(prefix)) kv.delete(old + id);
+            if (prefix == null) synced.remove(id);
+            else synced.put(id, prefix);
+            dirty.clear(id); // отправлено: при сбое дальше повторятся только оставшиеся
+        }
+
+        List<Integer> history = getHistory().stream().map(Task::getId).toList();
+        if (!history.equals(syncedHistory)) {
+            kv.put(K_HIST, gson.toJson(history));
+            syncedHistory = history;
+        }
+        if (otherLayout) { // переход с FULL: полные ключи больше не главные
+            kv.delete(K_TASKS);
+            kv.delete(K_EPICS);
+            kv.delete(K_SUBS);
+            otherLayout = false;
+        }
+    }
+
+    private static String prefixOf(Task t) {
+        return t instanceof SubTask ? P_SUB : t instanceof Epic ? P_EPIC : P_TASK;
     }
 
     public static HTTPTaskManager load(URI kvServer) {
-        HTTPTaskManager m = new HTTPTaskManager(kvServer);
+        return load(kvServer, KvSyncMode.FULL);
+    }
+
+    public static HTTPTaskManager load(URI kvServer, KvSyncMode mode) {
+        HTTPTaskManager m = new HTTPTaskManager(kvServer, mode);
 
         Type T_TASKS = new TypeToken<List<Task>>(){}.getType();
         Type T_EPICS = new TypeToken<List<Epic>>(){}.getType();
@@ -61,45 +170,79 @@ public class HTTPTaskManager extends FileBackedTasksManager {
 
         m.loading = true;
         try {
-            String jsEpics = m.kv.get(K_EPICS);
-            String jsTasks = m.kv.get(K_TASKS);
-            String jsSubs  = m.kv.get(K_SUBS);
+            List<String> keys = new ArrayList<>();
+            for (String prefix : new String[]{P_TASK, P_EPIC, P_SUB}) keys.addAll(m.kv.keys(prefix));
             String jsHist  = m.kv.get(K_HIST);
 
-            if (jsEpics != null) {
-                List<Epic> epics = m.gson.fromJson(jsEpics, T_EPICS);
-                if (epics != null) {
-                    for (Epic e : epics) m.addEpic(e);
-                }
+            // id сохраняются как есть: перенумерация через addX дала бы коллизии
+            // с другими процессами, арендующими id у того же KV
+            List<Epic> epics;
+            List<Task> tasks;
+            List<SubTask> subs;
+            if (!keys.isEmpty()) {
+                epics = new ArrayList<>();
+                tasks = new ArrayList<>();
+                subs = new ArrayList<>();
+                m.readEntities(keys, tasks, epics, subs);
+                m.otherLayout = mode != KvSyncMode.DELTA;
+            } else {
+                String jsEpics = m.kv.get(K_EPICS);
+                String jsTasks = m.kv.get(K_TASKS);
+                String jsSubs  = m.kv.get(K_SUBS);
+                epics = jsEpics == null ? null : m.gson.fromJson(jsEpics, T_EPICS);
+                tasks = jsTasks == null ? null : m.gson.fromJson(jsTasks, T_TASKS);
+                subs = jsSubs == null ? null : m.gson.fromJson(jsSubs, T_SUBS);
+                m.otherLayout = mode == KvSyncMode.DELTA && (jsEpics != null || jsTasks != null || jsSubs != null);
             }
+            if (epics == null) epics = List.of();
+            if (tasks == null) tasks = List.of();
+            if (subs == null) subs = List.of();
 
-            if (jsTasks != null) {
-                List<Task> tasks = m.gson.fromJson(jsTasks, T_TASKS);
-                if (tasks != null) {
-                    for (Task t : tasks) m.addTask(t);
-                }
+            Set<Integer> epicIds = new HashSet<>();
+            int maxId = -1;
+            for (Epic e : epics) {
+                e.setSubTaskIds(new ArrayList<>()); // заполнится из подзадач
+                epicIds.add(e.getId());
+                maxId = Math.max(maxId, e.getId());
             }
-
-            if (jsSubs != null) {
-                List<SubTask> subs = m.gson.fromJson(jsSubs, T_SUBS);
-                if (subs != null) {
-                    for (SubTask s : subs) m.addSubTask(s);
-                }
+            for (Task t : tasks) maxId = Math.max(maxId, t.getId());
+            List<SubTask> linked = new ArrayList<>(subs.size());
+            for (SubTask s : subs) {
+                if (!epicIds.contains(s.getEpicId())) continue;
+                linked.add(s);
+                maxId = Math.max(maxId, s.getId());
             }
+            m.restoreAll(tasks, epics, linked);
+            if (maxId >= 0) m.setCurrentId(maxId);
 
             if (jsHist != null) {
                 List<Integer> ids = m.gson.fromJson(jsHist, T_IDS);
-                if (ids != null) {
-                    for (Integer id : ids) {
-                        if (m.getTask(id) == null && m.getEpic(id) == null) m.getSubTask(id);
-                    }
-                }
+                if (ids != null) ids.forEach(m::restoreHistory);
             }
-
+            m.syncedHistory = m.getHistory().stream().map(Task::getId).toList();
         } finally {
             m.loading = false;
+        }
+        if (m.otherLayout) { // другая раскладка переписывается в свою сразу, а не при первой мутации
+            m.touchAll();
             m.save();
         }
         return m;
     }
+
+    // DELTA: сущности окнами параллельных GET; ключ, удалённый другим менеджером между
+    // списком и чтением, пропускается
+    private void readEntities(List<String> keys, List<Task> tasks, List<Epic> epics, List<SubTask> subs) {
+        Map<String, String> values = kv.getAll(keys);
+        for (String key : keys) {
+            String json = values.get(key);
+            if (json == null) continue;
+            if (key.startsWith(P_TASK)) tasks.add(gson.fromJson(json, Task.class));
+            else if (key.startsWith(P_EPIC)) epics.add(gson.fromJson(json, Epic.class));
+            else subs.add(gson.fromJson(json, SubTask.class));
+        }
+        for (Task t : tasks) synced.put(t.getId(), P_TASK);
+        for (Task t : epics) synced.put(t.getId(), P_EPIC);
+        for (Task t : subs) synced.put(t.getId(), P_SUB);
+    }
 }
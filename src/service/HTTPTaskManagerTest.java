@@ -0,0 +1,207 @@
+package service;
+
+import com.sun.net.httpserver.HttpExchange;
+import model.Epic;
+import model.Status;
+import model.SubTask;
+import model.Task;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import server.KVServer;
+import server.KVTaskClient;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HTTPTaskManagerTest {
+    private static final URI KV = URI.create("http://localhost:" + KVServer.PORT);
+
+    private RecordingKVServer server;
+    private KVTaskClient raw;
+
+    @BeforeEach
+    void startServer() throws IOException {
+        server = new RecordingKVServer();
+        server.start();
+        raw = new KVTaskClient(KV, true);
+    }
+
+    @AfterEach
+    void stopServer() {
+        server.stop();
+    }
+
+    @Test
+    void deltaFlushSendsOnlyTouchedKeysAndReloads() {
+        int taskId;
+        int epicId;
+        int subId;
+        int doomed;
+        try (HTTPTaskManager m = HTTPTaskManager.load(KV, KvSyncMode.DELTA)) {
+            taskId = m.addTask(new Task(0, "задача", "описание")).getAsInt();
+            doomed = m.addTask(new Task(0, "удалится", null)).getAsInt();
+            epicId = m.addEpic(new Epic(0, "эпик", null, Status.NEW, null, null)).getAsInt();
+            subId = m.addSubTask(new SubTask(0, "подзадача", null, Status.NEW, null, null, epicId)).getAsInt();
+
+            server.saved.clear();
+            m.setSubTaskStatus(subId, Status.DONE);
+            assertEquals(List.of("epic/" + epicId, "subtask/" + subId), sorted(server.saved), "подзадача тянет эпик");
+
+            server.saved.clear();
+            m.getTask(taskId);
+            m.flush();
+            assertEquals(List.of("history"), server.saved, "просмотр — один PUT истории");
+
+            server.saved.clear();
+            m.deleteTask(doomed);
+            assertTrue(server.saved.isEmpty(), "удаление — только DELETE ключа");
+            assertNull(raw.get("task/" + doomed), "ключ удалённой задачи стёрт");
+        }
+        try (HTTPTaskManager m = HTTPTaskManager.load(KV, KvSyncMode.DELTA)) {
+            assertEquals(List.of(taskId), m.getAllTasks().stream().map(Task::getId).toList());
+            assertEquals(Status.DONE, m.getEpic(epicId).getStatus());
+            assertEquals(List.of(subId), m.getEpic(epicId).getSubTaskIds());
+            assertEquals(List.of(taskId, epicId), m.getHistory().stream().map(Task::getId).toList());
+        }
+    }
+
+    @Test
+    void failedDeleteIsRetriedWithNextFlush() {
+        try (HTTPTaskManager m = HTTPTaskManager.load(KV, KvSyncMode.DELTA)) {
+            int id = m.addTask(new Task(0, "задача", null)).getAsInt();
+            server.reject = "/delete/task/" + id;
+            assertThrows(RuntimeException.class, () -> m.deleteTask(id));
+            assertNotNull(raw.get("task/" + id));
+            m.flush();
+            assertNull(raw.get("task/" + id), "удаление повторено со следующим сбросом");
+        }
+    }
+
+    @Test
+    void writersSharingServerKeepEachOthersEntities() {
+        try (HTTPTaskManager a = HTTPTaskManager.load(KV, KvSyncMode.DELTA);
+             HTTPTaskManager b = HTTPTaskManager.load(KV, KvSyncMode.DELTA)) {
+            int fromA = a.addTask(new Task(0, "от A", null)).getAsInt();
+            int fromB = b.addTask(new Task(0, "от B", null)).getAsInt();
+            int doomed = a.addTask(new Task(0, "удалится", null)).getAsInt();
+            b.addTask(new Task(0, "ещё от B", null));
+            a.deleteTask(doomed);
+            assertNotEquals(fromA, fromB);
+            try (HTTPTaskManager m = HTTPTaskManager.load(KV, KvSyncMode.DELTA)) {
+                List<String> names = m.getAllTasks().stream().map(Task::getName).sorted().toList();
+                assertEquals(List.of("ещё от B", "от A", "от B"), names, "последний писатель не затирает чужое");
+            }
+        }
+    }
+
+    @Test
+    void loadMigratesBetweenLayouts() {
+        int taskId;
+        int epicId;
+        int subId;
+        try (HTTPTaskManager m = HTTPTaskManager.load(KV, KvSyncMode.FULL)) {
+            taskId = m.addTask(new Task(0, "задача", null)).getAsInt();
+            epicId = m.addEpic(new Epic(0, "эпик", null, Status.NEW, null, null)).getAsInt();
+            subId = m.addSubTask(new SubTask(0, "подзадача", null, Status.NEW, null, null, epicId)).getAsInt();
+        }
+        assertNotNull(raw.get("tasks"));
+        assertTrue(raw.keys("task/").isEmpty());
+
+        try (HTTPTaskManager m = HTTPTaskManager.load(KV, KvSyncMode.DELTA)) {
+            assertEquals(1, m.getAllTasks().size());
+            assertEquals(List.of(subId), m.getEpic(epicId).getSubTaskIds());
+        }
+        assertNull(raw.get("tasks"), "полные ключи убраны сразу при загрузке");
+        assertNull(raw.get("subtasks"));
+        assertEquals(List.of("task/" + taskId), raw.keys("task/"));
+        assertNotNull(raw.get("subtask/" + subId));
+
+        try (HTTPTaskManager m = HTTPTaskManager.load(KV, KvSyncMode.FULL)) {
+            assertEquals("задача", m.getTask(taskId).getName());
+        }
+        assertTrue(raw.keys("task/").isEmpty());
+        assertTrue(raw.keys("epic/").isEmpty());
+        assertNotNull(raw.get("tasks"));
+    }
+
+    @Test
+    void clientReadsManyKeysAndDeletesIdempotently() {
+        List<String> keys = new ArrayList<>();
+        for (int i = 0; i < 150; i++) { // больше одного окна запросов
+            keys.add("k/" + i);
+            if (i % 3 != 0) raw.put("k/" + i, "v" + i);
+        }
+        Map<String, String> values = raw.getAll(keys);
+        assertEquals(100, values.size());
+        assertEquals("v149", values.get("k/149"));
+        assertFalse(values.containsKey("k/0"));
+
+        raw.delete("k/1");
+        raw.delete("k/1"); // отсутствующий ключ — не ошибка
+        assertNull(raw.get("k/1"));
+
+        List<String> listed = raw.keys("k/14");
+        assertEquals(List.of("k/14", "k/140", "k/142", "k/143", "k/145", "k/146", "k/148", "k/149"), listed);
+        assertEquals(99, raw.keys("k/").size());
+    }
+
+    @Test
+    void deleteEndpointAnswersByKeyPresence() throws IOException, InterruptedException {
+        raw.put("x", "1");
+        HttpClient http = HttpClient.newHttpClient();
+        URI uri = URI.create(KV + "/delete/x?API_TOKEN=DEBUG");
+        assertEquals(200, http.send(HttpRequest.newBuilder(uri).DELETE().build(),
+                HttpResponse.BodyHandlers.discarding()).statusCode());
+        assertEquals(404, http.send(HttpRequest.newBuilder(uri).DELETE().build(),
+                HttpResponse.BodyHandlers.discarding()).statusCode());
+        assertEquals(405, http.send(HttpRequest.newBuilder(uri).GET().build(),
+                HttpResponse.BodyHandlers.discarding()).statusCode());
+        assertEquals(403, http.send(HttpRequest.newBuilder(URI.create(KV + "/delete/x")).DELETE().build(),
+                HttpResponse.BodyHandlers.discarding()).statusCode());
+        assertEquals(405, http.send(HttpRequest.newBuilder(URI.create(KV + "/keys/x?API_TOKEN=DEBUG"))
+                .DELETE().build(), HttpResponse.BodyHandlers.discarding()).statusCode());
+        assertEquals(403, http.send(HttpRequest.newBuilder(URI.create(KV + "/keys/x")).GET().build(),
+                HttpResponse.BodyHandlers.discarding()).statusCode());
+    }
+
+    private static List<String> sorted(List<String> keys) {
+        List<String> copy = new ArrayList<>(keys);
+        Collections.sort(copy);
+        return copy;
+    }
+
+    // запоминает ключи принятых PUT и умеет один раз отвергнуть запрос по заданному пути
+    private static final class RecordingKVServer extends KVServer {
+        final List<String> saved = Collections.synchronizedList(new ArrayList<>());
+        volatile String reject;
+
+        RecordingKVServer() throws IOException {
+        }
+
+        @Override
+        protected boolean hasAuth(HttpExchange h) {
+            String path = reject;
+            if (path != null && h.getRequestURI().getPath().equals(path)) {
+                reject = null;
+                return false;
+            }
+            return super.hasAuth(h);
+        }
+
+        @Override
+        protected String readText(HttpExchange h) throws IOException {
+            saved.add(h.getRequestURI().getPath().substring("/save/".length()));
+            return super.readText(h);
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package service;
+
+import model.Task;
+
+public class HotTask {
+    private final Task task;
+    private final int hits;
+
+    public HotTask(Task task, int hits) {
+        this.task = task;
+        this.hits = hits;
+    }
+
+    public Task getTask() {
+        return task;
+    }
+
+    // оценка числа обращений с учётом старения; может быть немного завышена
+    public int getHits() {
+        return hits;
+    }
+
+    @Override
+    public String toString() {
+        return "HotTask{" +
+                "id=" + task.getId() +
+                ", hits=" + hits +
+                '}';
+    }
+}
@@ -0,0 +1,128 @@
+package service;
+
+import java.util.Arrays;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Частоты обращений к задачам и top-K самых читаемых (heavy hitters).
+ * <p>
+ * Частоты оценивает {@link FrequencySketch}; кандидаты в top-K хранятся в массивах
+ * фиксированного размера вместе с последней оценкой. Новая задача вытесняет самого редкого
+ * кандидата, только если её оценка больше. При старении sketch оценки кандидатов тоже
+ * делятся пополам, чтобы сравнение оставалось честным. Память — O(ширина sketch + K).
+ * <p>
+ * {@link #record} стоит на пути каждого чтения, поэтому замка там нет: id кладётся в
+ * {@link StripedBuffer}, как в {@link BufferedHistoryManager}, и переносится в sketch под {@code tryLock}
+ * тем, кто заполнил буфер наполовину. При переполнении или проигранном CAS обращение теряется —
+ * частоты и так приблизительны. {@link #frequency} и {@link #top} сначала сливают буферы.
+ */
+public class HotTaskTracker {
+    static final int DEFAULT_SKETCH_WIDTH = 4096;
+    static final int DEFAULT_TOP_K = 64;
+
+    private final FrequencySketch sketch;
+    private final IntIntHashMap slotById;
+    private final int[] ids;
+    private final int[] hits;
+    private int size;
+    private int minSlot;
+    private final StripedBuffer<Integer> buffer = new StripedBuffer<>();
+    private final ReentrantLock maintenance = new ReentrantLock(); // sketch и кандидаты — только под ним
+
+    public HotTaskTracker() {
+        this(DEFAULT_SKETCH_WIDTH, DEFAULT_TOP_K);
+    }
+
+    public HotTaskTracker(int sketchWidth, int topK) {
+        if (topK <= 0) throw new IllegalArgumentException("Размер top-K должен быть > 0");
+        this.sketch = new FrequencySketch(sketchWidth);
+        this.slotById = new IntIntHashMap(topK);
+        this.ids = new int[topK];
+        this.hits = new int[topK];
+    }
+
+    public void record(int id) {
+        if (buffer.offer(id) && maintenance.tryLock()) {
+            try {
+                drain();
+            } finally {
+                maintenance.unlock();
+            }
+        }
+    }
+
+    public int frequency(int id) {
+        maintenance.lock();
+        try {
+            drain();
+            return sketch.frequency(id);
+        } finally {
+            maintenance.unlock();
+        }
+    }
+
+    /**
+     * Кандидаты top-K по убыванию оценки: пары (id, оценка) подряд.
+     * Удалённые задачи могут остаться среди кандидатов — их отбрасывает вызывающий.
+     */
+    public int[] top() {
+        maintenance.lock();
+        try {
+            drain();
+            return sortedTop();
+        } finally {
+            maintenance.unlock();
+        }
+    }
+
+    // вызывается только под maintenance
+    private void drain() {
+        buffer.drainTo(this::apply);
+    }
+
+    private void apply(int id) {
+        int estimate = sketch.increment(id);
+        int slot = slotById.get(id);
+        if (slot != IntIntHashMap.MISSING) {
+            hits[slot] = estimate;
+            if (slot == minSlot) minSlot = findMin();
+        } else if (size < ids.length) {
+            slotById.put(id, size);
+            ids[size] = id;
+            hits[size] = estimate;
+            size++;
+            minSlot = findMin();
+        } else if (estimate > hits[minSlot]) {
+            slotById.remove(ids[minSlot]);
+            slotById.put(id, minSlot);
+            ids[minSlot] = id;
+            hits[minSlot] = estimate;
+            minSlot = findMin();
+        }
+        if (sketch.sampleFull()) {
+            sketch.halve();
+            for (int i = 0; i < size; i++) hits[i] >>>= 1;
+        }
+    }
+
+    private int[] sortedTop() {
+        Integer[] order = new Integer[size];
+        for (int i = 0; i < size; i++) order[i] = i;
+        Arrays.sort(order, (a, b) -> hits[a] != hits[b]
+                ? Integer.compare(hits[b], hits[a]) : Integer.compare(ids[a], ids[b]));
+        int[] out = new int[2 * size];
+        for (int i = 0; i < size; i++) {
+            out[2 * i] = ids[order[i]];
+            out[2 * i + 1] = hits[order[i]];
+        }
+        return out;
+    }
+
+    private int findMin() {
+        int m = 0;
+        for (int i = 1; i < size; i++) {
+            if (hits[i] < hits[m]) m = i;
+        }
+        return m;
+    }
+}
@@ -0,0 +1,41 @@
+package service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HotTaskTrackerTest {
+
+    @Test
+    void heavyHittersSurviveLongTail() {
+        HotTaskTracker tracker = new HotTaskTracker(256, 8);
+        Random rnd = new Random(7);
+        for (int i = 0; i < 200_000; i++) {
+            // каждое пятое обращение — к одной из трёх горячих задач, остальные — хвост из 100k id
+            tracker.record(i % 5 == 0 ? rnd.nextInt(3) : 1_000 + rnd.nextInt(100_000));
+        }
+        int[] top = tracker.top();
+        for (int i = 0; i < 6; i += 2) {
+            assertTrue(top[i] < 3, "горячая задача должна быть в начале top-K: " + top[i]);
+        }
+        assertTrue(tracker.frequency(0) > tracker.frequency(50_000));
+    }
+
+    @Test
+    void concurrentRecordsReachSketchWithoutLock() throws InterruptedException {
+        HotTaskTracker tracker = new HotTaskTracker(256, 8);
+        Thread[] readers = new Thread[4];
+        for (int r = 0; r < readers.length; r++) {
+            readers[r] = new Thread(() -> {
+                for (int i = 0; i < 50_000; i++) tracker.record(i % 2 == 0 ? 42 : 1_000 + i);
+            });
+            readers[r].start();
+        }
+        for (Thread t : readers) t.join();
+        // буфер лоссовый, но большая часть обращений должна дойти до sketch
+        assertEquals(42, tracker.top()[0]);
+        assertTrue(tracker.frequency(42) > tracker.frequency(1_002));
+    }
+}
@@ -0,0 +1,8 @@
+package service;
+
+public interface IdAllocator {
+    int nextId();
+
+    // гарантирует, что следующие выданные id будут больше переданного
+    void advancePast(int id);
+}
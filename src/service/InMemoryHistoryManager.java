@@ -4,77 +4,102 @@ import model.Task;
 
 import java.util.*;
 
+/**
+ * История просмотров с вытеснением самых старых записей (LRU) при заполнении.
+ * <p>
+ * Записи лежат в слотах фиксированного размера: порядок задаётся двусвязным списком
+ * на массивах {@code prev}/{@code next}, а поиск слота по id — индексом с открытой адресацией.
+ * Все массивы выделяются в конструкторе, поэтому запись и удаление — O(1) без аллокаций.
+ */
 public class InMemoryHistoryManager implements HistoryManager {
-    private static class Node {
-        Node next;
-        Node prev;
-        Task task;
+    static final int DEFAULT_CAPACITY = 10;
+    private static final int NIL = -1;
 
-        Node(Task task) {
-            this.task = task;
-        }
+    private final int capacity;
+    private final IntIntHashMap slotById;
+    private final int[] ids;
+    private final Task[] tasks;
+    private final int[] prev;
+    private final int[] next;
+    private int head = NIL;
+    private int tail = NIL;
+    private int freeHead;
+    private int size;
+
+    public InMemoryHistoryManager() {
+        this(DEFAULT_CAPACITY);
     }
 
-    private final Map<Integer, Node> map = new HashMap<>();
-    //    private final Deque<Task> history = new ArrayDeque<>();
-    private final static int HISTURY_SIZE = 10;
-    private Node head;
-    private Node tail;
+    public InMemoryHistoryManager(int capacity) {
+        if (capacity <= 0) throw new IllegalArgumentException("Размер истории должен быть > 0");
+        this.capacity = capacity;
+        this.slotById = new IntIntHashMap(capacity);
+        this.ids = new int[capacity];
+        this.tasks = new Task[capacity];
+        this.prev = new int[capacity];
+        this.next = new int[capacity];
+        // свободные слоты связаны через next
+        for (int i = 0; i < capacity; i++) next[i] = i + 1 < capacity ? i + 1 : NIL;
+        freeHead = 0;
+    }
 
     @Override
     public void add(Task task) {
         if (task == null) return;
         int id = task.getId();
-        Node oldNode = map.remove(id);
-        if (oldNode != null)
-            removeNode(oldNode);
-        addNode(task);
+        int slot = slotById.get(id);
+        if (slot != IntIntHashMap.MISSING) {
+            unlink(slot);
+        } else {
+            if (size == capacity) evict(head);
+            slot = freeHead;
+            freeHead = next[slot];
+            slotById.put(id, slot);
+            ids[slot] = id;
+            size++;
+        }
+        tasks[slot] = task;
+        linkLast(slot);
     }
+
     @Override
     public void remove(int id) {
-        Node node = map.remove(id);
-        if (node != null) removeNode(node);
+        int slot = slotById.get(id);
+        if (slot != IntIntHashMap.MISSING) evict(slot);
     }
 
-    private void addNode(Task task) {
-        if (tail == null) {
-            tail = new Node(task);
-            head = tail;
-            map.put(task.getId(), tail);
-        } else {
-            tail.next = new Node(task);
-            tail.next.prev = tail;
-            tail = tail.next;
-            map.put(task.getId(), tail);
+    @Override
+    public List<Task> getHistory() {
+        List<Task> result = new ArrayList<>(size);
+        for (int s = head; s != NIL; s = next[s]) {
+            result.add(tasks[s]);
         }
+        return result;
     }
 
-    private void removeNode(Node oldNode) {
-        Node n = oldNode.next;
-        Node p = oldNode.prev;
-        if (p != null) {
-            p.next = n;
-        } else {
-            head = n;
-        }
-        if (n != null) {
-            n.prev = p;
-        } else {
-            tail = p;
-        }
-        oldNode.prev = null;
-        oldNode.next = null;
-        oldNode.task = null;
+    private void evict(int slot) {
+        slotById.remove(ids[slot]);
+        unlink(slot);
+        tasks[slot] = null;
+        next[slot] = freeHead;
+        freeHead = slot;
+        size--;
     }
 
-    @Override
-    public List<Task> getHistory() {
-        List<Task> tasks = new ArrayList<>();
-        Node h = head;
-        while (h != null) {
-            tasks.add(h.task);
-            h = h.next;
-        }
-        return tasks;
+    private void linkLast(int slot) {
+        prev[slot] = tail;
+        next[slot] = NIL;
+        if (tail == NIL) head = slot;
+        else next[tail] = slot;
+        tail = slot;
+    }
+
+    private void unlink(int slot) {
+        int p = prev[slot];
+        int n = next[slot];
+        if (p == NIL) head = n;
+        else next[p] = n;
+        if (n == NIL) tail = p;
+        else prev[n] = p;
     }
 }
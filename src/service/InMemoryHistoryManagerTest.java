@@ -84,6 +84,42 @@ class InMemoryHistoryManagerTest {
 
     }
 
+    @Test
+    void capacityEvictsOldest() {
+        history = new InMemoryHistoryManager(3);
+        List<Task> tasks = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            Task t = new Task();
+            tm.addTask(t);
+            tasks.add(t);
+            history.add(t);
+        }
+        List<Task> h = history.getHistory();
+        assertEquals(3, h.size());
+        assertEquals(tasks.get(2).getId(), h.get(0).getId());
+        assertEquals(tasks.get(4).getId(), h.get(2).getId());
+
+        history.add(tasks.get(2));
+        history.add(tasks.get(0));
+        h = history.getHistory();
+        assertEquals(List.of(tasks.get(4).getId(), tasks.get(2).getId(), tasks.get(0).getId()),
+                h.stream().map(Task::getId).toList());
+
+        history.remove(tasks.get(4).getId());
+        history.remove(tasks.get(4).getId());
+        assertEquals(2, history.getHistory().size());
+    }
+
+    @Test
+    void defaultCapacityIsEnforced() {
+        for (int i = 0; i < InMemoryHistoryManager.DEFAULT_CAPACITY * 3; i++) {
+            Task t = new Task();
+            tm.addTask(t);
+            history.add(t);
+        }
+        assertEquals(InMemoryHistoryManager.DEFAULT_CAPACITY, history.getHistory().size());
+    }
+
     private List<Integer> addTasks() {
         Task f = new Task();
         Task s = new Task();
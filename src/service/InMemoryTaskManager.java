@@ -5,7 +5,6 @@ import model.Status;
 import model.SubTask;
 import model.Task;
 
-import java.time.Duration;
 import java.time.LocalDateTime;
 import java.util.*;
 
@@ -13,30 +12,37 @@ public class InMemoryTaskManager implements TaskManager {
     private final Map<Integer, Task> taskHashMap = new LinkedHashMap<>();
     private final Map<Integer, Epic> epicHashMap = new LinkedHashMap<>();
     private final Map<Integer, SubTask> subTaskHashMap = new LinkedHashMap<>();
-    private final HistoryManager historyManager = Managers.getDefaultHistory();
+    private final SessionHistoryManager histories = Managers.getDefaultSessionHistory();
+    private final HotTaskTracker hotTasks = new HotTaskTracker();
     private final TimeGridArray timeGridArray = new TimeGridArray(LocalDateTime.now());
-    private final Set<Task> prioritized = new TreeSet<>(new Comparator<Task>() {
+    private final DependencyGraph dependencies = new DependencyGraph();
+    private final TaskStats stats = new TaskStats();
+    public static final Comparator<Task> PRIORITY_ORDER = new Comparator<Task>() {
         @Override
         public int compare(Task t1, Task t2) {
-            if (t1.getStartTime() == null && t2.getStartTime() == null) {
+            boolean has1 = t1.hasStartTime();
+            boolean has2 = t2.hasStartTime();
+            if (!has1 && !has2) {
                 return Integer.compare(t1.getId(), t2.getId());
             }
 
 
-            if (t1.getStartTime() == null) {
+            if (!has1) {
                 return 1;
             }
-            if (t2.getStartTime() == null) {
+            if (!has2) {
                 return -1;
             }
 
-            int cmp = t1.getStartTime().compareTo(t2.getStartTime());
+            int cmp = Long.compare(t1.getStartMinutes(), t2.getStartMinutes());
             if (cmp != 0) {
                 return cmp;
             }
             return Integer.compare(t1.getId(), t2.getId());
         }
-    });
+    };
+    private final Set<Task> prioritized = new TreeSet<>(PRIORITY_ORDER);
+    static final int PARALLEL_RECALC_THRESHOLD = 4_096;
 
     @Override
     public List<Task> getPrioritizedTasks() {
@@ -44,24 +50,68 @@ public class InMemoryTaskManager implements TaskManager {
     }
 
 
-    private int id = 0;
+    private final IdAllocator idAllocator;
+    // хранилище, куда пишется каждая мутация; загрузка через put*/restoreAll в него не пишет
+    private final TaskStore store;
+
+    public InMemoryTaskManager() {
+        this(new SequentialIdAllocator());
+    }
+
+    public InMemoryTaskManager(TaskStore store) {
+        this(new SequentialIdAllocator(), store);
+    }
+
+    protected InMemoryTaskManager(IdAllocator idAllocator) {
+        this(idAllocator, TaskStore.NONE);
+    }
+
+    protected InMemoryTaskManager(IdAllocator idAllocator, TaskStore store) {
+        this.idAllocator = idAllocator;
+        this.store = store;
+    }
+
+    /**
+     * Поднимает менеджер из хранилища: один проход {@link TaskStore#scan} и массовое восстановление.
+     * Дальнейшие мутации пишутся в то же хранилище. Подзадачи без эпика (оборванная запись) пропускаются.
+     */
+    public static InMemoryTaskManager load(TaskStore store) {
+        List<Task> tasks = new ArrayList<>();
+        List<Epic> epics = new ArrayList<>();
+        List<SubTask> subTasks = new ArrayList<>();
+        int[] maxId = {-1};
+        store.scan(t -> {
+            if (t instanceof SubTask s) subTasks.add(s);
+            else if (t instanceof Epic e) epics.add(e);
+            else tasks.add(t);
+            maxId[0] = Math.max(maxId[0], t.getId());
+        });
+        Set<Integer> epicIds = new HashSet<>();
+        for (Epic e : epics) epicIds.add(e.getId());
+        subTasks.removeIf(s -> !epicIds.contains(s.getEpicId()));
+        InMemoryTaskManager m = new InMemoryTaskManager(store);
+        m.restoreAll(tasks, epics, subTasks);
+        m.setCurrentId(maxId[0]);
+        return m;
+    }
 
     public int nextId() {
-        return id++;
+        return idAllocator.nextId();
     }
 
     public void setCurrentId(int oldId) {
-        id = oldId + 1;
+        idAllocator.advancePast(oldId);
     }
 
 
     protected void putTask(Task t) {
-        putAuto(t);
+        if (putAuto(t)) stats.add(t);
     }
 
     protected void putEpic(Epic e) {
         if (e.getSubTaskIds() == null) e.setSubTaskIds(new ArrayList<>());
         putAuto(e);
+        stats.add(e);
         recalcEpicStatus(e.getId());
         recalcEpicTime(e.getId());
     }
@@ -69,14 +119,20 @@ public class InMemoryTaskManager implements TaskManager {
     protected void putSubTask(SubTask s) {
         Epic e = epicHashMap.get(s.getEpicId());
         if (e == null) throw new IllegalStateException("Epic " + s.getEpicId() + " not loaded yet");
-        putAuto(s);
+        if (!putAuto(s)) return;
+        stats.add(s);
         e.getSubTaskIds().add(s.getId());
     }
 
     @Override
     public OptionalInt addTask(Task task) {
         if (task == null) return OptionalInt.empty();
-        return saveAuto(task);
+        OptionalInt oi = saveAuto(task);
+        if (oi.isPresent()) {
+            stats.add(task);
+            persist(oi.getAsInt());
+        }
+        return oi;
     }
 
     @Override
@@ -85,7 +141,12 @@ public class InMemoryTaskManager implements TaskManager {
         if (epic.getSubTaskIds() == null) {
             epic.setSubTaskIds(new ArrayList<>());
         }
-        return saveAuto(epic);
+        OptionalInt oi = saveAuto(epic);
+        if (oi.isPresent()) {
+            stats.add(epic);
+            persist(oi.getAsInt());
+        }
+        return oi;
     }
 
     @Override
@@ -103,13 +164,16 @@ public class InMemoryTaskManager implements TaskManager {
         if (oi.isPresent()) {
             int id = oi.getAsInt();
             epic.getSubTaskIds().add(id);
+            stats.add(subTask);
 
             recalcEpicStatus(epic.getId());
             recalcEpicTime(epic.getId());
 
-            if (epic.getStartTime() != null) {
+            if (epic.hasStartTime()) {
                 prioritized.add(epic);
             }
+            persist(id);
+            persist(epic.getId());
         }
 
         return oi;
@@ -119,11 +183,12 @@ public class InMemoryTaskManager implements TaskManager {
     public void recalcEpicStatus(int epicId) {
         Epic e = epicHashMap.get(epicId);
         if (e == null) return;
+        setEpicStatus(e, epicStatus(e));
+    }
+
+    private Status epicStatus(Epic e) {
         List<Integer> ids = e.getSubTaskIds();
-        if (ids.isEmpty()) {
-            e.setStatus(Status.NEW);
-            return;
-        }
+        if (ids.isEmpty()) return Status.NEW;
 
         boolean allNew = true, allDone = true;
         for (int sid : ids) {
@@ -131,9 +196,15 @@ public class InMemoryTaskManager implements TaskManager {
             if (st != Status.NEW) allNew = false;
             if (st != Status.DONE) allDone = false;
         }
-        if (allDone) e.setStatus(Status.DONE);
-        else if (allNew) e.setStatus(Status.NEW);
-        else e.setStatus(Status.IN_PROGRESS);
+        if (allDone) return Status.DONE;
+        return allNew ? Status.NEW : Status.IN_PROGRESS;
+    }
+
+    private void setEpicStatus(Epic e, Status status) {
+        if (e.getStatus() == status) return;
+        stats.remove(e);
+        e.setStatus(status);
+        stats.add(e);
     }
 
     public void recalcEpicTime(int epicId) {
@@ -141,47 +212,59 @@ public class InMemoryTaskManager implements TaskManager {
 
         List<Integer> ids = e.getSubTaskIds();
         if (ids == null || ids.isEmpty()) {
-            e.setStartTime(null);
-            e.setDuration(null);
+            e.setStartMinutes(Task.NO_START);
+            e.setDurationMinutes(Task.NO_DURATION);
             return;
         }
-        LocalDateTime minStart = null;
-        LocalDateTime maxEnd = null;
-        Duration sum = Duration.ZERO;
-
-        for (Integer i : ids) {
-            SubTask s = subTaskHashMap.get(i);
-            if (s.getStartTime() == null || s.getDuration() == null) continue;
-            LocalDateTime ss = s.getStartTime();
-            LocalDateTime se = s.getEndTime().isPresent() ? s.getEndTime().get() : null;
-
-            if (minStart == null || ss.isBefore(minStart)) minStart = ss;
-            if (maxEnd == null || (se != null && se.isAfter(maxEnd))) maxEnd = se;
-            sum = sum.plus(s.getDuration());
+        long minStart = Long.MAX_VALUE;
+        long sum = 0;
+
+        for (int i = 0, n = ids.size(); i < n; i++) {
+            SubTask s = subTaskHashMap.get(ids.get(i));
+            if (!s.hasStartTime() || !s.hasDuration()) continue;
+            if (s.getStartMinutes() < minStart) minStart = s.getStartMinutes();
+            sum += s.getDurationMinutes();
         }
-        e.setStartTime(minStart);
-        e.setDuration(sum);
+        e.setStartMinutes(minStart == Long.MAX_VALUE ? Task.NO_START : minStart);
+        e.setDurationMinutes(Math.toIntExact(sum));
     }
 
 
     public Task getTask(int id) {
-        Task task = taskHashMap.get(id);
-        if (task != null) historyManager.add(task);
-        return task;
+        return viewed(taskHashMap.get(id), SessionHistoryManager.DEFAULT_USER);
     }
 
 
     public Epic getEpic(int id) {
-        Epic epic = epicHashMap.get(id);
-        if (epic != null) historyManager.add(epic);
-        return epic;
+        return viewed(epicHashMap.get(id), SessionHistoryManager.DEFAULT_USER);
     }
 
 
     public SubTask getSubTask(int id) {
-        SubTask subTask = subTaskHashMap.get(id);
-        if (subTask != null) historyManager.add(subTask);
-        return subTask;
+        return viewed(subTaskHashMap.get(id), SessionHistoryManager.DEFAULT_USER);
+    }
+
+    @Override
+    public Task getTask(int id, String user) {
+        return viewed(taskHashMap.get(id), user);
+    }
+
+    @Override
+    public Epic getEpic(int id, String user) {
+        return viewed(epicHashMap.get(id), user);
+    }
+
+    @Override
+    public SubTask getSubTask(int id, String user) {
+        return viewed(subTaskHashMap.get(id), user);
+    }
+
+    private <T extends Task> T viewed(T task, String user) {
+        if (task != null) {
+            histories.forUser(user).add(task);
+            hotTasks.record(task.getId());
+        }
+        return task;
     }
 
     @Override
@@ -190,6 +273,9 @@ public class InMemoryTaskManager implements TaskManager {
         if (t == null) return;
 
         releaseIfReserved(t);
+        dependencies.removeNode(id);
+        stats.remove(t);
+        store.delete(id);
     }
 
     @Override
@@ -204,9 +290,15 @@ public class InMemoryTaskManager implements TaskManager {
                 SubTask s = subTaskHashMap.remove(sid);
                 if (s == null) continue;
                 releaseIfReserved(s);
+                dependencies.removeNode(sid);
+                stats.remove(s);
+                store.delete(sid); // подзадачи раньше эпика: оборванная запись не оставит сирот
             }
             subs.clear();
         }
+        prioritized.remove(e);
+        stats.remove(e);
+        store.delete(id);
 
     }
 
@@ -216,12 +308,15 @@ public class InMemoryTaskManager implements TaskManager {
         SubTask s = subTaskHashMap.remove(id);
         if (s == null) return;
         releaseIfReserved(s);
+        dependencies.removeNode(id);
+        stats.remove(s);
+        store.delete(id);
         Epic e = epicHashMap.get(s.getEpicId());
         if (e != null) {
             e.getSubTaskIds().remove(Integer.valueOf(id));
             recalcEpicStatus(e.getId());
             recalcEpicTime(e.getId());
-
+            persist(e.getId());
         }
     }
 
@@ -229,31 +324,38 @@ public class InMemoryTaskManager implements TaskManager {
     private void releaseIfReserved(Task t) {
         prioritized.remove(t);
 
-        LocalDateTime s = t.getStartTime();
-        Duration d = t.getDuration();
-        if (s != null && d != null && !d.isZero()) {
+        if (t.hasStartTime() && t.hasDuration() && t.getDurationMinutes() != 0) {
             try {
-                timeGridArray.release(s, d);
+                timeGridArray.release(t.getStartMinutes(), t.getDurationMinutes());
             } catch (IllegalArgumentException ignored) {
             }
         }
     }
 
     private void changeReservation(Task oldTask, Task newTask) {
+        stats.remove(oldTask);
+        try {
+            reserveChanged(oldTask, newTask);
+        } finally {
+            stats.add(oldTask);
+        }
+    }
+
+    private void reserveChanged(Task oldTask, Task newTask) {
         releaseIfReserved(oldTask);
-        LocalDateTime s = newTask.getStartTime();
-        Duration d = newTask.getDuration();
+        long s = newTask.getStartMinutes();
+        int d = newTask.getDurationMinutes();
 
-        if (s == null || d == null || d.isZero()) {
-            oldTask.setStartTime(s);
-            oldTask.setDuration(d);
+        if (!newTask.hasStartTime() || !newTask.hasDuration() || d == 0) {
+            oldTask.setStartMinutes(s);
+            oldTask.setDurationMinutes(d);
             prioritized.add(oldTask);
-
+            return;
         }
         try {
             if (timeGridArray.tryReserve(s, d)) {
-                oldTask.setStartTime(s);
-                oldTask.setDuration(d);
+                oldTask.setStartMinutes(s);
+                oldTask.setDurationMinutes(d);
                 prioritized.add(oldTask);
             }
         } catch (IllegalArgumentException ignored) {
@@ -269,6 +371,8 @@ public class InMemoryTaskManager implements TaskManager {
         t.setName(task.getName());
         t.setDescription(task.getDescription());
         changeReservation(t, task);
+        dependencies.setDuration(id, minutesOf(t));
+        persist(id);
         return true;
     }
 
@@ -280,7 +384,7 @@ public class InMemoryTaskManager implements TaskManager {
         e.setDescription(epic.getDescription());
         recalcEpicStatus(id);
         recalcEpicTime(id);
-
+        persist(id);
         return true;
     }
 
@@ -293,6 +397,9 @@ public class InMemoryTaskManager implements TaskManager {
         recalcEpicStatus(subTask.getEpicId());
         recalcEpicTime(subTask.getEpicId());
         changeReservation(st, subTask);
+        dependencies.setDuration(id, minutesOf(st));
+        persist(id);
+        persist(st.getEpicId());
         return true;
     }
 
@@ -316,29 +423,44 @@ public class InMemoryTaskManager implements TaskManager {
     public void deleteAllTasks() {
         for (Task t : taskHashMap.values()) {
             releaseIfReserved(t);
+            dependencies.removeNode(t.getId());
+            stats.remove(t);
+            store.delete(t.getId());
         }
         taskHashMap.clear();
     }
 
     @Override
     public void deleteAllEpics() {
-        epicHashMap.clear();
         for (SubTask s : subTaskHashMap.values()) {
             releaseIfReserved(s);
+            dependencies.removeNode(s.getId());
+            stats.remove(s);
+            store.delete(s.getId());
         }
         subTaskHashMap.clear();
+        for (Epic e : epicHashMap.values()) {
+            prioritized.remove(e);
+            stats.remove(e);
+            store.delete(e.getId());
+        }
+        epicHashMap.clear();
     }
 
     @Override
     public void deleteAllSubTasks() {
         for (SubTask s : subTaskHashMap.values()) {
             releaseIfReserved(s);
+            dependencies.removeNode(s.getId());
+            stats.remove(s);
+            store.delete(s.getId());
         }
         subTaskHashMap.clear();
         for (Epic e : epicHashMap.values()) {
             e.getSubTaskIds().clear();
-            e.setStatus(Status.NEW);
+            setEpicStatus(e, Status.NEW);
             recalcEpicTime(e.getId());
+            persist(e.getId());
         }
 
     }
@@ -360,20 +482,208 @@ public class InMemoryTaskManager implements TaskManager {
     public void setTaskStatus(int id, Status status) {
         Task t = taskHashMap.get(id);
         if (t == null) throw new IllegalArgumentException("Task не найден: " + id);
+        stats.remove(t);
         t.setStatus(status);
+        stats.add(t);
+        persist(id);
     }
 
     @Override
     public void setSubTaskStatus(int id, Status status) {
         SubTask st = subTaskHashMap.get(id);
         if (st == null) throw new IllegalArgumentException("SubTask не найден: " + id);
+        stats.remove(st);
         st.setStatus(status);
+        stats.add(st);
         recalcEpicStatus(st.getEpicId());
         recalcEpicTime(st.getEpicId());
+        persist(id);
+        persist(st.getEpicId());
     }
 
     public List<Task> getHistory() {
-        return historyManager.getHistory();
+        return histories.defaultHistory().getHistory();
+    }
+
+    @Override
+    public List<Task> getHistory(String user) {
+        return histories.forUser(user).getHistory();
+    }
+
+    @Override
+    public List<HotTask> getHotTasks(int limit) {
+        int[] top = hotTasks.top();
+        List<HotTask> result = new ArrayList<>(Math.min(limit, top.length / 2));
+        for (int i = 0; i < top.length && result.size() < limit; i += 2) {
+            Task task = findAny(top[i]);
+            if (task != null) result.add(new HotTask(task, top[i + 1]));
+        }
+        return result;
+    }
+
+    @Override
+    public int getAccessFrequency(int id) {
+        return hotTasks.frequency(id);
+    }
+
+    @Override
+    public TaskStats getStats() {
+        return stats;
+    }
+
+    @Override
+    public boolean addDependency(int blockerId, int blockedId) {
+        Task blocker = dependencyNode(blockerId);
+        Task blocked = dependencyNode(blockedId);
+        return dependencies.addEdge(blockerId, groupOf(blocker), minutesOf(blocker),
+                blockedId, groupOf(blocked), minutesOf(blocked));
+    }
+
+    @Override
+    public boolean removeDependency(int blockerId, int blockedId) {
+        return dependencies.removeEdge(blockerId, blockedId);
+    }
+
+    @Override
+    public List<Integer> getBlockers(int id) {
+        return dependencies.blockersOf(id);
+    }
+
+    @Override
+    public List<Integer> getBlockedBy(int id) {
+        return dependencies.blockedBy(id);
+    }
+
+    @Override
+    public List<Integer> getDependencyOrder() {
+        return dependencies.topologicalOrder();
+    }
+
+    @Override
+    public OptionalLong getCriticalPathMinutes(int epicId) {
+        Epic e = epicHashMap.get(epicId);
+        if (e == null) return OptionalLong.empty();
+        long best = 0;
+        for (int sid : e.getSubTaskIds()) {
+            long f = dependencies.finishOf(sid);
+            if (f < 0) f = minutesOf(subTaskHashMap.get(sid));
+            if (f > best) best = f;
+        }
+        return OptionalLong.of(best);
+    }
+
+    long[] freeTimeRuns(long fromMinutes) {
+        return timeGridArray.freeRuns(fromMinutes);
+    }
+
+    /**
+     * Применяет пачку размещений автопланировщика: ids[i] получает старт starts[i].
+     * Задачи, которые за это время получили время или удалены, и занятые слоты пропускаются.
+     * Эпики пересчитываются один раз на пачку. Возвращает число применённых размещений.
+     */
+    public int applySchedule(int[] ids, long[] starts, int n) {
+        int applied = 0;
+        Set<Integer> touchedEpics = new HashSet<>();
+        for (int i = 0; i < n; i++) {
+            Task t = taskHashMap.get(ids[i]);
+            if (t == null) t = subTaskHashMap.get(ids[i]);
+            if (t == null || t.hasStartTime() || !t.hasDuration() || t.getDurationMinutes() <= 0) continue;
+            boolean reserved;
+            try {
+                reserved = timeGridArray.tryReserve(starts[i], t.getDurationMinutes());
+            } catch (IllegalArgumentException e) {
+                reserved = false;
+            }
+            if (!reserved) continue;
+            prioritized.remove(t);
+            stats.remove(t);
+            t.setStartMinutes(starts[i]);
+            stats.add(t);
+            prioritized.add(t);
+            if (t instanceof SubTask st) touchedEpics.add(st.getEpicId());
+            persist(t.getId());
+            applied++;
+        }
+        for (int epicId : touchedEpics) {
+            Epic e = epicHashMap.get(epicId);
+            if (e == null) continue;
+            prioritized.remove(e);
+            recalcEpicTime(epicId);
+            if (e.hasStartTime()) prioritized.add(e);
+            persist(epicId);
+        }
+        return applied;
+    }
+
+    /**
+     * Добавляет пачку новых сущностей (импорт): каждая получает новый id, подзадача должна
+     * ссылаться на существующий эпик — в том числе добавленный раньше в этой же пачке.
+     * Слоты сетки бронируются одним проходом по пачке, затронутые эпики пересчитываются
+     * один раз на пачку. Возвращает присвоенные id в порядке пачки, -1 — запись отвергнута.
+     */
+    public int[] addBatch(List<? extends Task> batch) {
+        int[] ids = new int[batch.size()];
+        Set<Integer> touchedEpics = new LinkedHashSet<>();
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = -1;
+            Task t = batch.get(i);
+            if (t == null) continue;
+            Epic epic = null;
+            if (t instanceof SubTask s) {
+                epic = epicHashMap.get(s.getEpicId());
+                if (epic == null) continue;
+            } else if (t instanceof Epic e && e.getSubTaskIds() == null) {
+                e.setSubTaskIds(new ArrayList<>());
+            }
+            OptionalInt oi = saveAuto(t);
+            if (oi.isEmpty()) continue;
+            ids[i] = oi.getAsInt();
+            stats.add(t);
+            persist(ids[i]);
+            if (epic != null) {
+                if (touchedEpics.add(epic.getId())) prioritized.remove(epic); // до пересчёта времени
+                epic.getSubTaskIds().add(ids[i]);
+            }
+        }
+        for (int epicId : touchedEpics) {
+            recalcEpicStatus(epicId);
+            recalcEpicTime(epicId);
+            Epic e = epicHashMap.get(epicId);
+            if (e.hasStartTime()) prioritized.add(e);
+            persist(epicId);
+        }
+        return ids;
+    }
+
+    private Task dependencyNode(int id) {
+        Task t = taskHashMap.get(id);
+        if (t == null) t = subTaskHashMap.get(id);
+        if (t == null) throw new IllegalArgumentException("Task/SubTask не найден: " + id);
+        return t;
+    }
+
+    // сохраняет сущность в хранилище целиком или удаляет, если её больше нет
+    private void persist(int id) {
+        if (store == TaskStore.NONE) return;
+        Task t = findAny(id);
+        if (t != null) store.put(t);
+        else store.delete(id);
+    }
+
+    // поиск по id во всех картах без отметки просмотра
+    protected Task findAny(int id) {
+        Task t = taskHashMap.get(id);
+        if (t == null) t = epicHashMap.get(id);
+        if (t == null) t = subTaskHashMap.get(id);
+        return t;
+    }
+
+    private static int groupOf(Task t) {
+        return t instanceof SubTask s ? s.getEpicId() : DependencyGraph.NO_GROUP;
+    }
+
+    private static int minutesOf(Task t) {
+        return t.hasDuration() && t.getDurationMinutes() > 0 ? t.getDurationMinutes() : 0;
     }
 
     protected boolean hasTask(int id) {
@@ -395,12 +705,13 @@ public class InMemoryTaskManager implements TaskManager {
         boolean isSub = entity instanceof SubTask;
         boolean isEpic = entity instanceof Epic;
 
-        java.time.LocalDateTime start = isEpic ? null : entity.getStartTime();
-        java.time.Duration dur = isEpic ? null : entity.getDuration();
+        boolean timed = !isEpic && entity.hasStartTime() && entity.hasDuration();
+        long start = entity.getStartMinutes();
+        int dur = entity.getDurationMinutes();
 
-        if (dur != null && dur.isNegative()) return OptionalInt.empty();
+        if (!isEpic && entity.hasDuration() && dur < 0) return OptionalInt.empty();
 
-        if (start == null || dur == null || dur.isZero()) {
+        if (!timed || dur == 0) {
             int id = nextId();
             if (isSub) {
                 SubTask st = (SubTask) entity;
@@ -442,51 +753,127 @@ public class InMemoryTaskManager implements TaskManager {
         }
     }
 
-    private void putAuto(Task entity) {
+    private boolean putAuto(Task entity) {
+        if (entity instanceof Epic e) {
+            epicHashMap.put(e.getId(), e);
+            return true;
+        }
+        if (!reserveSlot(entity)) return false;
+        if (entity instanceof SubTask st) subTaskHashMap.put(st.getId(), st);
+        else taskHashMap.put(entity.getId(), entity);
+        prioritized.add(entity);
+        return true;
+    }
 
-        boolean isSub = entity instanceof SubTask;
-        boolean isEpic = entity instanceof Epic;
+    // задача без времени проходит всегда, со временем — если слоты сетки свободны и в пределах года
+    private boolean reserveSlot(Task entity) {
+        if (!entity.hasStartTime() || !entity.hasDuration() || entity.getDurationMinutes() == 0) return true;
+        try {
+            return timeGridArray.tryReserve(entity.getStartMinutes(), entity.getDurationMinutes());
+        } catch (IllegalArgumentException ignored) {
+            return false;
+        }
+    }
+
+    /**
+     * Массовое восстановление из снимка. Строки раскладываются по картам и сетке времени,
+     * эпики пересчитываются один раз (при большом числе — параллельно в общем fork-join пуле),
+     * затем статистика и {@code prioritized} строятся одним проходом каждая. Подзадачи должны ссылаться на эпики из {@code epics}
+     * или уже загруженные; задачи, не попавшие в сетку, отбрасываются, как и в {@code putTask}.
+     */
+    protected void restoreAll(List<Task> tasks, List<Epic> epics, List<SubTask> subTasks) {
+        for (Epic e : epics) {
+            if (e.getSubTaskIds() == null) e.setSubTaskIds(new ArrayList<>());
+            epicHashMap.put(e.getId(), e);
+        }
+        List<Task> accepted = new ArrayList<>(tasks.size() + subTasks.size());
+        for (Task t : tasks) {
+            if (!reserveSlot(t)) continue;
+            taskHashMap.put(t.getId(), t);
+            accepted.add(t);
+        }
+        for (SubTask s : subTasks) {
+            Epic e = epicHashMap.get(s.getEpicId());
+            if (e == null) throw new IllegalStateException("Epic " + s.getEpicId() + " not loaded yet");
+            if (!reserveSlot(s)) continue;
+            subTaskHashMap.put(s.getId(), s);
+            e.getSubTaskIds().add(s.getId());
+            accepted.add(s);
+        }
+        if (epics.size() >= PARALLEL_RECALC_THRESHOLD) epics.parallelStream().forEach(this::recalcEpicUnsafe);
+        else epics.forEach(this::recalcEpicUnsafe);
+        for (Task t : accepted) stats.add(t);
+        for (Epic e : epics) stats.add(e);
+
+        // эпики со временем стоят в prioritized так же, как после addSubTask
+        for (Epic e : epics) {
+            if (e.hasStartTime()) accepted.add(e);
+        }
+        Task[] sorted = accepted.toArray(new Task[0]);
+        Arrays.parallelSort(sorted, PRIORITY_ORDER);
+        prioritized.addAll(new SortedArrayView(sorted));
+    }
 
-        LocalDateTime start = isEpic ? null : entity.getStartTime();
-        Duration dur = isEpic ? null : entity.getDuration();
+    // пересчёт эпика без обновления статистики: трогает только сам эпик, можно из нескольких потоков
+    private void recalcEpicUnsafe(Epic e) {
+        e.setStatus(epicStatus(e));
+        recalcEpicTime(e.getId());
+    }
 
+    /** Восстанавливает запись общей истории из снимка; это не просмотр, счётчики горячих задач не растут. */
+    protected void restoreHistory(int id) {
+        Task t = findAny(id);
+        if (t != null) histories.defaultHistory().add(t);
+    }
 
-        if (start == null || dur == null || dur.isZero()) {
-            if (isSub) {
-                SubTask st = (SubTask) entity;
-                subTaskHashMap.put(st.getId(), st);
-                prioritized.add(st);
-                return;
-            } else if (isEpic) {
-                Epic e = (Epic) entity;
-                epicHashMap.put(e.getId(), e);
-                return;
-            } else {
+    // отсортированный массив как SortedSet: TreeSet.addAll строит дерево из него за линейное время
+    private static final class SortedArrayView extends AbstractSet<Task> implements SortedSet<Task> {
+        private final Task[] items;
 
-                taskHashMap.put(entity.getId(), entity);
-                prioritized.add(entity);
-                return;
-            }
+        SortedArrayView(Task[] items) {
+            this.items = items;
         }
 
-        try {
-            if (timeGridArray.tryReserve(start, dur)) {
+        @Override
+        public Iterator<Task> iterator() {
+            return Arrays.asList(items).iterator();
+        }
 
-                if (isSub) {
-                    SubTask st = (SubTask) entity;
+        @Override
+        public int size() {
+            return items.length;
+        }
 
-                    subTaskHashMap.put(st.getId(), st);
-                    prioritized.add(st);
-                } else {
+        @Override
+        public Comparator<? super Task> comparator() {
+            return PRIORITY_ORDER;
+        }
 
-                    taskHashMap.put(entity.getId(), entity);
-                    prioritized.add(entity);
-                }
+        @Override
+        public SortedSet<Task> subSet(Task fromElement, Task toElement) {
+            throw new UnsupportedOperationException();
+        }
 
-            }
+        @Override
+        public SortedSet<Task> headSet(Task toElement) {
+            throw new UnsupportedOperationException();
+        }
 
-        } catch (IllegalArgumentException ignored) {
+        @Override
+        public SortedSet<Task> tailSet(Task fromElement) {
+            throw new UnsupportedOperationException();
+        }
 
+        @Override
+        public Task first() {
+            if (items.length == 0) throw new NoSuchElementException();
+            return items[0];
+        }
+
+        @Override
+        public Task last() {
+            if (items.length == 0) throw new NoSuchElementException();
+            return items[items.length - 1];
         }
     }
 }
@@ -0,0 +1,108 @@
+package service;
+
+import java.util.Arrays;
+
+/**
+ * Отображение int -> int на открытой адресации с линейным пробированием, без упаковки ключей.
+ * Удаление сдвигает хвост кластера назад, поэтому надгробия не копятся.
+ */
+final class IntIntHashMap {
+    static final int MISSING = Integer.MIN_VALUE;
+    private static final int FREE = Integer.MIN_VALUE;
+
+    private int[] keys;
+    private int[] values;
+    private int mask;
+    private int size;
+
+    IntIntHashMap(int expected) {
+        int cap = Integer.highestOneBit(Math.max(4, expected * 2 - 1)) << 1;
+        keys = new int[cap];
+        values = new int[cap];
+        Arrays.fill(keys, FREE);
+        mask = cap - 1;
+    }
+
+    int size() {
+        return size;
+    }
+
+    int get(int key) {
+        checkKey(key);
+        for (int i = mix(key) & mask; ; i = (i + 1) & mask) {
+            int k = keys[i];
+            if (k == key) return values[i];
+            if (k == FREE) return MISSING;
+        }
+    }
+
+    boolean containsKey(int key) {
+        return get(key) != MISSING;
+    }
+
+    void put(int key, int value) {
+        checkKey(key);
+        int i = mix(key) & mask;
+        for (; keys[i] != FREE; i = (i + 1) & mask) {
+            if (keys[i] == key) {
+                values[i] = value;
+                return;
+            }
+        }
+        keys[i] = key;
+        values[i] = value;
+        if (++size * 2 > keys.length) rehash(keys.length << 1);
+    }
+
+    int remove(int key) {
+        checkKey(key);
+        int i = mix(key) & mask;
+        for (; keys[i] != key; i = (i + 1) & mask) {
+            if (keys[i] == FREE) return MISSING;
+        }
+        int old = values[i];
+        size--;
+        // сдвигаем назад элементы кластера, которые могли пробировать через освободившуюся ячейку
+        for (int j = (i + 1) & mask; keys[j] != FREE; j = (j + 1) & mask) {
+            int home = mix(keys[j]) & mask;
+            if (((j - home) & mask) >= ((j - i) & mask)) {
+                keys[i] = keys[j];
+                values[i] = values[j];
+                i = j;
+            }
+        }
+        keys[i] = FREE;
+        return old;
+    }
+
+    void clear() {
+        Arrays.fill(keys, FREE);
+        size = 0;
+    }
+
+    private void rehash(int cap) {
+        int[] oldKeys = keys;
+        int[] oldValues = values;
+        keys = new int[cap];
+        values = new int[cap];
+        Arrays.fill(keys, FREE);
+        mask = cap - 1;
+        for (int i = 0; i < oldKeys.length; i++) {
+            int k = oldKeys[i];
+            if (k == FREE) continue;
+            int j = mix(k) & mask;
+            while (keys[j] != FREE) j = (j + 1) & mask;
+            keys[j] = k;
+            values[j] = oldValues[i];
+        }
+    }
+
+    private static int mix(int key) {
+        int h = key * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    private static void checkKey(int key) {
+        if (key == FREE) throw new IllegalArgumentException("Ключ " + key + " зарезервирован");
+    }
+}
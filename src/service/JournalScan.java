@@ -0,0 +1,140 @@
+package service;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.zip.CRC32C;
+
+/**
+ * Записи журнала с контрольной суммой и последовательная проверка при восстановлении.
+ * <pre>
+ * запись: &lt;CRC32C байт записи, 8 hex&gt; TAB &lt;запись&gt; LF
+ * </pre>
+ * Строка без префикса суммы считается битой: журнал без сумм никогда не выходил. Проверка идёт
+ * одним проходом по файлу большими блоками: целая запись сразу передаётся потребителю, битая
+ * (не сошлась сумма) откладывается. Если после неё встретилась целая запись, диапазон попадает
+ * в отчёт как повреждённый; всё битое после последней целой записи, включая строку без перевода
+ * строки, — недописанный хвост, и файл обрезается по концу последней целой. Целая запись, которую
+ * потребитель не смог применить, повреждением не считается: она пропускается и считается отдельно.
+ */
+final class JournalScan {
+    static final int BLOCK_BYTES = 1 << 20;
+    private static final int CRC_CHARS = 8;
+    private static final byte[] HEX = "0123456789abcdef".getBytes(StandardCharsets.US_ASCII);
+
+    // исход проверки одной строки
+    private static final int APPLIED = 0;
+    private static final int REJECTED = 1;
+    private static final int CORRUPT = 2;
+
+    private JournalScan() {
+    }
+
+    static String checksummed(String record) {
+        byte[] bytes = record.getBytes(StandardCharsets.UTF_8);
+        CRC32C crc = new CRC32C();
+        crc.update(bytes, 0, bytes.length);
+        int v = (int) crc.getValue();
+        char[] prefix = new char[CRC_CHARS + 1];
+        for (int i = 0; i < CRC_CHARS; i++) prefix[i] = (char) HEX[(v >>> (28 - 4 * i)) & 0xF];
+        prefix[CRC_CHARS] = '\t';
+        return new String(prefix) + record;
+    }
+
+    /**
+     * Проверяет журнал, передаёт целые записи в {@code sink} (исключение из него означает
+     * неразборчивую запись) и обрезает недописанный хвост.
+     */
+    static RecoveryReport scan(Path journal, Consumer<String> sink) throws IOException {
+        long t0 = System.nanoTime();
+        try (FileChannel ch = FileChannel.open(journal, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            long size = ch.size();
+            ByteBuffer buf = ByteBuffer.allocate(BLOCK_BYTES);
+            byte[] a = buf.array();
+            CRC32C crc = new CRC32C();
+            List<RecoveryReport.Range> corrupted = new ArrayList<>();
+            long records = 0;
+            long rejected = 0;
+            long validEnd = 0;      // конец последней целой записи
+            long badFrom = -1;      // начало отложенного битого диапазона
+            long base = 0;          // смещение a[0] в файле
+            int start = 0;          // начало текущей строки в a
+            while (true) {
+                int n = ch.read(buf);
+                int limit = buf.position();
+                int from = limit - Math.max(n, 0);
+                for (int i = from; i < limit; i++) {
+                    if (a[i] != '\n') continue;
+                    long lineStart = base + start;
+                    int outcome = accept(a, start, i, crc, sink);
+                    if (outcome == CORRUPT) {
+                        if (badFrom < 0) badFrom = lineStart;
+                    } else {
+                        if (badFrom >= 0) {
+                            corrupted.add(new RecoveryReport.Range(badFrom, lineStart));
+                            badFrom = -1;
+                        }
+                        if (outcome == APPLIED) records++;
+                        else rejected++;
+                        validEnd = base + i + 1;
+                    }
+                    start = i + 1;
+                }
+                if (n < 0) break;
+                // недочитанная строка переезжает в начало буфера; длинная — в буфер побольше
+                int tail = limit - start;
+                if (tail == a.length) {
+                    ByteBuffer bigger = ByteBuffer.allocate(a.length * 2);
+                    bigger.put(a, 0, tail);
+                    buf = bigger;
+                    a = buf.array();
+                } else {
+                    System.arraycopy(a, start, a, 0, tail);
+                    buf.clear().position(tail);
+                }
+                base += start;
+                start = 0;
+            }
+            long truncated = size - validEnd;
+            if (truncated > 0) {
+                ch.truncate(validEnd);
+                ch.force(true);
+            }
+            return new RecoveryReport(records, rejected, validEnd, truncated, corrupted, System.nanoTime() - t0);
+        }
+    }
+
+    // строка a[from, to) без перевода строки. Битая — если нет префикса из 8 hex-цифр и табуляции
+    // или сумма не сошлась; целая запись, на которой потребитель бросил исключение, — REJECTED
+    private static int accept(byte[] a, int from, int to, CRC32C crc, Consumer<String> sink) {
+        if (to - from <= CRC_CHARS || a[from + CRC_CHARS] != '\t') return CORRUPT;
+        int expected = 0;
+        for (int i = from; i < from + CRC_CHARS; i++) {
+            int d = hexDigit(a[i]);
+            if (d < 0) return CORRUPT;
+            expected = expected << 4 | d;
+        }
+        int bodyFrom = from + CRC_CHARS + 1;
+        crc.reset();
+        crc.update(a, bodyFrom, to - bodyFrom);
+        if ((int) crc.getValue() != expected) return CORRUPT;
+        try {
+            sink.accept(new String(a, bodyFrom, to - bodyFrom, StandardCharsets.UTF_8));
+            return APPLIED;
+        } catch (RuntimeException e) {
+            return REJECTED;
+        }
+    }
+
+    private static int hexDigit(byte b) {
+        if (b >= '0' && b <= '9') return b - '0';
+        if (b >= 'a' && b <= 'f') return b - 'a' + 10;
+        return -1;
+    }
+}
@@ -0,0 +1,494 @@
+package service;
+
+import model.Epic;
+import model.Status;
+import model.SubTask;
+import model.Task;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.List;
+import java.util.OptionalInt;
+
+/**
+ * Файловый менеджер с журналом упреждающей записи.
+ * <p>
+ * Вместо перезаписи всего CSV каждая мутация дописывает одну короткую строку в журнал
+ * {@code <файл>.journal}, так что стоимость записи пропорциональна изменению, а не размеру
+ * хранилища. Каждые {@code snapshotEvery} записей снимается полный снимок в прежнем CSV-формате
+ * и журнал обнуляется. При старте загружается снимок и проигрывается хвост журнала.
+ * <p>
+ * Проигрывание идемпотентно: добавление уже существующего id пропускается, остальные записи
+ * задают состояние, а не приращение. Поэтому сбой между записью снимка и обнулением журнала
+ * безопасен — повторно проигранный журнал приводит к тому же состоянию.
+ * <p>
+ * Каждая запись несёт CRC32C (см. {@link JournalScan}). Недописанный хвост (сбой посреди записи)
+ * отрезается от файла, битые записи посреди журнала пропускаются; и то и другое видно
+ * в {@link #getRecoveryReport()}.
+ * <p>
+ * Журнал подчиняется тем же {@link StoreOptions}, что и файловое хранилище. При
+ * {@link Durability#SYNC} каждая запись сбрасывается на диск до возврата из мутации по
+ * {@link FsyncPolicy} (ALWAYS — fsync на запись, INTERVAL — не чаще интервала, остальное добивает
+ * фоновый поток). При {@link Durability#BOUNDED_LOSS} записи дописываются без fsync, а групповой
+ * сброс делает один fsync на всё накопленное. Снимок перед обнулением журнала сбрасывается
+ * всегда (кроме {@link FsyncPolicy#NEVER}): иначе сбой потерял бы и снимок, и журнал.
+ */
+public class JournaledTasksManager extends FileBackedTasksManager implements AutoCloseable {
+    static final int DEFAULT_SNAPSHOT_EVERY = 10_000;
+    private static final String NULL = "\\N";
+    private static final String NONE = "-";
+    private static final int NO_PIN = -1;
+
+    private final Path journal;
+    private final int snapshotEvery;
+    private FileChannel channel;
+    private int records;
+    private boolean replaying;
+    private int pinnedId = NO_PIN;
+    private List<Integer> journaledHistory = List.of(); // под this
+    private RecoveryReport recovery = new RecoveryReport(0, 0, 0, 0, List.of(), 0);
+
+    protected JournaledTasksManager(Path file, int snapshotEvery, StoreOptions options) {
+        // мутации журналируются сами; фоновый сброс дописывает изменившуюся историю и делает групповой fsync
+        super(file, options);
+        if (snapshotEvery <= 0) throw new IllegalArgumentException("snapshotEvery должен быть > 0");
+        this.journal = file.resolveSibling(file.getFileName() + ".journal");
+        this.snapshotEvery = snapshotEvery;
+    }
+
+    public static JournaledTasksManager open(Path file) {
+        return open(file, DEFAULT_SNAPSHOT_EVERY, StoreOptions.DEFAULT);
+    }
+
+    public static JournaledTasksManager open(Path file, int snapshotEvery) {
+        return open(file, snapshotEvery, StoreOptions.DEFAULT);
+    }
+
+    public static JournaledTasksManager open(Path file, int snapshotEvery, StoreOptions options) {
+        JournaledTasksManager manager = new JournaledTasksManager(file, snapshotEvery, options);
+        manager.replaying = true;
+        try {
+            deleteStaleTemps(file);
+            if (Files.exists(file)) manager.load();
+            manager.replay();
+        } finally {
+            manager.replaying = false;
+        }
+        manager.journaledHistory = manager.historyIds();
+        manager.openJournal();
+        return manager;
+    }
+
+    /** Итог проверки журнала при открытии: принятые записи, отрезанный хвост, битые диапазоны. */
+    public RecoveryReport getRecoveryReport() {
+        return recovery;
+    }
+
+    Path journalPath() {
+        return journal;
+    }
+
+    @Override
+    public int nextId() {
+        return pinnedId != NO_PIN ? pinnedId : super.nextId();
+    }
+
+    // полный CSV пишется только снимком. Мутации уже в журнале, а просмотры только помечают историю
+    // грязной (чтение не пишет на диск): групповой сброс дописывает её одной записью, если она изменилась,
+    // и при BOUNDED_LOSS одним fsync фиксирует всё дописанное с прошлого сброса
+    @Override
+    protected synchronized void save() {
+        if (replaying || channel == null) return;
+        List<Integer> ids = historyIds();
+        if (!ids.equals(journaledHistory)) {
+            StringBuilder sb = new StringBuilder("H");
+            for (int id : ids) sb.append('\t').append(id);
+            append(sb.toString());
+            journaledHistory = ids;
+        }
+        if (getOptions().getDurability() == Durability.BOUNDED_LOSS && shouldFsync()) forceUnsyncedNow();
+    }
+
+    @Override
+    protected void forceUnsynced() throws IOException {
+        if (channel != null) channel.force(false);
+    }
+
+    private List<Integer> historyIds() {
+        return getHistory().stream().map(Task::getId).toList();
+    }
+
+    /** Снимает полный снимок и обнуляет журнал. */
+    public synchronized void snapshot() {
+        boolean force = getOptions().getFsyncPolicy() != FsyncPolicy.NEVER;
+        writeSnapshot(force); // журнал удаляется следом: снимок должен дойти до диска раньше
+        journaledHistory = historyIds(); // история в снимке
+        closeJournal();
+        // журнал заменяется новым файлом, а не обрезается на месте: открытая копией версия остаётся целой
+        try {
+            Files.deleteIfExists(journal);
+        } catch (IOException e) {
+            throw new ManagerSaveException("Не удалось обнулить журнал " + journal, e);
+        }
+        openJournal();
+        if (force) AtomicFiles.forceDirectory(journal.toAbsolutePath().getParent()); // удаление и создание
+        records = 0;
+    }
+
+    // журнал только дописывается: копия берёт его префикс длиной на момент фиксации
+    @Override
+    protected void pinFiles(Path target, List<PinnedFile> pinned) throws IOException {
+        if (Files.exists(journal)) {
+            pin(journal, target.resolveSibling(target.getFileName() + ".journal"), pinned);
+        }
+        super.pinFiles(target, pinned);
+    }
+
+    @Override
+    public void close() {
+        super.close();
+        closeJournal();
+    }
+
+    @Override
+    public synchronized OptionalInt addTask(Task task) {
+        OptionalInt id = super.addTask(task);
+        if (id.isPresent()) append("A\t" + entity(task));
+        return id;
+    }
+
+    @Override
+    public synchronized OptionalInt addEpic(Epic epic) {
+        OptionalInt id = super.addEpic(epic);
+        if (id.isPresent()) append("A\t" + entity(epic));
+        return id;
+    }
+
+    @Override
+    public synchronized OptionalInt addSubTask(SubTask subTask) {
+        OptionalInt id = super.addSubTask(subTask);
+        if (id.isPresent()) append("A\t" + entity(subTask));
+        return id;
+    }
+
+    @Override
+    public synchronized boolean updateTask(int id, Task task) {
+        boolean result = super.updateTask(id, task);
+        if (result) append("U\t" + entity(withId(new Task(), task, id)));
+        return result;
+    }
+
+    @Override
+    public synchronized boolean updateEpic(int id, Epic epic) {
+        boolean result = super.updateEpic(id, epic);
+        if (result) append("U\t" + entity(withId(new Epic(), epic, id)));
+        return result;
+    }
+
+    @Override
+    public synchronized boolean updateSubTask(int id, SubTask subTask) {
+        boolean result = super.updateSubTask(id, subTask);
+        if (result) {
+            SubTask copy = withId(new SubTask(), subTask, id);
+            copy.setEpicId(subTask.getEpicId());
+            append("U\t" + entity(copy));
+        }
+        return result;
+    }
+
+    @Override
+    public synchronized void setTaskStatus(int id, Status status) {
+        super.setTaskStatus(id, status);
+        append("S\tTASK\t" + id + "\t" + status);
+    }
+
+    @Override
+    public synchronized void setSubTaskStatus(int id, Status status) {
+        super.setSubTaskStatus(id, status);
+        append("S\tSUBTASK\t" + id + "\t" + status);
+    }
+
+    @Override
+    public synchronized void deleteTask(int id) {
+        super.deleteTask(id);
+        append("D\tTASK\t" + id);
+    }
+
+    @Override
+    public synchronized void deleteEpic(int id) {
+        super.deleteEpic(id);
+        append("D\tEPIC\t" + id);
+    }
+
+    @Override
+    public synchronized void deleteSubtask(int id) {
+        super.deleteSubtask(id);
+        append("D\tSUBTASK\t" + id);
+    }
+
+    @Override
+    public synchronized void deleteAllTasks() {
+        super.deleteAllTasks();
+        append("C\tTASK");
+    }
+
+    @Override
+    public synchronized void deleteAllEpics() {
+        super.deleteAllEpics();
+        append("C\tEPIC");
+    }
+
+    @Override
+    public synchronized void deleteAllSubTasks() {
+        super.deleteAllSubTasks();
+        append("C\tSUBTASK");
+    }
+
+    // удаления архивации в журнал не пишутся: сразу снимок без архивированных строк
+    @Override
+    public synchronized int archiveCompleted(Duration age) {
+        int archived = super.archiveCompleted(age);
+        if (archived > 0) snapshot();
+        return archived;
+    }
+
+    @Override
+    public synchronized int[] addBatch(List<? extends Task> batch) {
+        int[] ids = super.addBatch(batch);
+        for (int i = 0; i < ids.length; i++) {
+            if (ids[i] >= 0) append("A\t" + entity(batch.get(i)));
+        }
+        return ids;
+    }
+
+    @Override
+    public synchronized int applySchedule(int[] ids, long[] starts, int n) {
+        int applied = super.applySchedule(ids, starts, n);
+        if (applied > 0) {
+            StringBuilder sb = new StringBuilder("P");
+            for (int i = 0; i < n; i++) sb.append('\t').append(ids[i]).append(':').append(starts[i]);
+            append(sb.toString());
+        }
+        return applied;
+    }
+
+    // под this вместе с изменением состояния: порядок журнала совпадает с порядком применения,
+    // а длина журнала, зафиксированная копией под this, — граница целых записей
+    private synchronized void append(String record) {
+        if (replaying) return;
+        try {
+            ByteBuffer line = ByteBuffer.wrap((JournalScan.checksummed(record) + '\n').getBytes(StandardCharsets.UTF_8));
+            while (line.hasRemaining()) channel.write(line);
+            if (getOptions().getDurability() == Durability.SYNC && shouldFsync()) channel.force(false);
+            else markUnsynced(); // групповой сброс, тик INTERVAL или close()
+        } catch (IOException e) {
+            throw new ManagerSaveException("Не удалось дописать журнал " + journal, e);
+        }
+        if (++records >= snapshotEvery) snapshot();
+    }
+
+    private void openJournal() {
+        try {
+            channel = FileChannel.open(journal, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.APPEND);
+        } catch (IOException e) {
+            throw new ManagerSaveException("Не удалось открыть журнал " + journal, e);
+        }
+    }
+
+    private void closeJournal() {
+        if (channel == null) return;
+        try {
+            channel.close();
+        } catch (IOException e) {
+            throw new ManagerSaveException("Не удалось закрыть журнал " + journal, e);
+        } finally {
+            channel = null;
+        }
+    }
+
+    // проверка сумм идёт тем же проходом, что и проигрывание; недописанный хвост отрезается,
+    // чтобы новые записи не склеились с ним
+    private void replay() {
+        if (!Files.exists(journal)) return;
+        try {
+            recovery = JournalScan.scan(journal, line -> apply(fields(line)));
+            records = (int) Math.min(recovery.getRecords() + recovery.getRejectedRecords(), Integer.MAX_VALUE);
+        } catch (IOException e) {
+            throw new ManagerSaveException("Не удалось прочитать журнал " + journal, e);
+        }
+    }
+
+    private void apply(String[] r) {
+        switch (r[0]) {
+            case "A" -> {
+                Task t = parseEntity(r);
+                if (hasTask(t.getId()) || hasEpic(t.getId()) || hasSubTask(t.getId())) return;
+                pinnedId = t.getId(); // добавление получает тот же id, что и до рестарта
+                try {
+                    if (t instanceof SubTask s) super.addSubTask(s);
+                    else if (t instanceof Epic e) super.addEpic(e);
+                    else super.addTask(t);
+                } finally {
+                    pinnedId = NO_PIN;
+                }
+                setCurrentId(t.getId());
+            }
+            case "U" -> {
+                Task t = parseEntity(r);
+                if (t instanceof SubTask s) super.updateSubTask(s.getId(), s);
+                else if (t instanceof Epic e) super.updateEpic(e.getId(), e);
+                else super.updateTask(t.getId(), t);
+            }
+            case "S" -> {
+                int id = Integer.parseInt(r[2]);
+                Status status = status(r[3]);
+                if ("TASK".equals(r[1]) && hasTask(id)) super.setTaskStatus(id, status);
+                else if ("SUBTASK".equals(r[1]) && hasSubTask(id)) super.setSubTaskStatus(id, status);
+            }
+            case "D" -> {
+                int id = Integer.parseInt(r[2]);
+                switch (r[1]) {
+                    case "TASK" -> super.deleteTask(id);
+                    case "EPIC" -> super.deleteEpic(id);
+                    case "SUBTASK" -> super.deleteSubtask(id);
+                    default -> throw new IllegalArgumentException("Неизвестный тип: " + r[1]);
+                }
+            }
+            case "C" -> {
+                switch (r[1]) {
+                    case "TASK" -> super.deleteAllTasks();
+                    case "EPIC" -> super.deleteAllEpics();
+                    case "SUBTASK" -> super.deleteAllSubTasks();
+                    default -> throw new IllegalArgumentException("Неизвестный тип: " + r[1]);
+                }
+            }
+            case "P" -> {
+                int n = r.length - 1;
+                int[] ids = new int[n];
+                long[] starts = new long[n];
+                for (int i = 0; i < n; i++) {
+                    int colon = r[i + 1].indexOf(':');
+                    ids[i] = Integer.parseInt(r[i + 1].substring(0, colon));
+                    starts[i] = Long.parseLong(r[i + 1].substring(colon + 1));
+                }
+                super.applySchedule(ids, starts, n);
+            }
+            case "H" -> { // общая история на момент сброса: просмотры по порядку, как восстановление из снимка
+                for (int i = 1; i < r.length; i++) restoreHistory(Integer.parseInt(r[i]));
+            }
+            default -> throw new IllegalArgumentException("Неизвестная запись: " + r[0]);
+        }
+    }
+
+    // тип, id, имя, описание, статус, старт (минуты), длительность (минуты), эпик
+    private static String entity(Task t) {
+        String type = t instanceof SubTask ? "SUBTASK" : t instanceof Epic ? "EPIC" : "TASK";
+        return type + '\t' + t.getId() + '\t' + escape(t.getName()) + '\t' + escape(t.getDescription())
+                + '\t' + t.getStatus()
+                + '\t' + (t.hasStartTime() ? Long.toString(t.getStartMinutes()) : NONE)
+                + '\t' + (t.hasDuration() ? Integer.toString(t.getDurationMinutes()) : NONE)
+                + '\t' + (t instanceof SubTask s ? Integer.toString(s.getEpicId()) : NONE);
+    }
+
+    private static Task parseEntity(String[] r) {
+        Task t = switch (r[1]) {
+            case "TASK" -> new Task();
+            case "EPIC" -> new Epic();
+            case "SUBTASK" -> new SubTask();
+            default -> throw new IllegalArgumentException("Неизвестный тип: " + r[1]);
+        };
+        t.setId(Integer.parseInt(r[2]));
+        t.setName(unescape(r[3]));
+        t.setDescription(unescape(r[4]));
+        t.setStatus(status(r[5]));
+        if (!NONE.equals(r[6])) t.setStartMinutes(Long.parseLong(r[6]));
+        if (!NONE.equals(r[7])) t.setDurationMinutes(Integer.parseInt(r[7]));
+        if (t instanceof SubTask s) s.setEpicId(Integer.parseInt(r[8]));
+        return t;
+    }
+
+    // split("\t", -1) без промежуточного списка: на проигрывании гигабайтного журнала это заметно
+    private static String[] fields(String line) {
+        int n = 1;
+        for (int i = line.indexOf('\t'); i >= 0; i = line.indexOf('\t', i + 1)) n++;
+        String[] r = new String[n];
+        int from = 0;
+        for (int k = 0; k < n - 1; k++) {
+            int tab = line.indexOf('\t', from);
+            r[k] = line.substring(from, tab);
+            from = tab + 1;
+        }
+        r[n - 1] = line.substring(from);
+        return r;
+    }
+
+    // Status.valueOf хеширует свежую строку на каждой записи; значений всего три
+    private static Status status(String s) {
+        return switch (s.length()) {
+            case 3 -> s.equals("NEW") ? Status.NEW : Status.valueOf(s);
+            case 4 -> s.equals("DONE") ? Status.DONE : Status.valueOf(s);
+            case 11 -> s.equals("IN_PROGRESS") ? Status.IN_PROGRESS : Status.valueOf(s);
+            default -> Status.valueOf(s);
+        };
+    }
+
+    private static <T extends Task> T withId(T copy, Task source, int id) {
+        copy.setId(id);
+        copy.setName(source.getName());
+        copy.setDescription(source.getDescription());
+        copy.setStatus(source.getStatus());
+        copy.setStartMinutes(source.getStartMinutes());
+        copy.setDurationMinutes(source.getDurationMinutes());
+        return copy;
+    }
+
+    private static String escape(String s) {
+        if (s == null) return NULL;
+        StringBuilder sb = null;
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            String rep = switch (c) {
+                case '\\' -> "\\\\";
+                case '\t' -> "\\t";
+                case '\n' -> "\\n";
+                case '\r' -> "\\r";
+                default -> null;
+            };
+            if (rep == null) {
+                if (sb != null) sb.append(c);
+                continue;
+            }
+            if (sb == null) sb = new StringBuilder(s.length() + 8).append(s, 0, i);
+            sb.append(rep);
+        }
+        return sb == null ? s : sb.toString();
+    }
+
+    private static String unescape(String s) {
+        if (NULL.equals(s)) return null;
+        if (s.indexOf('\\') < 0) return s;
+        StringBuilder sb = new StringBuilder(s.length());
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c != '\\' || i + 1 == s.length()) {
+                sb.append(c);
+                continue;
+            }
+            char n = s.charAt(++i);
+            sb.append(switch (n) {
+                case 't' -> '\t';
+                case 'n' -> '\n';
+                case 'r' -> '\r';
+                default -> n;
+            });
+        }
+        return sb.toString();
+    }
+}
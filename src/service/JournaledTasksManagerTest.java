@@ -0,0 +1,226 @@
+package service;
+
+import model.Status;
+import model.Task;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Comparator;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JournaledTasksManagerTest extends TaskManagerTest<JournaledTasksManager> {
+
+    @TempDir
+    Path tmpDir;
+
+    @Override
+    protected JournaledTasksManager createManager() {
+        return JournaledTasksManager.open(tmpDir.resolve("test.csv"));
+    }
+
+    @Test
+    void stateSurvivesRestartFromJournalAlone() throws IOException {
+        Path file = tmpDir.resolve("restart.csv");
+        int taskId;
+        int subId;
+        int epicId;
+        try (JournaledTasksManager m = JournaledTasksManager.open(file)) {
+            taskId = m.addTask(mkTaskAt("T\tс табом", LocalDateTime.now().withDayOfYear(20).withHour(10)
+                    .withMinute(0).withSecond(0).withNano(0), Duration.ofMinutes(30))).getAsInt();
+            int doomed = m.addTask(mkTask("удалится")).getAsInt();
+            epicId = m.addEpic(mkEpic("E")).getAsInt();
+            subId = m.addSubTask(mkSub("S", epicId)).getAsInt();
+            m.setSubTaskStatus(subId, Status.DONE);
+            m.deleteTask(doomed);
+            m.getTask(taskId);
+        }
+        assertFalse(Files.exists(file), "снимок ещё не снимался");
+
+        try (JournaledTasksManager m = JournaledTasksManager.open(file)) {
+            Task t = m.getTask(taskId);
+            assertEquals("T\tс табом", t.getName());
+            assertEquals(30, t.getDurationMinutes());
+            assertEquals(1, m.getAllTasks().size());
+            assertEquals(Status.DONE, m.getEpic(epicId).getStatus());
+            assertEquals(List.of(subId), m.getEpic(epicId).getSubTaskIds());
+            assertEquals(1, m.getPrioritizedTasks().stream().filter(x -> x.getId() == taskId).count());
+            int next = m.addTask(mkTask("новая")).getAsInt();
+            assertTrue(next > subId, "id не переиспользуются после рестарта");
+        }
+    }
+
+    @Test
+    void snapshotCompactsJournalAndReplayIsIdempotent() throws IOException {
+        Path file = tmpDir.resolve("compact.csv");
+        JournaledTasksManager m = JournaledTasksManager.open(file, 4);
+        for (int i = 0; i < 10; i++) m.addTask(mkTask("T" + i));
+        m.deleteTask(9);
+        m.close();
+        assertTrue(Files.exists(file));
+        assertEquals(3, Files.readAllLines(m.journalPath()).size());
+
+        // сбой после снимка, но до обнуления: журнал проигрывается поверх снимка ещё раз
+        List<String> tail = Files.readAllLines(m.journalPath());
+        Files.write(m.journalPath(), List.of("A\tTASK\t0\tT0\t\\N\tNEW\t-\t-\t-"), StandardOpenOption.APPEND);
+        Files.write(m.journalPath(), tail, StandardOpenOption.APPEND);
+        Files.writeString(m.journalPath(), "A\tTASK\t9", StandardOpenOption.APPEND); // недописанная строка
+
+        try (JournaledTasksManager reopened = JournaledTasksManager.open(file, 4)) {
+            assertEquals(9, reopened.getAllTasks().size());
+            assertNull(reopened.getTask(9));
+        }
+    }
+
+    @Test
+    void readsDoNotTouchJournalAndHistoryIsJournaledOnFlush() throws IOException {
+        Path file = tmpDir.resolve("views.csv");
+        int a;
+        int b;
+        try (JournaledTasksManager m = JournaledTasksManager.open(file)) {
+            a = m.addTask(mkTask("A")).getAsInt();
+            b = m.addTask(mkTask("B")).getAsInt();
+            for (int i = 0; i < 50; i++) {
+                m.getTask(a);
+                m.getTask(b);
+            }
+            // фоновый сброс мог успеть раз, но не по записи на чтение
+            assertTrue(Files.readAllLines(m.journalPath()).size() <= 3, "чтение не пишет журнал");
+            m.flush();
+            assertEquals(3, Files.readAllLines(m.journalPath()).size(), "история — одна запись на сброс");
+            m.flush();
+            assertEquals(3, Files.readAllLines(m.journalPath()).size(), "неизменная история не дописывается");
+        }
+        try (JournaledTasksManager m = JournaledTasksManager.open(file)) {
+            assertEquals(List.of(a, b), m.getHistory().stream().map(Task::getId).toList());
+        }
+    }
+
+    @Test
+    void journalFollowsDurabilityAndFsyncPolicy() {
+        Path file = tmpDir.resolve("durable.csv");
+        try (JournaledTasksManager m = JournaledTasksManager.open(file)) {
+            m.addTask(mkTask("A"));
+            assertFalse(m.hasUnsyncedSnapshot(), "SYNC + ALWAYS: запись сброшена до возврата");
+        }
+        StoreOptions group = StoreOptions.DEFAULT.withDurability(Durability.BOUNDED_LOSS).withFlush(60_000, 1_000);
+        try (JournaledTasksManager m = JournaledTasksManager.open(file, 100, group)) {
+            m.addTask(mkTask("B"));
+            m.addTask(mkTask("C"));
+            assertTrue(m.hasUnsyncedSnapshot(), "BOUNDED_LOSS: записи ждут группового сброса");
+            m.flush();
+            assertFalse(m.hasUnsyncedSnapshot(), "один fsync на всю пачку");
+        }
+        try (JournaledTasksManager m = JournaledTasksManager.open(file)) {
+            assertEquals(3, m.getAllTasks().size());
+        }
+    }
+
+    @Test
+    void concurrentWritersKeepJournalInApplyOrder() throws InterruptedException {
+        Path file = tmpDir.resolve("concurrent.csv");
+        List<Status> expected;
+        try (JournaledTasksManager m = JournaledTasksManager.open(file)) {
+            Thread[] writers = new Thread[4];
+            for (int w = 0; w < writers.length; w++) {
+                writers[w] = new Thread(() -> {
+                    for (int i = 0; i < 200; i++) {
+                        int id = m.addTask(mkTask("T" + i)).getAsInt();
+                        m.setTaskStatus(id, i % 2 == 0 ? Status.DONE : Status.IN_PROGRESS);
+                    }
+                });
+                writers[w].start();
+            }
+            for (Thread t : writers) t.join();
+            expected = m.getAllTasks().stream().sorted(Comparator.comparingInt(Task::getId)).map(Task::getStatus).toList();
+        }
+        try (JournaledTasksManager m = JournaledTasksManager.open(file)) {
+            assertTrue(m.getRecoveryReport().isClean());
+            assertEquals(expected, m.getAllTasks().stream().sorted(Comparator.comparingInt(Task::getId))
+                    .map(Task::getStatus).toList());
+        }
+    }
+
+    @Test
+    void backupCopiesSnapshotAndJournalPrefix() {
+        Path file = tmpDir.resolve("live.csv");
+        Path copy = tmpDir.resolve("copy.csv");
+        try (JournaledTasksManager m = JournaledTasksManager.open(file, 3)) {
+            for (int i = 0; i < 4; i++) m.addTask(mkTask("T" + i)); // снимок после третьей, одна в журнале
+            m.backup(copy);
+            m.addTask(mkTask("после копии"));
+            m.addTask(mkTask("и снимок"));
+        }
+        try (JournaledTasksManager m = JournaledTasksManager.open(copy)) {
+            assertEquals(4, m.getAllTasks().size());
+        }
+    }
+
+    @Test
+    void recoveryScanTruncatesTornTailAndReportsCorruptRecords() throws IOException {
+        Path file = tmpDir.resolve("torn.csv");
+        try (JournaledTasksManager m = JournaledTasksManager.open(file)) {
+            for (int i = 0; i < 3; i++) m.addTask(mkTask("T" + i));
+        }
+        Path journal = file.resolveSibling("torn.csv.journal");
+        List<String> lines = Files.readAllLines(journal);
+        long secondFrom = lines.get(0).length() + 1;
+        long secondTo = secondFrom + lines.get(1).length() + 1;
+        byte[] bytes = Files.readAllBytes(journal);
+        bytes[(int) secondFrom + 20] ^= 1; // бит сгнил во второй записи
+        Files.write(journal, bytes);
+        Files.writeString(journal, lines.get(2).substring(0, 15), StandardOpenOption.APPEND); // оборванная запись
+
+        try (JournaledTasksManager m = JournaledTasksManager.open(file)) {
+            RecoveryReport report = m.getRecoveryReport();
+            assertEquals(2, report.getRecords());
+            assertEquals(15, report.getTruncatedBytes());
+            assertEquals(1, report.getCorruptedRanges().size());
+            assertEquals(secondFrom, report.getCorruptedRanges().get(0).getFrom());
+            assertEquals(secondTo, report.getCorruptedRanges().get(0).getTo());
+            assertEquals(bytes.length, Files.size(journal), "хвост отрезан до дописывания");
+            assertEquals(List.of("T0", "T2"), m.getAllTasks().stream().map(Task::getName).sorted().toList());
+            m.addTask(mkTask("после восстановления"));
+        }
+        try (JournaledTasksManager m = JournaledTasksManager.open(file)) {
+            assertEquals(3, m.getAllTasks().size());
+            assertEquals(0, m.getRecoveryReport().getTruncatedBytes());
+        }
+    }
+
+    @Test
+    void lineWithoutChecksumIsCorruptAndUnappliableRecordIsCountedApart() throws IOException {
+        Path file = tmpDir.resolve("nosum.csv");
+        Path journal = file.resolveSibling("nosum.csv.journal");
+        String first = JournalScan.checksummed("A\tTASK\t1\tодин\t\\N\tNEW\t-\t-\t-") + "\n";
+        // девятый байт — табуляция, как у записи с суммой, но суммы нет
+        String unsummed = "S\tTASK\t1\tDONE\n";
+        String text = first
+                + unsummed
+                + JournalScan.checksummed("A\tTASK\t3\tтри\t\\N\tNEW\t-\t-\t-") + "\n"
+                + JournalScan.checksummed("S\tTASK\tx\tDONE") + "\n"; // сумма верна, применить нельзя
+        Files.writeString(journal, text);
+
+        try (JournaledTasksManager m = JournaledTasksManager.open(file)) {
+            RecoveryReport report = m.getRecoveryReport();
+            assertEquals(2, report.getRecords());
+            assertEquals(1, report.getRejectedRecords());
+            assertEquals(0, report.getTruncatedBytes());
+            int from = first.getBytes(StandardCharsets.UTF_8).length;
+            assertEquals(1, report.getCorruptedRanges().size());
+            assertEquals(from, report.getCorruptedRanges().get(0).getFrom());
+            assertEquals(from + unsummed.length(), report.getCorruptedRanges().get(0).getTo());
+            assertEquals(Files.size(journal), text.getBytes(StandardCharsets.UTF_8).length);
+            assertEquals(Status.NEW, m.getTask(1).getStatus(), "строка без суммы не проиграна");
+            assertEquals("три", m.getTask(3).getName());
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package service;
+
+import server.KVTaskClient;
+
+/**
+ * Выдаёт id из диапазонов, арендованных у KV-хранилища атомарным инкрементом счётчика.
+ * Внутри диапазона id раздаются локально, поэтому несколько процессов на одном KVServer
+ * не пересекаются, а к хранилищу ходим раз в {@code blockSize} выдач.
+ */
+public class KVBlockIdAllocator implements IdAllocator {
+    public static final int DEFAULT_BLOCK_SIZE = 10_000;
+
+    private final KVTaskClient kv;
+    private final String key;
+    private final int blockSize;
+    private int next;
+    private int limit;
+
+    public KVBlockIdAllocator(KVTaskClient kv, String key, int blockSize) {
+        if (blockSize <= 0) throw new IllegalArgumentException("blockSize должен быть > 0");
+        this.kv = kv;
+        this.key = key;
+        this.blockSize = blockSize;
+    }
+
+    @Override
+    public synchronized int nextId() {
+        if (next == limit) lease();
+        return next++;
+    }
+
+    @Override
+    public synchronized void advancePast(int id) {
+        long current = kv.increment(key, 0);
+        if (current <= id) {
+            kv.increment(key, id + 1L - current);
+        }
+        if (next <= id) {
+            next = limit = 0; // текущий блок устарел, следующий nextId арендует новый
+        }
+    }
+
+    private void lease() {
+        long hi = kv.increment(key, blockSize);
+        if (hi > Integer.MAX_VALUE) throw new IllegalStateException("Счётчик id переполнен: " + hi);
+        next = (int) (hi - blockSize);
+        limit = (int) hi;
+    }
+}
@@ -0,0 +1,98 @@
+package service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import server.KVServer;
+import server.KVTaskClient;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class KVBlockIdAllocatorTest {
+    private static final URI KV = URI.create("http://localhost:" + KVServer.PORT);
+
+    private KVServer server;
+    private KVTaskClient kv;
+
+    @BeforeEach
+    void startServer() throws IOException {
+        server = new KVServer();
+        server.start();
+        kv = new KVTaskClient(KV, true);
+    }
+
+    @AfterEach
+    void stopServer() {
+        server.stop();
+    }
+
+    @Test
+    void blockRollsOverToNextLease() {
+        KVBlockIdAllocator ids = new KVBlockIdAllocator(kv, "ids", 3);
+        List<Integer> issued = new ArrayList<>();
+        for (int i = 0; i < 7; i++) issued.add(ids.nextId());
+        assertEquals(List.of(0, 1, 2, 3, 4, 5, 6), issued);
+        assertEquals(9, kv.increment("ids", 0), "третий блок арендован целиком");
+    }
+
+    @Test
+    void advancePastMovesCounterAndDropsStaleBlock() {
+        KVBlockIdAllocator ids = new KVBlockIdAllocator(kv, "ids", 100);
+        assertEquals(0, ids.nextId());
+        ids.advancePast(250); // загружен id из чужого блока
+        assertEquals(251, kv.increment("ids", 0));
+        assertEquals(251, ids.nextId());
+
+        ids.advancePast(10); // уже позади: ничего не меняется
+        assertEquals(252, ids.nextId());
+        assertEquals(351, kv.increment("ids", 0));
+    }
+
+    @Test
+    void allocatorsSharingServerNeverIssueSameId() throws InterruptedException {
+        KVBlockIdAllocator a = new KVBlockIdAllocator(new KVTaskClient(KV, true), "shared", 7);
+        KVBlockIdAllocator b = new KVBlockIdAllocator(new KVTaskClient(KV, true), "shared", 7);
+        List<Integer> issued = Collections.synchronizedList(new ArrayList<>());
+        Thread[] threads = new Thread[4];
+        for (int t = 0; t < threads.length; t++) {
+            KVBlockIdAllocator ids = t % 2 == 0 ? a : b;
+            threads[t] = new Thread(() -> {
+                for (int i = 0; i < 200; i++) issued.add(ids.nextId());
+            });
+            threads[t].start();
+        }
+        for (Thread t : threads) t.join();
+        Set<Integer> unique = new HashSet<>(issued);
+        assertEquals(800, unique.size());
+    }
+
+    @Test
+    void incrementEndpointIsAtomicCounter() throws IOException, InterruptedException {
+        assertEquals(5, kv.increment("c", 5), "отсутствующий счётчик начинается с нуля");
+        assertEquals(2, kv.increment("c", -3));
+        assertEquals("2", kv.get("c"));
+
+        kv.put("text", "\"не число\"");
+        assertThrows(RuntimeException.class, () -> kv.increment("text", 1), "409 на не-счётчике");
+
+        HttpClient http = HttpClient.newHttpClient();
+        assertEquals(400, http.send(HttpRequest.newBuilder(URI.create(KV + "/incr/c?API_TOKEN=DEBUG&delta=x"))
+                .POST(HttpRequest.BodyPublishers.noBody()).build(), HttpResponse.BodyHandlers.discarding()).statusCode());
+        assertEquals(405, http.send(HttpRequest.newBuilder(URI.create(KV + "/incr/c?API_TOKEN=DEBUG&delta=1"))
+                .GET().build(), HttpResponse.BodyHandlers.discarding()).statusCode());
+        assertEquals(403, http.send(HttpRequest.newBuilder(URI.create(KV + "/incr/c?delta=1"))
+                .POST(HttpRequest.BodyPublishers.noBody()).build(), HttpResponse.BodyHandlers.discarding()).statusCode());
+        assertEquals(2, kv.increment("c", 0), "отвергнутые запросы счётчик не трогают");
+    }
+}
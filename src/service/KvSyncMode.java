@@ -0,0 +1,12 @@
+package service;
+
+/**
+ * Раскладка {@link HTTPTaskManager} по ключам KV-хранилища. Загрузка читает любую раскладку,
+ * поэтому смена настройки не требует конвертации: следующий сброс запишет новую и уберёт старую.
+ */
+public enum KvSyncMode {
+    // четыре ключа целиком (tasks, epics, subtasks, history) на каждый сброс
+    FULL,
+    // ключ на сущность (task/{id}, epic/{id}, subtask/{id}) и манифест id; сброс шлёт только изменённое
+    DELTA
+}
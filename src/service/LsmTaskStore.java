@@ -0,0 +1,655 @@
+package service;
+
+import model.Epic;
+import model.Status;
+import model.SubTask;
+import model.Task;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.zip.CRC32C;
+
+/**
+ * Встроенный лог-структурированный движок для {@link TaskStore}.
+ * <p>
+ * Записи попадают в журнал {@code wal.log} и в мемтаблицу (отсортированную по id). Когда
+ * мемтаблица вырастает до {@code memtableBytes}, она сбрасывается в неизменяемый сегмент
+ * {@code seg-<n>.sst}, а журнал обнуляется. Сегменты накапливаются, и как только их становится
+ * {@code compactAt}, фоновый поток сливает все в один (он же выполняет {@link #compact()}). Чтение по id идёт от мемтаблицы к сегментам,
+ * от новых к старым; в сегменте — через разреженный индекс в памяти (каждая
+ * {@link #INDEX_EVERY}-я запись) и одно позиционное чтение окна.
+ * <pre>
+ * сегмент: записи по возрастанию id: id, длина (-1 — удалено), байты сущности
+ *          разреженный индекс: (id, смещение) каждой INDEX_EVERY-й записи
+ *          хвост (28 байт): смещение индекса, число точек индекса, число записей,
+ *                           покрывает сегменты начиная с номера, magic
+ * журнал:  CRC32C, длина тела, тело (id, длина, байты сущности)
+ * </pre>
+ * Слияние всегда берёт все сегменты от самого старого, поэтому удаления в результате не нужны
+ * и отбрасываются. Результат записывается под номером самого нового входа и помечает, с какого
+ * номера он всё покрывает: если сбой случился после переименования, но до удаления входов,
+ * при открытии лишние старые сегменты узнаются и удаляются, а не воскрешают удалённое.
+ * <p>
+ * Журнал пишется без fsync на каждую запись: после сбоя теряется хвост, как при
+ * {@link FsyncPolicy#NEVER}. {@link #snapshot()} сбрасывает мемтаблицу в сегмент с fsync.
+ */
+public final class LsmTaskStore implements TaskStore {
+    static final int DEFAULT_MEMTABLE_BYTES = 4 << 20;
+    static final int DEFAULT_COMPACT_AT = 4;
+    static final int INDEX_EVERY = 64;
+    private static final int FOOTER_BYTES = 28;
+    private static final int MAGIC = 0x4D534C54; // "TLSM" в little-endian
+    private static final int TOMBSTONE_LEN = -1;
+    private static final byte[] TOMBSTONE = new byte[0];
+    private static final byte TASK = 0;
+    private static final byte EPIC = 1;
+    private static final byte SUBTASK = 2;
+    private static final Status[] STATUSES = Status.values();
+    private static final Comparator<Segment> NEWEST_FIRST = (a, b) -> Long.compare(b.seq, a.seq);
+
+    private final Path dir;
+    private final int memtableBytes;
+    private final int compactAt;
+    private final ExecutorService compactor = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "lsm-compactor");
+        t.setDaemon(true);
+        return t;
+    });
+    private TreeMap<Integer, byte[]> memtable = new TreeMap<>();
+    private long memtableSize;
+    private List<Segment> segments = new ArrayList<>(); // от новых к старым
+    private long nextSeq;
+    private FileChannel wal;
+    private Future<?> compaction;
+    private boolean closed;
+
+    private LsmTaskStore(Path dir, int memtableBytes, int compactAt) {
+        if (memtableBytes <= 0) throw new IllegalArgumentException("Размер мемтаблицы должен быть > 0");
+        if (compactAt < 2) throw new IllegalArgumentException("Слияние возможно от двух сегментов");
+        this.dir = dir;
+        this.memtableBytes = memtableBytes;
+        this.compactAt = compactAt;
+    }
+
+    public static LsmTaskStore open(Path dir) {
+        return open(dir, DEFAULT_MEMTABLE_BYTES, DEFAULT_COMPACT_AT);
+    }
+
+    public static LsmTaskStore open(Path dir, int memtableBytes, int compactAt) {
+        LsmTaskStore store = new LsmTaskStore(dir, memtableBytes, compactAt);
+        try {
+            Files.createDirectories(dir);
+            store.openSegments();
+            store.replayWal();
+        } catch (IOException e) {
+            throw new ManagerSaveException("Не удалось открыть хранилище " + dir, e);
+        }
+        return store;
+    }
+
+    @Override
+    public synchronized void put(Task task) {
+        write(task.getId(), encode(task));
+    }
+
+    @Override
+    public synchronized void delete(int id) {
+        write(id, TOMBSTONE);
+    }
+
+    @Override
+    public synchronized Task get(int id) {
+        byte[] v = memtable.get(id);
+        if (v == null) {
+            try {
+                for (Segment s : segments) {
+                    v = s.find(id);
+                    if (v != null) break;
+                }
+            } catch (IOException e) {
+                throw new ManagerSaveException("Не удалось прочитать сегмент хранилища " + dir, e);
+            }
+        }
+        return v == null || v == TOMBSTONE ? null : decode(id, v);
+    }
+
+    // k-путевое слияние мемтаблицы и сегментов: из одинаковых id побеждает самый новый источник
+    @Override
+    public synchronized void scan(Consumer<Task> consumer) {
+        PriorityQueue<Cursor> queue = new PriorityQueue<>();
+        try {
+            int rank = 0;
+            Cursor mem = new MemCursor(memtable, rank++);
+            if (mem.advance()) queue.add(mem);
+            for (Segment s : segments) {
+                Cursor c = new SegmentCursor(s, rank++);
+                if (c.advance()) queue.add(c);
+                else c.close();
+            }
+            while (!queue.isEmpty()) {
+                Cursor top = queue.poll();
+                int id = top.id;
+                byte[] value = top.value;
+                if (top.advance()) queue.add(top);
+                else top.close();
+                while (!queue.isEmpty() && queue.peek().id == id) {
+                    Cursor same = queue.poll();
+                    if (same.advance()) queue.add(same);
+                    else same.close();
+                }
+                if (value != TOMBSTONE) consumer.accept(decode(id, value));
+            }
+        } catch (IOException e) {
+            throw new ManagerSaveException("Не удалось прочитать хранилище " + dir, e);
+        } finally {
+            for (Cursor c : queue) c.close();
+        }
+    }
+
+    @Override
+    public synchronized void snapshot() {
+        try {
+            flushMemtable();
+        } catch (IOException e) {
+            throw new ManagerSaveException("Не удалось сбросить мемтаблицу " + dir, e);
+        }
+    }
+
+    /**
+     * Сливает все сегменты сейчас и ждёт результата. Слияние идёт в том же потоке, что и
+     * фоновое: два слияния одних и тех же сегментов не пересекаются.
+     */
+    public void compact() {
+        Future<?> done;
+        synchronized (this) {
+            if (closed || compactor.isShutdown()) throw new IllegalStateException("Хранилище закрыто: " + dir);
+            done = compactor.submit(() -> {
+                compactOnce();
+                return null;
+            });
+        }
+        try {
+            done.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            throw new ManagerSaveException("Не удалось слить сегменты " + dir, e.getCause());
+        }
+    }
+
+    synchronized int segmentCount() {
+        return segments.size();
+    }
+
+    @Override
+    public void close() {
+        synchronized (this) {
+            if (closed) return;
+            compactor.shutdown(); // под this: compact() и write() не ставят задач после него
+        }
+        try { // дожидаемся и фонового слияния, и поставленного compact()
+            compactor.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        synchronized (this) {
+            try {
+                flushMemtable();
+                wal.close();
+                for (Segment s : segments) s.channel.close();
+            } catch (IOException e) {
+                throw new ManagerSaveException("Не удалось закрыть хранилище " + dir, e);
+            } finally {
+                closed = true;
+            }
+        }
+    }
+
+    private void write(int id, byte[] value) {
+        if (closed) throw new IllegalStateException("Хранилище закрыто: " + dir);
+        try {
+            appendWal(id, value);
+            byte[] old = memtable.put(id, value);
+            memtableSize += value.length + 16 - (old == null ? 0 : old.length + 16);
+            if (memtableSize >= memtableBytes) {
+                flushMemtable();
+                if (segments.size() >= compactAt && (compaction == null || compaction.isDone())
+                        && !compactor.isShutdown()) {
+                    compaction = compactor.submit(() -> {
+                        try {
+                            compactOnce();
+                        } catch (IOException e) {
+                            // сегменты остаются как были: повторим после следующего сброса
+                        }
+                    });
+                }
+            }
+        } catch (IOException e) {
+            throw new ManagerSaveException("Не удалось записать в хранилище " + dir, e);
+        }
+    }
+
+    private void appendWal(int id, byte[] value) throws IOException {
+        int len = value == TOMBSTONE ? TOMBSTONE_LEN : value.length;
+        ByteBuffer body = ByteBuffer.allocate(16 + Math.max(len, 0));
+        body.putInt(0).putInt(8 + Math.max(len, 0)).putInt(id).putInt(len);
+        if (len > 0) body.put(value);
+        CRC32C crc = new CRC32C();
+        crc.update(body.array(), 8, body.capacity() - 8);
+        body.putInt(0, (int) crc.getValue());
+        body.flip();
+        while (body.hasRemaining()) wal.write(body);
+    }
+
+    private void replayWal() throws IOException {
+        wal = FileChannel.open(dir.resolve("wal.log"), StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        long size = wal.size();
+        long pos = 0;
+        ByteBuffer head = ByteBuffer.allocate(8);
+        CRC32C crc = new CRC32C();
+        while (pos + 8 <= size) {
+            head.clear();
+            if (readFully(wal, head, pos) < 8) break;
+            int bodyLen = head.getInt(4);
+            if (bodyLen < 8 || pos + 8 + bodyLen > size) break;
+            ByteBuffer body = ByteBuffer.allocate(bodyLen);
+            readFully(wal, body, pos + 8);
+            crc.reset();
+            crc.update(body.array(), 0, bodyLen);
+            if ((int) crc.getValue() != head.getInt(0)) break;
+            int id = body.getInt(0);
+            int len = body.getInt(4);
+            byte[] value = len == TOMBSTONE_LEN ? TOMBSTONE : Arrays.copyOfRange(body.array(), 8, 8 + len);
+            byte[] old = memtable.put(id, value);
+            memtableSize += value.length + 16 - (old == null ? 0 : old.length + 16);
+            pos += 8 + bodyLen;
+        }
+        wal.truncate(pos); // недописанный хвост
+        wal.position(pos);
+    }
+
+    private void flushMemtable() throws IOException {
+        if (memtable.isEmpty()) return;
+        long seq = nextSeq++;
+        Path path = segmentPath(seq);
+        writeSegment(path, seq, memtable.entrySet(), true);
+        segments.add(0, Segment.open(path, seq));
+        memtable = new TreeMap<>();
+        memtableSize = 0;
+        wal.truncate(0);
+        wal.position(0);
+        wal.force(true);
+    }
+
+    private void compactOnce() throws IOException {
+        List<Segment> inputs;
+        synchronized (this) {
+            if (segments.size() < 2) return;
+            inputs = new ArrayList<>(segments);
+        }
+        Segment newest = inputs.get(0);
+        long coversFrom = inputs.get(inputs.size() - 1).seq;
+        Path tmp = dir.resolve("seg-" + newest.seq + ".sst.tmp");
+        List<Cursor> cursors = new ArrayList<>();
+        try {
+            for (int i = 0; i < inputs.size(); i++) cursors.add(new SegmentCursor(inputs.get(i), i));
+            writeMerged(tmp, coversFrom, cursors);
+        } finally {
+            for (Cursor c : cursors) c.close();
+        }
+        synchronized (this) {
+            try {
+                Files.move(tmp, newest.path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(tmp, newest.path, StandardCopyOption.REPLACE_EXISTING);
+            }
+            AtomicFiles.forceDirectory(dir);
+            List<Segment> next = new ArrayList<>(segments.subList(0, segments.size() - inputs.size()));
+            next.add(Segment.open(newest.path, newest.seq));
+            for (Segment s : inputs) {
+                s.channel.close();
+                if (s != newest) Files.deleteIfExists(s.path);
+            }
+            segments = next;
+        }
+    }
+
+    private void writeMerged(Path tmp, long coversFrom, List<Cursor> cursors) throws IOException {
+        PriorityQueue<Cursor> queue = new PriorityQueue<>();
+        for (Cursor c : cursors) {
+            if (c.advance()) queue.add(c);
+        }
+        try (FileChannel ch = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            SegmentWriter w = new SegmentWriter(ch, coversFrom);
+            while (!queue.isEmpty()) {
+                Cursor top = queue.poll();
+                int id = top.id;
+                byte[] value = top.value;
+                if (top.advance()) queue.add(top);
+                while (!queue.isEmpty() && queue.peek().id == id) {
+                    Cursor same = queue.poll();
+                    if (same.advance()) queue.add(same);
+                }
+                if (value != TOMBSTONE) w.add(id, value); // старше входов ничего нет
+            }
+            w.finish();
+            ch.force(true);
+        }
+    }
+
+    private void writeSegment(Path path, long coversFrom, Iterable<Map.Entry<Integer, byte[]>> rows, boolean force)
+            throws IOException {
+        AtomicFiles.write(path, ch -> {
+            SegmentWriter w = new SegmentWriter(ch, coversFrom);
+            for (Map.Entry<Integer, byte[]> e : rows) w.add(e.getKey(), e.getValue());
+            w.finish();
+        }, force);
+    }
+
+    private void openSegments() throws IOException {
+        List<Segment> found = new ArrayList<>();
+        try (var files = Files.list(dir)) {
+            for (Path p : files.toList()) {
+                String name = p.getFileName().toString();
+                if (name.endsWith(".tmp")) {
+                    Files.delete(p); // недописанный результат слияния или сброса memtable
+                } else if (name.startsWith("seg-") && name.endsWith(".sst")) {
+                    found.add(Segment.open(p, Long.parseLong(name.substring(4, name.length() - 4))));
+                }
+            }
+        }
+        found.sort(NEWEST_FIRST);
+        long coveredFrom = Long.MAX_VALUE;
+        for (Segment s : found) {
+            if (s.seq >= coveredFrom) { // вход слияния, пережившее сбой: всё его содержимое есть в результате
+                s.channel.close();
+                Files.delete(s.path);
+                continue;
+            }
+            segments.add(s);
+            coveredFrom = Math.min(coveredFrom, s.coversFrom);
+        }
+        nextSeq = segments.isEmpty() ? 0 : segments.get(0).seq + 1;
+    }
+
+    private Path segmentPath(long seq) {
+        return dir.resolve("seg-" + seq + ".sst");
+    }
+
+
+    private static int readFully(FileChannel ch, ByteBuffer buf, long pos) throws IOException {
+        while (buf.hasRemaining()) {
+            int n = ch.read(buf, pos + buf.position());
+            if (n < 0) break;
+        }
+        return buf.position();
+    }
+
+    // тип, статус, старт (минуты), длительность (минуты), эпик, имя, описание
+    static byte[] encode(Task t) {
+        byte[] name = t.getName() == null ? null : t.getName().getBytes(StandardCharsets.UTF_8);
+        byte[] desc = t.getDescription() == null ? null : t.getDescription().getBytes(StandardCharsets.UTF_8);
+        ByteBuffer b = ByteBuffer.allocate(26 + (name == null ? 0 : name.length) + (desc == null ? 0 : desc.length));
+        b.put(t instanceof SubTask ? SUBTASK : t instanceof Epic ? EPIC : TASK);
+        b.put((byte) (t.getStatus() == null ? -1 : t.getStatus().ordinal()));
+        b.putLong(t.getStartMinutes()).putInt(t.getDurationMinutes());
+        b.putInt(t instanceof SubTask s ? s.getEpicId() : -1);
+        putString(b, name);
+        putString(b, desc);
+        return b.array();
+    }
+
+    static Task decode(int id, byte[] v) {
+        ByteBuffer b = ByteBuffer.wrap(v);
+        byte type = b.get();
+        Task t = switch (type) {
+            case EPIC -> new Epic();
+            case SUBTASK -> new SubTask();
+            default -> new Task();
+        };
+        t.setId(id);
+        byte status = b.get();
+        t.setStatus(status < 0 ? null : STATUSES[status]);
+        t.setStartMinutes(b.getLong());
+        t.setDurationMinutes(b.getInt());
+        int epicId = b.getInt();
+        if (t instanceof SubTask s) s.setEpicId(epicId);
+        if (t instanceof Epic e) e.setSubTaskIds(new ArrayList<>());
+        t.setName(getString(b));
+        t.setDescription(getString(b));
+        return t;
+    }
+
+    private static void putString(ByteBuffer b, byte[] s) {
+        b.putInt(s == null ? -1 : s.length);
+        if (s != null) b.put(s);
+    }
+
+    private static String getString(ByteBuffer b) {
+        int len = b.getInt();
+        if (len < 0) return null;
+        String s = new String(b.array(), b.position(), len, StandardCharsets.UTF_8);
+        b.position(b.position() + len);
+        return s;
+    }
+
+    /** Неизменяемый сегмент: разреженный индекс в памяти, данные читаются позиционно. */
+    private static final class Segment {
+        final Path path;
+        final long seq;
+        final FileChannel channel;
+        long coversFrom;
+        long dataEnd;
+        int[] indexIds;
+        long[] indexOffsets;
+
+        private Segment(Path path, long seq, FileChannel channel) {
+            this.path = path;
+            this.seq = seq;
+            this.channel = channel;
+        }
+
+        static Segment open(Path path, long seq) throws IOException {
+            FileChannel ch = FileChannel.open(path, StandardOpenOption.READ);
+            Segment s = new Segment(path, seq, ch);
+            try {
+                long size = ch.size();
+                ByteBuffer footer = ByteBuffer.allocate(FOOTER_BYTES);
+                if (size < FOOTER_BYTES || readFully(ch, footer, size - FOOTER_BYTES) < FOOTER_BYTES
+                        || footer.getInt(24) != MAGIC) {
+                    throw new ManagerSaveException("Повреждён сегмент хранилища " + path);
+                }
+                s.dataEnd = footer.getLong(0);
+                int points = footer.getInt(8);
+                s.coversFrom = footer.getLong(16);
+                ByteBuffer index = ByteBuffer.allocate(points * 12);
+                readFully(ch, index, s.dataEnd);
+                s.indexIds = new int[points];
+                s.indexOffsets = new long[points];
+                for (int i = 0; i < points; i++) {
+                    s.indexIds[i] = index.getInt(i * 12);
+                    s.indexOffsets[i] = index.getLong(i * 12 + 4);
+                }
+            } catch (IOException | RuntimeException e) {
+                ch.close();
+                throw e;
+            }
+            return s;
+        }
+
+        // байты сущности, TOMBSTONE или null, если id в сегменте нет
+        byte[] find(int id) throws IOException {
+            int i = Arrays.binarySearch(indexIds, id);
+            if (i < 0) i = -i - 2; // последняя точка индекса с id не больше искомого
+            if (i < 0) return null;
+            long from = indexOffsets[i];
+            long to = i + 1 < indexOffsets.length ? indexOffsets[i + 1] : dataEnd;
+            ByteBuffer window = ByteBuffer.allocate((int) (to - from));
+            readFully(channel, window, from);
+            window.flip();
+            while (window.remaining() >= 8) {
+                int rowId = window.getInt();
+                int len = window.getInt();
+                if (rowId == id) {
+                    if (len == TOMBSTONE_LEN) return TOMBSTONE;
+                    byte[] v = new byte[len];
+                    window.get(v);
+                    return v;
+                }
+                if (rowId > id) return null;
+                if (len > 0) window.position(window.position() + len);
+            }
+            return null;
+        }
+    }
+
+    private static final class SegmentWriter {
+        private final DataOutputStream out;
+        private final List<long[]> index = new ArrayList<>();
+        private final long coversFrom;
+        private long offset;
+        private int rows;
+
+        SegmentWriter(FileChannel ch, long coversFrom) {
+            this.out = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(ch), 1 << 16));
+            this.coversFrom = coversFrom;
+        }
+
+        void add(int id, byte[] value) throws IOException {
+            if (rows++ % INDEX_EVERY == 0) index.add(new long[]{id, offset});
+            out.writeInt(id);
+            if (value == TOMBSTONE) {
+                out.writeInt(TOMBSTONE_LEN);
+                offset += 8;
+            } else {
+                out.writeInt(value.length);
+                out.write(value);
+                offset += 8 + value.length;
+            }
+        }
+
+        void finish() throws IOException {
+            for (long[] p : index) {
+                out.writeInt((int) p[0]);
+                out.writeLong(p[1]);
+            }
+            out.writeLong(offset);
+            out.writeInt(index.size());
+            out.writeInt(rows);
+            out.writeLong(coversFrom);
+            out.writeInt(MAGIC);
+            out.flush(); // канал закрывает вызывающий
+        }
+    }
+
+    /** Источник для слияния: текущая пара (id, значение) и сдвиг к следующей. */
+    private abstract static class Cursor implements Comparable<Cursor> {
+        final int rank; // меньше — новее
+        int id;
+        byte[] value;
+
+        Cursor(int rank) {
+            this.rank = rank;
+        }
+
+        abstract boolean advance() throws IOException;
+
+        void close() {
+        }
+
+        @Override
+        public int compareTo(Cursor o) {
+            int c = Integer.compare(id, o.id);
+            return c != 0 ? c : Integer.compare(rank, o.rank);
+        }
+    }
+
+    private static final class MemCursor extends Cursor {
+        private final java.util.Iterator<Map.Entry<Integer, byte[]>> it;
+
+        MemCursor(TreeMap<Integer, byte[]> memtable, int rank) {
+            super(rank);
+            this.it = memtable.entrySet().iterator();
+        }
+
+        @Override
+        boolean advance() {
+            if (!it.hasNext()) return false;
+            Map.Entry<Integer, byte[]> e = it.next();
+            id = e.getKey();
+            value = e.getValue();
+            return true;
+        }
+    }
+
+    // последовательное чтение сегмента своим каналом: слиянию не мешают чтения по id
+    private static final class SegmentCursor extends Cursor {
+        private final FileChannel channel;
+        private final DataInputStream in;
+        private long remaining;
+
+        SegmentCursor(Segment s, int rank) throws IOException {
+            super(rank);
+            this.channel = FileChannel.open(s.path, StandardOpenOption.READ);
+            this.in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel), 1 << 16));
+            this.remaining = s.dataEnd;
+        }
+
+        @Override
+        boolean advance() throws IOException {
+            if (remaining <= 0) return false;
+            try {
+                id = in.readInt();
+                int len = in.readInt();
+                if (len == TOMBSTONE_LEN) {
+                    value = TOMBSTONE;
+                    remaining -= 8;
+                } else {
+                    value = new byte[len];
+                    in.readFully(value);
+                    remaining -= 8 + len;
+                }
+            } catch (EOFException e) {
+                throw new ManagerSaveException("Сегмент короче своего индекса", e);
+            }
+            return true;
+        }
+
+        @Override
+        void close() {
+            try {
+                channel.close();
+            } catch (IOException ignored) {
+                // только чтение
+            }
+        }
+    }
+}
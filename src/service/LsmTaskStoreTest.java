@@ -0,0 +1,100 @@
+package service;
+
+import model.Epic;
+import model.Status;
+import model.SubTask;
+import model.Task;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LsmTaskStoreTest {
+
+    @TempDir
+    Path tmpDir;
+
+    @Test
+    void flushesCompactsAndReopensWithNewestVersionWinning() throws IOException {
+        Path dir = tmpDir.resolve("lsm");
+        try (LsmTaskStore store = LsmTaskStore.open(dir, 4 * 1024, 3)) {
+            for (int round = 0; round < 4; round++) {
+                for (int id = 0; id < 200; id++) {
+                    store.put(new Task(id, "t" + id + " r" + round, "описание " + round));
+                }
+                store.snapshot();
+            }
+            for (int id = 0; id < 200; id += 2) store.delete(id);
+            store.compact();
+            assertEquals(1, store.segmentCount());
+            assertNull(store.get(10));
+            assertEquals("t11 r3", store.get(11).getName());
+        }
+        // недописанная запись журнала отрезается при открытии
+        Files.write(dir.resolve("wal.log"), new byte[]{1, 2, 3}, StandardOpenOption.APPEND);
+        try (LsmTaskStore store = LsmTaskStore.open(dir, 4 * 1024, 3)) {
+            List<Integer> ids = new ArrayList<>();
+            store.scan(t -> ids.add(t.getId()));
+            assertEquals(100, ids.size());
+            for (int i = 0; i < ids.size(); i++) assertEquals(2 * i + 1, ids.get(i));
+            assertEquals("описание 3", store.get(199).getDescription());
+        }
+    }
+
+    @Test
+    void explicitCompactionDoesNotRaceBackgroundOne() throws InterruptedException {
+        Path dir = tmpDir.resolve("race");
+        try (LsmTaskStore store = LsmTaskStore.open(dir, 1024, 2)) {
+            Thread writer = new Thread(() -> {
+                for (int id = 0; id < 3_000; id++) store.put(new Task(id, "t" + id, null)); // фоновые слияния
+            });
+            writer.start();
+            while (writer.isAlive()) store.compact();
+            writer.join();
+            store.compact();
+            assertEquals(1, store.segmentCount());
+            for (int id = 0; id < 3_000; id += 97) assertEquals("t" + id, store.get(id).getName());
+        }
+        try (LsmTaskStore store = LsmTaskStore.open(dir, 1024, 2)) {
+            int[] count = {0};
+            store.scan(t -> count[0]++);
+            assertEquals(3_000, count[0]);
+        }
+    }
+
+    @Test
+    void managerWritesThroughAndLoadsBack() {
+        Path dir = tmpDir.resolve("manager");
+        int taskId;
+        int epicId;
+        int subId;
+        try (LsmTaskStore store = LsmTaskStore.open(dir)) {
+            InMemoryTaskManager m = new InMemoryTaskManager(store);
+            taskId = m.addTask(new Task(0, "задача", "описание")).getAsInt();
+            int doomed = m.addTask(new Task(0, "удалится", null)).getAsInt();
+            epicId = m.addEpic(new Epic(0, "эпик", "", Status.NEW, null, null)).getAsInt();
+            subId = m.addSubTask(new SubTask(0, "подзадача", "", Status.NEW, null, null, epicId)).getAsInt();
+            m.setSubTaskStatus(subId, Status.DONE);
+            m.deleteTask(doomed);
+        }
+        try (LsmTaskStore store = LsmTaskStore.open(dir)) {
+            InMemoryTaskManager m = InMemoryTaskManager.load(store);
+            assertEquals(1, m.getAllTasks().size());
+            assertEquals("описание", m.getTask(taskId).getDescription());
+            assertEquals(Status.DONE, m.getEpic(epicId).getStatus());
+            assertEquals(List.of(subId), m.getEpic(epicId).getSubTaskIds());
+            int next = m.addTask(new Task(0, "новая", null)).getAsInt();
+            assertTrue(next > subId);
+            m.deleteEpic(epicId);
+            assertNull(store.get(subId));
+            assertNotNull(store.get(next));
+        }
+    }
+}
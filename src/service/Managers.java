@@ -15,11 +15,21 @@ public class Managers {
         return new InMemoryTaskManager();
     }
     public static HistoryManager getDefaultHistory() {
-        return new InMemoryHistoryManager();
+        return new BufferedHistoryManager(new InMemoryHistoryManager());
     }
-    public static TaskManager getDefaultFileManager(Path path) {
+    public static HistoryManager getDefaultHistory(int capacity) {
+        return new BufferedHistoryManager(new InMemoryHistoryManager(capacity));
+    }
+    public static SessionHistoryManager getDefaultSessionHistory() {
+        return new SessionHistoryManager(Managers::getDefaultHistory, SessionHistoryManager.DEFAULT_MAX_SESSIONS);
+    }
+    public static FileBackedTasksManager getDefaultFileManager(Path path) {
         return FileBackedTasksManager.loadFromFile(path);
-    } public static TaskManager getDefaultHTTPManager(URI kvUri) {
+    }
+    public static JournaledTasksManager getJournaledFileManager(Path path) {
+        return JournaledTasksManager.open(path);
+    }
+    public static HTTPTaskManager getDefaultHTTPManager(URI kvUri) {
         return HTTPTaskManager.load(kvUri);
     }
 }
@@ -0,0 +1,51 @@
+package service;
+
+import model.TextSource;
+
+import java.lang.ref.SoftReference;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Тексты из отображённого в память двоичного снимка. Ссылка — (смещение в файле << 32) | длина
+ * в байтах UTF-8. Прочитанные строки держатся в ограниченном LRU-кэше мягких ссылок: горячие
+ * описания не декодируются повторно, а под давлением памяти сборщик может их отпустить.
+ * <p>
+ * Отображение живёт, пока живы задачи, ссылающиеся на источник: после атомарной замены файла
+ * снимком старое содержимое остаётся читаемым, а место на диске освобождается вместе с ним.
+ */
+final class MappedTextSource implements TextSource {
+    static final int DEFAULT_CACHE_ENTRIES = 1_024;
+
+    private final ByteBuffer map;
+    private final Map<Long, SoftReference<String>> cache;
+
+    MappedTextSource(ByteBuffer map, int cacheEntries) {
+        this.map = map;
+        this.cache = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, SoftReference<String>> eldest) {
+                return size() > cacheEntries;
+            }
+        };
+    }
+
+    static long ref(int offset, int length) {
+        return (long) offset << 32 | length & 0xFFFF_FFFFL;
+    }
+
+    @Override
+    public synchronized String text(long ref) {
+        SoftReference<String> cached = cache.get(ref);
+        String s = cached == null ? null : cached.get();
+        if (s == null) {
+            byte[] bytes = new byte[(int) ref];
+            map.get((int) (ref >>> 32), bytes);
+            s = new String(bytes, StandardCharsets.UTF_8);
+            cache.put(ref, new SoftReference<>(s));
+        }
+        return s;
+    }
+}
@@ -0,0 +1,91 @@
+package service;
+
+import java.util.List;
+
+// итог проверки журнала при старте: сколько записей принято, что отрезано и что повреждено
+public class RecoveryReport {
+    private final long records;
+    private final long rejected;
+    private final long validBytes;
+    private final long truncatedBytes;
+    private final List<Range> corrupted;
+    private final long scanNanos;
+
+    public RecoveryReport(long records, long rejected, long validBytes, long truncatedBytes, List<Range> corrupted, long scanNanos) {
+        this.records = records;
+        this.rejected = rejected;
+        this.validBytes = validBytes;
+        this.truncatedBytes = truncatedBytes;
+        this.corrupted = List.copyOf(corrupted);
+        this.scanNanos = scanNanos;
+    }
+
+    // записи, прошедшие проверку и применённые
+    public long getRecords() {
+        return records;
+    }
+
+    // записи с верной суммой, которые не удалось применить (например, неизвестный тип): пропущены,
+    // но повреждением не считаются
+    public long getRejectedRecords() {
+        return rejected;
+    }
+
+    // длина журнала после отрезания недописанного хвоста
+    public long getValidBytes() {
+        return validBytes;
+    }
+
+    // недописанный или битый хвост после последней целой записи — отрезан
+    public long getTruncatedBytes() {
+        return truncatedBytes;
+    }
+
+    // битые записи посреди журнала: пропущены, за ними шли целые
+    public List<Range> getCorruptedRanges() {
+        return corrupted;
+    }
+
+    public long getScanNanos() {
+        return scanNanos;
+    }
+
+    public boolean isClean() {
+        return truncatedBytes == 0 && corrupted.isEmpty();
+    }
+
+    @Override
+    public String toString() {
+        return "RecoveryReport{" +
+                "records=" + records +
+                ", rejected=" + rejected +
+                ", validBytes=" + validBytes +
+                ", truncatedBytes=" + truncatedBytes +
+                ", corrupted=" + corrupted +
+                '}';
+    }
+
+    // полуинтервал байтовых смещений [from, to) в файле журнала
+    public static class Range {
+        private final long from;
+        private final long to;
+
+        public Range(long from, long to) {
+            this.from = from;
+            this.to = to;
+        }
+
+        public long getFrom() {
+            return from;
+        }
+
+        public long getTo() {
+            return to;
+        }
+
+        @Override
+        public String toString() {
+            return "[" + from + ", " + to + ")";
+        }
+    }
+}
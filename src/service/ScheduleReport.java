@@ -0,0 +1,67 @@
+package service;
+
+public class ScheduleReport {
+    private final int candidates;
+    private final int placed;
+    private final int conflicts;
+    private final int unplaced;
+    private final int skipped;
+    private final long planMillis;
+    private final long applyMillis;
+
+    public ScheduleReport(int candidates, int placed, int conflicts, int unplaced, int skipped,
+                          long planMillis, long applyMillis) {
+        this.candidates = candidates;
+        this.placed = placed;
+        this.conflicts = conflicts;
+        this.unplaced = unplaced;
+        this.skipped = skipped;
+        this.planMillis = planMillis;
+        this.applyMillis = applyMillis;
+    }
+
+    // задачи без времени, но с длительностью, попавшие в раскладку
+    public int getCandidates() {
+        return candidates;
+    }
+
+    public int getPlaced() {
+        return placed;
+    }
+
+    // размещения, которые не удалось применить: сетку или задачу изменили во время расчёта
+    public int getConflicts() {
+        return conflicts;
+    }
+
+    // не нашлось свободного промежутка нужной длины
+    public int getUnplaced() {
+        return unplaced;
+    }
+
+    // задачи без длительности не планируются
+    public int getSkipped() {
+        return skipped;
+    }
+
+    public long getPlanMillis() {
+        return planMillis;
+    }
+
+    public long getApplyMillis() {
+        return applyMillis;
+    }
+
+    @Override
+    public String toString() {
+        return "ScheduleReport{" +
+                "candidates=" + candidates +
+                ", placed=" + placed +
+                ", conflicts=" + conflicts +
+                ", unplaced=" + unplaced +
+                ", skipped=" + skipped +
+                ", planMillis=" + planMillis +
+                ", applyMillis=" + applyMillis +
+                '}';
+    }
+}
@@ -0,0 +1,222 @@
+package service;
+
+import model.Epic;
+import model.SubTask;
+import model.Task;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * Сегментированное хранилище: задачи лежат в файлах по диапазонам id фиксированной ширины,
+ * у каждого сегмента свой бит «грязный». Сброс переписывает только затронутые сегменты
+ * (каждый — маленький, возможно сжатый CSV-снимок своего диапазона) и манифест, так что
+ * объём записи ограничен размером сегмента, а не хранилища.
+ * <pre>
+ * манифест:  segments,1,&lt;ширина сегмента&gt;
+ *            номера сегментов через запятую
+ *            история (id через запятую)
+ * сегмент k: &lt;файл&gt;.seg&lt;k&gt; — id из [k * ширина, (k + 1) * ширина)
+ * </pre>
+ * Каждый файл заменяется атомарно, манифест — после всех непустых сегментов, опустевшие сегменты
+ * удаляются только после манифеста. Сброс атомарен по сегментам, но не в целом: при сбое
+ * посередине часть сегментов может оказаться новее манифеста — например, эпик уже удалён из своего
+ * сегмента, а его подзадачи ещё лежат в чужом. Поэтому загрузка терпит такие состояния:
+ * отсутствующий сегмент пропускается, подзадачи без эпика отбрасываются, а их сегменты
+ * помечаются грязными и переписываются при следующем сбросе.
+ */
+final class SegmentedStore {
+    static final int DEFAULT_SEGMENT_SIZE = 1_024;
+    private static final String SIGNATURE = "segments,";
+    private static final int VERSION = 1;
+
+    private final Path manifest;
+    private final int segmentSize;
+    private final BitSet onDisk = new BitSet();
+    private final BitSet dirty = new BitSet();
+    private final BitSet unforced = new BitSet(); // сегменты, записанные без fsync
+    private boolean allDirty = true; // первый сброс пишет всё
+
+    SegmentedStore(Path manifest, int segmentSize) {
+        if (segmentSize <= 0) throw new IllegalArgumentException("Ширина сегмента должна быть > 0");
+        this.manifest = manifest;
+        this.segmentSize = segmentSize;
+    }
+
+    static boolean isManifest(Path file) throws IOException {
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer head = ByteBuffer.allocate(SIGNATURE.length());
+            while (head.hasRemaining() && ch.read(head) >= 0) {
+                // читаем, пока не наберём сигнатуру или не кончится файл
+            }
+            return !head.hasRemaining() && new String(head.array(), StandardCharsets.US_ASCII).equals(SIGNATURE);
+        }
+    }
+
+    /** Открывает существующий манифест и загружает все его сегменты в менеджер. */
+    static SegmentedStore read(Path manifest, FileBackedTasksManager manager, ForkJoinPool pool) throws IOException {
+        List<String> lines = Files.readAllLines(manifest, StandardCharsets.UTF_8);
+        String[] head = lines.get(0).split(",");
+        if (!head[1].equals(String.valueOf(VERSION))) {
+            throw new ManagerSaveException("Неизвестная версия манифеста " + head[1] + ": " + manifest);
+        }
+        SegmentedStore store = new SegmentedStore(manifest, Integer.parseInt(head[2]));
+        int[] segments = lines.size() > 1 ? CsvLoader.parseIds(lines.get(1).getBytes(StandardCharsets.US_ASCII)) : new int[0];
+        int[] history = lines.size() > 2 ? CsvLoader.parseIds(lines.get(2).getBytes(StandardCharsets.US_ASCII)) : new int[0];
+
+        // сегменты разбираются параллельно, применяются одной пачкой: подзадача и её эпик
+        // могут лежать в разных сегментах
+        List<ForkJoinTask<CsvLoader.Snapshot>> parsed = new ArrayList<>(segments.length);
+        for (int k : segments) {
+            Path segment = store.segmentPath(k);
+            if (!Files.exists(segment)) continue; // сбой между удалением и манифестом прежней версии
+            parsed.add(pool.submit(() -> CsvLoader.read(segment, pool, CsvLoader.MIN_CHUNK_BYTES)));
+            store.onDisk.set(k);
+        }
+        List<Task> tasks = new ArrayList<>();
+        List<Epic> epics = new ArrayList<>();
+        List<SubTask> subTasks = new ArrayList<>();
+        int maxId = -1;
+        for (ForkJoinTask<CsvLoader.Snapshot> f : parsed) {
+            CsvLoader.Snapshot s = f.join();
+            tasks.addAll(s.tasks());
+            epics.addAll(s.epics());
+            subTasks.addAll(s.subTasks());
+            maxId = Math.max(maxId, s.maxId());
+        }
+        Set<Integer> epicIds = new HashSet<>();
+        for (Epic e : epics) epicIds.add(e.getId());
+        List<SubTask> linked = new ArrayList<>(subTasks.size());
+        for (SubTask s : subTasks) {
+            if (epicIds.contains(s.getEpicId())) linked.add(s);
+            else store.markDirty(s.getId()); // эпик удалён сбросом, не дошедшим до этого сегмента
+        }
+        manager.restoreAll(tasks, epics, linked);
+        manager.setCurrentId(maxId);
+        for (int id : history) manager.restoreHistory(id);
+        store.allDirty = false;
+        return store;
+    }
+
+    void markDirty(int id) {
+        if (id >= 0) dirty.set(id / segmentSize);
+    }
+
+    void markAllDirty() {
+        allDirty = true;
+    }
+
+    /** Переписывает грязные сегменты (пустые удаляет) и манифест. */
+    void write(FileBackedTasksManager manager, List<Task> history, ByteBuffer buf, Compression compression,
+               boolean force) throws IOException {
+        TreeMap<Integer, List<Task>> bySegment = new TreeMap<>();
+        if (allDirty) {
+            dirty.or(onDisk);
+            for (Task t : manager.getAllTasks()) add(bySegment, t);
+            for (Task t : manager.getAllEpics()) add(bySegment, t);
+            for (Task t : manager.getAllSubTasks()) add(bySegment, t);
+        } else {
+            for (int k = dirty.nextSetBit(0); k >= 0; k = dirty.nextSetBit(k + 1)) {
+                long end = Math.min((long) (k + 1) * segmentSize, Integer.MAX_VALUE);
+                for (int id = k * segmentSize; id < end; id++) {
+                    Task t = manager.findAny(id);
+                    if (t != null) add(bySegment, t);
+                }
+            }
+        }
+        for (int k : bySegment.keySet()) dirty.set(k);
+
+        List<Integer> emptied = new ArrayList<>();
+        for (int k = dirty.nextSetBit(0); k >= 0; k = dirty.nextSetBit(k + 1)) {
+            List<Task> rows = bySegment.get(k);
+            if (rows == null) {
+                emptied.add(k);
+                onDisk.clear(k);
+                continue;
+            }
+            List<Task> tasks = new ArrayList<>();
+            List<Epic> epics = new ArrayList<>();
+            List<SubTask> subTasks = new ArrayList<>();
+            for (Task t : rows) {
+                if (t instanceof SubTask s) subTasks.add(s);
+                else if (t instanceof Epic e) epics.add(e);
+                else tasks.add(t);
+            }
+            AtomicFiles.write(segmentPath(k),
+                    ch -> CsvWriter.write(ch, buf, compression, tasks, epics, subTasks, List.of()), force);
+            onDisk.set(k);
+            if (force) unforced.clear(k);
+            else unforced.set(k);
+        }
+        AtomicFiles.write(manifest, ByteBuffer.wrap(manifestBytes(history)), force);
+        // удаляем только после манифеста: прежний манифест мог ссылаться на эти файлы
+        for (int k : emptied) Files.deleteIfExists(segmentPath(k));
+        dirty.clear();
+        allDirty = false;
+    }
+
+    /** fsync сегментов, записанных без него, и манифеста. */
+    void force() throws IOException {
+        unforced.and(onDisk);
+        for (int k = unforced.nextSetBit(0); k >= 0; k = unforced.nextSetBit(k + 1)) {
+            AtomicFiles.force(segmentPath(k));
+        }
+        AtomicFiles.force(manifest);
+        unforced.clear();
+    }
+
+    /** Удаляет файлы сегментов: хранилище переходит на другой формат снимка. */
+    void deleteSegments() throws IOException {
+        for (int k = onDisk.nextSetBit(0); k >= 0; k = onDisk.nextSetBit(k + 1)) {
+            Files.deleteIfExists(segmentPath(k));
+        }
+        onDisk.clear();
+    }
+
+    Path segmentPath(int k) {
+        return segmentPath(manifest, k);
+    }
+
+    static Path segmentPath(Path manifest, int k) {
+        return manifest.resolveSibling(manifest.getFileName() + ".seg" + k);
+    }
+
+    int[] segmentsOnDisk() {
+        return onDisk.stream().toArray();
+    }
+
+    int segmentSize() {
+        return segmentSize;
+    }
+
+    private void add(TreeMap<Integer, List<Task>> bySegment, Task t) {
+        bySegment.computeIfAbsent(t.getId() / segmentSize, k -> new ArrayList<>()).add(t);
+    }
+
+    private byte[] manifestBytes(List<Task> history) {
+        StringBuilder sb = new StringBuilder(SIGNATURE).append(VERSION).append(',').append(segmentSize).append('\n');
+        for (int k = onDisk.nextSetBit(0), n = 0; k >= 0; k = onDisk.nextSetBit(k + 1), n++) {
+            if (n > 0) sb.append(',');
+            sb.append(k);
+        }
+        sb.append('\n');
+        for (int i = 0; i < history.size(); i++) {
+            if (i > 0) sb.append(',');
+            sb.append(history.get(i).getId());
+        }
+        return sb.toString().getBytes(StandardCharsets.US_ASCII);
+    }
+}
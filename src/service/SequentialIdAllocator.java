@@ -0,0 +1,15 @@
+package service;
+
+class SequentialIdAllocator implements IdAllocator {
+    private int id = 0;
+
+    @Override
+    public int nextId() {
+        return id++;
+    }
+
+    @Override
+    public void advancePast(int oldId) {
+        id = Math.max(id, oldId + 1);
+    }
+}
@@ -0,0 +1,84 @@
+package service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * Истории просмотров по пользователям: у каждого своя ограниченная LRU-история.
+ * <p>
+ * Общая память ограничена числом сессий: когда их становится больше {@code maxSessions}
+ * с запасом, самые давно не активные сессии вытесняются пачкой. История пользователя
+ * по умолчанию (запросы без идентификатора, она же сохраняется в файл) не вытесняется никогда.
+ */
+public class SessionHistoryManager {
+    public static final String DEFAULT_USER = "";
+    static final int DEFAULT_MAX_SESSIONS = 10_000;
+
+    private final Supplier<HistoryManager> factory;
+    private final int maxSessions;
+    private final int evictionSlack;
+    private final HistoryManager defaultHistory;
+    private final Map<String, Session> sessions = new ConcurrentHashMap<>();
+    private final ReentrantLock evictionLock = new ReentrantLock();
+
+    public SessionHistoryManager(Supplier<HistoryManager> factory, int maxSessions) {
+        if (maxSessions <= 0) throw new IllegalArgumentException("maxSessions должен быть > 0");
+        this.factory = factory;
+        this.maxSessions = maxSessions;
+        this.evictionSlack = Math.max(16, maxSessions / 10);
+        this.defaultHistory = factory.get();
+    }
+
+    public HistoryManager forUser(String user) {
+        if (user == null || user.isEmpty()) return defaultHistory;
+        Session s = sessions.get(user);
+        if (s == null) {
+            s = sessions.computeIfAbsent(user, u -> new Session(factory.get()));
+            if (sessions.size() > maxSessions + evictionSlack) evictIdle();
+        }
+        s.lastAccess = System.nanoTime();
+        return s.history;
+    }
+
+    public HistoryManager defaultHistory() {
+        return defaultHistory;
+    }
+
+    public int sessionCount() {
+        return sessions.size();
+    }
+
+    private void evictIdle() {
+        if (!evictionLock.tryLock()) return; // вытесняет кто-то другой
+        try {
+            int excess = sessions.size() - maxSessions;
+            if (excess <= 0) return;
+            // метки снимаются один раз: сортировка по меняющимся полям нарушила бы контракт компаратора;
+            // nanoTime сравнивается разностью, а не по значению — оно может переполниться
+            List<Map.Entry<String, Long>> entries = new ArrayList<>(sessions.size());
+            for (Map.Entry<String, Session> e : sessions.entrySet()) {
+                entries.add(Map.entry(e.getKey(), e.getValue().lastAccess));
+            }
+            entries.sort((a, b) -> Long.signum(a.getValue() - b.getValue()));
+            for (int i = 0; i < excess && i < entries.size(); i++) {
+                sessions.remove(entries.get(i).getKey());
+            }
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    private static final class Session {
+        final HistoryManager history;
+        volatile long lastAccess;
+
+        Session(HistoryManager history) {
+            this.history = history;
+            this.lastAccess = System.nanoTime(); // новая сессия — самая свежая, а не первая на вытеснение
+        }
+    }
+}
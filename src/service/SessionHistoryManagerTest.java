@@ -0,0 +1,48 @@
+package service;
+
+import model.Task;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SessionHistoryManagerTest {
+
+    private static Task task(int id) {
+        Task t = new Task();
+        t.setId(id);
+        return t;
+    }
+
+    private static List<Integer> ids(HistoryManager history) {
+        return history.getHistory().stream().map(Task::getId).toList();
+    }
+
+    @Test
+    void usersHaveSeparateHistories() {
+        SessionHistoryManager sessions = new SessionHistoryManager(InMemoryHistoryManager::new, 10);
+        sessions.forUser("alice").add(task(1));
+        sessions.forUser("bob").add(task(2));
+        sessions.forUser(null).add(task(3));
+
+        assertEquals(List.of(1), ids(sessions.forUser("alice")));
+        assertEquals(List.of(2), ids(sessions.forUser("bob")));
+        assertEquals(List.of(3), ids(sessions.defaultHistory()));
+        assertSame(sessions.defaultHistory(), sessions.forUser(SessionHistoryManager.DEFAULT_USER));
+    }
+
+    @Test
+    void idleSessionsAreEvicted() {
+        SessionHistoryManager sessions = new SessionHistoryManager(InMemoryHistoryManager::new, 100);
+        sessions.forUser("active").add(task(1));
+        for (int i = 0; i < 1_000; i++) {
+            sessions.forUser("user" + i).add(task(i));
+            sessions.forUser("active");
+            // только что созданная сессия не вытесняется тем же запросом
+            assertEquals(List.of(i), ids(sessions.forUser("user" + i)), "user" + i);
+        }
+        assertTrue(sessions.sessionCount() <= 100 + 16);
+        assertEquals(List.of(1), ids(sessions.forUser("active")));
+    }
+}
@@ -0,0 +1,14 @@
+package service;
+
+/**
+ * Формат полного снимка файлового хранилища. Загрузка распознаёт формат сама,
+ * поэтому смена настройки не требует конвертации: следующий снимок просто запишется в новом.
+ */
+public enum SnapshotFormat {
+    // текстовый CSV, читается человеком и прежними версиями
+    CSV,
+    // двоичный формат для быстрого старта через отображение файла в память
+    BINARY,
+    // файл — манифест, данные в сегментах по диапазонам id; сброс переписывает только затронутые
+    SEGMENTED
+}
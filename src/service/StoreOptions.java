@@ -0,0 +1,133 @@
+package service;
+
+/**
+ * Настройки записи файлового хранилища. Неизменяемые: {@code withX} возвращают копию.
+ */
+public final class StoreOptions {
+    public static final StoreOptions DEFAULT = new StoreOptions(Durability.SYNC,
+            FileBackedTasksManager.DEFAULT_FLUSH_INTERVAL_MS, FileBackedTasksManager.DEFAULT_FLUSH_BATCH,
+            FsyncPolicy.ALWAYS, 0, SnapshotFormat.CSV, 0, SegmentedStore.DEFAULT_SEGMENT_SIZE,
+            Compression.NONE, false);
+
+    private final Durability durability;
+    private final long flushIntervalMillis;
+    private final int flushBatch;
+    private final FsyncPolicy fsyncPolicy;
+    private final long fsyncIntervalMillis;
+    private final SnapshotFormat format;
+    private final int loadThreads;
+    private final int segmentSize;
+    private final Compression compression;
+    private final boolean lazyDescriptions;
+
+    private StoreOptions(Durability durability, long flushIntervalMillis, int flushBatch,
+                         FsyncPolicy fsyncPolicy, long fsyncIntervalMillis, SnapshotFormat format,
+                         int loadThreads, int segmentSize, Compression compression,
+                         boolean lazyDescriptions) {
+        if (flushIntervalMillis < 0) throw new IllegalArgumentException("Интервал сброса должен быть >= 0");
+        if (flushBatch <= 0) throw new IllegalArgumentException("Размер пачки должен быть > 0");
+        if (durability == Durability.BOUNDED_LOSS && flushIntervalMillis == 0) {
+            throw new IllegalArgumentException("BOUNDED_LOSS требует интервал сброса > 0");
+        }
+        if (fsyncPolicy == FsyncPolicy.INTERVAL && fsyncIntervalMillis <= 0) {
+            throw new IllegalArgumentException("FsyncPolicy.INTERVAL требует интервал > 0");
+        }
+        if (loadThreads < 0) throw new IllegalArgumentException("Число потоков загрузки должно быть >= 0");
+        if (segmentSize <= 0) throw new IllegalArgumentException("Ширина сегмента должна быть > 0");
+        this.durability = durability;
+        this.flushIntervalMillis = flushIntervalMillis;
+        this.flushBatch = flushBatch;
+        this.fsyncPolicy = fsyncPolicy;
+        this.fsyncIntervalMillis = fsyncIntervalMillis;
+        this.format = format;
+        this.loadThreads = loadThreads;
+        this.segmentSize = segmentSize;
+        this.compression = compression;
+        this.lazyDescriptions = lazyDescriptions;
+    }
+
+    public StoreOptions withDurability(Durability durability) {
+        return new StoreOptions(durability, flushIntervalMillis, flushBatch, fsyncPolicy, fsyncIntervalMillis, format,
+                loadThreads, segmentSize, compression, lazyDescriptions);
+    }
+
+    // интервал 0 отключает фоновый поток сброса
+    public StoreOptions withFlush(long intervalMillis, int batch) {
+        return new StoreOptions(durability, intervalMillis, batch, fsyncPolicy, fsyncIntervalMillis, format,
+                loadThreads, segmentSize, compression, lazyDescriptions);
+    }
+
+    public StoreOptions withFsync(FsyncPolicy policy, long intervalMillis) {
+        return new StoreOptions(durability, flushIntervalMillis, flushBatch, policy, intervalMillis, format,
+                loadThreads, segmentSize, compression, lazyDescriptions);
+    }
+
+    public StoreOptions withFormat(SnapshotFormat format) {
+        return new StoreOptions(durability, flushIntervalMillis, flushBatch, fsyncPolicy, fsyncIntervalMillis, format,
+                loadThreads, segmentSize, compression, lazyDescriptions);
+    }
+
+    // потоки разбора CSV при загрузке; 0 — общий ForkJoinPool
+    public StoreOptions withLoadThreads(int threads) {
+        return new StoreOptions(durability, flushIntervalMillis, flushBatch, fsyncPolicy, fsyncIntervalMillis, format,
+                threads, segmentSize, compression, lazyDescriptions);
+    }
+
+    // сколько подряд идущих id лежит в одном файле формата SEGMENTED; у существующего хранилища
+    // действует ширина из его манифеста
+    public StoreOptions withSegmentSize(int ids) {
+        return new StoreOptions(durability, flushIntervalMillis, flushBatch, fsyncPolicy, fsyncIntervalMillis, format,
+                loadThreads, ids, compression, lazyDescriptions);
+    }
+
+    public StoreOptions withCompression(Compression compression) {
+        return new StoreOptions(durability, flushIntervalMillis, flushBatch, fsyncPolicy, fsyncIntervalMillis, format,
+                loadThreads, segmentSize, compression, lazyDescriptions);
+    }
+
+    // только для двоичного снимка: длинные описания читаются из отображения файла по требованию
+    public StoreOptions withLazyDescriptions(boolean lazy) {
+        return new StoreOptions(durability, flushIntervalMillis, flushBatch, fsyncPolicy, fsyncIntervalMillis, format,
+                loadThreads, segmentSize, compression, lazy);
+    }
+
+    public Durability getDurability() {
+        return durability;
+    }
+
+    public long getFlushIntervalMillis() {
+        return flushIntervalMillis;
+    }
+
+    public int getFlushBatch() {
+        return flushBatch;
+    }
+
+    public FsyncPolicy getFsyncPolicy() {
+        return fsyncPolicy;
+    }
+
+    public long getFsyncIntervalMillis() {
+        return fsyncIntervalMillis;
+    }
+
+    public SnapshotFormat getFormat() {
+        return format;
+    }
+
+    public int getLoadThreads() {
+        return loadThreads;
+    }
+
+    public int getSegmentSize() {
+        return segmentSize;
+    }
+
+    public Compression getCompression() {
+        return compression;
+    }
+
+    public boolean isLazyDescriptions() {
+        return lazyDescriptions;
+    }
+}
@@ -0,0 +1,71 @@
+package service;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Consumer;
+
+/**
+ * Полосатый кольцевой буфер с потерями (по мотивам read buffers из Caffeine): запись без
+ * блокировок на пути чтения, перенос накопленного — пачкой под замком владельца.
+ * <p>
+ * {@link #offer} кладёт элемент в буфер, выбранный по потоку. Если буфер полон или CAS проиграл
+ * гонку, элемент теряется. {@link #drainTo} вызывает только один поток за раз — владелец держит
+ * для этого свой замок обслуживания.
+ */
+final class StripedBuffer<E> {
+    private static final int BUFFER_SIZE = 16;
+    private static final int BUFFER_MASK = BUFFER_SIZE - 1;
+    private static final int DRAIN_THRESHOLD = BUFFER_SIZE / 2;
+    private static final int MAX_STRIPES = 64;
+
+    private final Stripe[] stripes;
+    private final int stripeMask;
+
+    StripedBuffer() {
+        int n = Integer.highestOneBit(Math.min(MAX_STRIPES, Runtime.getRuntime().availableProcessors()) * 2 - 1);
+        this.stripes = new Stripe[n];
+        for (int i = 0; i < n; i++) stripes[i] = new Stripe();
+        this.stripeMask = n - 1;
+    }
+
+    // true — буфер заполнен хотя бы наполовину и его пора слить
+    boolean offer(E e) {
+        long h = Thread.currentThread().getId() * 0x9E3779B97F4A7C15L;
+        return stripes[(int) (h >>> 32) & stripeMask].offer(e) >= DRAIN_THRESHOLD;
+    }
+
+    void drainTo(Consumer<? super E> sink) {
+        for (Stripe s : stripes) s.drainTo(sink);
+    }
+
+    private static final class Stripe {
+        private final AtomicReferenceArray<Object> buffer = new AtomicReferenceArray<>(BUFFER_SIZE);
+        private final AtomicLong writeCounter = new AtomicLong();
+        private volatile long readCounter;
+
+        // возвращает число ожидающих записей или -1, если элемент отброшен
+        long offer(Object e) {
+            long head = readCounter;
+            long tail = writeCounter.get();
+            long size = tail - head;
+            if (size >= BUFFER_SIZE) return BUFFER_SIZE;
+            if (!writeCounter.compareAndSet(tail, tail + 1)) return -1;
+            buffer.lazySet((int) (tail & BUFFER_MASK), e);
+            return size + 1;
+        }
+
+        @SuppressWarnings("unchecked")
+        <T> void drainTo(Consumer<? super T> sink) {
+            long head = readCounter;
+            long tail = writeCounter.get();
+            for (; head < tail; head++) {
+                int i = (int) (head & BUFFER_MASK);
+                Object e = buffer.get(i);
+                if (e == null) break; // писатель занял ячейку, но ещё не опубликовал элемент
+                buffer.lazySet(i, null);
+                sink.accept((T) e);
+            }
+            readCounter = head;
+        }
+    }
+}
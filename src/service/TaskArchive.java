@@ -0,0 +1,272 @@
+package service;
+
+import model.Epic;
+import model.SubTask;
+import model.Task;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Predicate;
+import java.util.zip.CRC32C;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Холодный архив завершённых задач: файл только дописывается блоками.
+ * <pre>
+ * блок:  заголовок (32 байта): magic, версия, число строк, min id, max id, длина сжатых данных,
+ *                              CRC32C сжатых данных, резерв
+ *        GZIP-сжатый CSV-снимок строк блока (формат CsvWriter, без истории)
+ *        id строк блока по возрастанию (int) — индекс для поиска по id
+ * </pre>
+ * Эпик лежит в одном блоке со своими подзадачами. При открытии читаются только заголовки:
+ * в памяти по блоку смещение и диапазон id. Поиск по id — бинарный поиск в индексе тех блоков,
+ * чей диапазон его накрывает (от новых к старым), и разжатие одного блока; полный поиск
+ * разжимает все блоки подряд. Недописанный блок в конце (сбой посреди архивации) отрезается
+ * при открытии. Порядок байт — little-endian.
+ */
+final class TaskArchive {
+    static final int MAGIC = 0x52414D54; // "TMAR" в little-endian
+    static final int VERSION = 1;
+    static final int BLOCK_ROWS = 1_024;
+    private static final int HEADER_BYTES = 32;
+    private static final int READ_BLOCK_BYTES = 64 * 1024; // блок архива в разжатом виде — десятки КБ
+
+    private final Path file;
+    private final ForkJoinPool pool = ForkJoinPool.commonPool();
+    private long[] offsets = new long[16];
+    private int[] minIds = new int[16];
+    private int[] maxIds = new int[16];
+    private int blocks;
+    private long rows;
+    private long end;
+
+    private TaskArchive(Path file) {
+        this.file = file;
+    }
+
+    static TaskArchive open(Path file) throws IOException {
+        TaskArchive archive = new TaskArchive(file);
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE)) {
+            long size = ch.size();
+            ByteBuffer head = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            long pos = 0;
+            while (pos + HEADER_BYTES <= size) {
+                head.clear();
+                readFully(ch, head, pos);
+                if (head.getInt(0) != MAGIC || head.getInt(4) != VERSION) break;
+                int count = head.getInt(8);
+                long next = pos + HEADER_BYTES + head.getInt(20) + 4L * count;
+                if (count <= 0 || next > size) break;
+                archive.addBlock(pos, head.getInt(12), head.getInt(16), count);
+                pos = next;
+            }
+            archive.end = pos;
+            if (pos < size) {
+                ch.truncate(pos);
+                ch.force(true);
+            }
+        }
+        return archive;
+    }
+
+    synchronized long size() {
+        return rows;
+    }
+
+    /** Наибольший id в архиве или -1: счётчик id не должен выдать его повторно. */
+    synchronized int maxId() {
+        int max = -1;
+        for (int b = 0; b < blocks; b++) max = Math.max(max, maxIds[b]);
+        return max;
+    }
+
+    /**
+     * Дописывает строки: задачи, эпики и подзадачи этих эпиков. Блоки режутся по {@link #BLOCK_ROWS}
+     * строк, эпик не отрывается от своих подзадач. Возвращается после fsync.
+     */
+    synchronized void append(List<Task> tasks, List<Epic> epics, List<SubTask> subTasks) throws IOException {
+        Block block = new Block();
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            for (Task t : tasks) {
+                block.tasks.add(t);
+                if (block.size() >= BLOCK_ROWS) block = write(ch, block);
+            }
+            int s = 0;
+            List<SubTask> sorted = new ArrayList<>(subTasks);
+            sorted.sort((a, b) -> Integer.compare(a.getEpicId(), b.getEpicId()));
+            List<Epic> byId = new ArrayList<>(epics);
+            byId.sort((a, b) -> Integer.compare(a.getId(), b.getId()));
+            for (Epic e : byId) {
+                block.epics.add(e);
+                while (s < sorted.size() && sorted.get(s).getEpicId() < e.getId()) s++; // осиротевшие не пишем
+                while (s < sorted.size() && sorted.get(s).getEpicId() == e.getId()) block.subTasks.add(sorted.get(s++));
+                if (block.size() >= BLOCK_ROWS) block = write(ch, block);
+            }
+            if (block.size() > 0) write(ch, block);
+            ch.force(true);
+        }
+    }
+
+    /** Задача из архива по id или {@code null}; эпик — со списком своих подзадач. */
+    synchronized Task get(int id) throws IOException {
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.READ)) {
+            for (int b = blocks - 1; b >= 0; b--) {
+                if (id < minIds[b] || id > maxIds[b]) continue;
+                if (!indexed(ch, b, id)) continue;
+                for (Task t : readBlock(ch, b)) {
+                    if (t.getId() == id) return t;
+                }
+            }
+        }
+        return null;
+    }
+
+    /** Есть ли строка с таким id: только индексы блоков, без разжатия. */
+    synchronized boolean contains(int id) throws IOException {
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.READ)) {
+            for (int b = blocks - 1; b >= 0; b--) {
+                if (id >= minIds[b] && id <= maxIds[b] && indexed(ch, b, id)) return true;
+            }
+        }
+        return false;
+    }
+
+    /** Полный проход по архиву: до {@code limit} строк, прошедших фильтр, от новых блоков к старым. */
+    synchronized List<Task> search(Predicate<? super Task> filter, int limit) throws IOException {
+        List<Task> found = new ArrayList<>();
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.READ)) {
+            for (int b = blocks - 1; b >= 0 && found.size() < limit; b--) {
+                for (Task t : readBlock(ch, b)) {
+                    if (!filter.test(t)) continue;
+                    found.add(t);
+                    if (found.size() == limit) break;
+                }
+            }
+        }
+        return found;
+    }
+
+    private Block write(FileChannel ch, Block block) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        GZIPOutputStream gzip = new GZIPOutputStream(bytes, CsvWriter.BUFFER_BYTES);
+        new CsvWriter(Channels.newChannel(gzip), ByteBuffer.allocate(CsvWriter.BUFFER_BYTES))
+                .write(block.tasks, block.epics, block.subTasks, List.of());
+        gzip.finish();
+        byte[] data = bytes.toByteArray();
+
+        int[] ids = new int[block.size()];
+        int k = 0;
+        for (Task t : block.tasks) ids[k++] = t.getId();
+        for (Task t : block.epics) ids[k++] = t.getId();
+        for (Task t : block.subTasks) ids[k++] = t.getId();
+        Arrays.sort(ids);
+
+        CRC32C crc = new CRC32C();
+        crc.update(data, 0, data.length);
+        ByteBuffer buf = ByteBuffer.allocate(HEADER_BYTES + data.length + 4 * ids.length).order(ByteOrder.LITTLE_ENDIAN);
+        buf.putInt(MAGIC).putInt(VERSION).putInt(ids.length).putInt(ids[0]).putInt(ids[ids.length - 1])
+                .putInt(data.length).putInt((int) crc.getValue()).putInt(0);
+        buf.put(data);
+        for (int id : ids) buf.putInt(id);
+        buf.flip();
+        long pos = end;
+        while (buf.hasRemaining()) pos += ch.write(buf, pos);
+        addBlock(end, ids[0], ids[ids.length - 1], ids.length);
+        end = pos;
+        return new Block();
+    }
+
+    private void addBlock(long offset, int minId, int maxId, int count) {
+        if (blocks == offsets.length) {
+            offsets = Arrays.copyOf(offsets, blocks * 2);
+            minIds = Arrays.copyOf(minIds, blocks * 2);
+            maxIds = Arrays.copyOf(maxIds, blocks * 2);
+        }
+        offsets[blocks] = offset;
+        minIds[blocks] = minId;
+        maxIds[blocks] = maxId;
+        blocks++;
+        rows += count;
+    }
+
+    // бинарный поиск в индексе блока позиционными чтениями, без разжатия
+    private boolean indexed(FileChannel ch, int b, int id) throws IOException {
+        ByteBuffer head = header(ch, b);
+        int count = head.getInt(8);
+        long index = offsets[b] + HEADER_BYTES + head.getInt(20);
+        ByteBuffer cell = ByteBuffer.allocate(4).order(ByteOrder.LITTLE_ENDIAN);
+        int lo = 0;
+        int hi = count - 1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            cell.clear();
+            readFully(ch, cell, index + 4L * mid);
+            int v = cell.getInt(0);
+            if (v < id) lo = mid + 1;
+            else if (v > id) hi = mid - 1;
+            else return true;
+        }
+        return false;
+    }
+
+    private List<Task> readBlock(FileChannel ch, int b) throws IOException {
+        ByteBuffer head = header(ch, b);
+        ByteBuffer data = ByteBuffer.allocate(head.getInt(20));
+        readFully(ch, data, offsets[b] + HEADER_BYTES);
+        CRC32C crc = new CRC32C();
+        crc.update(data.array(), 0, data.capacity());
+        if ((int) crc.getValue() != head.getInt(24)) {
+            throw new ManagerSaveException("Повреждён блок архива " + file + " по смещению " + offsets[b]);
+        }
+        CsvLoader.Snapshot s = CsvLoader.read(new GZIPInputStream(new ByteArrayInputStream(data.array())), pool,
+                READ_BLOCK_BYTES);
+        Map<Integer, List<Integer>> subIds = new HashMap<>();
+        for (SubTask st : s.subTasks()) subIds.computeIfAbsent(st.getEpicId(), k -> new ArrayList<>()).add(st.getId());
+        List<Task> all = new ArrayList<>(s.tasks().size() + s.epics().size() + s.subTasks().size());
+        all.addAll(s.tasks());
+        for (Epic e : s.epics()) {
+            e.setSubTaskIds(subIds.getOrDefault(e.getId(), new ArrayList<>()));
+            all.add(e);
+        }
+        all.addAll(s.subTasks());
+        return all;
+    }
+
+    private ByteBuffer header(FileChannel ch, int b) throws IOException {
+        ByteBuffer head = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        readFully(ch, head, offsets[b]);
+        return head;
+    }
+
+    private static void readFully(FileChannel ch, ByteBuffer buf, long pos) throws IOException {
+        while (buf.hasRemaining()) {
+            int n = ch.read(buf, pos + buf.position());
+            if (n < 0) throw new IOException("Неожиданный конец файла архива");
+        }
+    }
+
+    private static final class Block {
+        final List<Task> tasks = new ArrayList<>();
+        final List<Epic> epics = new ArrayList<>();
+        final List<SubTask> subTasks = new ArrayList<>();
+
+        int size() {
+            return tasks.size() + epics.size() + subTasks.size();
+        }
+    }
+}
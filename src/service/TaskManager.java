@@ -8,6 +8,7 @@ import model.Task;
 import java.time.LocalDateTime;
 import java.util.List;
 import java.util.OptionalInt;
+import java.util.OptionalLong;
 
 public interface TaskManager {
 
@@ -23,6 +24,13 @@ public interface TaskManager {
 
     Task getTask(int id);
 
+    // то же, но просмотр попадает в историю пользователя user (пустой или null — общая история)
+    SubTask getSubTask(int id, String user);
+
+    Epic getEpic(int id, String user);
+
+    Task getTask(int id, String user);
+
     void deleteTask(int id);
 
     void deleteEpic(int id);
@@ -54,8 +62,31 @@ public interface TaskManager {
     void setSubTaskStatus(int id, Status status);
 
     List<Task> getHistory();
+
+    List<Task> getHistory(String user);
+
+    // самые читаемые задачи по убыванию оценки частоты (top-K, память фиксирована)
+    List<HotTask> getHotTasks(int limit);
+
+    // оценка числа обращений к задаче; со временем стареет
+    int getAccessFrequency(int id);
     List<Task> getPrioritizedTasks();
 
+    // blocker должен быть завершён раньше blocked; false — ребро уже есть или замкнуло бы цикл
+    boolean addDependency(int blockerId, int blockedId);
+
+    boolean removeDependency(int blockerId, int blockedId);
+
+    List<Integer> getBlockers(int id);
+
+    List<Integer> getBlockedBy(int id);
+
+    List<Integer> getDependencyOrder();
+
+    OptionalLong getCriticalPathMinutes(int epicId);
+
+    TaskStats getStats();
+
 
 
 }
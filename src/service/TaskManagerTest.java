@@ -4,6 +4,7 @@ import model.Epic;
 import model.Status;
 import model.SubTask;
 import model.Task;
+import model.TaskType;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
@@ -355,6 +356,134 @@ abstract class TaskManagerTest<T extends TaskManager> {
     }
 
 
+    @Test
+    void epicTimeIsRolledUpFromSubtasks() {
+        int epicId = mustAddEpic(mkEpic("E"));
+        LocalDateTime t9 = LocalDateTime.now().withHour(9).withMinute(0).withSecond(0).withNano(0);
+        mustAddSub(mkSubAt("S1", epicId, t9.plusHours(2), Duration.ofMinutes(30)));
+        int s2 = mustAddSub(mkSubAt("S2", epicId, t9, Duration.ofMinutes(45)));
+
+        Epic e = manager.getEpic(epicId);
+        assertEquals(t9, e.getStartTime());
+        assertEquals(Duration.ofMinutes(75), e.getDuration());
+        assertEquals(t9.plusMinutes(75), e.getEndTime().orElseThrow());
+
+        manager.deleteSubtask(s2);
+        e = manager.getEpic(epicId);
+        assertEquals(t9.plusHours(2), e.getStartTime());
+        assertEquals(Duration.ofMinutes(30), e.getDuration());
+    }
+
+
+    @Test
+    void dependencyCycleIsRejected() {
+        int a = mustAddTask(mkTask("A"));
+        int b = mustAddTask(mkTask("B"));
+        int c = mustAddTask(mkTask("C"));
+
+        assertTrue(manager.addDependency(a, b));
+        assertTrue(manager.addDependency(b, c));
+        assertFalse(manager.addDependency(c, a), "Ребро, замыкающее цикл, должно отклоняться");
+        assertFalse(manager.addDependency(a, b), "Повторное ребро не добавляется");
+        assertThrows(IllegalArgumentException.class, () -> manager.addDependency(a, 999999));
+
+        List<Integer> order = manager.getDependencyOrder();
+        assertTrue(order.indexOf(a) < order.indexOf(b) && order.indexOf(b) < order.indexOf(c));
+        assertEquals(List.of(a), manager.getBlockers(b));
+        assertEquals(List.of(c), manager.getBlockedBy(b));
+    }
+
+    @Test
+    void dependencyOrderIsRepairedOnBackwardEdge() {
+        int a = mustAddTask(mkTask("A"));
+        int b = mustAddTask(mkTask("B"));
+        int c = mustAddTask(mkTask("C"));
+        assertTrue(manager.addDependency(a, b));
+        assertTrue(manager.addDependency(c, a));
+
+        List<Integer> order = manager.getDependencyOrder();
+        assertTrue(order.indexOf(c) < order.indexOf(a) && order.indexOf(a) < order.indexOf(b));
+
+        manager.deleteTask(a);
+        assertTrue(manager.getBlockers(b).isEmpty());
+        assertTrue(manager.getDependencyOrder().isEmpty(), "соседи без рёбер тоже уходят из порядка");
+    }
+
+    @Test
+    void criticalPathFollowsDependenciesAndDurations() {
+        int epicId = mustAddEpic(mkEpic("E"));
+        LocalDateTime t9 = LocalDateTime.now().withHour(9).withMinute(0).withSecond(0).withNano(0);
+        int s1 = mustAddSub(mkSubAt("S1", epicId, t9, Duration.ofMinutes(30)));
+        int s2 = mustAddSub(mkSubAt("S2", epicId, t9.plusHours(1), Duration.ofMinutes(45)));
+        int s3 = mustAddSub(mkSubAt("S3", epicId, t9.plusHours(2), Duration.ofMinutes(60)));
+
+        assertEquals(60, manager.getCriticalPathMinutes(epicId).getAsLong());
+        assertTrue(manager.addDependency(s1, s2));
+        assertTrue(manager.addDependency(s2, s3));
+        assertEquals(135, manager.getCriticalPathMinutes(epicId).getAsLong());
+
+        assertTrue(manager.updateSubTask(s2, mkSubAt("S2", epicId, t9.plusHours(1), Duration.ofMinutes(15))));
+        assertEquals(105, manager.getCriticalPathMinutes(epicId).getAsLong());
+
+        assertTrue(manager.removeDependency(s1, s2));
+        assertEquals(75, manager.getCriticalPathMinutes(epicId).getAsLong());
+        assertTrue(manager.getCriticalPathMinutes(123456).isEmpty());
+    }
+
+
+    @Test
+    void statsFollowMutations() {
+        LocalDateTime t23 = LocalDateTime.now().withDayOfYear(100).withHour(23).withMinute(0).withSecond(0).withNano(0);
+        LocalDate day = t23.toLocalDate();
+        int tid = mustAddTask(mkTaskAt("T", t23, Duration.ofMinutes(90))); // переходит через полночь
+        int epicId = mustAddEpic(mkEpic("E"));
+        int s1 = mustAddSub(mkSubAt("S1", epicId, t23.minusHours(3), Duration.ofMinutes(60)));
+        mustAddSub(mkSub("S2", epicId));
+
+        TaskStats stats = manager.getStats();
+        assertEquals(1, stats.count(TaskType.TASK, Status.NEW));
+        assertEquals(2, stats.count(TaskType.SUBTASK));
+        assertEquals(1, stats.count(TaskType.EPIC, Status.NEW));
+        assertEquals(120, stats.scheduledMinutes(day));
+        assertEquals(30, stats.scheduledMinutes(day.plusDays(1)));
+
+        manager.setSubTaskStatus(s1, Status.DONE);
+        assertEquals(0.5, stats.epicCompletion(epicId), 1e-9);
+        assertEquals(1, stats.count(TaskType.EPIC, Status.IN_PROGRESS));
+        assertEquals(0, stats.count(TaskType.EPIC, Status.NEW));
+
+        manager.deleteTask(tid);
+        assertEquals(60, stats.scheduledMinutes(day));
+        assertEquals(0, stats.scheduledMinutes(day.plusDays(1)));
+        assertEquals(0, stats.count(TaskType.TASK));
+
+        manager.deleteEpic(epicId);
+        assertEquals(0, stats.count(TaskType.SUBTASK));
+        assertEquals(0, stats.count(TaskType.EPIC));
+        assertEquals(0, stats.scheduledMinutes(day));
+    }
+
+
+    @Test
+    void hotTasksRankByReads() {
+        int a = mustAddTask(mkTask("A"));
+        int b = mustAddTask(mkTask("B"));
+        int epicId = mustAddEpic(mkEpic("E"));
+        for (int i = 0; i < 5; i++) manager.getTask(a);
+        for (int i = 0; i < 3; i++) manager.getEpic(epicId);
+        manager.getTask(b, "alice");
+
+        List<HotTask> hot = manager.getHotTasks(2);
+        assertEquals(2, hot.size());
+        assertEquals(a, hot.get(0).getTask().getId());
+        assertEquals(epicId, hot.get(1).getTask().getId());
+        assertTrue(manager.getAccessFrequency(a) >= 5);
+
+        manager.deleteTask(a);
+        assertEquals(epicId, manager.getHotTasks(1).get(0).getTask().getId());
+    }
+
+
     private int mustAddTask(Task t) {
         OptionalInt oi = manager.addTask(t);
         assertTrue(oi.isPresent(), "Ожидался id задачи");
@@ -371,13 +500,13 @@ abstract class TaskManagerTest<T extends TaskManager> {
         return oi.getAsInt();
     }
 
-    private Task mkTaskAt(String name, LocalDateTime start, Duration dur) {
+    protected Task mkTaskAt(String name, LocalDateTime start, Duration dur) {
         Task t = mkTask(name);
         t.setStartTime(start);
         t.setDuration(dur);
         return t;
     }
-    private SubTask mkSubAt(String name, int epicId, LocalDateTime start, Duration dur) {
+    protected SubTask mkSubAt(String name, int epicId, LocalDateTime start, Duration dur) {
         SubTask st = mkSub(name, epicId);
         st.setStartTime(start);
         st.setDuration(dur);
@@ -0,0 +1,94 @@
+package service;
+
+import model.Epic;
+import model.Status;
+import model.SubTask;
+import model.Task;
+import model.TaskType;
+
+import java.time.LocalDate;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Агрегаты по задачам, которые менеджер обновляет внутри каждой мутации:
+ * счётчики по типу и статусу, запланированные минуты по дням и доля готовых подзадач эпиков.
+ * Любой запрос — O(1) или O(число дней), без обхода задач.
+ */
+public class TaskStats {
+    private static final int MINUTES_PER_DAY = 24 * 60;
+
+    private final int[][] counts = new int[TaskType.values().length][Status.values().length];
+    private final IntIntHashMap minutesByDay = new IntIntHashMap(64);
+    private final IntIntHashMap epicSubTasks = new IntIntHashMap(64);
+    private final IntIntHashMap epicDone = new IntIntHashMap(64);
+
+    public int count(TaskType type, Status status) {
+        return counts[type.ordinal()][status.ordinal()];
+    }
+
+    public int count(TaskType type) {
+        int sum = 0;
+        for (int c : counts[type.ordinal()]) sum += c;
+        return sum;
+    }
+
+    public long scheduledMinutes(LocalDate day) {
+        int m = minutesByDay.get((int) day.toEpochDay());
+        return m == IntIntHashMap.MISSING ? 0 : m;
+    }
+
+    public Map<LocalDate, Long> scheduledMinutes(LocalDate from, LocalDate to) {
+        Map<LocalDate, Long> result = new LinkedHashMap<>();
+        for (LocalDate d = from; !d.isAfter(to); d = d.plusDays(1)) {
+            result.put(d, scheduledMinutes(d));
+        }
+        return result;
+    }
+
+    // доля подзадач эпика в статусе DONE; 0 для эпика без подзадач
+    public double epicCompletion(int epicId) {
+        int total = get(epicSubTasks, epicId);
+        return total == 0 ? 0.0 : get(epicDone, epicId) / (double) total;
+    }
+
+    void add(Task t) {
+        apply(t, 1);
+    }
+
+    // счётчики эпика обнуляются сами, когда из статистики уходят все его подзадачи
+    void remove(Task t) {
+        apply(t, -1);
+    }
+
+    private void apply(Task t, int sign) {
+        if (t.getStatus() != null) counts[TaskType.of(t).ordinal()][t.getStatus().ordinal()] += sign;
+        if (t instanceof Epic) return; // время эпика — сумма подзадач, не считаем дважды
+        if (t instanceof SubTask s) {
+            addTo(epicSubTasks, s.getEpicId(), sign);
+            if (s.getStatus() == Status.DONE) addTo(epicDone, s.getEpicId(), sign);
+        }
+        if (t.hasStartTime() && t.hasDuration() && t.getDurationMinutes() > 0) {
+            long start = t.getStartMinutes();
+            long end = start + t.getDurationMinutes();
+            while (start < end) {
+                long day = Math.floorDiv(start, MINUTES_PER_DAY);
+                long dayEnd = (day + 1) * MINUTES_PER_DAY;
+                long part = Math.min(end, dayEnd) - start;
+                addTo(minutesByDay, (int) day, (int) (sign * part));
+                start += part;
+            }
+        }
+    }
+
+    private static int get(IntIntHashMap map, int key) {
+        int v = map.get(key);
+        return v == IntIntHashMap.MISSING ? 0 : v;
+    }
+
+    private static void addTo(IntIntHashMap map, int key, int delta) {
+        int v = get(map, key) + delta;
+        if (v == 0) map.remove(key);
+        else map.put(key, v);
+    }
+}
@@ -0,0 +1,58 @@
+package service;
+
+import model.Task;
+
+import java.util.function.Consumer;
+
+/**
+ * Хранилище сущностей, в которое {@link InMemoryTaskManager} пишет насквозь: каждая мутация
+ * сохраняет затронутые задачи целиком по id или удаляет их. Менеджер держит рабочее состояние
+ * в памяти и читает хранилище только при старте ({@link #scan}), так что движок хранения можно
+ * подбирать и мерить отдельно от логики задач.
+ */
+public interface TaskStore extends AutoCloseable {
+
+    /** Хранилище, которое ничего не хранит: менеджер без персистентности. */
+    TaskStore NONE = new TaskStore() {
+        @Override
+        public void put(Task task) {
+        }
+
+        @Override
+        public void delete(int id) {
+        }
+
+        @Override
+        public Task get(int id) {
+            return null;
+        }
+
+        @Override
+        public void scan(Consumer<Task> consumer) {
+        }
+
+        @Override
+        public void snapshot() {
+        }
+
+        @Override
+        public void close() {
+        }
+    };
+
+    // сущность сохраняется копией: дальнейшие изменения объекта в хранилище не попадают
+    void put(Task task);
+
+    void delete(int id);
+
+    Task get(int id);
+
+    // все живые сущности по возрастанию id
+    void scan(Consumer<Task> consumer);
+
+    // фиксирует на диске всё записанное к этому моменту
+    void snapshot();
+
+    @Override
+    void close();
+}
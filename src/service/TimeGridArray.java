@@ -1,47 +1,59 @@
 package service;
 
+import model.Task;
+
 import java.time.*;
-import java.time.temporal.ChronoUnit;
 import java.util.Arrays;
 
 public final class TimeGridArray {
-    private static final int SLOT_MIN = 15;
+    static final int SLOT_MIN = 15;
 
-    private final LocalDateTime yearStart;
+    private final long yearStart;
     private final boolean[] busy;
 
     public TimeGridArray(LocalDateTime nowMoment) {
-        this.yearStart = LocalDate.of(nowMoment.getYear(), 1, 1).atStartOfDay();
+        this.yearStart = Task.toEpochMinutes(LocalDate.of(nowMoment.getYear(), 1, 1).atStartOfDay());
         int slots = LocalDate.of(nowMoment.getYear(), 1, 1).lengthOfYear() * 24 * (60 / SLOT_MIN);
         this.busy = new boolean[slots];
     }
 
-    private int slot(LocalDateTime t) {
-        long minutes = ChronoUnit.MINUTES.between(yearStart, t);
+    private int slot(long startMinutes) {
+        long minutes = startMinutes - yearStart;
         int totalMinutes = busy.length * SLOT_MIN;
-        if (minutes < 0 || minutes >= totalMinutes) {
+        if (startMinutes == Task.NO_START || minutes < 0 || minutes >= totalMinutes) {
             throw new IllegalArgumentException("Время вне границ года");
         }
         return (int) (minutes / SLOT_MIN);
     }
 
-    private int span(Duration d) {
-        long m = d.toMinutes();
-        return (int) Math.ceil(m / (double) SLOT_MIN);
+    private int span(int durationMinutes) {
+        return (durationMinutes + SLOT_MIN - 1) / SLOT_MIN;
     }
 
     public boolean intersects(LocalDateTime start, Duration dur) {
-        int from = slot(start);
-        int to = from + span(dur);
+        return intersects(Task.toEpochMinutes(start), Math.toIntExact(dur.toMinutes()));
+    }
+
+    public boolean tryReserve(LocalDateTime start, Duration dur) {
+        return tryReserve(Task.toEpochMinutes(start), Math.toIntExact(dur.toMinutes()));
+    }
+
+    public void release(LocalDateTime start, Duration dur) {
+        release(Task.toEpochMinutes(start), Math.toIntExact(dur.toMinutes()));
+    }
+
+    public boolean intersects(long startMinutes, int durationMinutes) {
+        int from = slot(startMinutes);
+        int to = from + span(durationMinutes);
         for (int i = from; i < to; i++) {
             if (busy[i]) return true;
         }
         return false;
     }
 
-    public boolean tryReserve(LocalDateTime start, Duration dur) {
-        int from = slot(start);
-        int to = from + span(dur);
+    public boolean tryReserve(long startMinutes, int durationMinutes) {
+        int from = slot(startMinutes);
+        int to = from + span(durationMinutes);
         for (int i = from; i < to; i++) {
             if (busy[i]) return false;
         }
@@ -49,9 +61,31 @@ public final class TimeGridArray {
         return true;
     }
 
-    public void release(LocalDateTime start, Duration dur) {
-        int from = slot(start);
-        int to = from + span(dur);
+    public void release(long startMinutes, int durationMinutes) {
+        int from = slot(startMinutes);
+        int to = from + span(durationMinutes);
         Arrays.fill(busy, from, to, false);
     }
+
+    /**
+     * Свободные промежутки сетки начиная с первого целого слота не раньше {@code fromMinutes}:
+     * пары (старт в минутах от эпохи, длина в минутах).
+     */
+    public long[] freeRuns(long fromMinutes) {
+        long offset = Math.max(0, fromMinutes - yearStart);
+        int i = (int) Math.min(busy.length, (offset + SLOT_MIN - 1) / SLOT_MIN);
+        long[] runs = new long[16];
+        int n = 0;
+        while (i < busy.length) {
+            while (i < busy.length && busy[i]) i++;
+            int start = i;
+            while (i < busy.length && !busy[i]) i++;
+            if (i > start) {
+                if (n == runs.length) runs = Arrays.copyOf(runs, n * 2);
+                runs[n++] = yearStart + (long) start * SLOT_MIN;
+                runs[n++] = (long) (i - start) * SLOT_MIN;
+            }
+        }
+        return Arrays.copyOf(runs, n);
+    }
 }